@@ -23,8 +23,10 @@ import static org.slf4j.LoggerFactory.getLogger;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
@@ -39,7 +41,7 @@ import org.onosproject.cluster.ClusterService;
 import org.onosproject.cluster.ControllerNode;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
-import org.onosproject.store.service.ConsistentMap;
+import org.onosproject.store.service.AsyncConsistentMap;
 import org.onosproject.store.service.Serializer;
 import org.onosproject.store.service.StorageService;
 import org.slf4j.Logger;
@@ -71,7 +73,7 @@ public class DatabasePerfInstaller {
     private AtomicInteger successCount = new AtomicInteger(0);
     private AtomicInteger failureCount = new AtomicInteger(0);
 
-    private ConsistentMap<String, String> cmap;
+    private AsyncConsistentMap<String, String> cmap;
 
     private ControllerNode localNode;
 
@@ -80,6 +82,11 @@ public class DatabasePerfInstaller {
     private static final int NUM_TASK_THREADS = 2;
     private ExecutorService taskExecutor;
 
+    // Bounds the number of operations the workers keep in flight
+    private static final int MAX_OUTSTANDING_OPERATIONS = 256;
+    private final Semaphore outstandingOperations =
+            new Semaphore(MAX_OUTSTANDING_OPERATIONS);
+
     private static final Serializer SERIALIZER = new Serializer() {
 
         KryoNamespace kryo = new KryoNamespace.Builder().build();
@@ -103,7 +110,7 @@ public class DatabasePerfInstaller {
         appId = coreService.registerApplication("org.onosproject.nettyperf."
                                                         + nodeId);
 
-        cmap = storageService.createConsistentMap("onos-app-database-perf-test-map", SERIALIZER);
+        cmap = storageService.createAsyncConsistentMap("onos-app-database-perf-test-map", SERIALIZER);
         taskExecutor = Executors.newFixedThreadPool(NUM_TASK_THREADS, groupedThreads("onos/database-perf", "worker"));
         log.info("Started with Application ID {}", appId.id());
         start();
@@ -131,7 +138,6 @@ public class DatabasePerfInstaller {
                 delay(2000); // take a breath to start
                 while (!stopped) {
                     performDBOperation();
-                    delay(2); // take a breather
                 }
             });
         });
@@ -140,13 +146,29 @@ public class DatabasePerfInstaller {
     private void performDBOperation() {
         String key = String.format("test%d", RandomUtils.nextInt(1000));
         try {
+            outstandingOperations.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+            return;
+        }
+        try {
+            CompletableFuture<?> result;
             if (RandomUtils.nextBoolean()) {
-                cmap.put(key, UUID.randomUUID().toString());
+                result = cmap.put(key, UUID.randomUUID().toString());
             } else {
-                cmap.get(key);
+                result = cmap.get(key);
             }
-            successCount.incrementAndGet();
+            result.whenComplete((r, error) -> {
+                outstandingOperations.release();
+                if (error == null) {
+                    successCount.incrementAndGet();
+                } else {
+                    failureCount.incrementAndGet();
+                }
+            });
         } catch (Exception e) {
+            outstandingOperations.release();
             failureCount.incrementAndGet();
         }
     }
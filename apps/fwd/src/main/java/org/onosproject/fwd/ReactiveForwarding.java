@@ -29,6 +29,7 @@ import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.onlab.packet.Ethernet;
+import org.onlab.packet.EthernetView;
 import org.onlab.packet.IPv4;
 import org.onlab.packet.IPv6;
 import org.onlab.packet.TCP;
@@ -352,8 +353,10 @@ public class ReactiveForwarding {
                 return;
             }
 
+            // Only header fields are needed here, so the packet is looked
+            // at through its view rather than parsed
             InboundPacket pkt = context.inPacket();
-            Ethernet ethPkt = pkt.parsed();
+            EthernetView ethPkt = pkt.view();
 
             if (ethPkt == null) {
                 return;
@@ -422,14 +425,14 @@ public class ReactiveForwarding {
     }
 
     // Indicates whether this is a control packet, e.g. LLDP, BDDP
-    private boolean isControlPacket(Ethernet eth) {
+    private boolean isControlPacket(EthernetView eth) {
         short type = eth.getEtherType();
         return type == Ethernet.TYPE_LLDP || type == Ethernet.TYPE_BSN;
     }
 
     // Indicated whether this is an IPv6 multicast packet.
-    private boolean isIpv6Multicast(Ethernet eth) {
-        return eth.getEtherType() == Ethernet.TYPE_IPV6 && eth.isMulticast();
+    private boolean isIpv6Multicast(EthernetView eth) {
+        return eth.getEtherType() == Ethernet.TYPE_IPV6 && eth.getDestinationMAC().isMulticast();
     }
 
     // Selects a path from the given set that does not lead back to the
@@ -465,7 +468,7 @@ public class ReactiveForwarding {
         // We don't support (yet) buffer IDs in the Flow Service so
         // packet out first.
         //
-        Ethernet inPkt = context.inPacket().parsed();
+        EthernetView inPkt = context.inPacket().view();
         TrafficSelector.Builder builder = DefaultTrafficSelector.builder();
 
         // If PacketOutOnly or ARP packet than forward directly to output port
@@ -495,38 +498,40 @@ public class ReactiveForwarding {
 
             //
             // If configured and EtherType is IPv4 - Match IPv4 and
-            // TCP/UDP/ICMP fields
+            // TCP/UDP/ICMP fields.
+            // Fields the view does not decode are taken from the parsed packet.
             //
-            if (matchIpv4Address && inPkt.getEtherType() == Ethernet.TYPE_IPV4) {
-                IPv4 ipv4Packet = (IPv4) inPkt.getPayload();
-                byte ipv4Protocol = ipv4Packet.getProtocol();
+            if (matchIpv4Address && inPkt.isIpv4()) {
+                byte ipv4Protocol = inPkt.getIpProtocol();
                 Ip4Prefix matchIp4SrcPrefix =
-                    Ip4Prefix.valueOf(ipv4Packet.getSourceAddress(),
+                    Ip4Prefix.valueOf(inPkt.getIpv4SourceAddress(),
                                       Ip4Prefix.MAX_MASK_LENGTH);
                 Ip4Prefix matchIp4DstPrefix =
-                    Ip4Prefix.valueOf(ipv4Packet.getDestinationAddress(),
+                    Ip4Prefix.valueOf(inPkt.getIpv4DestinationAddress(),
                                       Ip4Prefix.MAX_MASK_LENGTH);
                 builder.matchIPSrc(matchIp4SrcPrefix)
                         .matchIPDst(matchIp4DstPrefix)
                         .matchIPProtocol(ipv4Protocol);
 
                 if (matchIpv4Dscp) {
+                    IPv4 ipv4Packet = (IPv4) context.inPacket().parsed().getPayload();
                     byte dscp = ipv4Packet.getDscp();
                     byte ecn = ipv4Packet.getEcn();
                     builder.matchIPDscp(dscp).matchIPEcn(ecn);
                 }
 
-                if (matchTcpUdpPorts && ipv4Protocol == IPv4.PROTOCOL_TCP) {
-                    TCP tcpPacket = (TCP) ipv4Packet.getPayload();
-                    builder.matchTcpSrc(tcpPacket.getSourcePort())
-                            .matchTcpDst(tcpPacket.getDestinationPort());
+                if (matchTcpUdpPorts && ipv4Protocol == IPv4.PROTOCOL_TCP &&
+                        inPkt.hasTransportPorts()) {
+                    builder.matchTcpSrc(inPkt.getTransportSourcePort())
+                            .matchTcpDst(inPkt.getTransportDestinationPort());
                 }
-                if (matchTcpUdpPorts && ipv4Protocol == IPv4.PROTOCOL_UDP) {
-                    UDP udpPacket = (UDP) ipv4Packet.getPayload();
-                    builder.matchUdpSrc(udpPacket.getSourcePort())
-                            .matchUdpDst(udpPacket.getDestinationPort());
+                if (matchTcpUdpPorts && ipv4Protocol == IPv4.PROTOCOL_UDP &&
+                        inPkt.hasTransportPorts()) {
+                    builder.matchUdpSrc(inPkt.getTransportSourcePort())
+                            .matchUdpDst(inPkt.getTransportDestinationPort());
                 }
                 if (matchIcmpFields && ipv4Protocol == IPv4.PROTOCOL_ICMP) {
+                    IPv4 ipv4Packet = (IPv4) context.inPacket().parsed().getPayload();
                     ICMP icmpPacket = (ICMP) ipv4Packet.getPayload();
                     builder.matchIcmpType(icmpPacket.getIcmpType())
                             .matchIcmpCode(icmpPacket.getIcmpCode());
@@ -538,7 +543,7 @@ public class ReactiveForwarding {
             // TCP/UDP/ICMP fields
             //
             if (matchIpv6Address && inPkt.getEtherType() == Ethernet.TYPE_IPV6) {
-                IPv6 ipv6Packet = (IPv6) inPkt.getPayload();
+                IPv6 ipv6Packet = (IPv6) context.inPacket().parsed().getPayload();
                 byte ipv6NextHeader = ipv6Packet.getNextHeader();
                 Ip6Prefix matchIp6SrcPrefix =
                     Ip6Prefix.valueOf(ipv6Packet.getSourceAddress(),
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.cli.net;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.cli.AbstractShellCommand;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.net.intent.Intent;
+import org.onosproject.net.intent.IntentService;
+import org.onosproject.net.intent.PartitionService;
+
+/**
+ * Lists the intent keyspace partitions, with their leader and load.
+ */
+@Command(scope = "onos", name = "intent-partitions",
+         description = "Lists the intent keyspace partitions, with their leader and load")
+public class IntentPartitionsListCommand extends AbstractShellCommand {
+
+    private static final String FMT =
+            "partition=%d, leader=%s, intents=%d, lookups=%d";
+
+    @Override
+    protected void execute() {
+        PartitionService partitionService = get(PartitionService.class);
+        IntentService intentService = get(IntentService.class);
+
+        int partitionCount = partitionService.getPartitionCount();
+        int[] intentCounts = new int[partitionCount];
+        for (Intent intent : intentService.getIntents()) {
+            int partition = partitionService.getPartition(intent.key());
+            if (partition < partitionCount) {
+                intentCounts[partition]++;
+            }
+        }
+
+        if (outputJson()) {
+            print("%s", json(partitionService, intentCounts));
+        } else {
+            for (int p = 0; p < partitionCount; p++) {
+                print(FMT, p, partitionService.getPartitionLeader(p),
+                      intentCounts[p], partitionService.getPartitionLookupCount(p));
+            }
+        }
+    }
+
+    // Produces a JSON result.
+    private JsonNode json(PartitionService partitionService, int[] intentCounts) {
+        ObjectMapper mapper = new ObjectMapper();
+        ArrayNode result = mapper.createArrayNode();
+        for (int p = 0; p < intentCounts.length; p++) {
+            NodeId leader = partitionService.getPartitionLeader(p);
+            result.add(mapper.createObjectNode()
+                               .put("partition", p)
+                               .put("leader", leader != null ? leader.toString() : null)
+                               .put("intentCount", intentCounts[p])
+                               .put("lookups", partitionService.getPartitionLookupCount(p)));
+        }
+        return result;
+    }
+
+}
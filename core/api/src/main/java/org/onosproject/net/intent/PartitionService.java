@@ -22,6 +22,11 @@ import org.onosproject.cluster.NodeId;
  */
 public interface PartitionService {
 
+    /**
+     * Prefix of the leadership topics under which the partitions are contested.
+     */
+    String PARTITION_TOPIC_PREFIX = "intent-partition-";
+
     /**
      * Returns whether the given intent key is in a partition owned by this
      * instance or not.
@@ -39,5 +44,35 @@ public interface PartitionService {
      */
     NodeId getLeader(Key intentKey);
 
-    // TODO add API for rebalancing partitions
+    /**
+     * Returns the number of partitions the intent keyspace is divided into.
+     *
+     * @return partition count
+     */
+    int getPartitionCount();
+
+    /**
+     * Returns the partition the given intent key belongs to.
+     *
+     * @param intentKey intent key to query
+     * @return partition number, from 0 up to the partition count
+     */
+    int getPartition(Key intentKey);
+
+    /**
+     * Returns the leader of a particular partition.
+     *
+     * @param partition partition number
+     * @return the leader node; null if the partition has no leader
+     */
+    NodeId getPartitionLeader(int partition);
+
+    /**
+     * Returns the number of intent key lookups that fell into a particular
+     * partition on this instance.
+     *
+     * @param partition partition number
+     * @return number of lookups
+     */
+    long getPartitionLookupCount(int partition);
 }
@@ -17,6 +17,7 @@ package org.onosproject.net.packet;
 
 import org.onosproject.net.ConnectPoint;
 import org.onlab.packet.Ethernet;
+import org.onlab.packet.EthernetView;
 
 import java.nio.ByteBuffer;
 
@@ -47,4 +48,17 @@ public interface InboundPacket {
      */
     ByteBuffer unparsed();
 
+    /**
+     * Returns a view of the unparsed packet data, which decodes header
+     * fields as they are requested. Inspecting a few header fields through
+     * the view is cheaper than parsing the whole packet.
+     *
+     * @return view of the Ethernet frame; null if the packet is too short
+     * to be an Ethernet frame
+     */
+    default EthernetView view() {
+        ByteBuffer unparsed = unparsed();
+        return unparsed == null ? null : EthernetView.of(unparsed);
+    }
+
 }
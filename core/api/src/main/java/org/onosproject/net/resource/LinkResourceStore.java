@@ -32,6 +32,30 @@ public interface LinkResourceStore {
      */
     Set<ResourceAllocation> getFreeResources(Link link);
 
+    /**
+     * Returns the bandwidth of given link that is not allocated.
+     *
+     * @param link a target link
+     * @return free bandwidth of given link
+     */
+    Bandwidth getFreeBandwidth(Link link);
+
+    /**
+     * Returns the lambdas of given link that are not allocated.
+     *
+     * @param link a target link
+     * @return free lambdas of given link
+     */
+    Set<Lambda> getFreeLambdas(Link link);
+
+    /**
+     * Returns the first free MPLS label of given link.
+     *
+     * @param link a target link
+     * @return free MPLS label, or null if there is none
+     */
+    MplsLabel getFreeMplsLabel(Link link);
+
     /**
      * Allocates resources.
      *
@@ -27,6 +27,7 @@ public class DefaultLoad implements Load {
     private final long current;
     private final long previous;
     private final long time;
+    private final long interval;
 
     /**
      * Creates an invalid load.
@@ -36,6 +37,7 @@ public class DefaultLoad implements Load {
         this.time = System.currentTimeMillis();
         this.current = -1;
         this.previous = -1;
+        this.interval = FlowRuleProvider.POLL_INTERVAL;
     }
 
     /**
@@ -44,15 +46,27 @@ public class DefaultLoad implements Load {
      * @param previous the previous value
      */
     public DefaultLoad(long current, long previous) {
+        this(current, previous, FlowRuleProvider.POLL_INTERVAL);
+    }
+
+    /**
+     * Creates a load value from the parameters.
+     * @param current the current value
+     * @param previous the previous value
+     * @param interval time between the previous and the current value,
+     *                 in seconds
+     */
+    public DefaultLoad(long current, long previous, long interval) {
         this.current = current;
         this.previous = previous;
+        this.interval = Math.max(interval, 1);
         this.time = System.currentTimeMillis();
         this.isValid = true;
     }
 
     @Override
     public long rate() {
-        return (current - previous) / FlowRuleProvider.POLL_INTERVAL;
+        return (current - previous) / interval;
     }
 
     @Override
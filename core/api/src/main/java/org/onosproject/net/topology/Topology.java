@@ -40,7 +40,9 @@ public interface Topology extends Provided {
 
     /**
      * Returns the time, specified in system nanos of how long the topology took
-     * to compute.
+     * to compute. For a topology derived incrementally from its predecessor,
+     * this is the cost of the incremental update rather than of a full
+     * computation.
      *
      * @return elapsed time in system nanos
      */
@@ -132,19 +132,27 @@ public class ClusterMessage {
      * @return cluster message
      */
     public static ClusterMessage fromBytes(byte[] bytes) {
+        // Strings are decoded straight from the backing array and only the
+        // payload is copied out
         ByteBuffer buffer = ByteBuffer.wrap(bytes);
-        byte[] senderBytes = new byte[buffer.getInt()];
-        buffer.get(senderBytes);
-        byte[] subjectBytes = new byte[buffer.getInt()];
-        buffer.get(subjectBytes);
-        byte[] payloadBytes = new byte[buffer.getInt()];
-        buffer.get(payloadBytes);
-
-        return new ClusterMessage(new NodeId(new String(senderBytes, Charsets.UTF_8)),
-                new MessageSubject(new String(senderBytes, Charsets.UTF_8)),
+        String sender = readString(buffer);
+        String subject = readString(buffer);
+        int payloadLength = buffer.getInt();
+        byte[] payloadBytes = Arrays.copyOfRange(bytes, buffer.position(),
+                                                 buffer.position() + payloadLength);
+
+        return new ClusterMessage(new NodeId(sender),
+                new MessageSubject(subject),
                 payloadBytes);
     }
 
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String value = new String(buffer.array(), buffer.position(), length, Charsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(sender, subject, payload);
@@ -39,6 +39,40 @@ public interface StorageService {
      */
     <K, V> ConsistentMap<K , V> createConsistentMap(String name, Serializer serializer);
 
+    /**
+     * Creates an AsyncConsistentMap.
+     *
+     * @param name map name
+     * @param serializer serializer to use for serializing keys and values.
+     * @return async consistent map.
+     * @param <K> key type
+     * @param <V> value type
+     */
+    <K, V> AsyncConsistentMap<K , V> createAsyncConsistentMap(String name, Serializer serializer);
+
+    /**
+     * Creates a ConsistentMap that keeps a local cache of the values it reads.
+     * <p>
+     * A cached value is served until the local replica of the database has
+     * applied a newer update of its key, made through any node, and in any
+     * case no longer than the specified staleness bound. This is meant for
+     * maps that are read much more often than they are updated and can
+     * tolerate reads that briefly lag behind updates made by other nodes.
+     * If the local node does not replicate the whole database, the map
+     * keeps no cache.
+     * </p>
+     *
+     * @param name map name
+     * @param serializer serializer to use for serializing keys and values.
+     * @param cacheSize maximum number of values to cache
+     * @param maxStalenessMillis maximum time in millis a value is served from the cache
+     * @return consistent map.
+     * @param <K> key type
+     * @param <V> value type
+     */
+    <K, V> ConsistentMap<K , V> createCachedConsistentMap(String name, Serializer serializer,
+                                                          int cacheSize, long maxStalenessMillis);
+
     /**
      * Creates a new transaction context.
      * @return transaction context
@@ -26,6 +26,7 @@ import com.google.common.testing.EqualsTester;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.onlab.junit.ImmutableClassChecker.assertThatClassIsImmutable;
 import static org.onosproject.net.NetTestTools.connectPoint;
 
@@ -78,4 +79,17 @@ public class DefaultInboundPacketTest {
         assertThat(packet1.parsed(), equalTo(eth));
         assertThat(packet1.unparsed(), notNullValue());
     }
+
+    /**
+     * Tests the creation of a packet parsed on demand from its raw bytes.
+     */
+    @Test
+    public void testLazyConstruction() {
+        DefaultInboundPacket packet =
+                new DefaultInboundPacket(connectPoint("d1", 1), byteBuffer);
+        assertThat(packet.view().getEtherType(), equalTo(eth.getEtherType()));
+        assertThat(packet.view().getSourceMAC(), equalTo(MacAddress.BROADCAST));
+        assertThat(packet.parsed().getSourceMAC(), equalTo(MacAddress.BROADCAST));
+        assertThat(packet.parsed(), sameInstance(packet.parsed()));
+    }
 }
@@ -15,94 +15,409 @@
  */
 package org.onosproject.event.impl;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onosproject.event.AbstractEvent;
 import org.onosproject.event.DefaultEventSinkRegistry;
 import org.onosproject.event.Event;
 import org.onosproject.event.EventDeliveryService;
 import org.onosproject.event.EventSink;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static org.onlab.util.Tools.get;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * Simple implementation of an event dispatching service.
+ * <p>
+ * By default all events are delivered in order from a single queue. When
+ * the {@code sharded} property is set, each event class is given its own
+ * queue and dispatch thread instead, so that a slow sink only delays the
+ * events of its own class. The mode is chosen at activation only, as
+ * switching it while events are queued would let new events overtake older
+ * ones. In both modes events are drained in batches and the queue depth and
+ * dispatch latency of each event class are reported as metrics. When
+ * {@code maxProcessMs} is set, a watchdog also reports sinks that spend
+ * longer than that on a single event; such sinks are logged and
+ * counted as stalled, but are left to finish so that delivery stays in order.
+ * </p>
  */
 @Component(immediate = true)
 @Service
 public class CoreEventDispatcher extends DefaultEventSinkRegistry
         implements EventDeliveryService {
 
+    private static final boolean DEFAULT_SHARDED = false;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    private static final int DEFAULT_MAX_PROCESS_MS = 0;
+
+    private static final String COMPONENT = "EventDispatcher";
+    private static final String QUEUE_DEPTH = "queueDepth";
+    private static final String DISPATCH_LATENCY = "dispatchLatency";
+    private static final String STALLS = "stalls";
+
     private final Logger log = getLogger(getClass());
 
-    private final ExecutorService executor =
-            newSingleThreadExecutor(groupedThreads("onos/event", "dispatch-%d"));
+    @Property(name = "sharded", boolValue = DEFAULT_SHARDED,
+            label = "Dispatch each event class from its own queue and thread; " +
+                    "takes effect on restart")
+    private volatile boolean sharded = DEFAULT_SHARDED;
+
+    @Property(name = "maxBatchSize", intValue = DEFAULT_MAX_BATCH_SIZE,
+            label = "Maximum number of events drained from a queue at once")
+    private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    @Property(name = "maxProcessMs", intValue = DEFAULT_MAX_PROCESS_MS,
+            label = "Number of millis a sink may spend on one event before " +
+                    "it is reported as stalled; 0 disables the watchdog")
+    private volatile int maxProcessMs = DEFAULT_MAX_PROCESS_MS;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
 
     @SuppressWarnings("unchecked")
     private static final Event KILL_PILL = new AbstractEvent(null, 0) {
     };
 
-    private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+    private final DispatchQueue defaultQueue = new DispatchQueue("all");
+    private final ConcurrentMap<Class<?>, DispatchQueue> shardedQueues =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, EventMetrics> eventMetrics =
+            new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService watchdog;
+    private ScheduledFuture<?> watchdogTask;
+    private MetricsComponent metricsComponent;
 
     private volatile boolean stopped = false;
 
     @Override
     public void post(Event event) {
-        events.add(event);
+        metrics(event.getClass()).depth.incrementAndGet();
+        queue(event.getClass()).events.add(event);
     }
 
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
         stopped = false;
-        executor.execute(new DispatchLoop());
+        metricsComponent = metricsService.registerComponent(COMPONENT);
+        if (context != null) {
+            String s = get(context.getProperties(), "sharded");
+            sharded = isNullOrEmpty(s) ? DEFAULT_SHARDED : Boolean.parseBoolean(s);
+        }
+        watchdog = newSingleThreadScheduledExecutor(groupedThreads("onos/event", "watchdog-%d"));
+        modified(context);
+        defaultQueue.start();
         log.info("Started");
     }
 
     @Deactivate
     public void deactivate() {
         stopped = true;
-        post(KILL_PILL);
+        watchdog.shutdownNow();
+        defaultQueue.stop();
+        shardedQueues.values().forEach(DispatchQueue::stop);
+        shardedQueues.clear();
+        eventMetrics.forEach((eventClass, metrics) -> metrics.unregister());
+        eventMetrics.clear();
         log.info("Stopped");
     }
 
+    @Modified
+    public void modified(ComponentContext context) {
+        if (context == null) {
+            scheduleWatchdog();
+            logConfig("Configured");
+            return;
+        }
+
+        Dictionary<?, ?> properties = context.getProperties();
+        boolean newSharded;
+        int newMaxBatchSize, newMaxProcessMs;
+        try {
+            String s = get(properties, "sharded");
+            newSharded = isNullOrEmpty(s) ? sharded : Boolean.parseBoolean(s.trim());
+
+            s = get(properties, "maxBatchSize");
+            newMaxBatchSize = isNullOrEmpty(s) ? maxBatchSize : Integer.parseInt(s.trim());
+
+            s = get(properties, "maxProcessMs");
+            newMaxProcessMs = isNullOrEmpty(s) ? maxProcessMs : Integer.parseInt(s.trim());
+
+        } catch (NumberFormatException | ClassCastException e) {
+            newSharded = DEFAULT_SHARDED;
+            newMaxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+            newMaxProcessMs = DEFAULT_MAX_PROCESS_MS;
+        }
+
+        if (newSharded != sharded) {
+            log.warn("Dispatch mode change takes effect on restart; keeping sharded = {}",
+                     sharded);
+        }
+        maxBatchSize = Math.max(1, newMaxBatchSize);
+        maxProcessMs = Math.max(0, newMaxProcessMs);
+        scheduleWatchdog();
+        logConfig("Reconfigured");
+    }
+
+    private void logConfig(String prefix) {
+        log.info("{} with sharded = {}; maxBatchSize = {}; maxProcessMs = {}",
+                 prefix, sharded, maxBatchSize, maxProcessMs);
+    }
+
+    // (Re)schedules the watchdog for the current budget, if any.
+    private synchronized void scheduleWatchdog() {
+        if (watchdogTask != null) {
+            watchdogTask.cancel(false);
+            watchdogTask = null;
+        }
+        if (maxProcessMs > 0) {
+            long period = Math.max(1, maxProcessMs / 2);
+            watchdogTask = watchdog.scheduleWithFixedDelay(this::checkQueues, period, period,
+                                                           TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the number of events of the given class waiting to be
+     * dispatched.
+     *
+     * @param eventClass event class
+     * @return queue depth of the event class
+     */
+    int queueDepth(Class<? extends Event> eventClass) {
+        EventMetrics metrics = eventMetrics.get(eventClass);
+        return metrics == null ? 0 : metrics.depth.get();
+    }
+
+    /**
+     * Returns the number of events of the given class whose sink ran past
+     * the processing budget.
+     *
+     * @param eventClass event class
+     * @return stall count of the event class
+     */
+    int stallCount(Class<? extends Event> eventClass) {
+        EventMetrics metrics = eventMetrics.get(eventClass);
+        return metrics == null ? 0 : metrics.stalls.get();
+    }
+
+    // Returns the queue that events of the given class are posted to.
+    private DispatchQueue queue(Class<?> eventClass) {
+        if (!sharded) {
+            return defaultQueue;
+        }
+        DispatchQueue queue = shardedQueues.get(eventClass);
+        if (queue == null) {
+            DispatchQueue newQueue = new DispatchQueue(eventClass.getSimpleName());
+            queue = shardedQueues.putIfAbsent(eventClass, newQueue);
+            if (queue == null) {
+                queue = newQueue;
+                queue.start();
+            }
+        }
+        return queue;
+    }
+
+    // Returns the metrics tracked for the given event class.
+    private EventMetrics metrics(Class<?> eventClass) {
+        EventMetrics metrics = eventMetrics.get(eventClass);
+        if (metrics == null) {
+            EventMetrics newMetrics = new EventMetrics(eventClass);
+            metrics = eventMetrics.putIfAbsent(eventClass, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+                metrics.register();
+            }
+        }
+        return metrics;
+    }
+
+    // Reports the sinks that have run past their processing budget.
+    private void checkQueues() {
+        long budget = TimeUnit.MILLISECONDS.toNanos(maxProcessMs);
+        defaultQueue.check(budget);
+        shardedQueues.values().forEach(queue -> queue.check(budget));
+    }
+
+    /**
+     * Queue of events together with the thread dispatching them.
+     */
+    private final class DispatchQueue {
+        private final String name;
+        private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        private final DispatchLoop loop = new DispatchLoop(this);
+
+        private ExecutorService executor;
+
+        private DispatchQueue(String name) {
+            this.name = name;
+        }
+
+        private synchronized void start() {
+            executor = newSingleThreadExecutor(groupedThreads("onos/event", "dispatch-" + name + "-%d"));
+            executor.execute(loop);
+        }
+
+        private synchronized void stop() {
+            events.add(KILL_PILL);
+            executor.shutdown();
+        }
+
+        private void check(long budget) {
+            if (!stopped) {
+                loop.reportIfStalled(budget);
+            }
+        }
+    }
+
     // Auxiliary event dispatching loop that feeds off the events queue.
     private class DispatchLoop implements Runnable {
+        private final DispatchQueue queue;
+
+        // Guarded by this; the event being processed and since when
+        private Event current;
+        private EventSink<?> sink;
+        private long sinkStart = 0;
+        private boolean reported = false;
+
+        DispatchLoop(DispatchQueue queue) {
+            this.queue = queue;
+        }
+
         @Override
-        @SuppressWarnings("unchecked")
         public void run() {
-            log.info("Dispatch loop initiated");
-            while (!stopped) {
-                try {
-                    // Fetch the next event and if it is the kill-pill, bail
-                    Event event = events.take();
-                    if (event == KILL_PILL) {
-                        break;
+            log.info("Dispatch loop initiated for {}", queue.name);
+            List<Event> batch = new ArrayList<>(maxBatchSize);
+            try {
+                while (!stopped) {
+                    // Fetch the next batch of events
+                    batch.clear();
+                    batch.add(queue.events.take());
+                    queue.events.drainTo(batch, maxBatchSize - 1);
+                    for (Event event : batch) {
+                        // If it is the kill-pill, bail
+                        if (event == KILL_PILL) {
+                            return;
+                        }
+                        dispatch(event);
                     }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                log.info("Dispatch loop terminated for {}", queue.name);
+            }
+        }
 
-                    // Locate the sink for the event class and use it to
-                    // process the event
-                    EventSink sink = getSink(event.getClass());
-                    if (sink != null) {
-                        sink.process(event);
-                    } else {
-                        log.warn("No sink registered for event class {}",
-                                 event.getClass());
+        @SuppressWarnings("unchecked")
+        private void dispatch(Event event) {
+            // Use the sink located for the event class to process the event
+            EventSink eventSink = getSink(event.getClass());
+            EventMetrics metrics = metrics(event.getClass());
+            metrics.depth.decrementAndGet();
+            try {
+                if (eventSink != null) {
+                    synchronized (this) {
+                        current = event;
+                        sink = eventSink;
+                        sinkStart = System.nanoTime();
                     }
-                } catch (Exception e) {
-                    log.warn("Error encountered while dispatching event:", e);
+                    final Timer.Context timer = metrics.latency.time();
+                    try {
+                        eventSink.process(event);
+                    } finally {
+                        timer.stop();
+                    }
+                } else {
+                    log.warn("No sink registered for event class {}",
+                             event.getClass());
+                }
+            } catch (Exception e) {
+                log.warn("Error encountered while dispatching event:", e);
+            } finally {
+                synchronized (this) {
+                    current = null;
+                    sink = null;
+                    sinkStart = 0;
+                    reported = false;
                 }
             }
-            log.info("Dispatch loop terminated");
+        }
+
+        /**
+         * Reports the current sink once if it has been running for longer
+         * than the given budget. The sink is left to finish the event.
+         *
+         * @param budget processing budget in nanos
+         */
+        private synchronized void reportIfStalled(long budget) {
+            if (reported || sinkStart == 0 || System.nanoTime() - sinkStart < budget) {
+                return;
+            }
+            reported = true;
+            metrics(current.getClass()).stalls.incrementAndGet();
+            log.warn("Sink {} exceeded {} ms processing {}; {} events waiting",
+                     sink.getClass().getName(), maxProcessMs, current, queue.events.size());
         }
     }
 
+    /**
+     * Queue depth, dispatch latency and stalls of a single event class.
+     */
+    private final class EventMetrics {
+        private final String name;
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicInteger stalls = new AtomicInteger();
+        private volatile Timer latency = new Timer();
+        private MetricsFeature feature;
+
+        private EventMetrics(Class<?> eventClass) {
+            this.name = eventClass.getSimpleName();
+        }
+
+        private void register() {
+            feature = metricsComponent.registerFeature(name);
+            latency = metricsService.createTimer(metricsComponent, feature, DISPATCH_LATENCY);
+            metricsService.registerMetric(metricsComponent, feature, QUEUE_DEPTH,
+                                          (Gauge<Integer>) depth::get);
+            metricsService.registerMetric(metricsComponent, feature, STALLS,
+                                          (Gauge<Integer>) stalls::get);
+        }
+
+        private void unregister() {
+            metricsService.removeMetric(metricsComponent, feature, DISPATCH_LATENCY);
+            metricsService.removeMetric(metricsComponent, feature, QUEUE_DEPTH);
+            metricsService.removeMetric(metricsComponent, feature, STALLS);
+        }
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.flow.impl;
+
+import org.onosproject.net.flow.FlowEntry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records, for the stored flow entries of a device, the last flow stats
+ * report of the device they were part of.
+ * <p>
+ * Reports are numbered by generation. Marking an entry as reported only
+ * updates its generation, so no set of the reported or stored entries is
+ * built per report; the entries missing from a report are those whose
+ * generation is not the current one. Not thread-safe; reports of a device
+ * are expected to be processed one at a time.
+ * </p>
+ */
+final class FlowReportGenerations {
+
+    private final Map<FlowEntry, Long> generations = new HashMap<>();
+    private long generation;
+    private Long current = generation;
+    private int reported;
+
+    /**
+     * Starts a new report.
+     */
+    void startReport() {
+        generation++;
+        // a single boxed value is shared by all entries of the report
+        current = generation;
+        reported = 0;
+    }
+
+    /**
+     * Marks the specified stored entry as part of the current report.
+     *
+     * @param stored stored flow entry
+     */
+    void reported(FlowEntry stored) {
+        if (!current.equals(generations.put(stored, current))) {
+            reported++;
+        }
+    }
+
+    /**
+     * Returns whether the specified stored entry is part of the current
+     * report.
+     *
+     * @param stored stored flow entry
+     * @return true if the entry was reported
+     */
+    boolean wasReported(FlowEntry stored) {
+        return current.equals(generations.get(stored));
+    }
+
+    /**
+     * Returns the number of distinct stored entries of the current report.
+     *
+     * @return number of reported entries
+     */
+    int reportedCount() {
+        return reported;
+    }
+
+    /**
+     * Ends the current report, forgetting the entries that were not part
+     * of it.
+     */
+    void endReport() {
+        if (generations.size() > reported) {
+            generations.values().removeIf(g -> !current.equals(g));
+        }
+    }
+}
@@ -34,6 +34,8 @@ import org.onosproject.event.AbstractListenerRegistry;
 import org.onosproject.event.EventDeliveryService;
 import org.onosproject.net.Device;
 import org.onosproject.net.DeviceId;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.device.DeviceListener;
 import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.flow.CompletedBatchOperation;
 import org.onosproject.net.flow.FlowEntry;
@@ -100,6 +102,11 @@ public class FlowRuleManager
     private Map<Long, FlowOperationsProcessor> pendingFlowOperations
             = new ConcurrentHashMap<>();
 
+    // Stored entries seen in the last flow stats report of each device
+    private final Map<DeviceId, FlowReportGenerations> flowReports = Maps.newConcurrentMap();
+
+    private final DeviceListener deviceListener = new InternalDeviceListener();
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected FlowRuleStore store;
 
@@ -120,6 +127,7 @@ public class FlowRuleManager
 
         store.setDelegate(delegate);
         eventDispatcher.addSink(FlowRuleEvent.class, listenerRegistry);
+        deviceService.addListener(deviceListener);
         log.info("Started");
     }
 
@@ -127,6 +135,7 @@ public class FlowRuleManager
     public void deactivate() {
         deviceInstallers.shutdownNow();
         operationsService.shutdownNow();
+        deviceService.removeListener(deviceListener);
         store.unsetDelegate(delegate);
         eventDispatcher.removeSink(FlowRuleEvent.class);
         log.info("Stopped");
@@ -293,11 +302,11 @@ public class FlowRuleManager
         }
 
 
-        private void flowAdded(FlowEntry flowEntry) {
+        private void flowAdded(FlowEntry flowEntry, FlowEntry stored) {
             checkNotNull(flowEntry, FLOW_RULE_NULL);
             checkValidity();
 
-            if (checkRuleLiveness(flowEntry, store.getFlowEntry(flowEntry))) {
+            if (checkRuleLiveness(flowEntry, stored)) {
 
                 FlowRuleEvent event = store.addOrUpdateFlowRule(flowEntry);
                 if (event == null) {
@@ -354,31 +363,46 @@ public class FlowRuleManager
 
         @Override
         public void pushFlowMetrics(DeviceId deviceId, Iterable<FlowEntry> flowEntries) {
-            Set<FlowEntry> storedRules = Sets.newHashSet(store.getFlowEntries(deviceId));
-            for (FlowEntry rule : flowEntries) {
-                try {
-                    if (storedRules.remove(rule)) {
-                        // we both have the rule, let's update some info then.
-                        flowAdded(rule);
-                    } else {
-                        // the device has a rule the store does not have
-                        extraneousFlow(rule);
+            FlowReportGenerations generations =
+                    flowReports.computeIfAbsent(deviceId, k -> new FlowReportGenerations());
+            synchronized (generations) {
+                generations.startReport();
+                for (FlowEntry rule : flowEntries) {
+                    try {
+                        FlowEntry stored = store.getFlowEntry(rule);
+                        if (stored != null) {
+                            // we both have the rule, let's update some info then.
+                            generations.reported(stored);
+                            flowAdded(rule, stored);
+                        } else {
+                            // the device has a rule the store does not have
+                            extraneousFlow(rule);
+                        }
+                    } catch (Throwable e) {
+                        log.debug("Can't process added or extra rule {}", e.getMessage());
+                        continue;
                     }
-                } catch (Throwable e) {
-                    log.debug("Can't process added or extra rule {}", e.getMessage());
-                    continue;
                 }
-            }
-            for (FlowEntry rule : storedRules) {
-                try {
-                    // there are rules in the store that aren't on the switch
-                    flowMissing(rule);
-                } catch (Throwable e) {
-                    log.debug("Can't add missing flow rule {}", e.getMessage());
-                    continue;
+
+                // Only look for the missing rules when some are missing; the
+                // stored entries come as a collection, so counting is cheap
+                Iterable<FlowEntry> storedRules = store.getFlowEntries(deviceId);
+                if (Iterables.size(storedRules) > generations.reportedCount()) {
+                    for (FlowEntry rule : storedRules) {
+                        if (generations.wasReported(rule)) {
+                            continue;
+                        }
+                        try {
+                            // there are rules in the store that aren't on the switch
+                            flowMissing(rule);
+                        } catch (Throwable e) {
+                            log.debug("Can't add missing flow rule {}", e.getMessage());
+                            continue;
+                        }
+                    }
                 }
+                generations.endReport();
             }
-
         }
 
         @Override
@@ -390,6 +414,16 @@ public class FlowRuleManager
         }
     }
 
+    // Forgets the flow stats reports of removed devices.
+    private class InternalDeviceListener implements DeviceListener {
+        @Override
+        public void event(DeviceEvent event) {
+            if (event.type() == DeviceEvent.Type.DEVICE_REMOVED) {
+                flowReports.remove(event.subject().id());
+            }
+        }
+    }
+
     // Store delegate to re-post events emitted from the store.
     private class InternalStoreDelegate implements FlowRuleStoreDelegate {
 
@@ -25,10 +25,14 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
- * An accumulator for building batches of intent operations. Only one batch should
- * be in process per instance at a time.
+ * An accumulator for building batches of intent operations. By default only
+ * one batch is in process per instance at a time; when batches are pipelined
+ * more can be allowed in flight.
  */
 public class IntentAccumulator extends AbstractAccumulator<IntentData> {
 
@@ -42,7 +46,8 @@ public class IntentAccumulator extends AbstractAccumulator<IntentData> {
 
     private final IntentBatchDelegate delegate;
 
-    private volatile boolean ready;
+    private final AtomicInteger batchesInFlight = new AtomicInteger();
+    private volatile int maxBatchesInFlight = 1;
 
     /**
      * Creates an intent operation accumulator.
@@ -52,13 +57,21 @@ public class IntentAccumulator extends AbstractAccumulator<IntentData> {
     protected IntentAccumulator(IntentBatchDelegate delegate) {
         super(TIMER, DEFAULT_MAX_EVENTS, DEFAULT_MAX_BATCH_MS, DEFAULT_MAX_IDLE_MS);
         this.delegate = delegate;
-        // Assume that the delegate is ready for work at the start
-        ready = true; //TODO validate the assumption that delegate is ready
+    }
+
+    /**
+     * Sets the maximum number of batches that may be in process at a time.
+     *
+     * @param maxBatchesInFlight maximum number of batches in flight
+     */
+    public void setMaxBatchesInFlight(int maxBatchesInFlight) {
+        checkArgument(maxBatchesInFlight > 0, "Maximum batches in flight must be positive");
+        this.maxBatchesInFlight = maxBatchesInFlight;
     }
 
     @Override
     public void processItems(List<IntentData> items) {
-        ready = false;
+        batchesInFlight.incrementAndGet();
         delegate.execute(reduce(items));
     }
 
@@ -73,10 +86,13 @@ public class IntentAccumulator extends AbstractAccumulator<IntentData> {
 
     @Override
     public boolean isReady() {
-        return ready;
+        return batchesInFlight.get() < maxBatchesInFlight;
     }
 
+    /**
+     * Signals that the processing of a batch has completed.
+     */
     public void ready() {
-        ready = true;
+        batchesInFlight.decrementAndGet();
     }
 }
@@ -15,13 +15,20 @@
  */
 package org.onosproject.net.intent.impl;
 
+import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableList;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.CoreService;
 import org.onosproject.core.IdGenerator;
 import org.onosproject.event.AbstractListenerRegistry;
@@ -44,29 +51,51 @@ import org.onosproject.net.intent.Key;
 import org.onosproject.net.intent.impl.phase.FinalIntentProcessPhase;
 import org.onosproject.net.intent.impl.phase.IntentProcessPhase;
 import org.onosproject.net.intent.impl.phase.IntentWorker;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
 import static java.util.concurrent.Executors.newFixedThreadPool;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.onlab.util.Tools.get;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.net.intent.IntentState.FAILED;
 import static org.onosproject.net.intent.IntentState.INSTALL_REQ;
+import static org.onosproject.net.intent.IntentState.WITHDRAWN;
 import static org.onosproject.net.intent.IntentState.WITHDRAW_REQ;
 import static org.onosproject.net.intent.impl.phase.IntentProcessPhase.newInitialPhase;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * An implementation of Intent Manager.
+ * <p>
+ * By default each batch of intent operations is processed to completion,
+ * store write included, before the next batch is started. When the
+ * {@code pipelined} property is set, every phase of every intent runs as a
+ * separate task chained to the previous one by completion callbacks, the
+ * batch is written to the store once all of its intents are done and
+ * several batches may be in flight at once. Operations on the same intent
+ * key are still processed in order. The latency of the compile,
+ * coordinate, flow apply and store write stages is reported as metrics.
+ * </p>
  */
 @Component(immediate = true)
 @Service
@@ -79,12 +108,26 @@ public class IntentManager
 
     private static final int NUM_THREADS = 12;
 
+    private static final boolean DEFAULT_PIPELINED = false;
+    private static final int DEFAULT_MAX_BATCHES_IN_FLIGHT = 4;
+
+    private static final String COMPONENT = "IntentManager";
+    private static final String FEATURE = "pipeline";
+
     private static final EnumSet<IntentState> RECOMPILE
             = EnumSet.of(INSTALL_REQ, FAILED, WITHDRAW_REQ);
 
     private final AbstractListenerRegistry<IntentEvent, IntentListener>
             listenerRegistry = new AbstractListenerRegistry<>();
 
+    @Property(name = "pipelined", boolValue = DEFAULT_PIPELINED,
+            label = "Process intent phases as chained stages with several batches in flight")
+    private volatile boolean pipelined = DEFAULT_PIPELINED;
+
+    @Property(name = "maxBatchesInFlight", intValue = DEFAULT_MAX_BATCHES_IN_FLIGHT,
+            label = "Maximum number of intent batches in flight when pipelined")
+    private volatile int maxBatchesInFlight = DEFAULT_MAX_BATCHES_IN_FLIGHT;
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected CoreService coreService;
 
@@ -100,9 +143,26 @@ public class IntentManager
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected FlowRuleService flowRuleService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ComponentConfigService configService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
 
     private ExecutorService batchExecutor;
     private ExecutorService workerExecutor;
+    private ExecutorService storeExecutor;
+
+    // Completes once the last operation submitted for each key is stored
+    private final ConcurrentMap<Key, CompletableFuture<Void>> keyTails =
+            new ConcurrentHashMap<>();
+
+    private Timer compileTimer;
+    private Timer coordinateTimer;
+    private Timer applyTimer;
+    private Timer storeWriteTimer;
+    private Timer batchTimer;
 
     private final CompilerRegistry compilerRegistry = new CompilerRegistry();
     private final InstallerRegistry installerRegistry = new InstallerRegistry();
@@ -115,12 +175,16 @@ public class IntentManager
     private final IntentAccumulator accumulator = new IntentAccumulator(batchDelegate);
 
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
+        configService.registerProperties(getClass());
+        registerMetrics();
+        modified(context);
         store.setDelegate(delegate);
         trackerService.setDelegate(topoDelegate);
         eventDispatcher.addSink(IntentEvent.class, listenerRegistry);
         batchExecutor = newSingleThreadExecutor(groupedThreads("onos/intent", "batch"));
         workerExecutor = newFixedThreadPool(NUM_THREADS, groupedThreads("onos/intent", "worker-%d"));
+        storeExecutor = newSingleThreadExecutor(groupedThreads("onos/intent", "store"));
         idGenerator = coreService.getIdGenerator("intent-ids");
         Intent.bindIdGenerator(idGenerator);
         log.info("Started");
@@ -128,14 +192,62 @@ public class IntentManager
 
     @Deactivate
     public void deactivate() {
+        configService.unregisterProperties(getClass(), false);
         store.unsetDelegate(delegate);
         trackerService.unsetDelegate(topoDelegate);
         eventDispatcher.removeSink(IntentEvent.class);
         batchExecutor.shutdown();
+        workerExecutor.shutdown();
+        storeExecutor.shutdown();
         Intent.unbindIdGenerator(idGenerator);
         log.info("Stopped");
     }
 
+    @Modified
+    public void modified(ComponentContext context) {
+        if (context == null) {
+            applyConfig("Configured");
+            return;
+        }
+
+        Dictionary<?, ?> properties = context.getProperties();
+        boolean newPipelined;
+        int newMaxBatchesInFlight;
+        try {
+            String s = get(properties, "pipelined");
+            newPipelined = isNullOrEmpty(s) ? pipelined : Boolean.parseBoolean(s.trim());
+
+            s = get(properties, "maxBatchesInFlight");
+            newMaxBatchesInFlight = isNullOrEmpty(s) ? maxBatchesInFlight : Integer.parseInt(s.trim());
+
+        } catch (NumberFormatException | ClassCastException e) {
+            newPipelined = DEFAULT_PIPELINED;
+            newMaxBatchesInFlight = DEFAULT_MAX_BATCHES_IN_FLIGHT;
+        }
+
+        // Batches already in flight finish in the mode they were started in;
+        // batches of either mode wait for those in flight on the same keys
+        pipelined = newPipelined;
+        maxBatchesInFlight = Math.max(1, newMaxBatchesInFlight);
+        applyConfig("Reconfigured");
+    }
+
+    private void applyConfig(String prefix) {
+        accumulator.setMaxBatchesInFlight(pipelined ? maxBatchesInFlight : 1);
+        log.info("{} with pipelined = {}; maxBatchesInFlight = {}",
+                 prefix, pipelined, maxBatchesInFlight);
+    }
+
+    private void registerMetrics() {
+        MetricsComponent component = metricsService.registerComponent(COMPONENT);
+        MetricsFeature feature = component.registerFeature(FEATURE);
+        compileTimer = metricsService.createTimer(component, feature, "compile");
+        coordinateTimer = metricsService.createTimer(component, feature, "coordinate");
+        applyTimer = metricsService.createTimer(component, feature, "applyFlowRules");
+        storeWriteTimer = metricsService.createTimer(component, feature, "storeWrite");
+        batchTimer = metricsService.createTimer(component, feature, "batch");
+    }
+
     @Override
     public void submit(Intent intent) {
         checkNotNull(intent, INTENT_NULL);
@@ -195,6 +307,7 @@ public class IntentManager
     @Override
     public void purge(Key key) {
         store.purge(key);
+        trackerService.unparkIntent(key);
     }
 
     @Override
@@ -236,6 +349,22 @@ public class IntentManager
     private class InternalStoreDelegate implements IntentStoreDelegate {
         @Override
         public void notify(IntentEvent event) {
+            Key key = event.subject().key();
+            switch (event.type()) {
+                case FAILED:
+                    // Intents that failed to compile are already parked by
+                    // the elements they are waiting on
+                    if (store.isMaster(key)) {
+                        trackerService.parkIntent(key, Collections.emptySet());
+                    }
+                    break;
+                case INSTALLED:
+                case WITHDRAWN:
+                    trackerService.unparkIntent(key);
+                    break;
+                default:
+                    break;
+            }
             eventDispatcher.post(event);
         }
 
@@ -250,17 +379,18 @@ public class IntentManager
         // Attempt recompilation of the specified intents first.
         for (Key key : intentKeys) {
             Intent intent = store.getIntent(key);
-            if (intent == null) {
+            if (intent == null || getIntentState(key) == WITHDRAWN) {
                 continue;
             }
             submit(intent);
         }
 
         if (compileAllFailed) {
-            // If required, compile all currently failed intents.
+            // If required, compile all currently failed or stalled intents
+            // this instance is responsible for.
             for (Intent intent : getIntents()) {
                 IntentState state = getIntentState(intent.key());
-                if (RECOMPILE.contains(state)) {
+                if (RECOMPILE.contains(state) && store.isMaster(intent.key())) {
                     if (state == WITHDRAW_REQ) {
                         withdraw(intent);
                     } else {
@@ -303,14 +433,23 @@ public class IntentManager
 
         @Override
         public void run() {
+            Timer.Context context = batchTimer.time();
+            // Chained behind the pipelined batches still in flight on the same
+            // keys, as the mode may have changed since they were started
+            Map<Key, CompletableFuture<Void>> tails = newTails(data);
+            List<CompletableFuture<Void>> previous = data.stream()
+                    .map(d -> keyTails.put(d.key(), tails.get(d.key())))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
             try {
+                CompletableFuture.allOf(previous.toArray(new CompletableFuture[previous.size()])).join();
                 /*
                  1. wrap each intentdata in a runnable and submit
                  2. wait for completion of all the work
                  3. accumulate results and submit batch write of IntentData to store
                     (we can also try to update these individually)
                  */
-                submitUpdates(waitForFutures(createIntentUpdates()));
+                writeUpdates(waitForFutures(createIntentUpdates()));
             } catch (Exception e) {
                 log.error("Error submitting batches:", e);
                 // FIXME incomplete Intents should be cleaned up
@@ -322,6 +461,8 @@ public class IntentManager
                 //FIXME
 //            batchService.removeIntentOperations(data);
             }
+            releaseTails(tails);
+            context.stop();
             accumulator.ready();
         }
 
@@ -343,11 +484,108 @@ public class IntentManager
             }
             return updateBuilder.build();
         }
+    }
+
+    /**
+     * Processes a batch without blocking: each intent is chained behind the
+     * previous operation on its key, its phases run as separate tasks and the
+     * batch is written to the store from the store thread once all of its
+     * intents are done.
+     */
+    private class PipelinedBatchProcess implements Runnable {
 
-        private void submitUpdates(List<FinalIntentProcessPhase> updates) {
+        private final Collection<IntentData> data;
+        private final Timer.Context batchContext = batchTimer.time();
+
+        PipelinedBatchProcess(Collection<IntentData> data) {
+            this.data = checkNotNull(data);
+        }
+
+        @Override
+        public void run() {
+            Map<Key, CompletableFuture<Void>> tails = newTails(data);
+            List<CompletableFuture<FinalIntentProcessPhase>> futures = data.stream()
+                    .map(d -> process(d, keyTails.put(d.key(), tails.get(d.key()))))
+                    .collect(Collectors.toList());
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]))
+                    .whenCompleteAsync((result, error) -> {
+                        try {
+                            writeUpdates(collect(futures));
+                        } catch (Exception e) {
+                            log.error("Error writing batch:", e);
+                        } finally {
+                            releaseTails(tails);
+                            batchContext.stop();
+                            accumulator.ready();
+                        }
+                    }, storeExecutor);
+        }
+
+        // Starts processing the given operation once the previous one on the
+        // same key has been stored.
+        private CompletableFuture<FinalIntentProcessPhase> process(IntentData data,
+                                                                   CompletableFuture<Void> previous) {
+            CompletableFuture<Void> start = previous != null ? previous
+                    : CompletableFuture.completedFuture(null);
+            return start.thenComposeAsync(v -> {
+                IntentData current = store.getIntentData(data.key());
+                return runPhase(newInitialPhase(processor, data, current));
+            }, workerExecutor);
+        }
+
+        private CompletableFuture<FinalIntentProcessPhase> runPhase(IntentProcessPhase phase) {
+            if (phase instanceof FinalIntentProcessPhase) {
+                return CompletableFuture.completedFuture((FinalIntentProcessPhase) phase);
+            }
+            return CompletableFuture.supplyAsync(phase::execute, workerExecutor)
+                    .thenCompose(next -> next.map(this::runPhase)
+                            .orElse(CompletableFuture.completedFuture(null)));
+        }
+
+        private List<FinalIntentProcessPhase> collect(List<CompletableFuture<FinalIntentProcessPhase>> futures) {
+            ImmutableList.Builder<FinalIntentProcessPhase> updateBuilder = ImmutableList.builder();
+            for (CompletableFuture<FinalIntentProcessPhase> future : futures) {
+                try {
+                    Optional.ofNullable(future.join()).ifPresent(updateBuilder::add);
+                } catch (Exception e) {
+                    log.warn("Future failed: {}", e);
+                }
+            }
+            return updateBuilder.build();
+        }
+    }
+
+    // Creates the futures completing once the operations of a batch are
+    // stored, by key.
+    private static Map<Key, CompletableFuture<Void>> newTails(Collection<IntentData> data) {
+        return data.stream()
+                .collect(Collectors.toMap(IntentData::key, d -> new CompletableFuture<>()));
+    }
+
+    // Releases the operations queued behind those of a stored batch.
+    private void releaseTails(Map<Key, CompletableFuture<Void>> tails) {
+        tails.forEach((key, tail) -> {
+            keyTails.remove(key, tail);
+            tail.complete(null);
+        });
+    }
+
+    private void writeUpdates(List<FinalIntentProcessPhase> updates) {
+        timed(storeWriteTimer, () -> {
             store.batchWrite(updates.stream()
                                     .map(FinalIntentProcessPhase::data)
                                     .collect(Collectors.toList()));
+            return null;
+        });
+    }
+
+    private static <T> T timed(Timer timer, Supplier<T> stage) {
+        Timer.Context context = timer.time();
+        try {
+            return stage.get();
+        } finally {
+            context.stop();
         }
     }
 
@@ -356,30 +594,40 @@ public class IntentManager
         public void execute(Collection<IntentData> operations) {
             log.debug("Execute {} operation(s).", operations.size());
             log.trace("Execute operations: {}", operations);
-            batchExecutor.execute(new IntentBatchProcess(operations));
-            // TODO ensure that only one batch is in flight at a time
+            batchExecutor.execute(pipelined ? new PipelinedBatchProcess(operations)
+                                          : new IntentBatchProcess(operations));
         }
     }
 
     private class InternalIntentProcessor implements IntentProcessor {
         @Override
         public List<Intent> compile(Intent intent, List<Intent> previousInstallables) {
-            return compilerRegistry.compile(intent, previousInstallables);
+            try {
+                return timed(compileTimer, () -> compilerRegistry.compile(intent, previousInstallables));
+            } catch (PathNotFoundException e) {
+                trackerService.parkIntent(intent.key(), ImmutableList.of(e.source(), e.destination()));
+                throw e;
+            }
         }
 
         @Override
         public FlowRuleOperations coordinate(IntentData current, IntentData pending) {
-            return installerRegistry.coordinate(current, pending, store, trackerService);
+            return timed(coordinateTimer,
+                         () -> installerRegistry.coordinate(current, pending, store, trackerService));
         }
 
         @Override
         public FlowRuleOperations uninstallCoordinate(IntentData current, IntentData pending) {
-            return installerRegistry.uninstallCoordinate(current, pending, store, trackerService);
+            return timed(coordinateTimer,
+                         () -> installerRegistry.uninstallCoordinate(current, pending, store, trackerService));
         }
 
         @Override
         public void applyFlowRules(FlowRuleOperations flowRules) {
-            flowRuleService.apply(flowRules);
+            timed(applyTimer, () -> {
+                flowRuleService.apply(flowRules);
+                return null;
+            });
         }
     }
 }
@@ -16,7 +16,11 @@
 package org.onosproject.net.intent.impl;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
 import com.google.common.collect.SetMultimap;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -24,11 +28,23 @@ import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onosproject.cluster.ClusterService;
+import org.onosproject.cluster.LeadershipEvent;
+import org.onosproject.cluster.LeadershipEventListener;
+import org.onosproject.cluster.LeadershipService;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.event.Event;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.ElementId;
+import org.onosproject.net.HostId;
 import org.onosproject.net.Link;
 import org.onosproject.net.LinkKey;
 import org.onosproject.net.NetworkResource;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.host.HostEvent;
+import org.onosproject.net.host.HostListener;
+import org.onosproject.net.host.HostService;
 import org.onosproject.net.intent.IntentService;
 import org.onosproject.net.intent.Key;
 import org.onosproject.net.link.LinkEvent;
@@ -42,8 +58,10 @@ import org.slf4j.Logger;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -51,6 +69,8 @@ import static com.google.common.collect.Multimaps.synchronizedSetMultimap;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.net.LinkKey.linkKey;
+import static org.onosproject.net.device.DeviceEvent.Type.PORT_REMOVED;
+import static org.onosproject.net.intent.PartitionService.PARTITION_TOPIC_PREFIX;
 import static org.onosproject.net.link.LinkEvent.Type.LINK_REMOVED;
 import static org.onosproject.net.link.LinkEvent.Type.LINK_UPDATED;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -58,6 +78,20 @@ import static org.slf4j.LoggerFactory.getLogger;
 /**
  * Entity responsible for tracking installed flows and for monitoring topology
  * events to determine what flows are affected by topology changes.
+ * <p>
+ * Intents are indexed by the links, the devices and hosts, and the connect
+ * points of their installed paths, so that link, device, port and host
+ * events only recompile the intents that traverse them. Failed intents are
+ * parked by the elements they are waiting on and are only retried when
+ * these elements change, or when a new link or newly available resources
+ * may let any of them through.
+ * </p>
+ * <p>
+ * Parked intents are only known to the instance that parked them. Topology
+ * events without reasons, and this instance gaining the leadership of a
+ * topic such as an intent partition, therefore ask for all failed and
+ * pending intents to be retried from the store.
+ * </p>
  */
 @Component(immediate = true)
 @Service
@@ -69,12 +103,28 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
             //TODO this could be slow as a point of synchronization
             synchronizedSetMultimap(HashMultimap.<LinkKey, Key>create());
 
+    private final TraversalIndex<ElementId> intentsByElement = new TraversalIndex<>();
+    private final TraversalIndex<ConnectPoint> intentsByConnectPoint = new TraversalIndex<>();
+
+    // Failed intents and the elements they are waiting on; guarded by parked
+    private final Map<Key, Set<ElementId>> parked = Maps.newHashMap();
+    private final SetMultimap<ElementId, Key> parkedByElement = HashMultimap.create();
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected TopologyService topologyService;
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected LinkResourceService resourceManager;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected HostService hostService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ClusterService clusterService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected LeadershipService leadershipService;
+
     @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY)
     protected IntentService intentService;
 
@@ -84,12 +134,19 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
     private TopologyListener listener = new InternalTopologyListener();
     private LinkResourceListener linkResourceListener =
             new InternalLinkResourceListener();
+    private HostListener hostListener = new InternalHostListener();
+    private LeadershipEventListener leadershipListener = new InternalLeadershipListener();
     private TopologyChangeDelegate delegate;
 
+    // Set while a retry of all failed and pending intents is queued
+    private final AtomicBoolean retryAllPending = new AtomicBoolean();
+
     @Activate
     public void activate() {
         topologyService.addListener(listener);
         resourceManager.addListener(linkResourceListener);
+        hostService.addListener(hostListener);
+        leadershipService.addListener(leadershipListener);
         log.info("Started");
     }
 
@@ -97,6 +154,8 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
     public void deactivate() {
         topologyService.removeListener(listener);
         resourceManager.removeListener(linkResourceListener);
+        hostService.removeListener(hostListener);
+        leadershipService.removeListener(leadershipListener);
         log.info("Stopped");
     }
 
@@ -131,7 +190,12 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
                                     Collection<NetworkResource> resources) {
         for (NetworkResource resource : resources) {
             if (resource instanceof Link) {
-                intentsByLink.put(linkKey((Link) resource), intentKey);
+                Link link = (Link) resource;
+                intentsByLink.put(linkKey(link), intentKey);
+                intentsByElement.add(link.src().elementId(), intentKey);
+                intentsByElement.add(link.dst().elementId(), intentKey);
+                intentsByConnectPoint.add(link.src(), intentKey);
+                intentsByConnectPoint.add(link.dst(), intentKey);
             }
         }
     }
@@ -141,11 +205,53 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
                                        Collection<NetworkResource> resources) {
         for (NetworkResource resource : resources) {
             if (resource instanceof Link) {
-                intentsByLink.remove(linkKey((Link) resource), intentKey);
+                Link link = (Link) resource;
+                intentsByLink.remove(linkKey(link), intentKey);
+                intentsByElement.remove(link.src().elementId(), intentKey);
+                intentsByElement.remove(link.dst().elementId(), intentKey);
+                intentsByConnectPoint.remove(link.src(), intentKey);
+                intentsByConnectPoint.remove(link.dst(), intentKey);
+            }
+        }
+    }
+
+    @Override
+    public void parkIntent(Key intentKey, Collection<? extends ElementId> elements) {
+        synchronized (parked) {
+            parked.computeIfAbsent(intentKey, k -> new HashSet<>()).addAll(elements);
+            elements.forEach(element -> parkedByElement.put(element, intentKey));
+        }
+    }
+
+    @Override
+    public void unparkIntent(Key intentKey) {
+        synchronized (parked) {
+            Set<ElementId> elements = parked.remove(intentKey);
+            if (elements != null) {
+                elements.forEach(element -> parkedByElement.remove(element, intentKey));
             }
         }
     }
 
+    // Unparks and returns the intents waiting on the given element.
+    private Set<Key> unparkWaitingOn(ElementId element) {
+        synchronized (parked) {
+            Set<Key> keys = ImmutableSet.copyOf(parkedByElement.get(element));
+            keys.forEach(this::unparkIntent);
+            return keys;
+        }
+    }
+
+    // Unparks and returns all parked intents.
+    private Set<Key> unparkAll() {
+        synchronized (parked) {
+            Set<Key> keys = ImmutableSet.copyOf(parked.keySet());
+            parked.clear();
+            parkedByElement.clear();
+            return keys;
+        }
+    }
+
     // Internal re-actor to topology change events.
     private class InternalTopologyListener implements TopologyListener {
         @Override
@@ -171,7 +277,7 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
             }
 
             if (event.reasons() == null || event.reasons().isEmpty()) {
-                delegate.triggerCompile(new HashSet<Key>(), true);
+                delegate.triggerCompile(unparkAll(), true);
 
             } else {
                 Set<Key> toBeRecompiled = new HashSet<>();
@@ -196,9 +302,92 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
                                 (linkEvent.type() == LINK_REMOVED ||
                                 (linkEvent.type() == LINK_UPDATED &&
                                 linkEvent.subject().isDurable()));
+                    } else if (reason instanceof DeviceEvent) {
+                        accrueDeviceChange((DeviceEvent) reason, toBeRecompiled);
                     }
                 }
-                delegate.triggerCompile(toBeRecompiled, !recompileOnly);
+
+                // A new link may complete the missing path of any parked intent
+                if (!recompileOnly) {
+                    toBeRecompiled.addAll(unparkAll());
+                }
+                delegate.triggerCompile(toBeRecompiled, false);
+            }
+        }
+
+        // Accrues the intents affected by the given device or port change.
+        private void accrueDeviceChange(DeviceEvent event, Set<Key> toBeRecompiled) {
+            DeviceId deviceId = event.subject().id();
+            switch (event.type()) {
+                case DEVICE_REMOVED:
+                case DEVICE_SUSPENDED:
+                case DEVICE_AVAILABILITY_CHANGED:
+                    toBeRecompiled.addAll(intentsByElement.get(deviceId));
+                    toBeRecompiled.addAll(unparkWaitingOn(deviceId));
+                    break;
+                case DEVICE_ADDED:
+                case PORT_ADDED:
+                    toBeRecompiled.addAll(unparkWaitingOn(deviceId));
+                    break;
+                case PORT_UPDATED:
+                case PORT_REMOVED:
+                    if (event.type() == PORT_REMOVED || !event.port().isEnabled()) {
+                        ConnectPoint point = new ConnectPoint(deviceId, event.port().number());
+                        log.debug("recompile triggered by PortDown {}", point);
+                        toBeRecompiled.addAll(intentsByConnectPoint.get(point));
+                    } else {
+                        toBeRecompiled.addAll(unparkWaitingOn(deviceId));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    // Internal re-actor to host events.
+    private class InternalHostListener implements HostListener {
+        @Override
+        public void event(HostEvent event) {
+            executorService.execute(new HostChangeHandler(event));
+        }
+    }
+
+    // Re-dispatcher of host events.
+    private class HostChangeHandler implements Runnable {
+
+        private final HostEvent event;
+
+        HostChangeHandler(HostEvent event) {
+            this.event = event;
+        }
+
+        @Override
+        public void run() {
+            // If there is no delegate, why bother? Just bail.
+            if (delegate == null) {
+                return;
+            }
+
+            HostId hostId = event.subject().id();
+            Set<Key> toBeRecompiled = new HashSet<>();
+            switch (event.type()) {
+                case HOST_REMOVED:
+                    toBeRecompiled.addAll(intentsByElement.get(hostId));
+                    break;
+                case HOST_MOVED:
+                    toBeRecompiled.addAll(intentsByElement.get(hostId));
+                    toBeRecompiled.addAll(unparkWaitingOn(hostId));
+                    break;
+                case HOST_ADDED:
+                case HOST_UPDATED:
+                    toBeRecompiled.addAll(unparkWaitingOn(hostId));
+                    break;
+                default:
+                    break;
+            }
+            if (!toBeRecompiled.isEmpty()) {
+                delegate.triggerCompile(toBeRecompiled, false);
             }
         }
     }
@@ -231,7 +420,62 @@ public class ObjectiveTracker implements ObjectiveTrackerService {
                 return;
             }
 
-            delegate.triggerCompile(new HashSet<>(), true);
+            // Freed resources may satisfy the constraints of any parked intent
+            delegate.triggerCompile(unparkAll(), false);
+        }
+    }
+
+    // Internal re-actor to leadership events.
+    private class InternalLeadershipListener implements LeadershipEventListener {
+        @Override
+        public void event(LeadershipEvent event) {
+            // Intents of a partition gained here may have failed or stalled
+            // under the previous leader, which alone had them parked
+            if (event.type() == LeadershipEvent.Type.LEADER_ELECTED &&
+                    event.subject().topic().startsWith(PARTITION_TOPIC_PREFIX) &&
+                    clusterService.getLocalNode().id().equals(event.subject().leader())) {
+                retryAll();
+            }
+        }
+    }
+
+    // Retries all failed and pending intents; requests made while a retry
+    // is still queued are folded into it.
+    private void retryAll() {
+        if (retryAllPending.compareAndSet(false, true)) {
+            executorService.execute(() -> {
+                retryAllPending.set(false);
+                if (delegate != null) {
+                    delegate.triggerCompile(unparkAll(), true);
+                }
+            });
+        }
+    }
+
+    /**
+     * Index of intents by the elements or connect points their tracked links
+     * traverse. Traversals are counted, so that an intent stays indexed
+     * under an element while any of its links still traverses it.
+     *
+     * @param <R> type of the traversed resource
+     */
+    private static final class TraversalIndex<R> {
+        private final Map<R, Multiset<Key>> index = Maps.newHashMap();
+
+        synchronized void add(R resource, Key intentKey) {
+            index.computeIfAbsent(resource, r -> HashMultiset.create()).add(intentKey);
+        }
+
+        synchronized void remove(R resource, Key intentKey) {
+            Multiset<Key> keys = index.get(resource);
+            if (keys != null && keys.remove(intentKey) && keys.isEmpty()) {
+                index.remove(resource);
+            }
+        }
+
+        synchronized Set<Key> get(R resource) {
+            Multiset<Key> keys = index.get(resource);
+            return keys == null ? ImmutableSet.of() : ImmutableSet.copyOf(keys.elementSet());
         }
     }
 
@@ -17,6 +17,7 @@ package org.onosproject.net.intent.impl;
 
 import java.util.Collection;
 
+import org.onosproject.net.ElementId;
 import org.onosproject.net.NetworkResource;
 import org.onosproject.net.intent.Key;
 
@@ -59,4 +60,22 @@ public interface ObjectiveTrackerService {
     public void removeTrackedResources(Key intentKey,
                                        Collection<NetworkResource> resources);
 
+    /**
+     * Parks a failed intent until the network changes in a way that may let
+     * it be compiled and installed again. Parking an intent that is already
+     * parked adds to the elements it is waiting on.
+     *
+     * @param intentKey identity of the failed intent
+     * @param elements  elements the intent is waiting on; empty if it is not
+     *                  waiting on any element in particular
+     */
+    void parkIntent(Key intentKey, Collection<? extends ElementId> elements);
+
+    /**
+     * Stops waiting on the network on behalf of a parked intent.
+     *
+     * @param intentKey identity of the parked intent
+     */
+    void unparkIntent(Key intentKey);
+
 }
@@ -36,6 +36,24 @@ public class PathNotFoundException extends IntentException {
         this.destination = checkNotNull(destination);
     }
 
+    /**
+     * Returns the element the path was sought from.
+     *
+     * @return source element
+     */
+    public ElementId source() {
+        return source;
+    }
+
+    /**
+     * Returns the element the path was sought to.
+     *
+     * @return destination element
+     */
+    public ElementId destination() {
+        return destination;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
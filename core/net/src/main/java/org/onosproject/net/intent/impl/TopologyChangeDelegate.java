@@ -26,11 +26,13 @@ public interface TopologyChangeDelegate {
      * Notifies that topology has changed in such a way that the specified
      * intents should be recompiled. If the {@code compileAllFailed} parameter
      * is true, then all intents in {@link org.onosproject.net.intent.IntentState#FAILED}
-     * state should be compiled as well.
+     * state, and all intents whose install or withdraw request is still
+     * pending, should be processed again as well.
      *
      * @param intentIds intents that should be recompiled
-     * @param compileAllFailed true implies full compile of all failed intents
-     *                         is required; false for selective recompile only
+     * @param compileAllFailed true implies full compile of all failed and
+     *                         pending intents is required; false for
+     *                         selective recompile only
      */
     void triggerCompile(Iterable<Key> intentIds, boolean compileAllFailed);
 
@@ -18,6 +18,7 @@ package org.onosproject.net.intent.impl.compiler;
 import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
@@ -27,6 +28,12 @@ import org.onosproject.net.intent.ConnectivityIntent;
 import org.onosproject.net.intent.Constraint;
 import org.onosproject.net.intent.IntentCompiler;
 import org.onosproject.net.intent.IntentExtensionService;
+import org.onosproject.net.intent.constraint.AnnotationConstraint;
+import org.onosproject.net.intent.constraint.AsymmetricPathConstraint;
+import org.onosproject.net.intent.constraint.LatencyConstraint;
+import org.onosproject.net.intent.constraint.LinkTypeConstraint;
+import org.onosproject.net.intent.constraint.ObstacleConstraint;
+import org.onosproject.net.intent.constraint.WaypointConstraint;
 import org.onosproject.net.intent.impl.PathNotFoundException;
 import org.onosproject.net.provider.ProviderId;
 import org.onosproject.net.resource.LinkResourceService;
@@ -37,6 +44,7 @@ import org.onosproject.net.topology.TopologyEdge;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -49,6 +57,13 @@ public abstract class ConnectivityIntentCompiler<T extends ConnectivityIntent>
 
     private static final ProviderId PID = new ProviderId("core", "org.onosproject.core", true);
 
+    // Constraints whose cost depends on the link alone, not on the resources
+    // currently available on it
+    private static final Set<Class<? extends Constraint>> LINK_ONLY_CONSTRAINTS =
+            ImmutableSet.of(AnnotationConstraint.class, AsymmetricPathConstraint.class,
+                            LatencyConstraint.class, LinkTypeConstraint.class,
+                            ObstacleConstraint.class, WaypointConstraint.class);
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected IntentExtensionService intentManager;
 
@@ -114,10 +129,17 @@ public abstract class ConnectivityIntentCompiler<T extends ConnectivityIntent>
 
     /**
      * Edge-weight capable of evaluating link cost using a set of constraints.
+     * <p>
+     * Weights whose constraints cost links from the links alone are equal
+     * when their constraints are, so that paths computed for one of them can
+     * be reused for the others on the same topology. Weights with constraints
+     * on the available link resources are only equal to themselves.
+     * </p>
      */
     protected class ConstraintBasedLinkWeight implements LinkWeight {
 
         private final List<Constraint> constraints;
+        private final boolean linkOnly;
 
         /**
          * Creates a new edge-weight function capable of evaluating links
@@ -131,6 +153,8 @@ public abstract class ConnectivityIntentCompiler<T extends ConnectivityIntent>
             } else {
                 this.constraints = ImmutableList.copyOf(constraints);
             }
+            this.linkOnly = this.constraints.stream()
+                    .allMatch(c -> LINK_ONLY_CONSTRAINTS.contains(c.getClass()));
         }
 
         @Override
@@ -152,6 +176,25 @@ public abstract class ConnectivityIntentCompiler<T extends ConnectivityIntent>
             return cost;
 
         }
+
+        @Override
+        public int hashCode() {
+            return linkOnly ? constraints.hashCode() : System.identityHashCode(this);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof ConnectivityIntentCompiler.ConstraintBasedLinkWeight) {
+                final ConnectivityIntentCompiler<?>.ConstraintBasedLinkWeight other =
+                        (ConnectivityIntentCompiler<?>.ConstraintBasedLinkWeight) obj;
+                return this.linkOnly && other.linkOnly &&
+                        Objects.equals(this.constraints, other.constraints);
+            }
+            return false;
+        }
     }
 
 }
@@ -26,6 +26,7 @@ import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
 import org.onlab.packet.ARP;
 import org.onlab.packet.Ethernet;
+import org.onlab.packet.EthernetView;
 import org.onlab.packet.ICMP6;
 import org.onlab.packet.IPv6;
 import org.onlab.packet.Ip4Address;
@@ -373,8 +374,15 @@ public class ProxyArpManager implements ProxyArpService {
     @Override
     public boolean handlePacket(PacketContext context) {
         InboundPacket pkt = context.inPacket();
-        Ethernet ethPkt = pkt.parsed();
 
+        // check the Ethernet type before parsing the whole packet
+        EthernetView view = pkt.view();
+        if (view != null && view.getEtherType() != Ethernet.TYPE_ARP &&
+                view.getEtherType() != Ethernet.TYPE_IPV6) {
+            return false;
+        }
+
+        Ethernet ethPkt = pkt.parsed();
         if (ethPkt == null) {
             return false;
         }
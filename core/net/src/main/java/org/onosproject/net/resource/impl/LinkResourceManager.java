@@ -43,13 +43,11 @@ import org.onosproject.net.resource.MplsLabelResourceAllocation;
 import org.onosproject.net.resource.MplsLabelResourceRequest;
 import org.onosproject.net.resource.ResourceAllocation;
 import org.onosproject.net.resource.ResourceRequest;
-import org.onosproject.net.resource.ResourceType;
 import org.slf4j.Logger;
 
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -87,65 +85,28 @@ public class LinkResourceManager implements LinkResourceService {
     }
 
     /**
-     * Returns available lambdas on specified link.
-     *
-     * @param link the link
-     * @return available lambdas on specified link
-     */
-    private Set<Lambda> getAvailableLambdas(Link link) {
-        checkNotNull(link);
-        Set<ResourceAllocation> resAllocs = store.getFreeResources(link);
-        if (resAllocs == null) {
-            return Collections.emptySet();
-        }
-        Set<Lambda> lambdas = new HashSet<>();
-        for (ResourceAllocation res : resAllocs) {
-            if (res.type() == ResourceType.LAMBDA) {
-                lambdas.add(((LambdaResourceAllocation) res).lambda());
-            }
-        }
-        return lambdas;
-    }
-
-
-    /**
-     * Returns available lambdas on specified links.
+     * Returns the first lambda that is free on all specified links.
      *
      * @param links the links
-     * @return available lambdas on specified links
+     * @return free lambda, or null if no lambda is free on all links
      */
-    private Iterable<Lambda> getAvailableLambdas(Iterable<Link> links) {
+    private Lambda getFreeLambda(Iterable<Link> links) {
         checkNotNull(links);
-        Iterator<Link> i = links.iterator();
-        checkArgument(i.hasNext());
-        Set<Lambda> lambdas = new HashSet<>(getAvailableLambdas(i.next()));
-        while (i.hasNext()) {
-            lambdas.retainAll(getAvailableLambdas(i.next()));
-        }
-        return lambdas;
-    }
-
-
-    /**
-     * Returns available MPLS label on specified link.
-     *
-     * @param link the link
-     * @return available MPLS labels on specified link
-     */
-    private Iterable<MplsLabel> getAvailableMplsLabels(Link link) {
-        Set<ResourceAllocation> resAllocs = store.getFreeResources(link);
-        if (resAllocs == null) {
-            return Collections.emptySet();
-        }
-        Set<MplsLabel> mplsLabels = new HashSet<>();
-        for (ResourceAllocation res : resAllocs) {
-            if (res.type() == ResourceType.MPLS_LABEL) {
-
-                mplsLabels.add(((MplsLabelResourceAllocation) res).mplsLabel());
+        checkArgument(links.iterator().hasNext());
+        // Each link is queried once; the free sets are intersected here
+        Set<Lambda> lambdas = null;
+        for (Link link : links) {
+            Set<Lambda> free = store.getFreeLambdas(link);
+            if (lambdas == null) {
+                lambdas = new HashSet<>(free);
+            } else {
+                lambdas.retainAll(free);
+            }
+            if (lambdas.isEmpty()) {
+                return null;
             }
         }
-
-        return mplsLabels;
+        return lambdas.stream().min(Comparator.comparingInt(Lambda::toInt)).get();
     }
 
     @Override
@@ -162,10 +123,9 @@ public class LinkResourceManager implements LinkResourceService {
                 allocs.add(new BandwidthResourceAllocation(br.bandwidth()));
                 break;
             case LAMBDA:
-                Iterator<Lambda> lambdaIterator =
-                        getAvailableLambdas(req.links()).iterator();
-                if (lambdaIterator.hasNext()) {
-                    allocs.add(new LambdaResourceAllocation(lambdaIterator.next()));
+                Lambda lambda = getFreeLambda(req.links());
+                if (lambda != null) {
+                    allocs.add(new LambdaResourceAllocation(lambda));
                 } else {
                     log.info("Failed to allocate lambda resource.");
                     return null;
@@ -177,12 +137,10 @@ public class LinkResourceManager implements LinkResourceService {
                         allocsPerLink.put(link,
                                           new HashSet<ResourceAllocation>());
                     }
-                    Iterator<MplsLabel> mplsIter = getAvailableMplsLabels(link)
-                            .iterator();
-                    if (mplsIter.hasNext()) {
+                    MplsLabel label = store.getFreeMplsLabel(link);
+                    if (label != null) {
                         allocsPerLink.get(link)
-                                .add(new MplsLabelResourceAllocation(mplsIter
-                                             .next()));
+                                .add(new MplsLabelResourceAllocation(label));
                     } else {
                         log.info("Failed to allocate MPLS resource.");
                         break;
@@ -241,22 +199,14 @@ public class LinkResourceManager implements LinkResourceService {
 
     @Override
     public Iterable<ResourceRequest> getAvailableResources(Link link) {
-        Set<ResourceAllocation> freeRes = store.getFreeResources(link);
         Set<ResourceRequest> result = new HashSet<>();
-        for (ResourceAllocation alloc : freeRes) {
-            switch (alloc.type()) {
-            case BANDWIDTH:
-                result.add(new BandwidthResourceRequest(
-                        ((BandwidthResourceAllocation) alloc).bandwidth()));
-                break;
-            case LAMBDA:
-                result.add(new LambdaResourceRequest());
-                break;
-            case MPLS_LABEL:
-                result.add(new MplsLabelResourceRequest());
-            default:
-                break;
-            }
+        result.add(new BandwidthResourceRequest(store.getFreeBandwidth(link)));
+        // a single request stands for any of the free lambdas or labels
+        if (!store.getFreeLambdas(link).isEmpty()) {
+            result.add(new LambdaResourceRequest());
+        }
+        if (store.getFreeMplsLabel(link) != null) {
+            result.add(new MplsLabelResourceRequest());
         }
         return result;
     }
@@ -19,6 +19,7 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
@@ -32,6 +33,7 @@ import org.onosproject.net.Link;
 import org.onosproject.net.Path;
 
 import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowId;
 import org.onosproject.net.flow.FlowRule;
 import org.onosproject.net.flow.FlowRuleEvent;
 import org.onosproject.net.flow.FlowRuleListener;
@@ -43,6 +45,7 @@ import org.onosproject.net.statistic.StatisticStore;
 import org.slf4j.Logger;
 
 import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -102,7 +105,8 @@ public class StatisticManager implements StatisticService {
                 .filter(hasGroupId(groupId))
                 .toSet();
 
-        return new DefaultLoad(aggregate(current), aggregate(previous));
+        return new DefaultLoad(aggregate(current), aggregate(previous),
+                               interval(current, previous));
     }
 
     @Override
@@ -166,7 +170,8 @@ public class StatisticManager implements StatisticService {
             return new DefaultLoad();
         }
 
-        return new DefaultLoad(aggregate(stats.current), aggregate(stats.previous));
+        return new DefaultLoad(aggregate(stats.current), aggregate(stats.previous),
+                               interval(stats.current, stats.previous));
     }
 
     /**
@@ -231,6 +236,45 @@ public class StatisticManager implements StatisticService {
         return sum;
     }
 
+    /**
+     * Returns the time between two samples of flow entries, as reported by
+     * the device in the lifetime of the entries sampled twice. Devices may
+     * be polled at varying intervals, so the configured poll interval does
+     * not tell how far apart the samples are. If no entry was sampled
+     * twice, the time between the samples is taken from the time their
+     * entries were received.
+     *
+     * @param current  the current sample
+     * @param previous the previous sample
+     * @return interval in seconds
+     */
+    static long interval(Set<FlowEntry> current, Set<FlowEntry> previous) {
+        Map<FlowId, FlowEntry> earlier = Maps.newHashMap();
+        for (FlowEntry f : previous) {
+            earlier.put(f.id(), f);
+        }
+        long interval = 0;
+        for (FlowEntry f : current) {
+            FlowEntry e = earlier.get(f.id());
+            if (e != null) {
+                interval = Math.max(interval, f.life() - e.life());
+            }
+        }
+        if (interval > 0) {
+            return interval;
+        }
+        return Math.round((lastSeen(current) - lastSeen(previous)) / 1000.0);
+    }
+
+    // Returns the time in millis the newest entry of a sample was received.
+    private static long lastSeen(Set<FlowEntry> sample) {
+        long lastSeen = 0;
+        for (FlowEntry f : sample) {
+            lastSeen = Math.max(lastSeen, f.lastSeen());
+        }
+        return lastSeen;
+    }
+
     /**
      * Internal flow rule event listener.
      */
@@ -18,15 +18,21 @@ package org.onosproject.event.impl;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.metrics.MetricsManager;
+import org.onlab.osgi.ComponentContextAdapter;
 import org.onosproject.event.AbstractEvent;
 import org.onosproject.event.EventSink;
 
 import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Hashtable;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test of the even dispatcher mechanism.
@@ -39,7 +45,8 @@ public class CoreEventDispatcherTest {
 
     @Before
     public void setUp() {
-        dispatcher.activate();
+        dispatcher.metricsService = new MetricsManager();
+        dispatcher.activate(null);
         dispatcher.addSink(Prickle.class, prickleSink);
         dispatcher.addSink(Goo.class, gooSink);
     }
@@ -76,6 +83,110 @@ public class CoreEventDispatcherTest {
         validate(prickleSink);
     }
 
+    @Test
+    public void slowSinkInShardedMode() throws Exception {
+        CoreEventDispatcher sharded = new CoreEventDispatcher();
+        sharded.metricsService = new MetricsManager();
+        sharded.activate(context("true", "10000"));
+        SlimeSink slimeSink = new SlimeSink();
+        sharded.addSink(Slime.class, slimeSink);
+        sharded.addSink(Prickle.class, prickleSink);
+        try {
+            prickleSink.latch = new CountDownLatch(1);
+            sharded.post(new Slime("ooze"));
+            sharded.post(new Prickle("yo"));
+            assertTrue("prickle delayed by slime",
+                       prickleSink.latch.await(1, TimeUnit.SECONDS));
+            validate(prickleSink, "yo");
+        } finally {
+            slimeSink.release.countDown();
+            sharded.deactivate();
+        }
+    }
+
+    @Test
+    public void shardedNotSwitchedAtRuntime() throws Exception {
+        dispatcher.modified(context("true", "10000"));
+        SlimeSink slimeSink = new SlimeSink();
+        dispatcher.addSink(Slime.class, slimeSink);
+        try {
+            prickleSink.latch = new CountDownLatch(1);
+            dispatcher.post(new Slime("ooze"));
+            dispatcher.post(new Prickle("yo"));
+            // still a single queue, so the prickle waits for the slime
+            assertFalse("prickle delivered before slime",
+                        prickleSink.latch.await(100, TimeUnit.MILLISECONDS));
+
+            slimeSink.release.countDown();
+            assertTrue("prickle not delivered",
+                       prickleSink.latch.await(1, TimeUnit.SECONDS));
+            validate(prickleSink, "yo");
+        } finally {
+            slimeSink.release.countDown();
+            dispatcher.removeSink(Slime.class);
+        }
+    }
+
+    @Test
+    public void slowSinkReportedByWatchdog() throws Exception {
+        CoreEventDispatcher watched = new CoreEventDispatcher();
+        watched.metricsService = new MetricsManager();
+        watched.activate(context("false", "100"));
+        SlimeSink slimeSink = new SlimeSink();
+        watched.addSink(Slime.class, slimeSink);
+        watched.addSink(Prickle.class, prickleSink);
+        try {
+            prickleSink.latch = new CountDownLatch(1);
+            watched.post(new Slime("ooze"));
+            watched.post(new Prickle("yo"));
+            long deadline = System.currentTimeMillis() + 2000;
+            while (watched.stallCount(Slime.class) == 0 &&
+                    System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("slime sink not reported", 1, watched.stallCount(Slime.class));
+            // the slow sink is not abandoned, so later events keep their order
+            assertFalse("prickle delivered before slime",
+                        prickleSink.latch.await(100, TimeUnit.MILLISECONDS));
+
+            slimeSink.release.countDown();
+            assertTrue("prickle not delivered",
+                       prickleSink.latch.await(1, TimeUnit.SECONDS));
+            validate(prickleSink, "yo");
+            assertEquals("incorrect queue depth", 0, watched.queueDepth(Prickle.class));
+            assertEquals("incorrect stall count", 0, watched.stallCount(Prickle.class));
+        } finally {
+            slimeSink.release.countDown();
+            watched.deactivate();
+        }
+    }
+
+    @Test
+    public void watchdogOffByDefault() throws Exception {
+        SlimeSink slimeSink = new SlimeSink();
+        dispatcher.addSink(Slime.class, slimeSink);
+        try {
+            dispatcher.post(new Slime("ooze"));
+            Thread.sleep(300);
+            assertEquals("slime sink reported", 0, dispatcher.stallCount(Slime.class));
+        } finally {
+            slimeSink.release.countDown();
+            dispatcher.removeSink(Slime.class);
+        }
+    }
+
+    private static ComponentContextAdapter context(String sharded, String maxProcessMs) {
+        return new ComponentContextAdapter() {
+            @Override
+            public Dictionary getProperties() {
+                Hashtable<String, String> props = new Hashtable<>();
+                props.put("sharded", sharded);
+                props.put("maxProcessMs", maxProcessMs);
+                return props;
+            }
+        };
+    }
+
     private void validate(Sink sink, String... strings) {
         int i = 0;
         assertEquals("incorrect event count", strings.length, sink.subjects.size());
@@ -104,6 +215,12 @@ public class CoreEventDispatcherTest {
         }
     }
 
+    private static class Slime extends Thing {
+        protected Slime(String subject) {
+            super(subject);
+        }
+    }
+
     private static class Sink {
         final List<String> subjects = new ArrayList<>();
         CountDownLatch latch;
@@ -129,4 +246,17 @@ public class CoreEventDispatcherTest {
         }
     }
 
+    private static class SlimeSink implements EventSink<Slime> {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void process(Slime event) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
 }
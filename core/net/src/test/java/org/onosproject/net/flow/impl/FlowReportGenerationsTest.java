@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.flow.impl;
+
+import org.junit.Test;
+import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowEntry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.net.NetTestTools.did;
+
+/**
+ * Tests of the tracking of flow stats report generations.
+ */
+public class FlowReportGenerationsTest {
+
+    private static FlowEntry entry(int priority) {
+        return new DefaultFlowEntry(
+                new DefaultFlowRule(did("1"), DefaultTrafficSelector.emptySelector(),
+                                    DefaultTrafficTreatment.emptyTreatment(),
+                                    priority, priority, 0, true));
+    }
+
+    @Test
+    public void reports() {
+        FlowEntry e1 = entry(1);
+        FlowEntry e2 = entry(2);
+        FlowReportGenerations generations = new FlowReportGenerations();
+
+        generations.startReport();
+        generations.reported(e1);
+        generations.reported(e2);
+        generations.reported(e2);
+        assertEquals(2, generations.reportedCount());
+        assertTrue(generations.wasReported(e1));
+        assertTrue(generations.wasReported(entry(2)));
+        generations.endReport();
+
+        generations.startReport();
+        assertFalse(generations.wasReported(e1));
+        generations.reported(e2);
+        assertEquals(1, generations.reportedCount());
+        assertFalse(generations.wasReported(e1));
+        assertTrue(generations.wasReported(e2));
+        generations.endReport();
+
+        // e1 was forgotten at the end of the previous report
+        generations.startReport();
+        generations.reported(e1);
+        assertEquals(1, generations.reportedCount());
+        assertFalse(generations.wasReported(e2));
+    }
+}
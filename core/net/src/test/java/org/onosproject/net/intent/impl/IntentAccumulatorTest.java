@@ -36,6 +36,8 @@ import com.google.common.collect.ImmutableList;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Unit tests for the intent accumulator.
@@ -156,5 +158,30 @@ public class IntentAccumulatorTest {
         accumulator.processItems(intentDataItems);
     }
 
+    /**
+     * Tests that the accumulator only holds back batches once the maximum
+     * number of batches is in flight.
+     */
+    @Test
+    public void checkBatchesInFlight() {
+        IntentAccumulator accumulator = new IntentAccumulator(operations -> { });
+        List<IntentData> items = ImmutableList.of(
+                new IntentData(intent1, IntentState.INSTALLED, new MockTimestamp(1)));
+
+        assertTrue(accumulator.isReady());
+        accumulator.processItems(items);
+        assertFalse(accumulator.isReady());
+        accumulator.ready();
+        assertTrue(accumulator.isReady());
+
+        accumulator.setMaxBatchesInFlight(2);
+        accumulator.processItems(items);
+        assertTrue(accumulator.isReady());
+        accumulator.processItems(items);
+        assertFalse(accumulator.isReady());
+        accumulator.ready();
+        assertTrue(accumulator.isReady());
+    }
+
 
 }
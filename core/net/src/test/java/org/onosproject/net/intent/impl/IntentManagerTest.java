@@ -17,6 +17,8 @@ package org.onosproject.net.intent.impl;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -29,10 +31,14 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.onlab.metrics.MetricsManager;
+import org.onlab.osgi.ComponentContextAdapter;
 import org.onosproject.TestApplicationId;
+import org.onosproject.cfg.ComponentConfigAdapter;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.core.impl.TestCoreManager;
 import org.onosproject.event.impl.TestEventDispatcher;
+import org.onosproject.net.ElementId;
 import org.onosproject.net.NetworkResource;
 import org.onosproject.net.flow.FlowRule;
 import org.onosproject.net.flow.FlowRuleOperation;
@@ -150,6 +156,16 @@ public class IntentManagerTest {
         public void removeTrackedResources(Key key, Collection<NetworkResource> resources) {
             //TODO
         }
+
+        @Override
+        public void parkIntent(Key intentKey, Collection<? extends ElementId> elements) {
+            //TODO
+        }
+
+        @Override
+        public void unparkIntent(Key intentKey) {
+            //TODO
+        }
     }
 
     private static class MockInstallableIntent extends MockIntent {
@@ -268,10 +284,12 @@ public class IntentManagerTest {
         manager.trackerService = new TestIntentTracker();
         manager.flowRuleService = flowRuleService;
         manager.coreService = new TestCoreManager();
+        manager.configService = new ComponentConfigAdapter();
+        manager.metricsService = new MetricsManager();
         service = manager;
         extensionService = manager;
 
-        manager.activate();
+        manager.activate(null);
         service.addListener(listener);
         extensionService.registerCompiler(MockIntent.class, compiler);
         extensionService.registerInstaller(MockInstallableIntent.class, installer);
@@ -389,6 +407,93 @@ public class IntentManagerTest {
         verifyState();
     }
 
+    private static ComponentContextAdapter pipelined(boolean pipelined) {
+        return new ComponentContextAdapter() {
+            @Override
+            public Dictionary getProperties() {
+                Hashtable<String, String> props = new Hashtable<>();
+                props.put("pipelined", Boolean.toString(pipelined));
+                return props;
+            }
+        };
+    }
+
+    /**
+     * Tests that pipelined batches install and withdraw intents.
+     */
+    @Test
+    public void pipelinedSubmitWithdraw() {
+        manager.modified(pipelined(true));
+        flowRuleService.setFuture(true);
+
+        int count = 20;
+        listener.setLatch(count, Type.INSTALLED);
+        Intent[] intents = new Intent[count];
+        for (int i = 0; i < count; i++) {
+            intents[i] = new MockIntent(MockIntent.nextId());
+            service.submit(intents[i]);
+        }
+        listener.await(Type.INSTALLED);
+        assertEquals((long) count, flowRuleService.getFlowRuleCount());
+
+        listener.setLatch(count, Type.WITHDRAWN);
+        for (Intent intent : intents) {
+            service.withdraw(intent);
+        }
+        listener.await(Type.WITHDRAWN);
+        assertEquals(0L, flowRuleService.getFlowRuleCount());
+        verifyState();
+    }
+
+    /**
+     * Tests that pipelined batches keep the operations on a key in order.
+     */
+    @Test
+    public void pipelinedSubmitWithdrawSame() {
+        manager.modified(pipelined(true));
+        flowRuleService.setFuture(true);
+
+        int count = 50;
+        Intent intent = new MockIntent(MockIntent.nextId());
+        for (int i = 0; i < count; i++) {
+            service.submit(intent);
+            delay(1);
+            service.withdraw(intent);
+        }
+
+        assertAfter(SUBMIT_TIMEOUT_MS, () -> {
+            assertEquals(1L, service.getIntentCount());
+            assertEquals(WITHDRAWN, service.getIntentState(intent.key()));
+            assertEquals(0L, flowRuleService.getFlowRuleCount());
+        });
+        verifyState();
+    }
+
+    /**
+     * Tests that the operations on a key stay in order while the processing
+     * mode is switched with batches in flight.
+     */
+    @Test
+    public void modeSwitchSubmitWithdrawSame() {
+        flowRuleService.setFuture(true);
+
+        int count = 50;
+        Intent intent = new MockIntent(MockIntent.nextId());
+        for (int i = 0; i < count; i++) {
+            manager.modified(pipelined(i % 2 == 0));
+            service.submit(intent);
+            delay(1);
+            manager.modified(pipelined(i % 2 != 0));
+            service.withdraw(intent);
+        }
+
+        assertAfter(SUBMIT_TIMEOUT_MS, () -> {
+            assertEquals(1L, service.getIntentCount());
+            assertEquals(WITHDRAWN, service.getIntentState(intent.key()));
+            assertEquals(0L, flowRuleService.getFlowRuleCount());
+        });
+        verifyState();
+    }
 
     /**
      * Tests for proper behavior of installation of an intent that triggers
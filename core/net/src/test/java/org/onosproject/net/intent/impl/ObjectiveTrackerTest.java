@@ -27,10 +27,23 @@ import org.junit.Before;
 import org.junit.Test;
 import org.onlab.junit.TestUtils;
 import org.onlab.junit.TestUtils.TestUtilsException;
+import org.onlab.packet.IpAddress;
+import org.onosproject.cluster.ClusterServiceAdapter;
+import org.onosproject.cluster.ControllerNode;
+import org.onosproject.cluster.DefaultControllerNode;
+import org.onosproject.cluster.Leadership;
+import org.onosproject.cluster.LeadershipEvent;
+import org.onosproject.cluster.LeadershipEventListener;
+import org.onosproject.cluster.NodeId;
 import org.onosproject.core.IdGenerator;
 import org.onosproject.event.Event;
+import org.onosproject.net.DefaultPort;
+import org.onosproject.net.Device;
 import org.onosproject.net.Link;
 import org.onosproject.net.NetworkResource;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.host.HostEvent;
+import org.onosproject.net.host.HostListener;
 import org.onosproject.net.intent.Intent;
 import org.onosproject.net.intent.Key;
 import org.onosproject.net.intent.MockIdGenerator;
@@ -50,19 +63,29 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.onosproject.net.NetTestTools.APP_ID;
+import static org.onosproject.net.NetTestTools.device;
+import static org.onosproject.net.NetTestTools.did;
+import static org.onosproject.net.NetTestTools.hid;
+import static org.onosproject.net.NetTestTools.host;
 import static org.onosproject.net.NetTestTools.link;
+import static org.onosproject.net.PortNumber.portNumber;
+import static org.onosproject.net.intent.PartitionService.PARTITION_TOPIC_PREFIX;
 
 /**
  * Tests for the objective tracker.
  */
 public class ObjectiveTrackerTest {
     private static final int WAIT_TIMEOUT_SECONDS = 2;
+    private static final ControllerNode LOCAL_NODE =
+            new DefaultControllerNode(new NodeId("local"), IpAddress.valueOf("127.0.0.1"));
     private Topology topology;
     private ObjectiveTracker tracker;
     private TestTopologyChangeDelegate delegate;
     private List<Event> reasons;
     private TopologyListener listener;
     private LinkResourceListener linkResourceListener;
+    private HostListener hostListener;
+    private LeadershipEventListener leadershipListener;
     private IdGenerator mockGenerator;
 
     /**
@@ -74,11 +97,19 @@ public class ObjectiveTrackerTest {
     public void setUp() throws TestUtilsException {
         topology = createMock(Topology.class);
         tracker = new ObjectiveTracker();
+        tracker.clusterService = new ClusterServiceAdapter() {
+            @Override
+            public ControllerNode getLocalNode() {
+                return LOCAL_NODE;
+            }
+        };
         delegate = new TestTopologyChangeDelegate();
         tracker.setDelegate(delegate);
         reasons = new LinkedList<>();
         listener = TestUtils.getField(tracker, "listener");
         linkResourceListener = TestUtils.getField(tracker, "linkResourceListener");
+        hostListener = TestUtils.getField(tracker, "hostListener");
+        leadershipListener = TestUtils.getField(tracker, "leadershipListener");
         mockGenerator = new MockIdGenerator();
         Intent.bindIdGenerator(mockGenerator);
     }
@@ -113,7 +144,8 @@ public class ObjectiveTrackerTest {
     }
 
     /**
-     * Tests an event with no associated reasons.
+     * Tests an event with no associated reasons, which retries the parked
+     * intents along with all failed and pending intents.
      *
      * @throws InterruptedException if the latch wait fails.
      */
@@ -124,15 +156,61 @@ public class ObjectiveTrackerTest {
                 topology,
                 null);
 
+        final Key key = Key.of(0x333L, APP_ID);
+        tracker.parkIntent(key, ImmutableSet.of());
+
         listener.event(event);
         assertThat(
                 delegate.latch.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS),
                 is(true));
 
-        assertThat(delegate.intentIdsFromEvent, hasSize(0));
+        assertThat(delegate.intentIdsFromEvent, hasSize(1));
+        assertThat(delegate.intentIdsFromEvent.get(0), equalTo(key));
         assertThat(delegate.compileAllFailedFromEvent, is(true));
     }
 
+    /**
+     * Tests that gaining the leadership of a partition retries all failed
+     * and pending intents.
+     *
+     * @throws InterruptedException if the latch wait fails.
+     */
+    @Test
+    public void testLeadershipGained() throws InterruptedException {
+        final Key key = Key.of(0x333L, APP_ID);
+        tracker.parkIntent(key, ImmutableSet.of());
+
+        leadershipListener.event(new LeadershipEvent(
+                LeadershipEvent.Type.LEADER_ELECTED,
+                new Leadership(PARTITION_TOPIC_PREFIX + 3, LOCAL_NODE.id(), 1L, 0L)));
+        assertThat(
+                delegate.latch.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                is(true));
+
+        assertThat(delegate.intentIdsFromEvent, hasSize(1));
+        assertThat(delegate.intentIdsFromEvent.get(0), equalTo(key));
+        assertThat(delegate.compileAllFailedFromEvent, is(true));
+    }
+
+    /**
+     * Tests that gaining the leadership of a topic other than an intent
+     * partition retries nothing.
+     *
+     * @throws InterruptedException if the latch wait fails.
+     */
+    @Test
+    public void testOtherLeadershipIgnored() throws InterruptedException {
+        final Key key = Key.of(0x333L, APP_ID);
+        tracker.parkIntent(key, ImmutableSet.of());
+
+        leadershipListener.event(new LeadershipEvent(
+                LeadershipEvent.Type.LEADER_ELECTED,
+                new Leadership("other-topic", LOCAL_NODE.id(), 1L, 0L)));
+        assertThat(
+                delegate.latch.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                is(false));
+    }
+
     /**
      * Tests an event for a link down where none of the reasons match
      * currently installed intents.
@@ -160,7 +238,8 @@ public class ObjectiveTrackerTest {
     }
 
     /**
-     * Tests an event for a link being added.
+     * Tests an event for a link being added, which retries the parked
+     * intents.
      *
      * @throws InterruptedException if the latch wait fails.
      */
@@ -175,13 +254,17 @@ public class ObjectiveTrackerTest {
                 topology,
                 reasons);
 
+        final Key key = Key.of(0x333L, APP_ID);
+        tracker.parkIntent(key, ImmutableSet.of(did("a"), did("b")));
+
         listener.event(event);
         assertThat(
                 delegate.latch.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS),
                 is(true));
 
-        assertThat(delegate.intentIdsFromEvent, hasSize(0));
-        assertThat(delegate.compileAllFailedFromEvent, is(true));
+        assertThat(delegate.intentIdsFromEvent, hasSize(1));
+        assertThat(delegate.intentIdsFromEvent.get(0), equalTo(key));
+        assertThat(delegate.compileAllFailedFromEvent, is(false));
     }
 
     /**
@@ -222,6 +305,9 @@ public class ObjectiveTrackerTest {
      */
     @Test
     public void testResourceEvent() throws Exception {
+        final Key key = Key.of(0x333L, APP_ID);
+        tracker.parkIntent(key, ImmutableSet.of());
+
         LinkResourceEvent event = new LinkResourceEvent(
                 LinkResourceEvent.Type.ADDITIONAL_RESOURCES_AVAILABLE,
                 new HashSet<>());
@@ -231,8 +317,117 @@ public class ObjectiveTrackerTest {
                 delegate.latch.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS),
                 is(true));
 
-        assertThat(delegate.intentIdsFromEvent, hasSize(0));
-        assertThat(delegate.compileAllFailedFromEvent, is(true));
+        assertThat(delegate.intentIdsFromEvent, hasSize(1));
+        assertThat(delegate.intentIdsFromEvent.get(0), equalTo(key));
+        assertThat(delegate.compileAllFailedFromEvent, is(false));
+    }
+
+    /**
+     * Tests an event for a device going away, which recompiles the intents
+     * traversing the device.
+     *
+     * @throws InterruptedException if the latch wait fails.
+     */
+    @Test
+    public void testEventDeviceRemovedMatch() throws InterruptedException {
+        final Key key = Key.of(0x333L, APP_ID);
+        final Key other = Key.of(0x444L, APP_ID);
+        tracker.addTrackedResources(key, ImmutableSet.of(link("src", 1, "dst", 2)));
+        tracker.addTrackedResources(other, ImmutableSet.of(link("dst", 3, "far", 4)));
+
+        reasons.add(new DeviceEvent(DeviceEvent.Type.DEVICE_REMOVED, device("src")));
+        listener.event(new TopologyEvent(TopologyEvent.Type.TOPOLOGY_CHANGED,
+                                         topology, reasons));
+        assertThat(
+                delegate.latch.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                is(true));
+
+        assertThat(delegate.intentIdsFromEvent, hasSize(1));
+        assertThat(delegate.intentIdsFromEvent.get(0), equalTo(key));
+        assertThat(delegate.compileAllFailedFromEvent, is(false));
+    }
+
+    /**
+     * Tests an event for a port going down, which recompiles the intents
+     * traversing the port, but not those traversing other ports of the
+     * same device.
+     *
+     * @throws InterruptedException if the latch wait fails.
+     */
+    @Test
+    public void testEventPortDownMatch() throws InterruptedException {
+        final Key key = Key.of(0x333L, APP_ID);
+        final Key other = Key.of(0x444L, APP_ID);
+        tracker.addTrackedResources(key, ImmutableSet.of(link("src", 1, "dst", 2)));
+        tracker.addTrackedResources(other, ImmutableSet.of(link("src", 5, "far", 4)));
+
+        Device src = device("src");
+        reasons.add(new DeviceEvent(DeviceEvent.Type.PORT_UPDATED, src,
+                                    new DefaultPort(src, portNumber(1), false)));
+        listener.event(new TopologyEvent(TopologyEvent.Type.TOPOLOGY_CHANGED,
+                                         topology, reasons));
+        assertThat(
+                delegate.latch.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                is(true));
+
+        assertThat(delegate.intentIdsFromEvent, hasSize(1));
+        assertThat(delegate.intentIdsFromEvent.get(0), equalTo(key));
+    }
+
+    /**
+     * Tests that a device being added only retries the parked intents that
+     * wait on that device, and that retried intents are no longer parked.
+     *
+     * @throws InterruptedException if the latch wait fails.
+     */
+    @Test
+    public void testEventDeviceAddedParked() throws InterruptedException {
+        final Key key = Key.of(0x333L, APP_ID);
+        final Key other = Key.of(0x444L, APP_ID);
+        tracker.parkIntent(key, ImmutableSet.of(did("src"), did("dst")));
+        tracker.parkIntent(other, ImmutableSet.of(did("far")));
+
+        reasons.add(new DeviceEvent(DeviceEvent.Type.DEVICE_ADDED, device("dst")));
+        listener.event(new TopologyEvent(TopologyEvent.Type.TOPOLOGY_CHANGED,
+                                         topology, reasons));
+        assertThat(
+                delegate.latch.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                is(true));
+
+        assertThat(delegate.intentIdsFromEvent, hasSize(1));
+        assertThat(delegate.intentIdsFromEvent.get(0), equalTo(key));
+
+        delegate.latch = new CountDownLatch(1);
+        listener.event(new TopologyEvent(TopologyEvent.Type.TOPOLOGY_CHANGED,
+                                         topology, null));
+        assertThat(
+                delegate.latch.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                is(true));
+
+        assertThat(delegate.intentIdsFromEvent, hasSize(1));
+        assertThat(delegate.intentIdsFromEvent.get(0), equalTo(other));
+    }
+
+    /**
+     * Tests that a host being added retries the parked intents that wait
+     * on that host.
+     *
+     * @throws InterruptedException if the latch wait fails.
+     */
+    @Test
+    public void testHostAddedParked() throws InterruptedException {
+        final String mac = "12:34:56:78:90:ab/1";
+        final Key key = Key.of(0x333L, APP_ID);
+        tracker.parkIntent(key, ImmutableSet.of(hid(mac)));
+
+        hostListener.event(new HostEvent(HostEvent.Type.HOST_ADDED, host(mac, "edge")));
+        assertThat(
+                delegate.latch.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                is(true));
+
+        assertThat(delegate.intentIdsFromEvent, hasSize(1));
+        assertThat(delegate.intentIdsFromEvent.get(0), equalTo(key));
+        assertThat(delegate.compileAllFailedFromEvent, is(false));
     }
 
 }
@@ -32,15 +32,18 @@ import org.onosproject.net.intent.PathIntent;
 import org.onosproject.net.intent.PointToPointIntent;
 import org.onosproject.net.intent.constraint.BandwidthConstraint;
 import org.onosproject.net.intent.constraint.LambdaConstraint;
+import org.onosproject.net.intent.constraint.ObstacleConstraint;
 import org.onosproject.net.intent.impl.PathNotFoundException;
 import org.onosproject.net.resource.Bandwidth;
 import org.onosproject.net.resource.Lambda;
 import org.onosproject.net.resource.LinkResourceService;
+import org.onosproject.net.topology.LinkWeight;
 
 import java.util.Arrays;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
@@ -298,4 +301,27 @@ public class PointToPointIntentCompilerTest extends AbstractIntentTest {
         }
     }
 
+    /**
+     * Tests that link weights of the same constraints on the links alone are
+     * equal, so that paths computed for them can be shared, while weights of
+     * constraints on the link resources are not.
+     */
+    @Test
+    public void testLinkWeightEquality() {
+        String[] hops = {"h1", "h2"};
+        PointToPointIntentCompiler compiler = makeCompiler(hops);
+
+        List<Constraint> obstacles = Arrays.asList(new ObstacleConstraint(deviceId("s2")));
+        LinkWeight weight = compiler.weight(obstacles);
+        assertThat(weight, is(compiler.weight(obstacles)));
+        assertThat(weight.hashCode(), is(compiler.weight(obstacles).hashCode()));
+        assertThat(weight, is(not(compiler.weight(
+                Arrays.asList(new ObstacleConstraint(deviceId("s3")))))));
+
+        List<Constraint> bandwidth = Arrays.asList(new BandwidthConstraint(Bandwidth.bps(100.0)));
+        weight = compiler.weight(bandwidth);
+        assertThat(weight, is(weight));
+        assertThat(weight, is(not(compiler.weight(bandwidth))));
+    }
+
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.statistic.impl;
+
+import org.junit.Test;
+import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowEntry;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.junit.Assert.assertEquals;
+import static org.onosproject.net.NetTestTools.did;
+import static org.onosproject.net.flow.FlowEntry.FlowEntryState.ADDED;
+
+/**
+ * Tests of the time between flow statistics samples.
+ */
+public class StatisticManagerTest {
+
+    private static final long NOW = System.currentTimeMillis();
+
+    // Returns an entry of the given flow as received at the given time.
+    private static FlowEntry entry(int flow, long life, long lastSeen) {
+        return new DefaultFlowEntry(
+                new DefaultFlowRule(did("1"), DefaultTrafficSelector.emptySelector(),
+                                    DefaultTrafficTreatment.emptyTreatment(),
+                                    flow, flow, 0, true),
+                ADDED, life, 0, 0) {
+            @Override
+            public long lastSeen() {
+                return lastSeen;
+            }
+        };
+    }
+
+    @Test
+    public void intervalFromLifetimes() {
+        assertEquals(15, StatisticManager.interval(of(entry(1, 25, NOW), entry(2, 3, NOW)),
+                                                   of(entry(1, 10, NOW - 40_000))));
+    }
+
+    @Test
+    public void intervalFromSampleTimes() {
+        // no flow was sampled twice
+        assertEquals(40, StatisticManager.interval(of(entry(2, 3, NOW - 1000), entry(3, 1, NOW)),
+                                                   of(entry(1, 10, NOW - 40_000))));
+    }
+}
@@ -15,18 +15,26 @@
  */
 package org.onosproject.store.cluster.messaging.impl;
 
+import com.codahale.metrics.Gauge;
+import com.google.common.base.Strings;
 import com.google.common.util.concurrent.ListenableFuture;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onlab.netty.Endpoint;
 import org.onlab.netty.Message;
 import org.onlab.netty.MessageHandler;
 import org.onlab.netty.MessagingService;
 import org.onlab.netty.NettyMessagingService;
+import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.cluster.ClusterService;
 import org.onosproject.cluster.ControllerNode;
 import org.onosproject.cluster.NodeId;
@@ -34,13 +42,16 @@ import org.onosproject.store.cluster.messaging.ClusterCommunicationService;
 import org.onosproject.store.cluster.messaging.ClusterMessage;
 import org.onosproject.store.cluster.messaging.ClusterMessageHandler;
 import org.onosproject.store.cluster.messaging.MessageSubject;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Dictionary;
 import java.util.concurrent.ExecutorService;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static org.onlab.util.Tools.get;
 
 @Component(immediate = true)
 @Service
@@ -49,28 +60,73 @@ public class ClusterCommunicationManager
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    private static final int DEFAULT_CHANNELS_PER_PEER = 4;
+    private static final int DEFAULT_MAX_BATCH_MESSAGES = 256;
+    private static final int DEFAULT_MAX_BATCH_BYTES = 64 * 1024;
+
+    private static final String COMPONENT = "ClusterCommunication";
+    private static final String WRITE_BATCH = "writeBatch";
+    private static final String BATCH_SIZE = "size";
+    private static final String FLUSH_LATENCY = "flushLatency";
+    private static final String REQUESTS = "requests";
+    private static final String OUTSTANDING = "outstanding";
+    private static final String TIMED_OUT = "timedOut";
+
+    @Property(name = "channelsPerPeer", intValue = DEFAULT_CHANNELS_PER_PEER,
+            label = "Number of channels opened to each peer; takes effect on restart")
+    private int channelsPerPeer = DEFAULT_CHANNELS_PER_PEER;
+
+    @Property(name = "maxBatchMessages", intValue = DEFAULT_MAX_BATCH_MESSAGES,
+            label = "Maximum number of messages written to a peer before the channel is flushed")
+    private int maxBatchMessages = DEFAULT_MAX_BATCH_MESSAGES;
+
+    @Property(name = "maxBatchBytes", intValue = DEFAULT_MAX_BATCH_BYTES,
+            label = "Maximum number of payload bytes written to a peer before the channel is flushed")
+    private int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     private ClusterService clusterService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ComponentConfigService configService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
+    private MetricsComponent metricsComponent;
+    private MetricsFeature writeBatchFeature;
+    private MetricsFeature requestsFeature;
+
     // TODO: This probably should not be a OSGi service.
     private MessagingService messagingService;
 
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
+        configService.registerProperties(getClass());
+        if (context != null) {
+            channelsPerPeer = getInt(context.getProperties(), "channelsPerPeer", channelsPerPeer, 1);
+        }
+
         ControllerNode localNode = clusterService.getLocalNode();
         NettyMessagingService netty = new NettyMessagingService(localNode.ip(), localNode.tcpPort());
+        netty.setChannelsPerPeer(channelsPerPeer);
+        messagingService = netty;
+        modified(context);
+        registerMetrics(netty);
         // FIXME: workaround until it becomes a service.
         try {
             netty.activate();
         } catch (Exception e) {
             log.error("NettyMessagingService#activate", e);
         }
-        messagingService = netty;
-        log.info("Started on {}:{}", localNode.ip(), localNode.tcpPort());
+        log.info("Started on {}:{} with channelsPerPeer = {}",
+                 localNode.ip(), localNode.tcpPort(), channelsPerPeer);
     }
 
     @Deactivate
     public void deactivate() {
+        configService.unregisterProperties(getClass(), false);
+        unregisterMetrics();
         // TODO: cleanup messageingService if needed.
         // FIXME: workaround until it becomes a service.
         try {
@@ -81,6 +137,54 @@ public class ClusterCommunicationManager
         log.info("Stopped");
     }
 
+    @Modified
+    public void modified(ComponentContext context) {
+        if (context != null) {
+            Dictionary<?, ?> properties = context.getProperties();
+            maxBatchMessages = getInt(properties, "maxBatchMessages", maxBatchMessages, 1);
+            maxBatchBytes = getInt(properties, "maxBatchBytes", maxBatchBytes, 1);
+        }
+        NettyMessagingService netty = (NettyMessagingService) messagingService;
+        netty.setMaxBatchMessages(maxBatchMessages);
+        netty.setMaxBatchBytes(maxBatchBytes);
+        log.info("Configured with maxBatchMessages = {}; maxBatchBytes = {}",
+                 maxBatchMessages, maxBatchBytes);
+    }
+
+    private void registerMetrics(NettyMessagingService netty) {
+        metricsComponent = metricsService.registerComponent(COMPONENT);
+        writeBatchFeature = metricsComponent.registerFeature(WRITE_BATCH);
+        metricsService.registerMetric(metricsComponent, writeBatchFeature, BATCH_SIZE,
+                                      netty.batchSizeHistogram());
+        metricsService.registerMetric(metricsComponent, writeBatchFeature, FLUSH_LATENCY,
+                                      netty.flushLatencyTimer());
+        requestsFeature = metricsComponent.registerFeature(REQUESTS);
+        metricsService.registerMetric(metricsComponent, requestsFeature, OUTSTANDING,
+                                      (Gauge<Long>) netty::outstandingRequests);
+        metricsService.registerMetric(metricsComponent, requestsFeature, TIMED_OUT,
+                                      (Gauge<Long>) netty::timedOutRequests);
+    }
+
+    private void unregisterMetrics() {
+        metricsService.removeMetric(metricsComponent, writeBatchFeature, BATCH_SIZE);
+        metricsService.removeMetric(metricsComponent, writeBatchFeature, FLUSH_LATENCY);
+        metricsService.removeMetric(metricsComponent, requestsFeature, OUTSTANDING);
+        metricsService.removeMetric(metricsComponent, requestsFeature, TIMED_OUT);
+    }
+
+    private int getInt(Dictionary<?, ?> properties, String name, int current, int min) {
+        String s = get(properties, name);
+        if (Strings.isNullOrEmpty(s)) {
+            return current;
+        }
+        try {
+            return Math.max(Integer.parseInt(s.trim()), min);
+        } catch (NumberFormatException e) {
+            log.warn("Invalid {} {}; keeping {}", name, s, current);
+            return current;
+        }
+    }
+
     @Override
     public boolean broadcast(ClusterMessage message) {
         boolean ok = true;
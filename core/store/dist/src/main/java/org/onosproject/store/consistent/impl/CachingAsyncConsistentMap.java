@@ -0,0 +1,219 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.store.consistent.impl;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.onosproject.store.service.Serializer;
+import org.onosproject.store.service.Versioned;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * AsyncConsistentMap that serves reads of individual keys from a local
+ * cache of decoded values.
+ * <p>
+ * Each cached value keeps the version it was read with. The database
+ * partitions replicated on this node report every update they apply, with
+ * the lowest version the updated entry may have from then on; cached values
+ * with a lower version are dropped, and values read with a lower version
+ * are not cached. A cached value is therefore served only until the local
+ * replica of its partition has applied a newer update, and in any case no
+ * longer than the staleness bound of the map.
+ * </p>
+ *
+ * @param <K> type of key.
+ * @param <V> type of value.
+ */
+public class CachingAsyncConsistentMap<K, V> extends DefaultAsyncConsistentMap<K, V>
+        implements DatabaseUpdateListener {
+
+    private final String name;
+    private final long maxStalenessMillis;
+
+    private final Cache<DatabaseKey, Versioned<V>> cache;
+
+    // Lowest version of the recently updated keys, kept for as long as a
+    // read may be in flight; reads taking longer are not cached.
+    private final Cache<DatabaseKey, Long> minVersions;
+
+    // Incremented when the map is cleared or updated through this map, so
+    // that reads in flight meanwhile do not cache what they read; updates
+    // made here may complete before the local replica has applied them.
+    private long generation = 0;
+
+    /**
+     * Creates a caching map.
+     *
+     * @param name               map name
+     * @param proxy              database proxy
+     * @param serializer         serializer of the keys and values
+     * @param cacheSize          maximum number of cached values
+     * @param maxStalenessMillis maximum time in millis a value is served
+     *                           from the cache
+     */
+    public CachingAsyncConsistentMap(String name,
+                                     DatabaseProxy<DatabaseKey, byte[]> proxy,
+                                     Serializer serializer,
+                                     int cacheSize,
+                                     long maxStalenessMillis) {
+        super(name, proxy, serializer);
+        checkArgument(cacheSize > 0, "Cache size must be positive");
+        checkArgument(maxStalenessMillis > 0, "Staleness bound must be positive");
+        this.name = name;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(maxStalenessMillis, TimeUnit.MILLISECONDS)
+                .build();
+        this.minVersions = CacheBuilder.newBuilder()
+                .expireAfterWrite(maxStalenessMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Returns the name of the map.
+     *
+     * @return map name
+     */
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public CompletableFuture<Versioned<V>> get(K key) {
+        checkNotNull(key, "Key cannot be null");
+        DatabaseKey dbKey = eK(key);
+        Versioned<V> cached = cache.getIfPresent(dbKey);
+        if (cached != null && cached.version() >= minVersion(dbKey)) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        long readGeneration;
+        synchronized (this) {
+            readGeneration = generation;
+        }
+        long readStart = System.currentTimeMillis();
+        return super.get(key).whenComplete((value, error) -> {
+            if (value != null && System.currentTimeMillis() - readStart < maxStalenessMillis) {
+                fill(dbKey, value, readGeneration);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> containsKey(K key) {
+        checkNotNull(key, "Key cannot be null");
+        DatabaseKey dbKey = eK(key);
+        Versioned<V> cached = cache.getIfPresent(dbKey);
+        if (cached != null && cached.version() >= minVersion(dbKey)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return super.containsKey(key);
+    }
+
+    @Override
+    public CompletableFuture<Versioned<V>> put(K key, V value) {
+        return updated(key, super.put(key, value));
+    }
+
+    @Override
+    public CompletableFuture<Versioned<V>> remove(K key) {
+        return updated(key, super.remove(key));
+    }
+
+    @Override
+    public CompletableFuture<Void> clear() {
+        return super.clear().whenComplete((result, error) -> tableCleared(name));
+    }
+
+    @Override
+    public CompletableFuture<Versioned<V>> putIfAbsent(K key, V value) {
+        return updated(key, super.putIfAbsent(key, value));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> remove(K key, V value) {
+        return updated(key, super.remove(key, value));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> remove(K key, long version) {
+        return updated(key, super.remove(key, version));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> replace(K key, V oldValue, V newValue) {
+        return updated(key, super.replace(key, oldValue, newValue));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> replace(K key, long oldVersion, V newValue) {
+        return updated(key, super.replace(key, oldVersion, newValue));
+    }
+
+    @Override
+    public synchronized void entryUpdated(String tableName, Object key, long version) {
+        if (!name.equals(tableName) || !(key instanceof DatabaseKey)) {
+            return;
+        }
+        DatabaseKey dbKey = (DatabaseKey) key;
+        if (version > minVersion(dbKey)) {
+            minVersions.put(dbKey, version);
+        }
+        Versioned<V> cached = cache.getIfPresent(dbKey);
+        if (cached != null && cached.version() < version) {
+            cache.invalidate(dbKey);
+        }
+    }
+
+    @Override
+    public synchronized void tableCleared(String tableName) {
+        if (name.equals(tableName)) {
+            generation++;
+            cache.invalidateAll();
+        }
+    }
+
+    // Caches a value read from the database, unless a newer update of the
+    // key was applied locally or the map was updated here since the read.
+    private synchronized void fill(DatabaseKey dbKey, Versioned<V> value, long readGeneration) {
+        if (generation == readGeneration && value.version() >= minVersion(dbKey)) {
+            cache.put(dbKey, value);
+        }
+    }
+
+    // Drops the key once the update is done, whatever its outcome, as a
+    // failed update may still have been applied.
+    private <T> CompletableFuture<T> updated(K key, CompletableFuture<T> update) {
+        DatabaseKey dbKey = eK(key);
+        return update.whenComplete((result, error) -> {
+            synchronized (this) {
+                generation++;
+                cache.invalidate(dbKey);
+            }
+        });
+    }
+
+    private long minVersion(DatabaseKey dbKey) {
+        Long version = minVersions.getIfPresent(dbKey);
+        return version != null ? version : 0;
+    }
+}
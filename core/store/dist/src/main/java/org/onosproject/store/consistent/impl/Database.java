@@ -26,7 +26,7 @@ import net.kuujo.copycat.resource.Resource;
 /**
  * Database.
  */
-public interface Database extends DatabaseProxy<String, byte[]>, Resource<Database> {
+public interface Database extends DatabaseProxy<DatabaseKey, byte[]>, Resource<Database> {
 
   /**
    * Creates a new database with the default cluster configuration.<p>
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.store.consistent.impl;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+
+import org.onlab.util.HexString;
+
+/**
+ * Key of a database table entry, holding the serialized form of a map key.
+ * <p>
+ * The key bytes are used as they are, so that keys take no more space in
+ * the log than their serialized form, and the hash code is computed once,
+ * when the key is created, so that partitioning and table lookups do not
+ * need to go over the bytes again. The key bytes must not be modified
+ * once they have been handed over to a key.
+ * </p>
+ */
+public final class DatabaseKey {
+
+    private final byte[] bytes;
+    private final int hash;
+
+    private DatabaseKey(byte[] bytes) {
+        this.bytes = bytes;
+        this.hash = Arrays.hashCode(bytes);
+    }
+
+    /**
+     * Returns the key with the specified serialized form.
+     *
+     * @param bytes serialized key; not copied
+     * @return database key
+     */
+    public static DatabaseKey of(byte[] bytes) {
+        return new DatabaseKey(checkNotNull(bytes, "Key bytes cannot be null"));
+    }
+
+    /**
+     * Returns the serialized form of the key. The returned array must not
+     * be modified.
+     *
+     * @return serialized key
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof DatabaseKey) {
+            DatabaseKey that = (DatabaseKey) obj;
+            return this.hash == that.hash && Arrays.equals(this.bytes, that.bytes);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return HexString.toHexString(bytes);
+    }
+}
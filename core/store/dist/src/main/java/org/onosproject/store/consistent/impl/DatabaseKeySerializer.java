@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.store.consistent.impl;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Kryo Serializer for {@link DatabaseKey}.
+ * Only the key bytes are written; the hash is recomputed when reading.
+ */
+public class DatabaseKeySerializer extends Serializer<DatabaseKey> {
+
+    /**
+     * Creates {@link DatabaseKey} serializer instance.
+     */
+    public DatabaseKeySerializer() {
+        super(false, true);
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, DatabaseKey object) {
+        byte[] bytes = object.bytes();
+        output.writeInt(bytes.length, true);
+        output.writeBytes(bytes);
+    }
+
+    @Override
+    public DatabaseKey read(Kryo kryo, Input input, Class<DatabaseKey> type) {
+        int length = input.readInt(true);
+        return DatabaseKey.of(input.readBytes(length));
+    }
+}
@@ -16,6 +16,12 @@
 
 package org.onosproject.store.consistent.impl;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 
 import net.kuujo.copycat.cluster.ClusterConfig;
@@ -27,28 +33,42 @@ import net.kuujo.copycat.protocol.Consistency;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.cluster.ClusterService;
 import org.onosproject.store.cluster.impl.NodeInfo;
+import org.onosproject.store.service.AsyncConsistentMap;
 import org.onosproject.store.service.ConsistentMap;
 import org.onosproject.store.service.PartitionInfo;
 import org.onosproject.store.service.Serializer;
 import org.onosproject.store.service.StorageAdminService;
 import org.onosproject.store.service.StorageService;
 import org.onosproject.store.service.TransactionContext;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Dictionary;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static org.onlab.util.Tools.get;
+import static org.onlab.util.Tools.groupedThreads;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -65,15 +85,44 @@ public class DatabaseManager implements StorageService, StorageAdminService {
     private static final String PARTITION_DEFINITION_FILE = "tablets.json";
     private static final int DATABASE_STARTUP_TIMEOUT_SEC = 60;
 
+    private static final int DEFAULT_WRITE_BATCH_SIZE = 100;
+    private static final int DEFAULT_WRITE_BATCH_WINDOW_MILLIS = 2;
+
+    @Property(name = "writeBatchSize", intValue = DEFAULT_WRITE_BATCH_SIZE,
+            label = "Maximum number of writes to a partition committed together; 1 disables batching")
+    private int writeBatchSize = DEFAULT_WRITE_BATCH_SIZE;
+
+    @Property(name = "writeBatchWindowMillis", intValue = DEFAULT_WRITE_BATCH_WINDOW_MILLIS,
+            label = "Maximum time in millis a write waits for the batch in flight to be committed")
+    private int writeBatchWindowMillis = DEFAULT_WRITE_BATCH_WINDOW_MILLIS;
+
+    // Maps with a local cache, by map name; caches are kept only if every
+    // partition is replicated here, so that all updates are seen locally.
+    private final SetMultimap<String, CachingAsyncConsistentMap<?, ?>> cachedMaps =
+            Multimaps.synchronizedSetMultimap(HashMultimap.create());
+    private final DatabaseUpdateListener updateListener = new InternalUpdateListener();
+    private boolean cachingEnabled;
+
+    private ScheduledExecutorService writeBatchTimer;
+    private Histogram writeBatchSizes;
+    private Timer writeCommitLatency;
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected ClusterService clusterService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ComponentConfigService configService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
     protected String nodeToUri(NodeInfo node) {
         return String.format("tcp://%s:%d", node.getIp(), COPYCAT_TCP_PORT);
     }
 
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
+        configService.registerProperties(getClass());
 
         final String logDir = System.getProperty("karaf.data", "./data");
 
@@ -97,7 +146,14 @@ public class DatabaseManager implements StorageService, StorageAdminService {
                     .map(this::nodeToUri)
                     .toArray(String[]::new);
 
-        String localNodeUri = nodeToUri(NodeInfo.of(clusterService.getLocalNode()));
+        NodeInfo localNode = NodeInfo.of(clusterService.getLocalNode());
+        String localNodeUri = nodeToUri(localNode);
+        cachingEnabled = partitionMap.values().stream().allMatch(nodes -> nodes.contains(localNode));
+        if (cachingEnabled) {
+            DefaultDatabaseState.addUpdateListener(updateListener);
+        } else {
+            log.info("Not all partitions are replicated locally; consistent maps will not be cached");
+        }
 
         ClusterConfig clusterConfig = new ClusterConfig()
             .withProtocol(new NettyTcpProtocol()
@@ -134,6 +190,11 @@ public class DatabaseManager implements StorageService, StorageAdminService {
 
         partitionedDatabase = PartitionedDatabaseManager.create("onos-store", clusterConfig, databaseConfig);
 
+        writeBatchTimer = Executors.newSingleThreadScheduledExecutor(
+                groupedThreads("onos/store/database", "write-batcher"));
+        registerMetrics();
+        modified(context);
+
         CountDownLatch latch = new CountDownLatch(1);
         partitionedDatabase.open().whenComplete((db, error) -> {
             if (error != null) {
@@ -156,6 +217,11 @@ public class DatabaseManager implements StorageService, StorageAdminService {
 
     @Deactivate
     public void deactivate() {
+        configService.unregisterProperties(getClass(), false);
+        DefaultDatabaseState.removeUpdateListener(updateListener);
+        cachedMaps.clear();
+        partitionedDatabase.setWriteBatchers(Maps.newHashMap());
+        writeBatchTimer.shutdown();
         partitionedDatabase.close().whenComplete((result, error) -> {
             if (error != null) {
                 log.warn("Failed to cleanly close database.", error);
@@ -166,11 +232,67 @@ public class DatabaseManager implements StorageService, StorageAdminService {
         log.info("Stopped");
     }
 
+    @Modified
+    public void modified(ComponentContext context) {
+        int newBatchSize = DEFAULT_WRITE_BATCH_SIZE;
+        int newWindowMillis = DEFAULT_WRITE_BATCH_WINDOW_MILLIS;
+        if (context != null) {
+            Dictionary properties = context.getProperties();
+            try {
+                String s = get(properties, "writeBatchSize");
+                newBatchSize = isNullOrEmpty(s) ? writeBatchSize : Integer.parseInt(s.trim());
+
+                s = get(properties, "writeBatchWindowMillis");
+                newWindowMillis = isNullOrEmpty(s) ? writeBatchWindowMillis : Integer.parseInt(s.trim());
+            } catch (NumberFormatException | ClassCastException e) {
+                newBatchSize = DEFAULT_WRITE_BATCH_SIZE;
+                newWindowMillis = DEFAULT_WRITE_BATCH_WINDOW_MILLIS;
+            }
+        }
+        writeBatchSize = Math.max(newBatchSize, 1);
+        writeBatchWindowMillis = Math.max(newWindowMillis, 0);
+
+        Map<Database, DatabaseWriteBatcher> batchers = Maps.newHashMap();
+        if (writeBatchSize > 1) {
+            partitionedDatabase.getRegisteredPartitions().values().forEach(partition ->
+                    batchers.put(partition, new DatabaseWriteBatcher(partition, writeBatchTimer,
+                                                                     writeBatchSize, writeBatchWindowMillis,
+                                                                     writeBatchSizes, writeCommitLatency)));
+        }
+        partitionedDatabase.setWriteBatchers(batchers);
+        log.info("Configured with writeBatchSize = {}; writeBatchWindowMillis = {}",
+                 writeBatchSize, writeBatchWindowMillis);
+    }
+
+    private void registerMetrics() {
+        MetricsComponent component = metricsService.registerComponent("Database");
+        MetricsFeature feature = component.registerFeature("writeBatch");
+        writeBatchSizes = metricsService.createHistogram(component, feature, "size");
+        writeCommitLatency = metricsService.createTimer(component, feature, "commitLatency");
+    }
+
     @Override
     public <K, V> ConsistentMap<K , V> createConsistentMap(String name, Serializer serializer) {
         return new ConsistentMapImpl<K, V>(name, partitionedDatabase, serializer);
     }
 
+    @Override
+    public <K, V> AsyncConsistentMap<K , V> createAsyncConsistentMap(String name, Serializer serializer) {
+        return new DefaultAsyncConsistentMap<K, V>(name, partitionedDatabase, serializer);
+    }
+
+    @Override
+    public <K, V> ConsistentMap<K , V> createCachedConsistentMap(String name, Serializer serializer,
+                                                                 int cacheSize, long maxStalenessMillis) {
+        if (!cachingEnabled) {
+            return createConsistentMap(name, serializer);
+        }
+        CachingAsyncConsistentMap<K, V> cachedMap = new CachingAsyncConsistentMap<>(
+                name, partitionedDatabase, serializer, cacheSize, maxStalenessMillis);
+        cachedMaps.put(name, cachedMap);
+        return new ConsistentMapImpl<>(cachedMap);
+    }
+
     @Override
     public TransactionContext createTransactionContext() {
         return new DefaultTransactionContext(partitionedDatabase);
@@ -200,4 +322,23 @@ public class DatabaseManager implements StorageService, StorageAdminService {
                           database.cluster().leader() != null ?
                                   database.cluster().leader().uri() : null);
     }
+
+    // Passes the updates applied by the local partitions to the cached maps
+    // of the updated tables.
+    private class InternalUpdateListener implements DatabaseUpdateListener {
+
+        @Override
+        public void entryUpdated(String tableName, Object key, long version) {
+            synchronized (cachedMaps) {
+                cachedMaps.get(tableName).forEach(map -> map.entryUpdated(tableName, key, version));
+            }
+        }
+
+        @Override
+        public void tableCleared(String tableName) {
+            synchronized (cachedMaps) {
+                cachedMaps.get(tableName).forEach(map -> map.tableCleared(tableName));
+            }
+        }
+    }
 }
@@ -30,7 +30,7 @@ import com.google.common.hash.Hashing;
  * By default a md5 hash of the hash key (key or table name) is used to pick a
  * partition.
  */
-public abstract class DatabasePartitioner implements Partitioner<String> {
+public abstract class DatabasePartitioner implements Partitioner<DatabaseKey> {
     // Database partitions sorted by their partition name.
     protected final Database[] sortedPartitions;
 
@@ -43,4 +43,9 @@ public abstract class DatabasePartitioner implements Partitioner<String> {
         return Math.abs(Hashing.md5().newHasher().putBytes(key.getBytes(Charsets.UTF_8)).hash().asInt());
     }
 
+    protected int hash(DatabaseKey key) {
+        // Spread the precomputed key hash rather than digesting the key bytes
+        return Hashing.murmur3_32().hashInt(key.hashCode()).asInt() & Integer.MAX_VALUE;
+    }
+
 }
@@ -184,4 +184,15 @@ public interface DatabaseProxy<K, V> {
    * @return A completable future to be completed with the result once complete.
    */
   CompletableFuture<Boolean> atomicBatchUpdate(List<UpdateOperation<K, V>> updates);
+
+  /**
+   * Applies a batch of unconditional updates, i.e. PUT and REMOVE operations, in order.
+   * Unlike {@link #atomicBatchUpdate(List)}, each update takes effect on its own, but the
+   * whole batch is committed as a single operation.
+   *
+   * @param updates list of PUT or REMOVE updates to apply.
+   * @return A completable future to be completed with the previous value of the key of each
+   * update, in the order of the updates, once complete.
+   */
+  CompletableFuture<List<Versioned<V>>> applyUpdates(List<UpdateOperation<K, V>> updates);
 }
@@ -23,6 +23,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.onlab.util.KryoNamespace;
 import org.onosproject.store.serializers.KryoNamespaces;
 import org.onosproject.store.serializers.KryoSerializer;
+import org.onosproject.store.service.UpdateOperation;
 import org.onosproject.store.service.Versioned;
 
 import net.kuujo.copycat.cluster.internal.MemberInfo;
@@ -65,6 +66,9 @@ public class DatabaseSerializer extends SerializerConfig {
             .register(Versioned.class)
             .register(Pair.class)
             .register(ImmutablePair.class)
+            .register(new DatabaseKeySerializer(), DatabaseKey.class)
+            .register(UpdateOperation.class)
+            .register(UpdateOperation.Type.class)
             .build();
 
     private static final KryoSerializer SERIALIZER = new KryoSerializer() {
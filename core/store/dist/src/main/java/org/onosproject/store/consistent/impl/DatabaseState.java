@@ -93,4 +93,7 @@ public interface DatabaseState<K, V> {
 
   @Command
   boolean batchUpdate(List<UpdateOperation<K, V>> updates);
+
+  @Command
+  List<Versioned<V>> applyUpdates(List<UpdateOperation<K, V>> updates);
 }
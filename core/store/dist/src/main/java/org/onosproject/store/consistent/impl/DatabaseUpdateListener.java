@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.store.consistent.impl;
+
+/**
+ * Listener of the updates applied to the tables of the database partitions
+ * replicated on the local node.
+ */
+public interface DatabaseUpdateListener {
+
+    /**
+     * Notifies that an entry was updated or removed.
+     *
+     * @param tableName table name
+     * @param key       key of the entry
+     * @param version   lowest version the entry may have from now on; any
+     *                  value of the entry with a lower version is stale
+     */
+    void entryUpdated(String tableName, Object key, long version);
+
+    /**
+     * Notifies that all entries of a table were removed.
+     *
+     * @param tableName table name
+     */
+    void tableCleared(String tableName);
+}
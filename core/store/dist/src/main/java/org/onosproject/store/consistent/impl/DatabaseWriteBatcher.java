@@ -0,0 +1,192 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.store.consistent.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.onosproject.store.service.UpdateOperation;
+import org.onosproject.store.service.Versioned;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+
+/**
+ * Orders the operations on a database partition and group-commits its
+ * unconditional writes.
+ * <p>
+ * All operations on the partition pass through the batcher and are handed
+ * to the partition in the order they are submitted. An unconditional write
+ * is committed at once when no batch of writes is in flight. Otherwise it
+ * waits for the batch in flight to complete, and the writes that arrive
+ * meanwhile are committed together as a single operation, hence a single
+ * log entry, once it does, once they fill a batch or once the batching
+ * window expires, whichever comes first. Any other operation first commits
+ * the writes submitted before it, so that it observes them.
+ * </p>
+ */
+public class DatabaseWriteBatcher {
+
+    private final DatabaseProxy<DatabaseKey, byte[]> partition;
+    private final ScheduledExecutorService timer;
+    private final int maxBatchSize;
+    private final long windowMillis;
+    private final Histogram batchSizes;
+    private final Timer commitLatency;
+
+    // Writes waiting to be committed, the timer that will commit them and
+    // the number of batches in flight; guarded by this
+    private List<PendingWrite> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledCommit;
+    private int inFlight;
+
+    /**
+     * Creates a batcher for the specified partition.
+     *
+     * @param partition     database partition
+     * @param timer         executor on which batching windows expire
+     * @param maxBatchSize  maximum number of writes per batch
+     * @param windowMillis  maximum time a write waits for the batch in
+     *                      flight, in milliseconds
+     * @param batchSizes    histogram of the sizes of committed batches
+     * @param commitLatency timer of the batch commits
+     */
+    public DatabaseWriteBatcher(DatabaseProxy<DatabaseKey, byte[]> partition,
+                                ScheduledExecutorService timer,
+                                int maxBatchSize, long windowMillis,
+                                Histogram batchSizes, Timer commitLatency) {
+        checkArgument(maxBatchSize > 0, "Batch size must be positive");
+        checkArgument(windowMillis >= 0, "Batching window cannot be negative");
+        this.partition = checkNotNull(partition);
+        this.timer = checkNotNull(timer);
+        this.maxBatchSize = maxBatchSize;
+        this.windowMillis = windowMillis;
+        this.batchSizes = checkNotNull(batchSizes);
+        this.commitLatency = checkNotNull(commitLatency);
+    }
+
+    /**
+     * Submits an unconditional write for commit in the next batch.
+     *
+     * @param update PUT or REMOVE update
+     * @return future to be completed with the previous value of the key
+     */
+    public CompletableFuture<Versioned<byte[]>> submit(UpdateOperation<DatabaseKey, byte[]> update) {
+        checkArgument(update.type() == UpdateOperation.Type.PUT ||
+                              update.type() == UpdateOperation.Type.REMOVE,
+                      "Only unconditional updates can be batched");
+        PendingWrite write = new PendingWrite(update);
+        synchronized (this) {
+            pending.add(write);
+            if (inFlight == 0 || pending.size() >= maxBatchSize || windowMillis == 0) {
+                commitPending();
+            } else if (scheduledCommit == null) {
+                scheduledCommit = timer.schedule(this::flush, windowMillis,
+                                                 TimeUnit.MILLISECONDS);
+            }
+        }
+        return write.future;
+    }
+
+    /**
+     * Performs any other operation on the partition after the writes
+     * submitted so far.
+     *
+     * @param operation operation that invokes the partition
+     * @param <T>       operation result type
+     * @return future returned by the operation
+     */
+    public synchronized <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> operation) {
+        commitPending();
+        return operation.get();
+    }
+
+    /**
+     * Commits the writes collected so far without waiting for the batch in
+     * flight.
+     */
+    public synchronized void flush() {
+        commitPending();
+    }
+
+    // Hands the pending writes to the partition as one batch; must hold the
+    // monitor, so that batches and other operations reach the partition in
+    // order.
+    private void commitPending() {
+        if (scheduledCommit != null) {
+            scheduledCommit.cancel(false);
+            scheduledCommit = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<PendingWrite> batch = pending;
+        pending = new ArrayList<>();
+        inFlight++;
+
+        batchSizes.update(batch.size());
+        Timer.Context latency = commitLatency.time();
+        List<UpdateOperation<DatabaseKey, byte[]>> updates = batch.stream()
+                .map(w -> w.update)
+                .collect(Collectors.toList());
+        CompletableFuture<List<Versioned<byte[]>>> result;
+        try {
+            result = partition.applyUpdates(updates);
+        } catch (Exception e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+        result.whenComplete((previousValues, error) -> {
+            latency.stop();
+            committed();
+            for (int i = 0; i < batch.size(); i++) {
+                if (error != null) {
+                    batch.get(i).future.completeExceptionally(error);
+                } else {
+                    batch.get(i).future.complete(previousValues.get(i));
+                }
+            }
+        });
+    }
+
+    // Commits the writes that waited for the last batch in flight.
+    private synchronized void committed() {
+        inFlight--;
+        if (inFlight == 0) {
+            commitPending();
+        }
+    }
+
+    // Write waiting for its batch to be committed.
+    private static final class PendingWrite {
+        private final UpdateOperation<DatabaseKey, byte[]> update;
+        private final CompletableFuture<Versioned<byte[]>> future = new CompletableFuture<>();
+
+        private PendingWrite(UpdateOperation<DatabaseKey, byte[]> update) {
+            this.update = update;
+        }
+    }
+}
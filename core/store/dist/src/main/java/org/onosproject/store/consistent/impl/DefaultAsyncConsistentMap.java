@@ -0,0 +1,208 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.store.consistent.impl;
+
+import static com.google.common.base.Preconditions.*;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.Set;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.onosproject.store.service.AsyncConsistentMap;
+import org.onosproject.store.service.Serializer;
+import org.onosproject.store.service.Versioned;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * AsyncConsistentMap implementation that is backed by a Raft consensus
+ * based database.
+ *
+ * @param <K> type of key.
+ * @param <V> type of value.
+ */
+public class DefaultAsyncConsistentMap<K, V> implements AsyncConsistentMap<K, V> {
+
+    private final String name;
+    private final DatabaseProxy<DatabaseKey, byte[]> proxy;
+    private final Serializer serializer;
+
+    private static final String ERROR_NULL_KEY = "Key cannot be null";
+    private static final String ERROR_NULL_VALUE = "Null values are not allowed";
+
+    // Bounds the number of serialized keys retained for reuse
+    private static final int MAX_KEY_CACHE_SIZE = 10000;
+
+    private final LoadingCache<K, DatabaseKey> keyCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_KEY_CACHE_SIZE)
+            .build(new CacheLoader<K, DatabaseKey>() {
+
+                @Override
+                public DatabaseKey load(K key) {
+                    return DatabaseKey.of(serializer.encode(key));
+                }
+            });
+
+    protected K dK(DatabaseKey key) {
+        return serializer.decode(key.bytes());
+    }
+
+    protected DatabaseKey eK(K key) {
+        return keyCache.getUnchecked(key);
+    }
+
+    public DefaultAsyncConsistentMap(String name,
+            DatabaseProxy<DatabaseKey, byte[]> proxy,
+            Serializer serializer) {
+        this.name = checkNotNull(name, "map name cannot be null");
+        this.proxy = checkNotNull(proxy, "database proxy cannot be null");
+        this.serializer = checkNotNull(serializer, "serializer cannot be null");
+    }
+
+    @Override
+    public CompletableFuture<Integer> size() {
+        return proxy.size(name);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isEmpty() {
+        return proxy.isEmpty(name);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> containsKey(K key) {
+        checkNotNull(key, ERROR_NULL_KEY);
+        return proxy.containsKey(name, keyCache.getUnchecked(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> containsValue(V value) {
+        checkNotNull(value, ERROR_NULL_VALUE);
+        return proxy.containsValue(name, serializer.encode(value));
+    }
+
+    @Override
+    public CompletableFuture<Versioned<V>> get(K key) {
+        checkNotNull(key, ERROR_NULL_KEY);
+        return proxy.get(name, keyCache.getUnchecked(key))
+                .thenApply(this::decode);
+    }
+
+    @Override
+    public CompletableFuture<Versioned<V>> put(K key, V value) {
+        checkNotNull(key, ERROR_NULL_KEY);
+        checkNotNull(value, ERROR_NULL_VALUE);
+        return proxy.put(name, keyCache.getUnchecked(key), serializer.encode(value))
+                .thenApply(this::decode);
+    }
+
+    @Override
+    public CompletableFuture<Versioned<V>> remove(K key) {
+        checkNotNull(key, ERROR_NULL_KEY);
+        return proxy.remove(name, keyCache.getUnchecked(key))
+                .thenApply(this::decode);
+    }
+
+    @Override
+    public CompletableFuture<Void> clear() {
+        return proxy.clear(name);
+    }
+
+    @Override
+    public CompletableFuture<Set<K>> keySet() {
+        return proxy.keySet(name)
+                .thenApply(s -> Collections.unmodifiableSet(s
+                        .stream()
+                        .map(this::dK)
+                        .collect(Collectors.toSet())));
+    }
+
+    @Override
+    public CompletableFuture<Collection<Versioned<V>>> values() {
+        return proxy.values(name)
+                .thenApply(c -> Collections.unmodifiableList(c
+                        .stream()
+                        .map(this::decode)
+                        .collect(Collectors.toList())));
+    }
+
+    @Override
+    public CompletableFuture<Set<Entry<K, Versioned<V>>>> entrySet() {
+        return proxy.entrySet(name)
+                .thenApply(s -> Collections.unmodifiableSet(s
+                        .stream()
+                        .map(this::fromRawEntry)
+                        .collect(Collectors.toSet())));
+    }
+
+    @Override
+    public CompletableFuture<Versioned<V>> putIfAbsent(K key, V value) {
+        checkNotNull(key, ERROR_NULL_KEY);
+        checkNotNull(value, ERROR_NULL_VALUE);
+        return proxy.putIfAbsent(name, keyCache.getUnchecked(key), serializer.encode(value))
+                .thenApply(this::decode);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> remove(K key, V value) {
+        checkNotNull(key, ERROR_NULL_KEY);
+        checkNotNull(value, ERROR_NULL_VALUE);
+        return proxy.remove(name, keyCache.getUnchecked(key), serializer.encode(value));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> remove(K key, long version) {
+        checkNotNull(key, ERROR_NULL_KEY);
+        return proxy.remove(name, keyCache.getUnchecked(key), version);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> replace(K key, V oldValue, V newValue) {
+        checkNotNull(key, ERROR_NULL_KEY);
+        checkNotNull(newValue, ERROR_NULL_VALUE);
+        byte[] existing = oldValue != null ? serializer.encode(oldValue) : null;
+        return proxy.replace(name, keyCache.getUnchecked(key), existing, serializer.encode(newValue));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> replace(K key, long oldVersion, V newValue) {
+        checkNotNull(key, ERROR_NULL_KEY);
+        checkNotNull(newValue, ERROR_NULL_VALUE);
+        return proxy.replace(name, keyCache.getUnchecked(key), oldVersion, serializer.encode(newValue));
+    }
+
+    private Versioned<V> decode(Versioned<byte[]> value) {
+        if (value == null) {
+            return null;
+        }
+        return new Versioned<>(
+                serializer.decode(value.value()),
+                value.version(),
+                value.creationTime());
+    }
+
+    private Map.Entry<K, Versioned<V>> fromRawEntry(Map.Entry<DatabaseKey, Versioned<byte[]>> e) {
+        return Pair.of(dK(e.getKey()), decode(e.getValue()));
+    }
+}
@@ -36,8 +36,8 @@ import org.onosproject.store.service.Versioned;
  * Default database.
  */
 public class DefaultDatabase extends AbstractResource<Database> implements Database {
-  private final StateMachine<DatabaseState<String, byte[]>> stateMachine;
-  private DatabaseProxy<String, byte[]> proxy;
+  private final StateMachine<DatabaseState<DatabaseKey, byte[]>> stateMachine;
+  private DatabaseProxy<DatabaseKey, byte[]> proxy;
 
   @SuppressWarnings("unchecked")
   public DefaultDatabase(ResourceContext context) {
@@ -71,7 +71,7 @@ public class DefaultDatabase extends AbstractResource<Database> implements Datab
   }
 
   @Override
-  public CompletableFuture<Boolean> containsKey(String tableName, String key) {
+  public CompletableFuture<Boolean> containsKey(String tableName, DatabaseKey key) {
     return checkOpen(() -> proxy.containsKey(tableName, key));
   }
 
@@ -81,17 +81,17 @@ public class DefaultDatabase extends AbstractResource<Database> implements Datab
   }
 
   @Override
-  public CompletableFuture<Versioned<byte[]>> get(String tableName, String key) {
+  public CompletableFuture<Versioned<byte[]>> get(String tableName, DatabaseKey key) {
     return checkOpen(() -> proxy.get(tableName, key));
   }
 
   @Override
-  public CompletableFuture<Versioned<byte[]>> put(String tableName, String key, byte[] value) {
+  public CompletableFuture<Versioned<byte[]>> put(String tableName, DatabaseKey key, byte[] value) {
     return checkOpen(() -> proxy.put(tableName, key, value));
   }
 
   @Override
-  public CompletableFuture<Versioned<byte[]>> remove(String tableName, String key) {
+  public CompletableFuture<Versioned<byte[]>> remove(String tableName, DatabaseKey key) {
     return checkOpen(() -> proxy.remove(tableName, key));
   }
 
@@ -101,7 +101,7 @@ public class DefaultDatabase extends AbstractResource<Database> implements Datab
   }
 
   @Override
-  public CompletableFuture<Set<String>> keySet(String tableName) {
+  public CompletableFuture<Set<DatabaseKey>> keySet(String tableName) {
     return checkOpen(() -> proxy.keySet(tableName));
   }
 
@@ -111,40 +111,45 @@ public class DefaultDatabase extends AbstractResource<Database> implements Datab
   }
 
   @Override
-  public CompletableFuture<Set<Map.Entry<String, Versioned<byte[]>>>> entrySet(String tableName) {
+  public CompletableFuture<Set<Map.Entry<DatabaseKey, Versioned<byte[]>>>> entrySet(String tableName) {
     return checkOpen(() -> proxy.entrySet(tableName));
   }
 
   @Override
-  public CompletableFuture<Versioned<byte[]>> putIfAbsent(String tableName, String key, byte[] value) {
+  public CompletableFuture<Versioned<byte[]>> putIfAbsent(String tableName, DatabaseKey key, byte[] value) {
     return checkOpen(() -> proxy.putIfAbsent(tableName, key, value));
   }
 
   @Override
-  public CompletableFuture<Boolean> remove(String tableName, String key, byte[] value) {
+  public CompletableFuture<Boolean> remove(String tableName, DatabaseKey key, byte[] value) {
     return checkOpen(() -> proxy.remove(tableName, key, value));
   }
 
   @Override
-  public CompletableFuture<Boolean> remove(String tableName, String key, long version) {
+  public CompletableFuture<Boolean> remove(String tableName, DatabaseKey key, long version) {
     return checkOpen(() -> proxy.remove(tableName, key, version));
   }
 
   @Override
-  public CompletableFuture<Boolean> replace(String tableName, String key, byte[] oldValue, byte[] newValue) {
+  public CompletableFuture<Boolean> replace(String tableName, DatabaseKey key, byte[] oldValue, byte[] newValue) {
     return checkOpen(() -> proxy.replace(tableName, key, oldValue, newValue));
   }
 
   @Override
-  public CompletableFuture<Boolean> replace(String tableName, String key, long oldVersion, byte[] newValue) {
+  public CompletableFuture<Boolean> replace(String tableName, DatabaseKey key, long oldVersion, byte[] newValue) {
     return checkOpen(() -> proxy.replace(tableName, key, oldVersion, newValue));
   }
 
   @Override
-  public CompletableFuture<Boolean> atomicBatchUpdate(List<UpdateOperation<String, byte[]>> updates) {
+  public CompletableFuture<Boolean> atomicBatchUpdate(List<UpdateOperation<DatabaseKey, byte[]>> updates) {
       return checkOpen(() -> proxy.atomicBatchUpdate(updates));
   }
 
+  @Override
+  public CompletableFuture<List<Versioned<byte[]>>> applyUpdates(List<UpdateOperation<DatabaseKey, byte[]>> updates) {
+      return checkOpen(() -> proxy.applyUpdates(updates));
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public synchronized CompletableFuture<Database> open() {
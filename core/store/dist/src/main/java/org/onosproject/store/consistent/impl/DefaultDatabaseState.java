@@ -16,12 +16,14 @@
 
 package org.onosproject.store.consistent.impl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.stream.Collectors;
 import java.util.Set;
 
@@ -43,9 +45,33 @@ import net.kuujo.copycat.state.StateContext;
  */
 public class DefaultDatabaseState<K, V> implements DatabaseState<K, V> {
 
+    // Notified of the updates applied by the partitions of this node; shared
+    // by all states as Copycat instantiates them itself
+    private static final Set<DatabaseUpdateListener> LISTENERS = new CopyOnWriteArraySet<>();
+
     private Long nextVersion;
     private Map<String, Map<K, Versioned<V>>> tables;
 
+    /**
+     * Adds a listener of the updates applied by the database partitions
+     * replicated on this node.
+     *
+     * @param listener listener to add
+     */
+    static void addUpdateListener(DatabaseUpdateListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Removes a listener of the updates applied by the database partitions
+     * replicated on this node.
+     *
+     * @param listener listener to remove
+     */
+    static void removeUpdateListener(DatabaseUpdateListener listener) {
+        LISTENERS.remove(listener);
+    }
+
     @Initializer
     @Override
     public void init(StateContext<DatabaseState<K, V>> context) {
@@ -97,17 +123,26 @@ public class DefaultDatabaseState<K, V> implements DatabaseState<K, V> {
 
     @Override
     public Versioned<V> put(String tableName, K key, V value) {
-        return getTableMap(tableName).put(key, new Versioned<>(value, ++nextVersion));
+        Versioned<V> newValue = new Versioned<>(value, ++nextVersion);
+        Versioned<V> previousValue = getTableMap(tableName).put(key, newValue);
+        LISTENERS.forEach(listener -> listener.entryUpdated(tableName, key, newValue.version()));
+        return previousValue;
     }
 
     @Override
     public Versioned<V> remove(String tableName, K key) {
-        return getTableMap(tableName).remove(key);
+        Versioned<V> previousValue = getTableMap(tableName).remove(key);
+        if (previousValue != null) {
+            // Any version up to the removed one is now stale
+            LISTENERS.forEach(listener -> listener.entryUpdated(tableName, key, previousValue.version() + 1));
+        }
+        return previousValue;
     }
 
     @Override
     public void clear(String tableName) {
         getTableMap(tableName).clear();
+        LISTENERS.forEach(listener -> listener.tableCleared(tableName));
     }
 
     @Override
@@ -185,6 +220,24 @@ public class DefaultDatabaseState<K, V> implements DatabaseState<K, V> {
         }
     }
 
+    @Override
+    public List<Versioned<V>> applyUpdates(List<UpdateOperation<K, V>> updates) {
+        List<Versioned<V>> previousValues = new ArrayList<>(updates.size());
+        for (UpdateOperation<K, V> update : updates) {
+            switch (update.type()) {
+            case PUT:
+                previousValues.add(put(update.tableName(), update.key(), update.value()));
+                break;
+            case REMOVE:
+                previousValues.add(remove(update.tableName(), update.key()));
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported type: " + update.type());
+            }
+        }
+        return previousValues;
+    }
+
     private void doUpdate(UpdateOperation<K, V> update) {
         String tableName = update.tableName();
         K key = update.key();
@@ -42,11 +42,11 @@ public class DefaultTransactionContext implements TransactionContext {
 
     private final Map<String, DefaultTransactionalMap> txMaps = Maps.newHashMap();
     private boolean isOpen = false;
-    DatabaseProxy<String, byte[]> databaseProxy;
+    DatabaseProxy<DatabaseKey, byte[]> databaseProxy;
     private static final String TX_NOT_OPEN_ERROR = "Transaction is not open";
     private static final int TRANSACTION_TIMEOUT_MILLIS = 2000;
 
-    DefaultTransactionContext(DatabaseProxy<String, byte[]> proxy) {
+    DefaultTransactionContext(DatabaseProxy<DatabaseKey, byte[]> proxy) {
         this.databaseProxy = proxy;
     }
 
@@ -74,7 +74,7 @@ public class DefaultTransactionContext implements TransactionContext {
     @Override
     public void commit() {
         checkState(isOpen, TX_NOT_OPEN_ERROR);
-        List<UpdateOperation<String, byte[]>> allUpdates =
+        List<UpdateOperation<DatabaseKey, byte[]>> allUpdates =
                 Lists.newLinkedList();
         try {
             txMaps.values()
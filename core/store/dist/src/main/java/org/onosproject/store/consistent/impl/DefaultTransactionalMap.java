@@ -23,7 +23,6 @@ import java.util.Map.Entry;
 import java.util.stream.Collectors;
 import java.util.Set;
 
-import org.onlab.util.HexString;
 import org.onosproject.store.service.ConsistentMap;
 import org.onosproject.store.service.Serializer;
 import org.onosproject.store.service.TransactionContext;
@@ -176,7 +175,7 @@ public class DefaultTransactionalMap<K, V> implements TransactionalMap<K, V> {
         return currentValue;
     }
 
-    protected List<UpdateOperation<String, byte[]>> prepareDatabaseUpdates() {
+    protected List<UpdateOperation<DatabaseKey, byte[]>> prepareDatabaseUpdates() {
         List<UpdateOperation<K, V>> updates = Lists.newLinkedList();
         deleteSet.forEach(key -> {
             Versioned<V> original = readCache.get(key);
@@ -211,11 +210,11 @@ public class DefaultTransactionalMap<K, V> implements TransactionalMap<K, V> {
         return updates.stream().map(this::toRawUpdateOperation).collect(Collectors.toList());
     }
 
-    private UpdateOperation<String, byte[]> toRawUpdateOperation(UpdateOperation<K, V> update) {
+    private UpdateOperation<DatabaseKey, byte[]> toRawUpdateOperation(UpdateOperation<K, V> update) {
 
-        UpdateOperation.Builder<String, byte[]> rawUpdate = UpdateOperation.<String, byte[]>newBuilder();
+        UpdateOperation.Builder<DatabaseKey, byte[]> rawUpdate = UpdateOperation.<DatabaseKey, byte[]>newBuilder();
 
-        rawUpdate = rawUpdate.withKey(HexString.toHexString(serializer.encode(update.key())))
+        rawUpdate = rawUpdate.withKey(DatabaseKey.of(serializer.encode(update.key())))
             .withCurrentVersion(update.currentVersion())
             .withType(update.type());
 
@@ -25,6 +25,7 @@ import org.onosproject.store.cluster.messaging.ClusterMessageHandler;
 import org.onosproject.store.cluster.messaging.MessageSubject;
 import org.onosproject.store.serializers.KryoNamespaces;
 import org.onosproject.store.serializers.KryoSerializer;
+import org.onosproject.store.service.AsyncConsistentMap;
 import org.onosproject.store.service.ConsistentMap;
 import org.onosproject.store.service.Serializer;
 import org.onosproject.store.service.StorageService;
@@ -78,6 +79,7 @@ public class DistributedLeadershipManager implements LeadershipService {
     private ScheduledExecutorService leadershipStatusBroadcaster;
 
     private ConsistentMap<String, NodeId> lockMap;
+    private AsyncConsistentMap<String, NodeId> asyncLockMap;
     private AbstractListenerRegistry<LeadershipEvent, LeadershipEventListener>
         listenerRegistry;
     private final Map<String, Leadership> leaderBoard = Maps.newConcurrentMap();
@@ -101,7 +103,7 @@ public class DistributedLeadershipManager implements LeadershipService {
 
     @Activate
     public void activate() {
-        lockMap = storageService.createConsistentMap("onos-leader-locks", new Serializer() {
+        Serializer lockSerializer = new Serializer() {
             KryoNamespace kryo = new KryoNamespace.Builder()
                         .register(KryoNamespaces.API).build();
 
@@ -114,7 +116,10 @@ public class DistributedLeadershipManager implements LeadershipService {
             public <T> T decode(byte[] bytes) {
                 return kryo.deserialize(bytes);
             }
-        });
+        };
+        lockMap = storageService.createConsistentMap("onos-leader-locks", lockSerializer);
+        // Same locks, used where several updates can be in flight at once
+        asyncLockMap = storageService.createAsyncConsistentMap("onos-leader-locks", lockSerializer);
 
         localNodeId = clusterService.getLocalNode().id();
 
@@ -353,25 +358,10 @@ public class DistributedLeadershipManager implements LeadershipService {
                 long creationTime = entry.getValue().creationTime();
                 if (clusterService.getState(nodeId) == ControllerNode.State.INACTIVE) {
                     log.info("Lock for {} is held by {} which is currently inactive", path, nodeId);
-                    try {
-                        if (lockMap.remove(path, epoch)) {
-                            log.info("Purged stale lock held by {} for {}", nodeId, path);
-                            notifyRemovedLeader(path, nodeId, epoch, creationTime);
-                        }
-                    } catch (Exception e) {
-                        log.warn("Failed to purge stale lock held by {} for {}", nodeId, path, e);
-                    }
-                }
-                if (localNodeId.equals(nodeId) && !activeTopics.contains(path)) {
+                    purgeStaleLock(path, nodeId, epoch, creationTime);
+                } else if (localNodeId.equals(nodeId) && !activeTopics.contains(path)) {
                     log.debug("Lock for {} is held by {} when it not running for leadership.", path, nodeId);
-                    try {
-                        if (lockMap.remove(path, epoch)) {
-                            log.info("Purged stale lock held by {} for {}", nodeId, path);
-                            notifyRemovedLeader(path, nodeId, epoch, creationTime);
-                        }
-                    } catch (Exception e) {
-                        log.warn("Failed to purge stale lock held by {} for {}", nodeId, path, e);
-                    }
+                    purgeStaleLock(path, nodeId, epoch, creationTime);
                 }
             });
         } catch (Exception e) {
@@ -379,6 +369,23 @@ public class DistributedLeadershipManager implements LeadershipService {
         }
     }
 
+    // Issues the removal without waiting for it, so that all stale locks
+    // found in one pass are purged concurrently.
+    private void purgeStaleLock(String path, NodeId nodeId, long epoch, long creationTime) {
+        try {
+            asyncLockMap.remove(path, epoch).whenComplete((removed, error) -> {
+                if (error != null) {
+                    log.warn("Failed to purge stale lock held by {} for {}", nodeId, path, error);
+                } else if (removed) {
+                    log.info("Purged stale lock held by {} for {}", nodeId, path);
+                    notifyRemovedLeader(path, nodeId, epoch, creationTime);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to purge stale lock held by {} for {}", nodeId, path, e);
+        }
+    }
+
     private void sendLeadershipStatus() {
         try {
             leaderBoard.forEach((path, leadership) -> {
@@ -16,6 +16,7 @@
 
 package org.onosproject.store.consistent.impl;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +26,8 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.onosproject.store.service.UpdateOperation;
 import org.onosproject.store.service.Versioned;
@@ -41,12 +44,15 @@ import static com.google.common.base.Preconditions.checkState;
 /**
  * A database that partitions the keys across one or more database partitions.
  */
-public class PartitionedDatabase implements DatabaseProxy<String, byte[]>, PartitionedDatabaseManager {
+public class PartitionedDatabase implements DatabaseProxy<DatabaseKey, byte[]>, PartitionedDatabaseManager {
 
-    private Partitioner<String> partitioner;
+    private Partitioner<DatabaseKey> partitioner;
     private final ClusterCoordinator coordinator;
     private final Map<String, Database> partitions = Maps.newConcurrentMap();
     private final AtomicBoolean isOpen = new AtomicBoolean(false);
+    // Batchers ordering the operations and group-committing the unconditional
+    // writes of each partition; empty if disabled
+    private volatile Map<Database, DatabaseWriteBatcher> writeBatchers = ImmutableMap.of();
     private static final String DB_NOT_OPEN = "Database is not open";
 
     protected PartitionedDatabase(ClusterCoordinator coordinator) {
@@ -78,7 +84,7 @@ public class PartitionedDatabase implements DatabaseProxy<String, byte[]>, Parti
         return CompletableFuture.allOf(partitions
                     .values()
                     .stream()
-                    .map(p -> p.size(tableName).thenApply(totalSize::addAndGet))
+                    .map(p -> ordered(p, q -> q.size(tableName)).thenApply(totalSize::addAndGet))
                     .toArray(CompletableFuture[]::new))
                 .thenApply(v -> totalSize.get());
     }
@@ -90,9 +96,9 @@ public class PartitionedDatabase implements DatabaseProxy<String, byte[]>, Parti
     }
 
     @Override
-    public CompletableFuture<Boolean> containsKey(String tableName, String key) {
+    public CompletableFuture<Boolean> containsKey(String tableName, DatabaseKey key) {
         checkState(isOpen.get(), DB_NOT_OPEN);
-        return partitioner.getPartition(tableName, key).containsKey(tableName, key);
+        return ordered(partitioner.getPartition(tableName, key), p -> p.containsKey(tableName, key));
     }
 
     @Override
@@ -102,27 +108,47 @@ public class PartitionedDatabase implements DatabaseProxy<String, byte[]>, Parti
         return CompletableFuture.allOf(partitions
                     .values()
                     .stream()
-                    .map(p -> p.containsValue(tableName, value).thenApply(v -> containsValue.compareAndSet(false, v)))
+                    .map(p -> ordered(p, q -> q.containsValue(tableName, value))
+                            .thenApply(v -> containsValue.compareAndSet(false, v)))
                     .toArray(CompletableFuture[]::new))
                 .thenApply(v -> containsValue.get());
     }
 
     @Override
-    public CompletableFuture<Versioned<byte[]>> get(String tableName, String key) {
+    public CompletableFuture<Versioned<byte[]>> get(String tableName, DatabaseKey key) {
         checkState(isOpen.get(), DB_NOT_OPEN);
-        return partitioner.getPartition(tableName, key).get(tableName, key);
+        return ordered(partitioner.getPartition(tableName, key), p -> p.get(tableName, key));
     }
 
     @Override
-    public CompletableFuture<Versioned<byte[]>> put(String tableName, String key, byte[] value) {
+    public CompletableFuture<Versioned<byte[]>> put(String tableName, DatabaseKey key, byte[] value) {
         checkState(isOpen.get(), DB_NOT_OPEN);
-        return partitioner.getPartition(tableName, key).put(tableName, key, value);
+        Database partition = partitioner.getPartition(tableName, key);
+        DatabaseWriteBatcher batcher = writeBatchers.get(partition);
+        if (batcher != null) {
+            return batcher.submit(UpdateOperation.<DatabaseKey, byte[]>newBuilder()
+                                          .withType(UpdateOperation.Type.PUT)
+                                          .withTableName(tableName)
+                                          .withKey(key)
+                                          .withValue(value)
+                                          .build());
+        }
+        return partition.put(tableName, key, value);
     }
 
     @Override
-    public CompletableFuture<Versioned<byte[]>> remove(String tableName, String key) {
+    public CompletableFuture<Versioned<byte[]>> remove(String tableName, DatabaseKey key) {
         checkState(isOpen.get(), DB_NOT_OPEN);
-        return partitioner.getPartition(tableName, key).remove(tableName, key);
+        Database partition = partitioner.getPartition(tableName, key);
+        DatabaseWriteBatcher batcher = writeBatchers.get(partition);
+        if (batcher != null) {
+            return batcher.submit(UpdateOperation.<DatabaseKey, byte[]>newBuilder()
+                                          .withType(UpdateOperation.Type.REMOVE)
+                                          .withTableName(tableName)
+                                          .withKey(key)
+                                          .build());
+        }
+        return partition.remove(tableName, key);
     }
 
     @Override
@@ -131,18 +157,18 @@ public class PartitionedDatabase implements DatabaseProxy<String, byte[]>, Parti
         return CompletableFuture.allOf(partitions
                     .values()
                     .stream()
-                    .map(p -> p.clear(tableName))
+                    .map(p -> ordered(p, q -> q.clear(tableName)))
                     .toArray(CompletableFuture[]::new));
     }
 
     @Override
-    public CompletableFuture<Set<String>> keySet(String tableName) {
+    public CompletableFuture<Set<DatabaseKey>> keySet(String tableName) {
         checkState(isOpen.get(), DB_NOT_OPEN);
-        Set<String> keySet = Sets.newConcurrentHashSet();
+        Set<DatabaseKey> keySet = Sets.newConcurrentHashSet();
         return CompletableFuture.allOf(partitions
                     .values()
                     .stream()
-                    .map(p -> p.keySet(tableName).thenApply(keySet::addAll))
+                    .map(p -> ordered(p, q -> q.keySet(tableName)).thenApply(keySet::addAll))
                     .toArray(CompletableFuture[]::new))
                 .thenApply(v -> keySet);
     }
@@ -154,60 +180,60 @@ public class PartitionedDatabase implements DatabaseProxy<String, byte[]>, Parti
         return CompletableFuture.allOf(partitions
                     .values()
                     .stream()
-                    .map(p -> p.values(tableName).thenApply(values::addAll))
+                    .map(p -> ordered(p, q -> q.values(tableName)).thenApply(values::addAll))
                     .toArray(CompletableFuture[]::new))
                 .thenApply(v -> values);
     }
 
     @Override
-    public CompletableFuture<Set<Entry<String, Versioned<byte[]>>>> entrySet(String tableName) {
+    public CompletableFuture<Set<Entry<DatabaseKey, Versioned<byte[]>>>> entrySet(String tableName) {
         checkState(isOpen.get(), DB_NOT_OPEN);
-        Set<Entry<String, Versioned<byte[]>>> entrySet = Sets.newConcurrentHashSet();
+        Set<Entry<DatabaseKey, Versioned<byte[]>>> entrySet = Sets.newConcurrentHashSet();
         return CompletableFuture.allOf(partitions
                     .values()
                     .stream()
-                    .map(p -> p.entrySet(tableName).thenApply(entrySet::addAll))
+                    .map(p -> ordered(p, q -> q.entrySet(tableName)).thenApply(entrySet::addAll))
                     .toArray(CompletableFuture[]::new))
                 .thenApply(v -> entrySet);
     }
 
     @Override
-    public CompletableFuture<Versioned<byte[]>> putIfAbsent(String tableName, String key, byte[] value) {
+    public CompletableFuture<Versioned<byte[]>> putIfAbsent(String tableName, DatabaseKey key, byte[] value) {
         checkState(isOpen.get(), DB_NOT_OPEN);
-        return partitioner.getPartition(tableName, key).putIfAbsent(tableName, key, value);
+        return ordered(partitioner.getPartition(tableName, key), p -> p.putIfAbsent(tableName, key, value));
     }
 
     @Override
-    public CompletableFuture<Boolean> remove(String tableName, String key, byte[] value) {
+    public CompletableFuture<Boolean> remove(String tableName, DatabaseKey key, byte[] value) {
         checkState(isOpen.get(), DB_NOT_OPEN);
-        return partitioner.getPartition(tableName, key).remove(tableName, key, value);
+        return ordered(partitioner.getPartition(tableName, key), p -> p.remove(tableName, key, value));
     }
 
     @Override
-    public CompletableFuture<Boolean> remove(String tableName, String key, long version) {
+    public CompletableFuture<Boolean> remove(String tableName, DatabaseKey key, long version) {
         checkState(isOpen.get(), DB_NOT_OPEN);
-        return partitioner.getPartition(tableName, key).remove(tableName, key, version);
+        return ordered(partitioner.getPartition(tableName, key), p -> p.remove(tableName, key, version));
     }
 
     @Override
-    public CompletableFuture<Boolean> replace(String tableName, String key, byte[] oldValue, byte[] newValue) {
+    public CompletableFuture<Boolean> replace(String tableName, DatabaseKey key, byte[] oldValue, byte[] newValue) {
         checkState(isOpen.get(), DB_NOT_OPEN);
-        return partitioner.getPartition(tableName, key).replace(tableName, key, oldValue, newValue);
+        return ordered(partitioner.getPartition(tableName, key), p -> p.replace(tableName, key, oldValue, newValue));
     }
 
     @Override
-    public CompletableFuture<Boolean> replace(String tableName, String key, long oldVersion, byte[] newValue) {
+    public CompletableFuture<Boolean> replace(String tableName, DatabaseKey key, long oldVersion, byte[] newValue) {
         checkState(isOpen.get(), DB_NOT_OPEN);
-        return partitioner.getPartition(tableName, key).replace(tableName, key, oldVersion, newValue);
+        return ordered(partitioner.getPartition(tableName, key), p -> p.replace(tableName, key, oldVersion, newValue));
     }
 
     @Override
-    public CompletableFuture<Boolean> atomicBatchUpdate(List<UpdateOperation<String, byte[]>> updates) {
+    public CompletableFuture<Boolean> atomicBatchUpdate(List<UpdateOperation<DatabaseKey, byte[]>> updates) {
         checkState(isOpen.get(), DB_NOT_OPEN);
-        Map<Database, List<UpdateOperation<String, byte[]>>> perPartitionUpdates = Maps.newHashMap();
-        for (UpdateOperation<String, byte[]> update : updates) {
+        Map<Database, List<UpdateOperation<DatabaseKey, byte[]>>> perPartitionUpdates = Maps.newHashMap();
+        for (UpdateOperation<DatabaseKey, byte[]> update : updates) {
             Database partition = partitioner.getPartition(update.tableName(), update.key());
-            List<UpdateOperation<String, byte[]>> partitionUpdates = perPartitionUpdates.get(partition);
+            List<UpdateOperation<DatabaseKey, byte[]>> partitionUpdates = perPartitionUpdates.get(partition);
             if (partitionUpdates == null) {
                 partitionUpdates = Lists.newArrayList();
                 perPartitionUpdates.put(partition, partitionUpdates);
@@ -218,17 +244,66 @@ public class PartitionedDatabase implements DatabaseProxy<String, byte[]>, Parti
             // TODO
             throw new UnsupportedOperationException("Cross partition transactional updates are not supported.");
         } else {
-            Entry<Database, List<UpdateOperation<String, byte[]>>> only =
+            Entry<Database, List<UpdateOperation<DatabaseKey, byte[]>>> only =
                     perPartitionUpdates.entrySet().iterator().next();
-            return only.getKey().atomicBatchUpdate(only.getValue());
+            return ordered(only.getKey(), p -> p.atomicBatchUpdate(only.getValue()));
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<List<Versioned<byte[]>>> applyUpdates(List<UpdateOperation<DatabaseKey, byte[]>> updates) {
+        checkState(isOpen.get(), DB_NOT_OPEN);
+        Map<Database, List<Integer>> perPartitionIndexes = Maps.newHashMap();
+        for (int i = 0; i < updates.size(); i++) {
+            UpdateOperation<DatabaseKey, byte[]> update = updates.get(i);
+            perPartitionIndexes.computeIfAbsent(partitioner.getPartition(update.tableName(), update.key()),
+                                                p -> Lists.newArrayList()).add(i);
+        }
+        Versioned<byte[]>[] previousValues = new Versioned[updates.size()];
+        return CompletableFuture.allOf(perPartitionIndexes
+                    .entrySet()
+                    .stream()
+                    .map(e -> ordered(e.getKey(), p -> p
+                            .applyUpdates(e.getValue().stream().map(updates::get).collect(Collectors.toList())))
+                            .thenAccept(values -> {
+                                for (int i = 0; i < values.size(); i++) {
+                                    previousValues[e.getValue().get(i)] = values.get(i);
+                                }
+                            }))
+                    .toArray(CompletableFuture[]::new))
+                .thenApply(v -> Arrays.asList(previousValues));
+    }
+
+    // Performs the operation on the partition in order with the writes
+    // submitted to it before.
+    private <T> CompletableFuture<T> ordered(Database partition,
+                                             Function<Database, CompletableFuture<T>> operation) {
+        DatabaseWriteBatcher batcher = writeBatchers.get(partition);
+        if (batcher == null) {
+            return operation.apply(partition);
         }
+        return batcher.execute(() -> operation.apply(partition));
     }
 
     @Override
-    public void setPartitioner(Partitioner<String> partitioner) {
+    public void setPartitioner(Partitioner<DatabaseKey> partitioner) {
         this.partitioner = partitioner;
     }
 
+    /**
+     * Sets the batchers that order the operations on each partition and
+     * group-commit its unconditional writes. Writes to partitions without a
+     * batcher are committed one by one.
+     *
+     * @param batchers write batchers, by partition
+     */
+    public void setWriteBatchers(Map<Database, DatabaseWriteBatcher> batchers) {
+        Map<Database, DatabaseWriteBatcher> previous = writeBatchers;
+        writeBatchers = ImmutableMap.copyOf(batchers);
+        previous.values().forEach(DatabaseWriteBatcher::flush);
+    }
+
     @Override
     public CompletableFuture<PartitionedDatabase> open() {
         return coordinator.open().thenCompose(c -> CompletableFuture.allOf(partitions
@@ -49,7 +49,7 @@ public interface PartitionedDatabaseManager {
      *
      * @param partitioner partitioner
      */
-    void setPartitioner(Partitioner<String> partitioner);
+    void setPartitioner(Partitioner<DatabaseKey> partitioner);
 
     /**
      * Registers a new partition.
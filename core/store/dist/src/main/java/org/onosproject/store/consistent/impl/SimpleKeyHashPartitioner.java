@@ -32,7 +32,7 @@ public class SimpleKeyHashPartitioner extends DatabasePartitioner {
     }
 
     @Override
-    public Database getPartition(String tableName, String key) {
+    public Database getPartition(String tableName, DatabaseKey key) {
         return sortedPartitions[hash(key) % sortedPartitions.length];
     }
 }
\ No newline at end of file
@@ -33,7 +33,7 @@ public class SimpleTableHashPartitioner extends DatabasePartitioner {
     }
 
     @Override
-    public Database getPartition(String tableName, String key) {
+    public Database getPartition(String tableName, DatabaseKey key) {
         return sortedPartitions[hash(tableName) % sortedPartitions.length];
     }
 }
\ No newline at end of file
@@ -21,6 +21,7 @@ import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Striped;
 import org.apache.commons.lang3.RandomUtils;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -82,6 +83,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Predicates.notNull;
@@ -112,6 +114,8 @@ public class GossipDeviceStore
     private static final String DEVICE_NOT_FOUND = "Device with ID %s not found";
     // Timeout in milliseconds to process device or ports on remote master node
     private static final int REMOTE_MASTER_TIMEOUT = 1000;
+    // Number of locks the device updates are spread across
+    private static final int DEVICE_LOCK_STRIPES = 256;
 
     // innerMap is used to lock a Device, thus instance should never be replaced.
     // collection of Description given from various providers
@@ -123,8 +127,12 @@ public class GossipDeviceStore
     private final ConcurrentMap<DeviceId, ConcurrentMap<PortNumber, Port>> devicePorts = Maps.newConcurrentMap();
 
     // to be updated under Device lock
-    private final Map<DeviceId, Timestamp> offline = Maps.newHashMap();
-    private final Map<DeviceId, Timestamp> removalRequest = Maps.newHashMap();
+    private final Map<DeviceId, Timestamp> offline = Maps.newConcurrentMap();
+    private final Map<DeviceId, Timestamp> removalRequest = Maps.newConcurrentMap();
+
+    // Serializes the updates of each device, including the notification of
+    // peers, while letting updates of distinct devices proceed in parallel
+    private final Striped<Lock> deviceLocks = Striped.lock(DEVICE_LOCK_STRIPES);
 
     // available(=UP) devices
     private final Set<DeviceId> availableDevices = Sets.newConcurrentHashSet();
@@ -262,58 +270,64 @@ public class GossipDeviceStore
     }
 
     @Override
-    public synchronized DeviceEvent createOrUpdateDevice(ProviderId providerId,
+    public DeviceEvent createOrUpdateDevice(ProviderId providerId,
                                      DeviceId deviceId,
                                      DeviceDescription deviceDescription) {
-        NodeId localNode = clusterService.getLocalNode().id();
-        NodeId deviceNode = mastershipService.getMasterFor(deviceId);
+        final Lock lock = deviceLocks.get(deviceId);
+        lock.lock();
+        try {
+            NodeId localNode = clusterService.getLocalNode().id();
+            NodeId deviceNode = mastershipService.getMasterFor(deviceId);
+
+            // Process device update only if we're the master,
+            // otherwise signal the actual master.
+            DeviceEvent deviceEvent = null;
+            if (localNode.equals(deviceNode)) {
+
+                final Timestamp newTimestamp = deviceClockService.getTimestamp(deviceId);
+                final Timestamped<DeviceDescription> deltaDesc = new Timestamped<>(deviceDescription, newTimestamp);
+                final Timestamped<DeviceDescription> mergedDesc;
+                final Map<ProviderId, DeviceDescriptions> device = getOrCreateDeviceDescriptionsMap(deviceId);
+
+                synchronized (device) {
+                    deviceEvent = createOrUpdateDeviceInternal(providerId, deviceId, deltaDesc);
+                    mergedDesc = device.get(providerId).getDeviceDesc();
+                }
 
-        // Process device update only if we're the master,
-        // otherwise signal the actual master.
-        DeviceEvent deviceEvent = null;
-        if (localNode.equals(deviceNode)) {
+                if (deviceEvent != null) {
+                    log.info("Notifying peers of a device update topology event for providerId: {} and deviceId: {}",
+                            providerId, deviceId);
+                    notifyPeers(new InternalDeviceEvent(providerId, deviceId, mergedDesc));
+                }
 
-            final Timestamp newTimestamp = deviceClockService.getTimestamp(deviceId);
-            final Timestamped<DeviceDescription> deltaDesc = new Timestamped<>(deviceDescription, newTimestamp);
-            final Timestamped<DeviceDescription> mergedDesc;
-            final Map<ProviderId, DeviceDescriptions> device = getOrCreateDeviceDescriptionsMap(deviceId);
+            } else {
+                // FIXME Temporary hack for NPE (ONOS-1171).
+                // Proper fix is to implement forwarding to master on ConfigProvider
+                // redo ONOS-490
+                if (deviceNode == null) {
+                    // silently ignore
+                    return null;
+                }
 
-            synchronized (device) {
-                deviceEvent = createOrUpdateDeviceInternal(providerId, deviceId, deltaDesc);
-                mergedDesc = device.get(providerId).getDeviceDesc();
-            }
 
-            if (deviceEvent != null) {
-                log.info("Notifying peers of a device update topology event for providerId: {} and deviceId: {}",
-                        providerId, deviceId);
-                notifyPeers(new InternalDeviceEvent(providerId, deviceId, mergedDesc));
-            }
+                DeviceInjectedEvent deviceInjectedEvent = new DeviceInjectedEvent(
+                        providerId, deviceId, deviceDescription);
+                ClusterMessage clusterMessage = new ClusterMessage(localNode, DEVICE_INJECTED,
+                        SERIALIZER.encode(deviceInjectedEvent));
 
-        } else {
-            // FIXME Temporary hack for NPE (ONOS-1171).
-            // Proper fix is to implement forwarding to master on ConfigProvider
-            // redo ONOS-490
-            if (deviceNode == null) {
-                // silently ignore
-                return null;
+                // TODO check unicast return value
+                clusterCommunicator.unicast(clusterMessage, deviceNode);
+                /* error log:
+                log.warn("Failed to process injected device id: {} desc: {} " +
+                                "(cluster messaging failed: {})",
+                        deviceId, deviceDescription, e);
+                */
             }
 
-
-            DeviceInjectedEvent deviceInjectedEvent = new DeviceInjectedEvent(
-                    providerId, deviceId, deviceDescription);
-            ClusterMessage clusterMessage = new ClusterMessage(localNode, DEVICE_INJECTED,
-                    SERIALIZER.encode(deviceInjectedEvent));
-
-            // TODO check unicast return value
-            clusterCommunicator.unicast(clusterMessage, deviceNode);
-            /* error log:
-            log.warn("Failed to process injected device id: {} desc: {} " +
-                            "(cluster messaging failed: {})",
-                    deviceId, deviceDescription, e);
-            */
+            return deviceEvent;
+        } finally {
+            lock.unlock();
         }
-
-        return deviceEvent;
     }
 
     private DeviceEvent createOrUpdateDeviceInternal(ProviderId providerId,
@@ -478,93 +492,99 @@ public class GossipDeviceStore
     }
 
     @Override
-    public synchronized List<DeviceEvent> updatePorts(ProviderId providerId,
+    public List<DeviceEvent> updatePorts(ProviderId providerId,
                                        DeviceId deviceId,
                                        List<PortDescription> portDescriptions) {
+        final Lock lock = deviceLocks.get(deviceId);
+        lock.lock();
+        try {
 
-        NodeId localNode = clusterService.getLocalNode().id();
-        // TODO: It might be negligible, but this will have negative impact to topology discovery performance,
-        // since it will trigger distributed store read.
-        // Also, it'll probably be better if side-way communication happened on ConfigurationProvider, etc.
-        // outside Device subsystem. so that we don't have to modify both Device and Link stores.
-        // If we don't care much about topology performance, then it might be OK.
-        NodeId deviceNode = mastershipService.getMasterFor(deviceId);
-
-        // Process port update only if we're the master of the device,
-        // otherwise signal the actual master.
-        List<DeviceEvent> deviceEvents = null;
-        if (localNode.equals(deviceNode)) {
-
-            final Timestamp newTimestamp;
-            try {
-                newTimestamp = deviceClockService.getTimestamp(deviceId);
-            } catch (IllegalStateException e) {
-                log.info("Timestamp was not available for device {}", deviceId);
-                log.debug("  discarding {}", portDescriptions);
-                // Failed to generate timestamp.
+            NodeId localNode = clusterService.getLocalNode().id();
+            // TODO: It might be negligible, but this will have negative impact to topology discovery performance,
+            // since it will trigger distributed store read.
+            // Also, it'll probably be better if side-way communication happened on ConfigurationProvider, etc.
+            // outside Device subsystem. so that we don't have to modify both Device and Link stores.
+            // If we don't care much about topology performance, then it might be OK.
+            NodeId deviceNode = mastershipService.getMasterFor(deviceId);
 
-                // Possible situation:
-                //  Device connected and became master for short period of time,
-                // but lost mastership before this instance had the chance to
-                // retrieve term information.
+            // Process port update only if we're the master of the device,
+            // otherwise signal the actual master.
+            List<DeviceEvent> deviceEvents = null;
+            if (localNode.equals(deviceNode)) {
 
-                // Information dropped here is expected to be recoverable by
-                // device probing after mastership change
+                final Timestamp newTimestamp;
+                try {
+                    newTimestamp = deviceClockService.getTimestamp(deviceId);
+                } catch (IllegalStateException e) {
+                    log.info("Timestamp was not available for device {}", deviceId);
+                    log.debug("  discarding {}", portDescriptions);
+                    // Failed to generate timestamp.
 
-                return Collections.emptyList();
-            }
-            log.debug("timestamp for {} {}", deviceId, newTimestamp);
+                    // Possible situation:
+                    //  Device connected and became master for short period of time,
+                    // but lost mastership before this instance had the chance to
+                    // retrieve term information.
 
-            final Timestamped<List<PortDescription>> timestampedInput
-                    = new Timestamped<>(portDescriptions, newTimestamp);
-            final Timestamped<List<PortDescription>> merged;
+                    // Information dropped here is expected to be recoverable by
+                    // device probing after mastership change
 
-            final Map<ProviderId, DeviceDescriptions> device = getOrCreateDeviceDescriptionsMap(deviceId);
+                    return Collections.emptyList();
+                }
+                log.debug("timestamp for {} {}", deviceId, newTimestamp);
+
+                final Timestamped<List<PortDescription>> timestampedInput
+                        = new Timestamped<>(portDescriptions, newTimestamp);
+                final Timestamped<List<PortDescription>> merged;
+
+                final Map<ProviderId, DeviceDescriptions> device = getOrCreateDeviceDescriptionsMap(deviceId);
+
+                synchronized (device) {
+                    deviceEvents = updatePortsInternal(providerId, deviceId, timestampedInput);
+                    final DeviceDescriptions descs = device.get(providerId);
+                    List<PortDescription> mergedList =
+                            FluentIterable.from(portDescriptions)
+                                    .transform(new Function<PortDescription, PortDescription>() {
+                                        @Override
+                                        public PortDescription apply(PortDescription input) {
+                                            // lookup merged port description
+                                            return descs.getPortDesc(input.portNumber()).value();
+                                        }
+                                    }).toList();
+                    merged = new Timestamped<List<PortDescription>>(mergedList, newTimestamp);
+                }
 
-            synchronized (device) {
-                deviceEvents = updatePortsInternal(providerId, deviceId, timestampedInput);
-                final DeviceDescriptions descs = device.get(providerId);
-                List<PortDescription> mergedList =
-                        FluentIterable.from(portDescriptions)
-                                .transform(new Function<PortDescription, PortDescription>() {
-                                    @Override
-                                    public PortDescription apply(PortDescription input) {
-                                        // lookup merged port description
-                                        return descs.getPortDesc(input.portNumber()).value();
-                                    }
-                                }).toList();
-                merged = new Timestamped<List<PortDescription>>(mergedList, newTimestamp);
-            }
+                if (!deviceEvents.isEmpty()) {
+                    log.info("Notifying peers of a ports update topology event for providerId: {} and deviceId: {}",
+                            providerId, deviceId);
+                    notifyPeers(new InternalPortEvent(providerId, deviceId, merged));
+                }
 
-            if (!deviceEvents.isEmpty()) {
-                log.info("Notifying peers of a ports update topology event for providerId: {} and deviceId: {}",
-                        providerId, deviceId);
-                notifyPeers(new InternalPortEvent(providerId, deviceId, merged));
-            }
+            } else {
+                // FIXME Temporary hack for NPE (ONOS-1171).
+                // Proper fix is to implement forwarding to master on ConfigProvider
+                // redo ONOS-490
+                if (deviceNode == null) {
+                    // silently ignore
+                    return Collections.emptyList();
+                }
 
-        } else {
-            // FIXME Temporary hack for NPE (ONOS-1171).
-            // Proper fix is to implement forwarding to master on ConfigProvider
-            // redo ONOS-490
-            if (deviceNode == null) {
-                // silently ignore
-                return Collections.emptyList();
+                PortInjectedEvent portInjectedEvent = new PortInjectedEvent(providerId, deviceId, portDescriptions);
+                ClusterMessage clusterMessage = new ClusterMessage(
+                        localNode, PORT_INJECTED, SERIALIZER.encode(portInjectedEvent));
+
+                //TODO check unicast return value
+                clusterCommunicator.unicast(clusterMessage, deviceNode);
+                /* error log:
+                log.warn("Failed to process injected ports of device id: {} " +
+                                "(cluster messaging failed: {})",
+                        deviceId, e);
+                */
             }
 
-            PortInjectedEvent portInjectedEvent = new PortInjectedEvent(providerId, deviceId, portDescriptions);
-            ClusterMessage clusterMessage = new ClusterMessage(
-                    localNode, PORT_INJECTED, SERIALIZER.encode(portInjectedEvent));
-
-            //TODO check unicast return value
-            clusterCommunicator.unicast(clusterMessage, deviceNode);
-            /* error log:
-            log.warn("Failed to process injected ports of device id: {} " +
-                            "(cluster messaging failed: {})",
-                    deviceId, e);
-            */
+            return deviceEvents == null ? Collections.emptyList() : deviceEvents;
+        } finally {
+            lock.unlock();
         }
-
-        return deviceEvents == null ? Collections.emptyList() : deviceEvents;
     }
 
     private List<DeviceEvent> updatePortsInternal(ProviderId providerId,
@@ -710,36 +730,42 @@ public class GossipDeviceStore
     }
 
     @Override
-    public synchronized DeviceEvent updatePortStatus(ProviderId providerId,
-                                                     DeviceId deviceId,
-                                                     PortDescription portDescription) {
-
-        final Timestamp newTimestamp;
+    public DeviceEvent updatePortStatus(ProviderId providerId,
+                                        DeviceId deviceId,
+                                        PortDescription portDescription) {
+        final Lock lock = deviceLocks.get(deviceId);
+        lock.lock();
         try {
-            newTimestamp = deviceClockService.getTimestamp(deviceId);
-        } catch (IllegalStateException e) {
-            log.info("Timestamp was not available for device {}", deviceId);
-            log.debug("  discarding {}", portDescription);
-            // Failed to generate timestamp. Ignoring.
-            // See updatePorts comment
-            return null;
-        }
-        final Timestamped<PortDescription> deltaDesc
-            = new Timestamped<>(portDescription, newTimestamp);
-        final DeviceEvent event;
-        final Timestamped<PortDescription> mergedDesc;
-        final Map<ProviderId, DeviceDescriptions> device = getOrCreateDeviceDescriptionsMap(deviceId);
-        synchronized (device) {
-            event = updatePortStatusInternal(providerId, deviceId, deltaDesc);
-            mergedDesc = device.get(providerId)
-                            .getPortDesc(portDescription.portNumber());
-        }
-        if (event != null) {
-            log.info("Notifying peers of a port status update topology event for providerId: {} and deviceId: {}",
-                        providerId, deviceId);
-            notifyPeers(new InternalPortStatusEvent(providerId, deviceId, mergedDesc));
+
+            final Timestamp newTimestamp;
+            try {
+                newTimestamp = deviceClockService.getTimestamp(deviceId);
+            } catch (IllegalStateException e) {
+                log.info("Timestamp was not available for device {}", deviceId);
+                log.debug("  discarding {}", portDescription);
+                // Failed to generate timestamp. Ignoring.
+                // See updatePorts comment
+                return null;
+            }
+            final Timestamped<PortDescription> deltaDesc
+                = new Timestamped<>(portDescription, newTimestamp);
+            final DeviceEvent event;
+            final Timestamped<PortDescription> mergedDesc;
+            final Map<ProviderId, DeviceDescriptions> device = getOrCreateDeviceDescriptionsMap(deviceId);
+            synchronized (device) {
+                event = updatePortStatusInternal(providerId, deviceId, deltaDesc);
+                mergedDesc = device.get(providerId)
+                                .getPortDesc(portDescription.portNumber());
+            }
+            if (event != null) {
+                log.info("Notifying peers of a port status update topology event for providerId: {} and deviceId: {}",
+                            providerId, deviceId);
+                notifyPeers(new InternalPortStatusEvent(providerId, deviceId, mergedDesc));
+            }
+            return event;
+        } finally {
+            lock.unlock();
         }
-        return event;
     }
 
     private DeviceEvent updatePortStatusInternal(ProviderId providerId, DeviceId deviceId,
@@ -811,60 +837,66 @@ public class GossipDeviceStore
     }
 
     @Override
-    public synchronized DeviceEvent removeDevice(DeviceId deviceId) {
-        final NodeId myId = clusterService.getLocalNode().id();
-        NodeId master = mastershipService.getMasterFor(deviceId);
-
-        // if there exist a master, forward
-        // if there is no master, try to become one and process
-
-        boolean relinquishAtEnd = false;
-        if (master == null) {
-            final MastershipRole myRole = mastershipService.getLocalRole(deviceId);
-            if (myRole != MastershipRole.NONE) {
-                relinquishAtEnd = true;
-            }
-            log.debug("Temporarily requesting role for {} to remove", deviceId);
-            mastershipService.requestRoleFor(deviceId);
-            MastershipTerm term = termService.getMastershipTerm(deviceId);
-            if (myId.equals(term.master())) {
-                master = myId;
+    public DeviceEvent removeDevice(DeviceId deviceId) {
+        final Lock lock = deviceLocks.get(deviceId);
+        lock.lock();
+        try {
+            final NodeId myId = clusterService.getLocalNode().id();
+            NodeId master = mastershipService.getMasterFor(deviceId);
+
+            // if there exist a master, forward
+            // if there is no master, try to become one and process
+
+            boolean relinquishAtEnd = false;
+            if (master == null) {
+                final MastershipRole myRole = mastershipService.getLocalRole(deviceId);
+                if (myRole != MastershipRole.NONE) {
+                    relinquishAtEnd = true;
+                }
+                log.debug("Temporarily requesting role for {} to remove", deviceId);
+                mastershipService.requestRoleFor(deviceId);
+                MastershipTerm term = termService.getMastershipTerm(deviceId);
+                if (myId.equals(term.master())) {
+                    master = myId;
+                }
             }
-        }
 
-        if (!myId.equals(master)) {
-            log.debug("{} has control of {}, forwarding remove request",
-                     master, deviceId);
+            if (!myId.equals(master)) {
+                log.debug("{} has control of {}, forwarding remove request",
+                         master, deviceId);
 
-             ClusterMessage message = new ClusterMessage(
-                     myId,
-                     DEVICE_REMOVE_REQ,
-                     SERIALIZER.encode(deviceId));
+                 ClusterMessage message = new ClusterMessage(
+                         myId,
+                         DEVICE_REMOVE_REQ,
+                         SERIALIZER.encode(deviceId));
 
-            // TODO check unicast return value
-            clusterCommunicator.unicast(message, master);
-             /* error log:
-             log.error("Failed to forward {} remove request to {}", deviceId, master, e);
-             */
+                // TODO check unicast return value
+                clusterCommunicator.unicast(message, master);
+                 /* error log:
+                 log.error("Failed to forward {} remove request to {}", deviceId, master, e);
+                 */
 
-            // event will be triggered after master processes it.
-             return null;
-        }
+                // event will be triggered after master processes it.
+                 return null;
+            }
 
-        // I have control..
+            // I have control..
 
-        Timestamp timestamp = deviceClockService.getTimestamp(deviceId);
-        DeviceEvent event = removeDeviceInternal(deviceId, timestamp);
-        if (event != null) {
-            log.debug("Notifying peers of a device removed topology event for deviceId: {}",
-                    deviceId);
-            notifyPeers(new InternalDeviceRemovedEvent(deviceId, timestamp));
-        }
-        if (relinquishAtEnd) {
-            log.debug("Relinquishing temporary role acquired for {}", deviceId);
-            mastershipService.relinquishMastership(deviceId);
+            Timestamp timestamp = deviceClockService.getTimestamp(deviceId);
+            DeviceEvent event = removeDeviceInternal(deviceId, timestamp);
+            if (event != null) {
+                log.debug("Notifying peers of a device removed topology event for deviceId: {}",
+                        deviceId);
+                notifyPeers(new InternalDeviceRemovedEvent(deviceId, timestamp));
+            }
+            if (relinquishAtEnd) {
+                log.debug("Relinquishing temporary role acquired for {}", deviceId);
+                mastershipService.relinquishMastership(deviceId);
+            }
+            return event;
+        } finally {
+            lock.unlock();
         }
-        return event;
     }
 
     private DeviceEvent removeDeviceInternal(DeviceId deviceId,
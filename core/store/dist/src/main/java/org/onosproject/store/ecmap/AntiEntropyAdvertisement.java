@@ -20,6 +20,7 @@ import org.onosproject.cluster.NodeId;
 import org.onosproject.store.Timestamp;
 
 import java.util.Map;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -31,6 +32,7 @@ public class AntiEntropyAdvertisement<K> {
     private final NodeId sender;
     private final Map<K, Timestamp> timestamps;
     private final Map<K, Timestamp> tombstones;
+    private final Set<Integer> buckets;
 
     /**
      * Creates a new anti entropy advertisement message.
@@ -42,9 +44,27 @@ public class AntiEntropyAdvertisement<K> {
     public AntiEntropyAdvertisement(NodeId sender,
                                     Map<K, Timestamp> timestamps,
                                     Map<K, Timestamp> tombstones) {
+        this(sender, timestamps, tombstones, null);
+    }
+
+    /**
+     * Creates a new anti entropy advertisement message covering only the
+     * given digest buckets.
+     *
+     * @param sender the sender's node ID
+     * @param timestamps map of item key to timestamp for current items
+     * @param tombstones map of item key to timestamp for removed items
+     * @param buckets digest buckets covered by this advertisement, or null
+     *                if it covers the whole map
+     */
+    public AntiEntropyAdvertisement(NodeId sender,
+                                    Map<K, Timestamp> timestamps,
+                                    Map<K, Timestamp> tombstones,
+                                    Set<Integer> buckets) {
         this.sender = checkNotNull(sender);
         this.timestamps = checkNotNull(timestamps);
         this.tombstones = checkNotNull(tombstones);
+        this.buckets = buckets;
     }
 
     /**
@@ -74,12 +94,23 @@ public class AntiEntropyAdvertisement<K> {
         return tombstones;
     }
 
+    /**
+     * Returns the digest buckets covered by this advertisement.
+     *
+     * @return covered buckets, or null if the advertisement covers the
+     * whole map
+     */
+    public Set<Integer> buckets() {
+        return buckets;
+    }
+
     // For serializer
     @SuppressWarnings("unused")
     private AntiEntropyAdvertisement() {
         this.sender = null;
         this.timestamps = null;
         this.tombstones = null;
+        this.buckets = null;
     }
 
     @Override
@@ -87,6 +118,7 @@ public class AntiEntropyAdvertisement<K> {
         return MoreObjects.toStringHelper(getClass())
                 .add("timestampsSize", timestamps.size())
                 .add("tombstonesSize", tombstones.size())
+                .add("buckets", buckets == null ? "all" : buckets.size())
                 .toString();
     }
 }
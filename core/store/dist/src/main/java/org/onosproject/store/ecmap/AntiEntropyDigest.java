@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.ecmap;
+
+import com.google.common.base.MoreObjects;
+import org.onosproject.cluster.NodeId;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Anti-entropy digest message for eventually consistent map.
+ * <p>
+ * Carries the root and leaf bucket hashes of the sender's hash tree, so that
+ * the receiver can advertise back only the buckets that differ.
+ * </p>
+ */
+public class AntiEntropyDigest {
+
+    private final NodeId sender;
+    private final long root;
+    private final long[] buckets;
+
+    /**
+     * Creates a new anti entropy digest message.
+     *
+     * @param sender the sender's node ID
+     * @param root root hash of the sender's tree
+     * @param buckets leaf bucket hashes of the sender's tree
+     */
+    public AntiEntropyDigest(NodeId sender, long root, long[] buckets) {
+        this.sender = checkNotNull(sender);
+        this.root = root;
+        this.buckets = checkNotNull(buckets);
+    }
+
+    /**
+     * Returns the sender's node ID.
+     *
+     * @return the sender's node ID
+     */
+    public NodeId sender() {
+        return sender;
+    }
+
+    /**
+     * Returns the root hash of the sender's tree.
+     *
+     * @return root hash
+     */
+    public long root() {
+        return root;
+    }
+
+    /**
+     * Returns the leaf bucket hashes of the sender's tree.
+     *
+     * @return leaf bucket hashes
+     */
+    public long[] buckets() {
+        return buckets;
+    }
+
+    // For serializer
+    @SuppressWarnings("unused")
+    private AntiEntropyDigest() {
+        this.sender = null;
+        this.root = 0;
+        this.buckets = null;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("sender", sender)
+                .add("root", root)
+                .add("numBuckets", buckets.length)
+                .toString();
+    }
+}
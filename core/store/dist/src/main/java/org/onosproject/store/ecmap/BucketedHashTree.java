@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.ecmap;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Fixed-width hash tree summarizing the (key, timestamp) pairs held by an
+ * eventually consistent map.
+ * <p>
+ * Every entry is hashed from its serialized key and timestamp and folded into
+ * the leaf bucket selected by its key. Buckets are combined with XOR, which
+ * makes adding and removing an entry the same O(1) operation and the result
+ * independent of the order in which updates are applied. Two replicas that
+ * hold the same entries therefore produce identical leaves and root.
+ * </p>
+ */
+final class BucketedHashTree {
+
+    private static final HashFunction BUCKET_HASH = Hashing.murmur3_32();
+    private static final HashFunction ENTRY_HASH = Hashing.murmur3_128();
+
+    private static final byte LIVE = 1;
+    private static final byte TOMBSTONE = 0;
+
+    private final AtomicLongArray leaves;
+
+    /**
+     * Creates a new empty hash tree.
+     *
+     * @param numBuckets number of leaf buckets
+     */
+    BucketedHashTree(int numBuckets) {
+        checkArgument(numBuckets > 0, "Number of buckets must be positive");
+        this.leaves = new AtomicLongArray(numBuckets);
+    }
+
+    /**
+     * Returns the number of leaf buckets.
+     *
+     * @return number of buckets
+     */
+    int numBuckets() {
+        return leaves.length();
+    }
+
+    /**
+     * Returns the bucket the given serialized key belongs to.
+     *
+     * @param keyBytes serialized key
+     * @return bucket index
+     */
+    int bucketOf(byte[] keyBytes) {
+        return Math.floorMod(BUCKET_HASH.hashBytes(keyBytes).asInt(), leaves.length());
+    }
+
+    /**
+     * Adds an entry to the tree if it is absent, or removes it if present.
+     *
+     * @param keyBytes serialized key
+     * @param timestampBytes serialized timestamp
+     * @param live true for a live item, false for a tombstone
+     */
+    void toggle(byte[] keyBytes, byte[] timestampBytes, boolean live) {
+        long hash = ENTRY_HASH.newHasher()
+                .putBytes(keyBytes)
+                .putBytes(timestampBytes)
+                .putByte(live ? LIVE : TOMBSTONE)
+                .hash().asLong();
+        leaves.accumulateAndGet(bucketOf(keyBytes), hash, (a, b) -> a ^ b);
+    }
+
+    /**
+     * Returns a snapshot of the leaf bucket hashes.
+     *
+     * @return leaf hashes
+     */
+    long[] leaves() {
+        long[] snapshot = new long[leaves.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = leaves.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Computes the root hash over the given leaf hashes.
+     *
+     * @param leafHashes leaf hashes
+     * @return root hash
+     */
+    static long root(long[] leafHashes) {
+        long root = 1;
+        for (long leaf : leafHashes) {
+            root = 31 * root + leaf;
+        }
+        return root;
+    }
+
+    /**
+     * Returns the buckets whose hash differs from the given remote leaves.
+     * If the remote tree has a different width, every bucket is reported.
+     *
+     * @param localLeaves local leaf hashes
+     * @param remoteLeaves remote leaf hashes
+     * @return indexes of differing buckets
+     */
+    static Set<Integer> differingBuckets(long[] localLeaves, long[] remoteLeaves) {
+        Set<Integer> buckets = new HashSet<>();
+        boolean sameWidth = localLeaves.length == remoteLeaves.length;
+        for (int i = 0; i < localLeaves.length; i++) {
+            if (!sameWidth || localLeaves[i] != remoteLeaves[i]) {
+                buckets.add(i);
+            }
+        }
+        return buckets;
+    }
+}
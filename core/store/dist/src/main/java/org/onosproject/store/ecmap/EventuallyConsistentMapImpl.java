@@ -42,6 +42,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -53,6 +54,7 @@ import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
@@ -84,13 +86,17 @@ public class EventuallyConsistentMapImpl<K, V>
 
     private final MessageSubject updateMessageSubject;
     private final MessageSubject antiEntropyAdvertisementSubject;
+    private final MessageSubject antiEntropyDigestSubject;
 
     private final Set<EventuallyConsistentMapListener<K, V>> listeners
             = new CopyOnWriteArraySet<>();
 
-    private final ExecutorService executor;
+    private final String mapName;
+    private EventuallyConsistentMapRuntime.Lanes lanes;
 
-    private final ScheduledExecutorService backgroundExecutor;
+    private ExecutorService executor;
+    private ExecutorService backgroundExecutor;
+    private ScheduledFuture<?> antiEntropyTask;
     private final BiFunction<K, V, Collection<NodeId>> peerUpdateFunction;
 
     private ExecutorService communicationExecutor;
@@ -109,6 +115,9 @@ public class EventuallyConsistentMapImpl<K, V>
     private boolean lightweightAntiEntropy = true;
     private boolean tombstonesDisabled = false;
 
+    private static final int DIGEST_BUCKETS = 512;
+    private volatile BucketedHashTree digestTree;
+
     private static final int WINDOW_SIZE = 5;
     private static final int HIGH_LOAD_THRESHOLD = 0;
     private static final int LOAD_WINDOW = 2;
@@ -139,6 +148,10 @@ public class EventuallyConsistentMapImpl<K, V>
      * cases wallclock time will suffice, whereas in other cases logical time
      * will be necessary).
      * </p>
+     * <p>
+     * The map runs on the executors shared by all maps of this instance;
+     * see {@link #withDedicatedExecutors(int, int)} to opt out.
+     * </p>
      *
      * @param mapName             a String identifier for the map.
      * @param clusterService      the cluster service
@@ -159,6 +172,7 @@ public class EventuallyConsistentMapImpl<K, V>
         this.clusterService = checkNotNull(clusterService);
         this.clusterCommunicator = checkNotNull(clusterCommunicator);
         this.peerUpdateFunction = checkNotNull(peerUpdateFunction);
+        this.mapName = checkNotNull(mapName);
 
         serializer = createSerializer(checkNotNull(serializerBuilder));
         destroyedMessage = mapName + ERROR_DESTROYED;
@@ -168,24 +182,19 @@ public class EventuallyConsistentMapImpl<K, V>
         items = new ConcurrentHashMap<>();
         removedItems = new ConcurrentHashMap<>();
 
-        // should be a normal executor; it's used for receiving messages
-        //TODO make # of threads configurable
-        executor = Executors.newFixedThreadPool(8, groupedThreads("onos/ecm", mapName + "-fg-%d"));
-
-        // sending executor; should be capped
-        //TODO make # of threads configurable
-        //TODO this probably doesn't need to be bounded anymore
-        communicationExecutor =
-                newFixedThreadPool(8, groupedThreads("onos/ecm", mapName + "-publish-%d"));
+        // receive, publish and background lanes on the shared executors
+        lanes = EventuallyConsistentMapRuntime.register(mapName);
+        executor = lanes.receive;
+        communicationExecutor = lanes.publish;
+        backgroundExecutor = lanes.background;
         senderPending = Maps.newConcurrentMap();
 
-        backgroundExecutor =
-                newSingleThreadScheduledExecutor(groupedThreads("onos/ecm", mapName + "-bg-%d"));
-
-        // start anti-entropy thread
-        backgroundExecutor.scheduleAtFixedRate(new SendAdvertisementTask(),
-                                               initialDelaySec, periodSec,
-                                               TimeUnit.SECONDS);
+        // start anti-entropy; the shared scheduler only hands the task off
+        // to this map's background lane
+        final ExecutorService background = backgroundExecutor;
+        antiEntropyTask = lanes.scheduler.scheduleAtFixedRate(
+                () -> background.execute(new SendAdvertisementTask()),
+                initialDelaySec, periodSec, TimeUnit.SECONDS);
 
         updateMessageSubject = new MessageSubject("ecm-" + mapName + "-update");
         clusterCommunicator.addSubscriber(updateMessageSubject,
@@ -194,6 +203,8 @@ public class EventuallyConsistentMapImpl<K, V>
         antiEntropyAdvertisementSubject = new MessageSubject("ecm-" + mapName + "-anti-entropy");
         clusterCommunicator.addSubscriber(antiEntropyAdvertisementSubject,
                                           new InternalAntiEntropyListener(), backgroundExecutor);
+
+        antiEntropyDigestSubject = new MessageSubject("ecm-" + mapName + "-anti-entropy-digest");
     }
 
     /**
@@ -229,6 +240,87 @@ public class EventuallyConsistentMapImpl<K, V>
         return this;
     }
 
+    /**
+     * Moves this map off the shared executors onto its own thread pools and
+     * returns this instance for method chaining. Intended for maps whose
+     * traffic is heavy enough to warrant isolation from the other maps.
+     * This should be called right after the map is constructed.
+     *
+     * @param receiveThreads number of threads handling incoming updates
+     * @param publishThreads number of threads sending updates to peers
+     * @return this instance
+     */
+    public EventuallyConsistentMapImpl<K, V> withDedicatedExecutors(int receiveThreads,
+                                                                    int publishThreads) {
+        if (lanes == null) {
+            return this;
+        }
+        antiEntropyTask.cancel(false);
+
+        executor = Executors.newFixedThreadPool(receiveThreads,
+                groupedThreads("onos/ecm", mapName + "-fg-%d"));
+        communicationExecutor = newFixedThreadPool(publishThreads,
+                groupedThreads("onos/ecm", mapName + "-publish-%d"));
+        ScheduledExecutorService scheduler =
+                newSingleThreadScheduledExecutor(groupedThreads("onos/ecm", mapName + "-bg-%d"));
+        backgroundExecutor = scheduler;
+        antiEntropyTask = scheduler.scheduleAtFixedRate(new SendAdvertisementTask(),
+                                                        initialDelaySec, periodSec,
+                                                        TimeUnit.SECONDS);
+
+        clusterCommunicator.removeSubscriber(updateMessageSubject);
+        clusterCommunicator.addSubscriber(updateMessageSubject,
+                                          new InternalEventListener(), executor);
+        clusterCommunicator.removeSubscriber(antiEntropyAdvertisementSubject);
+        clusterCommunicator.addSubscriber(antiEntropyAdvertisementSubject,
+                                          new InternalAntiEntropyListener(), backgroundExecutor);
+        if (digestTree != null) {
+            clusterCommunicator.removeSubscriber(antiEntropyDigestSubject);
+            clusterCommunicator.addSubscriber(antiEntropyDigestSubject,
+                                              new InternalAntiEntropyDigestListener(),
+                                              backgroundExecutor);
+        }
+
+        EventuallyConsistentMapRuntime.unregister(mapName, lanes);
+        lanes = null;
+        return this;
+    }
+
+    /**
+     * Enables or disables digest based anti-entropy and returns this instance
+     * for method chaining.
+     * <p>
+     * In digest mode each node maintains a bucketed hash tree over its
+     * (key, timestamp) pairs. Periodic anti-entropy exchanges only the tree
+     * hashes, and full advertisements are limited to the buckets that differ,
+     * so the steady state cost no longer grows with the size of the map.
+     * All instances of the map must use the same mode. This should be called
+     * right after the map is constructed.
+     * </p>
+     *
+     * @param enabled true to use digest based anti-entropy
+     * @return this instance
+     */
+    public EventuallyConsistentMapImpl<K, V> withDigestAntiEntropy(boolean enabled) {
+        if (enabled && digestTree == null) {
+            BucketedHashTree tree = new BucketedHashTree(DIGEST_BUCKETS);
+            items.forEach((key, value) -> tree.toggle(serializer.encode(key),
+                                                      serializer.encode(value.timestamp()),
+                                                      true));
+            removedItems.forEach((key, timestamp) -> tree.toggle(serializer.encode(key),
+                                                                 serializer.encode(timestamp),
+                                                                 false));
+            digestTree = tree;
+            clusterCommunicator.addSubscriber(antiEntropyDigestSubject,
+                                              new InternalAntiEntropyDigestListener(),
+                                              backgroundExecutor);
+        } else if (!enabled && digestTree != null) {
+            clusterCommunicator.removeSubscriber(antiEntropyDigestSubject);
+            digestTree = null;
+        }
+        return this;
+    }
+
     private KryoSerializer createSerializer(KryoNamespace.Builder builder) {
         return new KryoSerializer() {
             @Override
@@ -241,6 +333,9 @@ public class EventuallyConsistentMapImpl<K, V>
                         .register(ArrayList.class)
                         .register(AntiEntropyAdvertisement.class)
                         .register(HashMap.class)
+                        .register(AntiEntropyDigest.class)
+                        .register(long[].class)
+                        .register(HashSet.class)
                         .build();
             }
         };
@@ -331,6 +426,7 @@ public class EventuallyConsistentMapImpl<K, V>
                 return existing;
             } else {
                 updated.setTrue();
+                updateDigest(k, existing == null ? null : existing.timestamp(), timestamp, true);
                 return new Timestamped<>(value, timestamp);
             }
             });
@@ -341,7 +437,9 @@ public class EventuallyConsistentMapImpl<K, V>
         }
 
         if (success && removed != null) {
-            removedItems.remove(key, removed);
+            if (removedItems.remove(key, removed)) {
+                updateDigest(key, removed, null, false);
+            }
         }
         return success;
     }
@@ -376,6 +474,9 @@ public class EventuallyConsistentMapImpl<K, V>
                 return existing;
             } else {
                 updated.setTrue();
+                if (existing != null) {
+                    updateDigest(k, existing.timestamp(), null, true);
+                }
                 // remove from items map
                 return null;
             }
@@ -388,9 +489,17 @@ public class EventuallyConsistentMapImpl<K, V>
         if (!tombstonesDisabled) {
             Timestamp removedTimestamp = removedItems.get(key);
             if (removedTimestamp == null) {
-                return removedItems.putIfAbsent(key, timestamp) == null;
+                if (removedItems.putIfAbsent(key, timestamp) == null) {
+                    updateDigest(key, null, timestamp, false);
+                    return true;
+                }
+                return false;
             } else if (timestamp.isNewerThan(removedTimestamp)) {
-                return removedItems.replace(key, removedTimestamp, timestamp);
+                if (removedItems.replace(key, removedTimestamp, timestamp)) {
+                    updateDigest(key, removedTimestamp, timestamp, false);
+                    return true;
+                }
+                return false;
             } else {
                 return false;
             }
@@ -399,6 +508,29 @@ public class EventuallyConsistentMapImpl<K, V>
         return updated.booleanValue();
     }
 
+    /**
+     * Replaces the digest contribution of an entry.
+     *
+     * @param key entry key
+     * @param oldTimestamp timestamp being replaced, or null if none
+     * @param newTimestamp new timestamp, or null if the entry is going away
+     * @param live true for live items, false for tombstones
+     */
+    private void updateDigest(K key, Timestamp oldTimestamp, Timestamp newTimestamp,
+                              boolean live) {
+        BucketedHashTree tree = digestTree;
+        if (tree == null) {
+            return;
+        }
+        byte[] keyBytes = serializer.encode(key);
+        if (oldTimestamp != null) {
+            tree.toggle(keyBytes, serializer.encode(oldTimestamp), live);
+        }
+        if (newTimestamp != null) {
+            tree.toggle(keyBytes, serializer.encode(newTimestamp), live);
+        }
+    }
+
     @Override
     public void remove(K key, V value) {
         checkState(!destroyed, destroyedMessage);
@@ -468,14 +600,21 @@ public class EventuallyConsistentMapImpl<K, V>
     public void destroy() {
         destroyed = true;
 
+        antiEntropyTask.cancel(false);
         executor.shutdown();
         backgroundExecutor.shutdown();
         communicationExecutor.shutdown();
+        if (lanes != null) {
+            EventuallyConsistentMapRuntime.unregister(mapName, lanes);
+        }
 
         listeners.clear();
 
         clusterCommunicator.removeSubscriber(updateMessageSubject);
         clusterCommunicator.removeSubscriber(antiEntropyAdvertisementSubject);
+        if (digestTree != null) {
+            clusterCommunicator.removeSubscriber(antiEntropyDigestSubject);
+        }
     }
 
     private void notifyListeners(EventuallyConsistentMapEvent<K, V> event) {
@@ -516,6 +655,13 @@ public class EventuallyConsistentMapImpl<K, V>
         return counter.get(LOAD_WINDOW) > HIGH_LOAD_THRESHOLD;
     }
 
+    /**
+     * Runs a round of anti-entropy with a randomly chosen peer.
+     */
+    void runAntiEntropy() {
+        new SendAdvertisementTask().run();
+    }
+
     private final class SendAdvertisementTask implements Runnable {
         @Override
         public void run() {
@@ -552,6 +698,17 @@ public class EventuallyConsistentMapImpl<K, V>
                     return;
                 }
 
+                BucketedHashTree tree = digestTree;
+                if (tree != null) {
+                    long[] leaves = tree.leaves();
+                    AntiEntropyDigest digest = new AntiEntropyDigest(
+                            self, BucketedHashTree.root(leaves), leaves);
+                    if (!unicastMessage(peer, antiEntropyDigestSubject, digest)) {
+                        log.debug("Failed to send anti-entropy digest to {}", peer);
+                    }
+                    return;
+                }
+
                 AntiEntropyAdvertisement<K> ad = createAdvertisement();
 
                 if (!unicastMessage(peer, antiEntropyAdvertisementSubject, ad)) {
@@ -576,12 +733,96 @@ public class EventuallyConsistentMapImpl<K, V>
         return new AntiEntropyAdvertisement<>(self, timestamps, tombstones);
     }
 
+    private AntiEntropyAdvertisement<K> createAdvertisement(Set<K> keys,
+                                                           Set<Integer> buckets) {
+        final NodeId self = clusterService.getLocalNode().id();
+
+        Map<K, Timestamp> timestamps = new HashMap<>();
+        Map<K, Timestamp> tombstones = new HashMap<>();
+        for (K key : keys) {
+            Timestamped<V> value = items.get(key);
+            if (value != null) {
+                timestamps.put(key, value.timestamp());
+            }
+            Timestamp timestamp = removedItems.get(key);
+            if (timestamp != null) {
+                tombstones.put(key, timestamp);
+            }
+        }
+
+        return new AntiEntropyAdvertisement<>(self, timestamps, tombstones, buckets);
+    }
+
+    /**
+     * Returns the local keys, live or removed, that fall in the specified
+     * buckets. Membership takes encoding every key, so it is computed once
+     * per anti-entropy round.
+     *
+     * @param tree digest tree
+     * @param buckets bucket indexes
+     * @return keys in the buckets
+     */
+    private Set<K> keysInBuckets(BucketedHashTree tree, Set<Integer> buckets) {
+        Set<K> keys = new HashSet<>();
+        items.keySet().forEach(key -> {
+            if (buckets.contains(tree.bucketOf(serializer.encode(key)))) {
+                keys.add(key);
+            }
+        });
+        removedItems.keySet().forEach(key -> {
+            if (buckets.contains(tree.bucketOf(serializer.encode(key)))) {
+                keys.add(key);
+            }
+        });
+        return keys;
+    }
+
+    private void handleAntiEntropyDigest(AntiEntropyDigest digest) {
+        BucketedHashTree tree = digestTree;
+        if (tree == null) {
+            return;
+        }
+
+        long[] leaves = tree.leaves();
+        if (leaves.length == digest.buckets().length
+                && BucketedHashTree.root(leaves) == digest.root()) {
+            log.trace("Digest from {} matches local state", digest.sender());
+            return;
+        }
+
+        Set<Integer> buckets = BucketedHashTree.differingBuckets(leaves, digest.buckets());
+        if (buckets.isEmpty()) {
+            return;
+        }
+
+        // Advertise only the differing buckets; the sender pushes back
+        // whatever it has that is more recent than our state. Filtering by
+        // bucket encodes every key, which is not worth it when most buckets
+        // differ, e.g. right after a node joins
+        AntiEntropyAdvertisement<K> ad = buckets.size() > leaves.length / 2
+                ? createAdvertisement()
+                : createAdvertisement(keysInBuckets(tree, buckets), buckets);
+        if (!unicastMessage(digest.sender(), antiEntropyAdvertisementSubject, ad)) {
+            log.debug("Failed to send bucket advertisement to {}", digest.sender());
+        }
+    }
+
     private void handleAntiEntropyAdvertisement(AntiEntropyAdvertisement<K> ad) {
+        final BucketedHashTree tree = digestTree;
+        if (ad.buckets() != null && tree == null) {
+            log.debug("Ignoring bucket advertisement from {}; digest mode is disabled",
+                      ad.sender());
+            return;
+        }
+
+        // local keys the advertisement covers; null if it covers all
+        final Set<K> keys = ad.buckets() == null ? null : keysInBuckets(tree, ad.buckets());
+
         List<EventuallyConsistentMapEvent<K, V>> externalEvents;
 
-        externalEvents = antiEntropyCheckLocalItems(ad);
+        externalEvents = antiEntropyCheckLocalItems(ad, keys);
 
-        antiEntropyCheckLocalRemoved(ad);
+        antiEntropyCheckLocalRemoved(ad, keys);
 
         if (!lightweightAntiEntropy) {
             externalEvents.addAll(antiEntropyCheckRemoteRemoved(ad));
@@ -591,7 +832,8 @@ public class EventuallyConsistentMapImpl<K, V>
                 if (!items.containsKey(key)) {
                     // Send the advertisement back if this peer is out-of-sync
                     final NodeId sender = ad.sender();
-                    AntiEntropyAdvertisement<K> myAd = createAdvertisement();
+                    AntiEntropyAdvertisement<K> myAd = keys == null
+                            ? createAdvertisement() : createAdvertisement(keys, ad.buckets());
                     if (!unicastMessage(sender, antiEntropyAdvertisementSubject, myAd)) {
                         log.debug("Failed to send reactive anti-entropy advertisement to {}", sender);
                     }
@@ -610,17 +852,20 @@ public class EventuallyConsistentMapImpl<K, V>
      * remote has a more recent remove, we apply that to the local state.
      *
      * @param ad remote anti-entropy advertisement
+     * @param keys local keys covered by the advertisement, or null for all
      * @return list of external events relating to local operations performed
      */
     private List<EventuallyConsistentMapEvent<K, V>> antiEntropyCheckLocalItems(
-            AntiEntropyAdvertisement<K> ad) {
+            AntiEntropyAdvertisement<K> ad, Set<K> keys) {
         final List<EventuallyConsistentMapEvent<K, V>> externalEvents
                 = new LinkedList<>();
         final NodeId sender = ad.sender();
 
-        for (Map.Entry<K, Timestamped<V>> item : items.entrySet()) {
-            K key = item.getKey();
-            Timestamped<V> localValue = item.getValue();
+        for (K key : keys == null ? items.keySet() : keys) {
+            Timestamped<V> localValue = items.get(key);
+            if (localValue == null) {
+                continue;
+            }
 
             Timestamp remoteTimestamp = ad.timestamps().get(key);
             if (remoteTimestamp == null) {
@@ -653,13 +898,16 @@ public class EventuallyConsistentMapImpl<K, V>
      * we'll send it to the remote.
      *
      * @param ad remote anti-entropy advertisement
+     * @param keys local keys covered by the advertisement, or null for all
      */
-    private void antiEntropyCheckLocalRemoved(AntiEntropyAdvertisement<K> ad) {
+    private void antiEntropyCheckLocalRemoved(AntiEntropyAdvertisement<K> ad, Set<K> keys) {
         final NodeId sender = ad.sender();
 
-        for (Map.Entry<K, Timestamp> dead : removedItems.entrySet()) {
-            K key = dead.getKey();
-            Timestamp localDeadTimestamp = dead.getValue();
+        for (K key : keys == null ? removedItems.keySet() : keys) {
+            Timestamp localDeadTimestamp = removedItems.get(key);
+            if (localDeadTimestamp == null) {
+                continue;
+            }
 
             Timestamp remoteLiveTimestamp = ad.timestamps().get(key);
             if (remoteLiveTimestamp != null
@@ -726,6 +974,24 @@ public class EventuallyConsistentMapImpl<K, V>
         }
     }
 
+    private final class InternalAntiEntropyDigestListener
+            implements ClusterMessageHandler {
+
+        @Override
+        public void handle(ClusterMessage message) {
+            log.trace("Received anti-entropy digest from peer: {}",
+                      message.sender());
+            AntiEntropyDigest digest = serializer.decode(message.payload());
+            try {
+                if (!underHighLoad()) {
+                    handleAntiEntropyDigest(digest);
+                }
+            } catch (Exception e) {
+                log.warn("Exception thrown handling digest", e);
+            }
+        }
+    }
+
     private final class InternalEventListener implements
             ClusterMessageHandler {
         @Override
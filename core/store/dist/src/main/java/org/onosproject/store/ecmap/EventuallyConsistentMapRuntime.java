@@ -0,0 +1,191 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.ecmap;
+
+import com.codahale.metrics.Gauge;
+import com.google.common.collect.ImmutableMap;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static org.onlab.util.BoundedThreadPool.newFixedThreadPool;
+import static org.onlab.util.Tools.groupedThreads;
+
+/**
+ * Executors shared by all eventually consistent maps of this instance.
+ * <p>
+ * All maps receive and publish messages through one bounded pair of thread
+ * pools and schedule anti-entropy on a single scheduler thread. Each map is
+ * given its own bounded fair queue lanes on top of the shared pools, so that
+ * a busy map cannot starve the others. The executors are created when the
+ * first map registers and shut down when the last one is released, and the
+ * depth of the lanes of each map is reported as a metric once a metrics
+ * service is available.
+ * </p>
+ */
+public final class EventuallyConsistentMapRuntime {
+
+    private static final int RECEIVE_THREADS = 8;
+    private static final int PUBLISH_THREADS = 8;
+
+    // Number of tasks a lane runs before yielding to the other lanes
+    private static final int QUANTUM = 16;
+
+    // Number of tasks a lane holds before slowing its submitters down
+    private static final int LANE_CAPACITY = 10_000;
+
+    private static final String COMPONENT = "EventuallyConsistentMap";
+    private static final String QUEUE_DEPTH = "queueDepth";
+
+    private static EventuallyConsistentMapRuntime instance;
+    private static MetricsService metricsService;
+    private static MetricsComponent metricsComponent;
+
+    private final ExecutorService receivePool;
+    private final ExecutorService publishPool;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<String, Lanes> lanes = new HashMap<>();
+
+    private EventuallyConsistentMapRuntime() {
+        receivePool = newFixedThreadPool(RECEIVE_THREADS, groupedThreads("onos/ecm", "shared-fg-%d"));
+        publishPool = newFixedThreadPool(PUBLISH_THREADS, groupedThreads("onos/ecm", "shared-publish-%d"));
+        scheduler = newSingleThreadScheduledExecutor(groupedThreads("onos/ecm", "shared-bg-%d"));
+    }
+
+    /**
+     * Allocates the executor lanes of a map, starting the shared executors
+     * if this is the first map.
+     *
+     * @param mapName map name
+     * @return lanes of the map
+     */
+    static synchronized Lanes register(String mapName) {
+        if (instance == null) {
+            instance = new EventuallyConsistentMapRuntime();
+        }
+        Lanes mapLanes = new Lanes(
+                new FairQueueExecutor(instance.receivePool, RECEIVE_THREADS, QUANTUM, LANE_CAPACITY),
+                new FairQueueExecutor(instance.publishPool, PUBLISH_THREADS, QUANTUM, LANE_CAPACITY),
+                new FairQueueExecutor(instance.receivePool, 1, QUANTUM, LANE_CAPACITY),
+                instance.scheduler);
+        Lanes previous = instance.lanes.put(mapName, mapLanes);
+        if (previous != null) {
+            removeGauge(mapName);
+        }
+        registerGauge(mapName, mapLanes);
+        return mapLanes;
+    }
+
+    /**
+     * Releases the executor lanes of a map, shutting the shared executors
+     * down if no other map uses them.
+     *
+     * @param mapName map name
+     * @param mapLanes lanes previously allocated to the map
+     */
+    static synchronized void unregister(String mapName, Lanes mapLanes) {
+        mapLanes.receive.shutdown();
+        mapLanes.publish.shutdown();
+        mapLanes.background.shutdown();
+        if (instance == null || !instance.lanes.remove(mapName, mapLanes)) {
+            return;
+        }
+        removeGauge(mapName);
+        if (instance.lanes.isEmpty()) {
+            instance.receivePool.shutdown();
+            instance.publishPool.shutdown();
+            instance.scheduler.shutdownNow();
+            instance = null;
+        }
+    }
+
+    /**
+     * Sets the metrics service the lane depths are reported to, replacing
+     * the previous one.
+     *
+     * @param service metrics service; null to stop reporting
+     */
+    static synchronized void setMetricsService(MetricsService service) {
+        Map<String, Lanes> current = instance == null ? ImmutableMap.of() : instance.lanes;
+        current.keySet().forEach(EventuallyConsistentMapRuntime::removeGauge);
+        metricsService = service;
+        metricsComponent = service == null ? null : service.registerComponent(COMPONENT);
+        current.forEach(EventuallyConsistentMapRuntime::registerGauge);
+    }
+
+    /**
+     * Returns the number of tasks queued by each map registered with the
+     * shared runtime.
+     *
+     * @return map name to queue depth
+     */
+    public static synchronized Map<String, Integer> queueDepths() {
+        if (instance == null) {
+            return ImmutableMap.of();
+        }
+        ImmutableMap.Builder<String, Integer> depths = ImmutableMap.builder();
+        instance.lanes.forEach((name, mapLanes) -> depths.put(name, mapLanes.queueDepth()));
+        return depths.build();
+    }
+
+    private static void registerGauge(String mapName, Lanes mapLanes) {
+        if (metricsComponent == null) {
+            return;
+        }
+        MetricsFeature feature = metricsComponent.registerFeature(mapName);
+        metricsService.registerMetric(metricsComponent, feature, QUEUE_DEPTH,
+                                      (Gauge<Integer>) mapLanes::queueDepth);
+    }
+
+    private static void removeGauge(String mapName) {
+        if (metricsComponent == null) {
+            return;
+        }
+        metricsService.removeMetric(metricsComponent,
+                                    metricsComponent.registerFeature(mapName), QUEUE_DEPTH);
+    }
+
+    /**
+     * Executor lanes allocated to a single map.
+     */
+    static final class Lanes {
+        final FairQueueExecutor receive;
+        final FairQueueExecutor publish;
+        final FairQueueExecutor background;
+        final ScheduledExecutorService scheduler;
+
+        private Lanes(FairQueueExecutor receive,
+                      FairQueueExecutor publish,
+                      FairQueueExecutor background,
+                      ScheduledExecutorService scheduler) {
+            this.receive = receive;
+            this.publish = publish;
+            this.background = background;
+            this.scheduler = scheduler;
+        }
+
+        int queueDepth() {
+            return receive.queueDepth() + publish.queueDepth() + background.queueDepth();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.ecmap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Executor lane that queues the tasks of a single map and runs them on a
+ * shared delegate executor.
+ * <p>
+ * At most {@code parallelism} drain jobs of a lane are present on the
+ * delegate at any time and each one runs no more than {@code quantum} tasks
+ * before going back to the tail of the delegate queue. Lanes sharing the same
+ * delegate are therefore served round-robin, and a busy map cannot starve
+ * the others.
+ * </p>
+ * <p>
+ * A lane holds at most {@code capacity} queued tasks. A task submitted to a
+ * full lane waits for up to a second for room and then runs on the
+ * submitting thread, which slows the submitter down the same way the
+ * feedback policy of {@link org.onlab.util.BoundedThreadPool} does.
+ * </p>
+ */
+final class FairQueueExecutor extends AbstractExecutorService {
+
+    private static final Logger log = LoggerFactory.getLogger(FairQueueExecutor.class);
+
+    private static final long FULL_WAIT_MILLIS = 1000;
+
+    private final Executor delegate;
+    private final int parallelism;
+    private final int quantum;
+
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final Semaphore room;
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean shutdown = false;
+
+    /**
+     * Creates a new lane over the given delegate executor.
+     *
+     * @param delegate shared executor the tasks are run on
+     * @param parallelism maximum number of tasks of this lane run concurrently
+     * @param quantum maximum number of tasks run per turn
+     * @param capacity maximum number of queued tasks
+     */
+    FairQueueExecutor(Executor delegate, int parallelism, int quantum, int capacity) {
+        checkArgument(parallelism > 0, "Parallelism must be positive");
+        checkArgument(quantum > 0, "Quantum must be positive");
+        checkArgument(capacity > 0, "Capacity must be positive");
+        this.delegate = checkNotNull(delegate);
+        this.parallelism = parallelism;
+        this.quantum = quantum;
+        this.room = new Semaphore(capacity);
+    }
+
+    /**
+     * Returns the number of tasks waiting to be run.
+     *
+     * @return queue depth
+     */
+    int queueDepth() {
+        return depth.get();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        checkNotNull(command);
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        if (!room.tryAcquire()) {
+            boolean acquired = false;
+            try {
+                acquired = room.tryAcquire(FULL_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!acquired) {
+                log.info("Lane full for {} ms; running task on {}",
+                         FULL_WAIT_MILLIS, Thread.currentThread().getName());
+                command.run();
+                return;
+            }
+        }
+        queue.add(command);
+        depth.incrementAndGet();
+        schedule();
+    }
+
+    private void schedule() {
+        while (!queue.isEmpty()) {
+            int current = active.get();
+            if (current >= parallelism) {
+                return;
+            }
+            if (active.compareAndSet(current, current + 1)) {
+                delegate.execute(this::drain);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < quantum && !shutdown; i++) {
+                Runnable task = queue.poll();
+                if (task == null) {
+                    break;
+                }
+                depth.decrementAndGet();
+                room.release();
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.warn("Uncaught exception in queued task", e);
+                }
+            }
+        } finally {
+            active.decrementAndGet();
+            if (!shutdown) {
+                schedule();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> pending = new ArrayList<>();
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            depth.decrementAndGet();
+            room.release();
+            pending.add(task);
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && active.get() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isTerminated()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        return true;
+    }
+}
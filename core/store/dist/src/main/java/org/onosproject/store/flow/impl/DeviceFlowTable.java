@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import com.google.common.collect.ImmutableSet;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.StoredFlowEntry;
+import org.onosproject.net.flow.TrafficSelector;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flow entries of a single device.
+ * <p>
+ * Entries are keyed by flow id, selector, priority and type, so that the
+ * entry matching a flow rule is found in constant time. Reads of the whole
+ * table return an immutable snapshot which is only rebuilt after entries
+ * have been added or removed; updates of the counters of stored entries
+ * do not invalidate it.
+ * </p>
+ */
+final class DeviceFlowTable {
+
+    private final ConcurrentMap<FlowKey, StoredFlowEntry> entries = new ConcurrentHashMap<>();
+
+    // Incremented after every change to the set of entries
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(0, ImmutableSet.of());
+
+    /**
+     * Returns the stored entry matching the specified flow rule.
+     *
+     * @param rule flow rule
+     * @return stored entry; null if there is none
+     */
+    StoredFlowEntry get(FlowRule rule) {
+        return entries.get(new FlowKey(rule));
+    }
+
+    /**
+     * Stores the specified entry, replacing any entry matching it.
+     *
+     * @param entry flow entry
+     */
+    void put(StoredFlowEntry entry) {
+        entries.put(new FlowKey(entry), entry);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Removes the entry matching the specified flow rule.
+     *
+     * @param rule flow rule
+     * @return true if an entry was removed
+     */
+    boolean remove(FlowRule rule) {
+        if (entries.remove(new FlowKey(rule)) != null) {
+            version.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return number of entries
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns an immutable snapshot of the entries.
+     *
+     * @return flow entries
+     */
+    Set<StoredFlowEntry> snapshot() {
+        long current = version.get();
+        Snapshot last = snapshot;
+        if (last.version == current) {
+            return last.entries;
+        }
+        // A concurrent change may already be included; the next read
+        // rebuilds the snapshot anyway as the version will have moved on.
+        Snapshot next = new Snapshot(current, ImmutableSet.copyOf(entries.values()));
+        snapshot = next;
+        return next.entries;
+    }
+
+    private static final class Snapshot {
+        private final long version;
+        private final Set<StoredFlowEntry> entries;
+
+        private Snapshot(long version, Set<StoredFlowEntry> entries) {
+            this.version = version;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * Key of a flow entry within its device table.
+     */
+    private static final class FlowKey {
+        private final FlowId id;
+        private final TrafficSelector selector;
+        private final int priority;
+        private final FlowRule.Type type;
+        private final int hash;
+
+        private FlowKey(FlowRule rule) {
+            this.id = rule.id();
+            this.selector = rule.selector();
+            this.priority = rule.priority();
+            this.type = rule.type();
+            this.hash = Objects.hash(id, selector, priority, type);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof FlowKey)) {
+                return false;
+            }
+            FlowKey that = (FlowKey) obj;
+            return hash == that.hash &&
+                    priority == that.priority &&
+                    Objects.equals(id, that.id) &&
+                    Objects.equals(type, that.type) &&
+                    Objects.equals(selector, that.selector);
+        }
+    }
+}
@@ -16,9 +16,9 @@
 package org.onosproject.store.flow.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import org.apache.commons.lang.math.RandomUtils;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -82,9 +82,7 @@ import java.util.Dictionary;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -354,7 +352,8 @@ public class DistributedFlowRuleStore
         }
 
         if (replicaInfo.master().get().equals(clusterService.getLocalNode().id())) {
-            return flowTable.getFlowEntries(deviceId).stream().collect(Collectors.toSet());
+            // The snapshot is immutable already, so this does not copy it
+            return ImmutableSet.<FlowEntry>copyOf(flowTable.getFlowEntries(deviceId));
         }
 
         log.trace("Forwarding getFlowEntries to {}, which is the primary (master) for device {}",
@@ -687,8 +686,8 @@ public class DistributedFlowRuleStore
             return this;
         }
 
-        private final Map<DeviceId, Map<FlowId, Set<StoredFlowEntry>>>
-                flowEntries = Maps.newConcurrentMap();
+        private final ConcurrentMap<DeviceId, DeviceFlowTable> flowEntries =
+                Maps.newConcurrentMap();
 
         private final KryoNamespace.Builder flowSerializer = KryoNamespace.newBuilder()
                 .register(KryoNamespaces.API)
@@ -704,7 +703,9 @@ public class DistributedFlowRuleStore
                         clusterCommunicator,
                         flowSerializer,
                         clockService,
-                        (key, flowEntry) -> getPeerNodes()).withTombstonesDisabled(true);
+                        (key, flowEntry) -> getPeerNodes())
+                        .withTombstonesDisabled(true)
+                        .withDigestAntiEntropy(true);
 
         private Collection<NodeId> getPeerNodes() {
             List<NodeId> nodes = clusterService.getNodes()
@@ -726,54 +727,28 @@ public class DistributedFlowRuleStore
                 return;
             }
 
-            ConcurrentMap<FlowId, Set<StoredFlowEntry>> flowTable = new ConcurrentHashMap<>();
-
+            DeviceFlowTable flowTable = new DeviceFlowTable();
             backupMap.values()
                 .stream()
                 .filter(entry -> entry.deviceId().equals(deviceId))
-                .forEach(entry -> flowTable.computeIfPresent(entry.id(), (k, v) -> {
-                    if (v == null) {
-                        return Sets.newHashSet(entry);
-                    } else {
-                        v.add(entry);
-                    }
-                    return v;
-                }));
+                .forEach(flowTable::put);
             flowEntries.putIfAbsent(deviceId, flowTable);
         }
 
-        private Set<StoredFlowEntry> getFlowEntriesInternal(DeviceId deviceId, FlowId flowId) {
-            return flowEntries
-                        .computeIfAbsent(deviceId, key -> Maps.newConcurrentMap())
-                        .computeIfAbsent(flowId, k -> new CopyOnWriteArraySet<>());
-        }
-
-        private StoredFlowEntry getFlowEntryInternal(FlowRule rule) {
-            return getFlowEntriesInternal(rule.deviceId(), rule.id())
-                .stream()
-                .filter(element -> element.equals(rule))
-                .findFirst()
-                .orElse(null);
-        }
-
-        private Set<StoredFlowEntry> getFlowEntriesInternal(DeviceId deviceId) {
-            Set<StoredFlowEntry> entries = Sets.newHashSet();
-            flowEntries.computeIfAbsent(deviceId, key -> Maps.newConcurrentMap())
-                        .values()
-                        .forEach(entries::addAll);
-            return entries;
+        private DeviceFlowTable getDeviceTable(DeviceId deviceId) {
+            return flowEntries.computeIfAbsent(deviceId, key -> new DeviceFlowTable());
         }
 
         public StoredFlowEntry getFlowEntry(FlowRule rule) {
-            return getFlowEntryInternal(rule);
+            return getDeviceTable(rule.deviceId()).get(rule);
         }
 
         public Set<StoredFlowEntry> getFlowEntries(DeviceId deviceId) {
-            return getFlowEntriesInternal(deviceId);
+            return getDeviceTable(deviceId).snapshot();
         }
 
         public void add(StoredFlowEntry rule) {
-            getFlowEntriesInternal(rule.deviceId(), rule.id()).add(rule);
+            getDeviceTable(rule.deviceId()).put(rule);
             if (backupsEnabled) {
                 try {
                     backupMap.put(rule.id(), rule);
@@ -784,8 +759,7 @@ public class DistributedFlowRuleStore
         }
 
         public boolean remove(DeviceId deviceId, FlowEntry rule) {
-            boolean status =
-                    getFlowEntriesInternal(deviceId, rule.id()).remove(rule);
+            boolean status = getDeviceTable(deviceId).remove(rule);
             if (backupsEnabled && status) {
                 try {
                     backupMap.remove(rule.id(), (DefaultFlowEntry) rule);
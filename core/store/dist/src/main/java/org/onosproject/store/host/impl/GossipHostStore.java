@@ -117,6 +117,18 @@ public class GossipHostStore
         = synchronizedSetMultimap(newSetMultimap(new ConcurrentHashMap<>(),
                                                  () -> newConcurrentHashSet()));
 
+    // Hosts tracked by their addresses and VLAN; these, like the locations,
+    // are only updated together with the inventory while holding this store
+    private final Multimap<IpAddress, Host> ipAddresses
+        = synchronizedSetMultimap(newSetMultimap(new ConcurrentHashMap<>(),
+                                                 () -> newConcurrentHashSet()));
+    private final Multimap<MacAddress, Host> macAddresses
+        = synchronizedSetMultimap(newSetMultimap(new ConcurrentHashMap<>(),
+                                                 () -> newConcurrentHashSet()));
+    private final Multimap<VlanId, Host> vlans
+        = synchronizedSetMultimap(newSetMultimap(new ConcurrentHashMap<>(),
+                                                 () -> newConcurrentHashSet()));
+
     private final SetMultimap<ConnectPoint, PortAddresses> portAddresses =
             Multimaps.synchronizedSetMultimap(
                     HashMultimap.<ConnectPoint, PortAddresses>create());
@@ -192,6 +204,9 @@ public class GossipHostStore
         hosts.clear();
         removedHosts.clear();
         locations.clear();
+        ipAddresses.clear();
+        macAddresses.clear();
+        vlans.clear();
         portAddresses.clear();
 
         log.info("Stopped");
@@ -257,7 +272,7 @@ public class GossipHostStore
                 // concurrent add detected, retry from start
                 return updateHost(providerId, hostId, concAdd, descr, timestamp);
             }
-            locations.put(descr.location(), newhost);
+            index(newhost);
             return new HostEvent(HOST_ADDED, newhost);
         }
     }
@@ -305,8 +320,8 @@ public class GossipHostStore
                     // concurrent update, retry
                     return createOrUpdateHostInternal(providerId, hostId, descr, timestamp);
                 }
-                locations.remove(oldHost.location(), oldHost);
-                locations.put(updated.location(), updated);
+                unindex(oldHost);
+                index(updated);
 
                 HostEvent.Type eventType;
                 if (hostMoved) {
@@ -320,6 +335,28 @@ public class GossipHostStore
         return null;
     }
 
+    // Adds the host to the location, address and VLAN indexes; must be
+    // invoked while holding this store.
+    private void index(Host host) {
+        locations.put(host.location(), host);
+        for (IpAddress ip : host.ipAddresses()) {
+            ipAddresses.put(ip, host);
+        }
+        macAddresses.put(host.mac(), host);
+        vlans.put(host.vlan(), host);
+    }
+
+    // Removes the host from the location, address and VLAN indexes; must be
+    // invoked while holding this store.
+    private void unindex(Host host) {
+        locations.remove(host.location(), host);
+        for (IpAddress ip : host.ipAddresses()) {
+            ipAddresses.remove(ip, host);
+        }
+        macAddresses.remove(host.mac(), host);
+        vlans.remove(host.vlan(), host);
+    }
+
     @Override
     public HostEvent removeHost(HostId hostId) {
         Timestamp timestamp = hostClockService.getTimestamp(hostId);
@@ -335,7 +372,7 @@ public class GossipHostStore
         synchronized (this) {
             Host host = hosts.remove(hostId);
             if (host != null) {
-                locations.remove((host.location()), host);
+                unindex(host);
                 removedHosts.put(hostId, new Timestamped<>(host, timestamp));
                 return new HostEvent(HOST_REMOVED, host);
             }
@@ -360,35 +397,17 @@ public class GossipHostStore
 
     @Override
     public Set<Host> getHosts(VlanId vlanId) {
-        Set<Host> vlanset = new HashSet<>();
-        for (Host h : hosts.values()) {
-            if (h.vlan().equals(vlanId)) {
-                vlanset.add(h);
-            }
-        }
-        return vlanset;
+        return ImmutableSet.copyOf(vlans.get(vlanId));
     }
 
     @Override
     public Set<Host> getHosts(MacAddress mac) {
-        Set<Host> macset = new HashSet<>();
-        for (Host h : hosts.values()) {
-            if (h.mac().equals(mac)) {
-                macset.add(h);
-            }
-        }
-        return macset;
+        return ImmutableSet.copyOf(macAddresses.get(mac));
     }
 
     @Override
     public Set<Host> getHosts(IpAddress ip) {
-        Set<Host> ipset = new HashSet<>();
-        for (Host h : hosts.values()) {
-            if (h.ipAddresses().contains(ip)) {
-                ipset.add(h);
-            }
-        }
-        return ipset;
+        return ImmutableSet.copyOf(ipAddresses.get(ip));
     }
 
     @Override
@@ -15,12 +15,17 @@
  */
 package org.onosproject.store.intent.impl;
 
+import com.google.common.hash.Hashing;
+import org.onlab.util.KryoNamespace;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.cluster.ClusterEvent;
 import org.onosproject.cluster.ClusterEventListener;
 import org.onosproject.cluster.ClusterService;
@@ -32,18 +37,43 @@ import org.onosproject.cluster.LeadershipService;
 import org.onosproject.cluster.NodeId;
 import org.onosproject.net.intent.Key;
 import org.onosproject.net.intent.PartitionService;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.onosproject.store.service.ConsistentMap;
+import org.onosproject.store.service.Serializer;
+import org.onosproject.store.service.StorageService;
+import org.onosproject.store.service.Versioned;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Dictionary;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static org.onlab.util.Tools.get;
+
 /**
  * Manages the assignment of intent keyspace partitions to instances.
+ * <p>
+ * Intent keys are spread over the partitions by consistent hashing, and
+ * the partitions are spread over the active instances by a consistent-hash
+ * ring, so that both mappings change as little as possible when the
+ * partition count or the set of instances changes. Every instance runs for
+ * the leadership of every partition, and gives up the partitions it leads
+ * but that the ring assigns to another instance.
+ * </p>
+ * <p>
+ * All instances must agree on the partition count, so the count is kept in
+ * the consistent store: the first instance to start records its configured
+ * count there, and the others adopt it. The count cannot be changed while
+ * the instances are running.
+ * </p>
  */
 @Component(immediate = true)
 @Service
@@ -57,11 +87,42 @@ public class PartitionManager implements PartitionService {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected ClusterService clusterService;
 
-    private static final int NUM_PARTITIONS = 14;
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ComponentConfigService configService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected StorageService storageService;
+
+    private static final int DEFAULT_PARTITION_COUNT = 14;
+    private static final int VIRTUAL_NODES = 64;
     private static final int BACKOFF_TIME = 2;
     private static final int CHECK_PERIOD = 10;
 
-    private static final String ELECTION_PREFIX = "intent-partition-";
+    @Property(name = "partitionCount", intValue = DEFAULT_PARTITION_COUNT,
+            label = "Number of partitions of the intent keyspace; " +
+                    "used only if no instance of the cluster has recorded one yet")
+    private int partitionCount = DEFAULT_PARTITION_COUNT;
+
+    // Number of key lookups that fell into each partition
+    private AtomicLongArray partitionLookups;
+
+    private static final String CONFIG_MAP_NAME = "onos-intent-partition-config";
+    private static final String PARTITION_COUNT_KEY = "partitionCount";
+
+    private static final Serializer SERIALIZER = new Serializer() {
+        KryoNamespace kryo = new KryoNamespace.Builder()
+                .register(KryoNamespaces.BASIC).build();
+
+        @Override
+        public <T> byte[] encode(T object) {
+            return kryo.serialize(object);
+        }
+
+        @Override
+        public <T> T decode(byte[] bytes) {
+            return kryo.deserialize(bytes);
+        }
+    };
 
     private LeadershipEventListener leaderListener = new InternalLeadershipListener();
     private ClusterEventListener clusterListener = new InternalClusterEventListener();
@@ -70,11 +131,16 @@ public class PartitionManager implements PartitionService {
             .newScheduledThreadPool(1);
 
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
+        configService.registerProperties(getClass());
+        partitionCount = agreePartitionCount(getConfiguredPartitionCount(context));
+        partitionLookups = new AtomicLongArray(partitionCount);
+        log.info("Using {} partitions", partitionCount);
+
         leadershipService.addListener(leaderListener);
         clusterService.addListener(clusterListener);
 
-        for (int i = 0; i < NUM_PARTITIONS; i++) {
+        for (int i = 0; i < partitionCount; i++) {
             leadershipService.runForLeadership(getPartitionPath(i));
         }
 
@@ -86,12 +152,58 @@ public class PartitionManager implements PartitionService {
     public void deactivate() {
         executor.shutdownNow();
 
+        configService.unregisterProperties(getClass(), false);
         leadershipService.removeListener(leaderListener);
         clusterService.removeListener(clusterListener);
     }
 
+    @Modified
+    public void modified(ComponentContext context) {
+        int configured = getConfiguredPartitionCount(context);
+        if (configured != partitionCount) {
+            log.warn("Partition count is shared by the cluster and cannot be " +
+                             "changed at runtime; keeping {} partitions", partitionCount);
+        }
+    }
+
+    // Returns the partition count set in the component configuration.
+    private int getConfiguredPartitionCount(ComponentContext context) {
+        int configured = DEFAULT_PARTITION_COUNT;
+        if (context != null) {
+            Dictionary properties = context.getProperties();
+            try {
+                String s = get(properties, "partitionCount");
+                configured = isNullOrEmpty(s) ? DEFAULT_PARTITION_COUNT : Integer.parseInt(s.trim());
+            } catch (NumberFormatException | ClassCastException e) {
+                configured = DEFAULT_PARTITION_COUNT;
+            }
+        }
+        return configured < 1 ? DEFAULT_PARTITION_COUNT : configured;
+    }
+
+    /**
+     * Records the configured partition count in the consistent store unless
+     * another instance recorded one already, and returns the recorded count.
+     *
+     * @param configured partition count configured on this instance
+     * @return partition count used by the cluster
+     */
+    private int agreePartitionCount(int configured) {
+        ConsistentMap<String, Integer> config =
+                storageService.createConsistentMap(CONFIG_MAP_NAME, SERIALIZER);
+        Versioned<Integer> recorded = config.putIfAbsent(PARTITION_COUNT_KEY, configured);
+        if (recorded == null) {
+            return configured;
+        }
+        if (recorded.value() != configured) {
+            log.warn("Ignoring configured partition count {}; the cluster uses {}",
+                     configured, recorded.value());
+        }
+        return recorded.value();
+    }
+
     private String getPartitionPath(int i) {
-        return ELECTION_PREFIX + i;
+        return PARTITION_TOPIC_PREFIX + i;
     }
 
     private String getPartitionPath(PartitionId id) {
@@ -99,13 +211,9 @@ public class PartitionManager implements PartitionService {
     }
 
     private PartitionId getPartitionForKey(Key intentKey) {
-        int partition = Math.abs((int) intentKey.hash()) % NUM_PARTITIONS;
-        //TODO investigate Guava consistent hash method
-        // ... does it add significant computational complexity? is it worth it?
-        //int partition = consistentHash(intentKey.hash(), NUM_PARTITIONS);
-        PartitionId id = new PartitionId(partition);
-        log.debug("Getting partition for {}: {}", intentKey, id); //FIXME debug
-        return id;
+        int partition = getPartition(intentKey);
+        partitionLookups.incrementAndGet(partition);
+        return new PartitionId(partition);
     }
 
     @Override
@@ -119,6 +227,27 @@ public class PartitionManager implements PartitionService {
         return leadershipService.getLeader(getPartitionPath(getPartitionForKey(intentKey)));
     }
 
+    @Override
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    @Override
+    public int getPartition(Key intentKey) {
+        // Consistent hashing moves few keys when the partition count changes
+        return Hashing.consistentHash(intentKey.hash(), partitionCount);
+    }
+
+    @Override
+    public NodeId getPartitionLeader(int partition) {
+        return leadershipService.getLeader(getPartitionPath(partition));
+    }
+
+    @Override
+    public long getPartitionLookupCount(int partition) {
+        return partition < partitionCount ? partitionLookups.get(partition) : 0;
+    }
+
     private void doRelinquish() {
         try {
             relinquish();
@@ -128,35 +257,46 @@ public class PartitionManager implements PartitionService {
     }
 
     /**
-     * Determine whether we have more than our fair share of partitions, and if
-     * so, relinquish leadership of some of them for a little while to let
-     * other instances take over.
+     * Determine which of the partitions we lead are assigned to other
+     * instances by the consistent-hash ring, and relinquish leadership of
+     * them for a little while to let those instances take over.
      */
     private void relinquish() {
-        int activeNodes = (int) clusterService.getNodes()
+        List<NodeId> activeNodes = clusterService.getNodes()
                 .stream()
                 .filter(n -> clusterService.getState(n.id())
                         == ControllerNode.State.ACTIVE)
-                .count();
+                .map(ControllerNode::id)
+                .collect(Collectors.toList());
 
-        int myShare = (int) Math.ceil((double) NUM_PARTITIONS / activeNodes);
+        NodeId localNodeId = clusterService.getLocalNode().id();
+        PartitionRing ring = new PartitionRing(activeNodes, partitionCount, VIRTUAL_NODES);
 
         List<Leadership> myPartitions = leadershipService.getLeaderBoard().values()
                 .stream()
-                .filter(l -> clusterService.getLocalNode().id().equals(l.leader()))
-                .filter(l -> l.topic().startsWith(ELECTION_PREFIX))
+                .filter(l -> localNodeId.equals(l.leader()))
+                .filter(l -> l.topic().startsWith(PARTITION_TOPIC_PREFIX))
                 .collect(Collectors.toList());
 
-        int relinquish = myPartitions.size() - myShare;
-
-        if (relinquish <= 0) {
-            return;
-        }
+        for (Leadership leadership : myPartitions) {
+            String topic = leadership.topic();
+            int partition;
+            try {
+                partition = Integer.parseInt(topic.substring(PARTITION_TOPIC_PREFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (partition >= ring.partitionCount()) {
+                // No longer a partition; left over from a larger count
+                leadershipService.withdraw(topic);
+                continue;
+            }
+            NodeId owner = ring.owner(partition);
+            if (owner == null || owner.equals(localNodeId)) {
+                continue;
+            }
 
-        for (int i = 0; i < relinquish; i++) {
-            String topic = myPartitions.get(i).topic();
             leadershipService.withdraw(topic);
-
             executor.schedule(() -> recontest(topic),
                               BACKOFF_TIME, TimeUnit.SECONDS);
         }
@@ -168,7 +308,10 @@ public class PartitionManager implements PartitionService {
      * @param path topic name to recontest
      */
     private void recontest(String path) {
-        leadershipService.runForLeadership(path);
+        int partition = Integer.parseInt(path.substring(PARTITION_TOPIC_PREFIX.length()));
+        if (partition < partitionCount) {
+            leadershipService.runForLeadership(path);
+        }
     }
 
     private final class InternalLeadershipListener implements LeadershipEventListener {
@@ -178,7 +321,7 @@ public class PartitionManager implements PartitionService {
             Leadership leadership = event.subject();
 
             if (Objects.equals(leadership.leader(), clusterService.getLocalNode().id()) &&
-                    leadership.topic().startsWith(ELECTION_PREFIX)) {
+                    leadership.topic().startsWith(PARTITION_TOPIC_PREFIX)) {
 
                 // See if we need to let some partitions go
                 relinquish();
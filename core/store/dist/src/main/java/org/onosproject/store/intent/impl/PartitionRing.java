@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.intent.impl;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.onosproject.cluster.NodeId;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Consistent-hash ring assigning intent partitions to instances.
+ * <p>
+ * Each instance is placed on the ring at several points, its virtual
+ * nodes, and each partition is assigned to the instance owning the first
+ * point clockwise from the partition's own point. When an instance joins
+ * or leaves, only the partitions it takes or gives up change hands.
+ * </p><p>
+ * As partitions are few, the ring also bounds the load of each instance
+ * to its fair share, rounded up: a partition whose instance already holds
+ * that many goes to the next instance clockwise that holds fewer. The
+ * assignment depends only on the set of instances, so all instances
+ * compute the same one.
+ * </p>
+ */
+final class PartitionRing {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final NavigableMap<Long, NodeId> ring = new TreeMap<>();
+    private final NodeId[] owners;
+
+    /**
+     * Creates the assignment of the specified number of partitions to the
+     * specified instances.
+     *
+     * @param nodes          instances sharing the partitions
+     * @param partitionCount number of partitions
+     * @param virtualNodes   number of points of each instance on the ring
+     */
+    PartitionRing(Collection<NodeId> nodes, int partitionCount, int virtualNodes) {
+        checkArgument(partitionCount > 0, "Partition count must be positive");
+        checkArgument(virtualNodes > 0, "Virtual node count must be positive");
+        for (NodeId node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node.toString() + "#" + i), node);
+            }
+        }
+        owners = new NodeId[partitionCount];
+        if (ring.isEmpty()) {
+            return;
+        }
+
+        int share = (partitionCount + nodes.size() - 1) / nodes.size();
+        Map<NodeId, Integer> loads = new HashMap<>();
+        for (int p = 0; p < partitionCount; p++) {
+            Map.Entry<Long, NodeId> point = ring.ceilingEntry(hash("partition-" + p));
+            while (true) {
+                if (point == null) {
+                    point = ring.firstEntry();
+                }
+                if (loads.getOrDefault(point.getValue(), 0) < share) {
+                    break;
+                }
+                point = ring.higherEntry(point.getKey());
+            }
+            owners[p] = point.getValue();
+            loads.merge(point.getValue(), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Returns the number of partitions.
+     *
+     * @return partition count
+     */
+    int partitionCount() {
+        return owners.length;
+    }
+
+    /**
+     * Returns the instance the specified partition is assigned to.
+     *
+     * @param partition partition number
+     * @return instance; null if there are no instances
+     */
+    NodeId owner(int partition) {
+        return owners[partition];
+    }
+
+    private static long hash(String point) {
+        return HASH.hashString(point, Charsets.UTF_8).asLong();
+    }
+}
@@ -18,11 +18,9 @@ package org.onosproject.store.resource.impl;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -47,15 +45,12 @@ import org.onosproject.net.resource.MplsLabel;
 import org.onosproject.net.resource.MplsLabelResourceAllocation;
 import org.onosproject.net.resource.ResourceAllocation;
 import org.onosproject.net.resource.ResourceAllocationException;
-import org.onosproject.net.resource.ResourceType;
 import org.onosproject.store.StoreDelegate;
 import org.onosproject.store.hz.AbstractHazelcastStore;
 import org.onosproject.store.hz.STxMap;
 import org.slf4j.Logger;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
 import com.hazelcast.config.Config;
 import com.hazelcast.config.MapConfig;
 import com.hazelcast.core.TransactionalMap;
@@ -65,7 +60,6 @@ import com.hazelcast.transaction.TransactionOptions;
 import com.hazelcast.transaction.TransactionOptions.TransactionType;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.base.Preconditions.checkState;
 import static org.slf4j.LoggerFactory.getLogger;
 
 /**
@@ -82,7 +76,8 @@ public class HazelcastLinkResourceStore
 
     private static final Bandwidth DEFAULT_BANDWIDTH = Bandwidth.mbps(1_000);
 
-    private static final Bandwidth EMPTY_BW = Bandwidth.bps(0);
+    // MPLS labels 0 through 15 are reserved
+    private static final int MIN_MPLS_LABEL = 16;
 
     // table to store current allocations
     /** LinkKey -> List<LinkResourceAllocations>. */
@@ -139,33 +134,16 @@ public class HazelcastLinkResourceStore
         return new STxMap<>(raw, serializer);
     }
 
-    private Set<? extends ResourceAllocation> getResourceCapacity(ResourceType type, Link link) {
-        if (type == ResourceType.BANDWIDTH) {
-            return ImmutableSet.of(getBandwidthResourceCapacity(link));
-        }
-        if (type == ResourceType.LAMBDA) {
-            return getLambdaResourceCapacity(link);
-        }
-        if (type == ResourceType.MPLS_LABEL) {
-            return getMplsResourceCapacity();
-        }
-        return null;
-    }
-
-    private Set<LambdaResourceAllocation> getLambdaResourceCapacity(Link link) {
-        Set<LambdaResourceAllocation> allocations = new HashSet<>();
+    private int getLambdaCount(Link link) {
         try {
-            final int waves = Integer.parseInt(link.annotations().value(wavesAnnotation));
-            for (int i = 1; i <= waves; i++) {
-                allocations.add(new LambdaResourceAllocation(Lambda.valueOf(i)));
-            }
+            return Integer.parseInt(link.annotations().value(wavesAnnotation));
         } catch (NumberFormatException e) {
-            log.debug("No {} annotation on link %s", wavesAnnotation, link);
+            log.debug("No {} annotation on link {}", wavesAnnotation, link);
+            return 0;
         }
-        return allocations;
     }
 
-    private BandwidthResourceAllocation getBandwidthResourceCapacity(Link link) {
+    private Bandwidth getBandwidthCapacity(Link link) {
 
         // if Link annotation exist, use them
         // if all fails, use DEFAULT_BANDWIDTH
@@ -185,147 +163,59 @@ public class HazelcastLinkResourceStore
             // fall back, use fixed default
             bandwidth = DEFAULT_BANDWIDTH;
         }
-        return new BandwidthResourceAllocation(bandwidth);
+        return bandwidth;
     }
 
-    private Set<MplsLabelResourceAllocation> getMplsResourceCapacity() {
-        Set<MplsLabelResourceAllocation> allocations = new HashSet<>();
-        //Ignoring reserved labels of 0 through 15
-        for (int i = 16; i <= maxMplsLabel; i++) {
-            allocations.add(new MplsLabelResourceAllocation(MplsLabel
-                    .valueOf(i)));
+    @Override
+    public Set<ResourceAllocation> getFreeResources(Link link) {
+        return readResourcePool(link).freeResources();
+    }
 
-        }
-        return allocations;
+    @Override
+    public Bandwidth getFreeBandwidth(Link link) {
+        return readResourcePool(link).freeBandwidth();
     }
 
-    private Map<ResourceType, Set<? extends ResourceAllocation>> getResourceCapacity(Link link) {
-        Map<ResourceType, Set<? extends ResourceAllocation>> caps = new HashMap<>();
-        for (ResourceType type : ResourceType.values()) {
-            Set<? extends ResourceAllocation> cap = getResourceCapacity(type, link);
-            if (cap != null) {
-                caps.put(type, cap);
-            }
-        }
-        return caps;
+    @Override
+    public Set<Lambda> getFreeLambdas(Link link) {
+        return readResourcePool(link).freeLambdas().stream()
+                .mapToObj(Lambda::valueOf)
+                .collect(Collectors.toSet());
     }
 
     @Override
-    public Set<ResourceAllocation> getFreeResources(Link link) {
+    public MplsLabel getFreeMplsLabel(Link link) {
+        int label = readResourcePool(link).nextFreeLabel(MIN_MPLS_LABEL);
+        return label != -1 ? MplsLabel.valueOf(label) : null;
+    }
+
+    // Returns the current resources of the link, outside of any update.
+    private LinkResourcePool readResourcePool(Link link) {
         TransactionOptions opt = new TransactionOptions();
         // read-only and will never be commited, thus does not need durability
         opt.setTransactionType(TransactionType.LOCAL);
         TransactionContext tx = theInstance.newTransactionContext(opt);
         tx.beginTransaction();
         try {
-            Map<ResourceType, Set<? extends ResourceAllocation>> freeResources = getFreeResourcesEx(tx, link);
-            Set<ResourceAllocation> allFree = new HashSet<>();
-            for (Set<? extends ResourceAllocation> r : freeResources.values()) {
-                allFree.addAll(r);
-            }
-            return allFree;
+            return getResourcePool(tx, link);
         } finally {
             tx.rollbackTransaction();
         }
-
     }
 
-    private Map<ResourceType, Set<? extends ResourceAllocation>> getFreeResourcesEx(TransactionContext tx, Link link) {
-        // returns capacity - allocated
+    private LinkResourcePool getResourcePool(TransactionContext tx, Link link) {
+        // capacity - allocated, built from the allocations only
 
         checkNotNull(link);
-        Map<ResourceType, Set<? extends ResourceAllocation>> free = new HashMap<>();
-        final Map<ResourceType, Set<? extends ResourceAllocation>> caps = getResourceCapacity(link);
-        final Iterable<LinkResourceAllocations> allocations = getAllocations(tx, link);
-
-        for (ResourceType type : ResourceType.values()) {
-            // there should be class/category of resources
-            switch (type) {
-            case BANDWIDTH:
-            {
-                Set<? extends ResourceAllocation> bw = caps.get(ResourceType.BANDWIDTH);
-                if (bw == null || bw.isEmpty()) {
-                    bw = Sets.newHashSet(new BandwidthResourceAllocation(EMPTY_BW));
-                }
-
-                BandwidthResourceAllocation cap = (BandwidthResourceAllocation) bw.iterator().next();
-                double freeBw = cap.bandwidth().toDouble();
-
-                // enumerate current allocations, subtracting resources
-                for (LinkResourceAllocations alloc : allocations) {
-                    Set<ResourceAllocation> types = alloc.getResourceAllocation(link);
-                    for (ResourceAllocation a : types) {
-                        if (a instanceof BandwidthResourceAllocation) {
-                            BandwidthResourceAllocation bwA = (BandwidthResourceAllocation) a;
-                            freeBw -= bwA.bandwidth().toDouble();
-                        }
-                    }
-                }
-
-                free.put(type, Sets.newHashSet(new BandwidthResourceAllocation(Bandwidth.bps(freeBw))));
-                break;
-            }
-
-            case LAMBDA:
-            {
-                Set<? extends ResourceAllocation> lmd = caps.get(type);
-                if (lmd == null || lmd.isEmpty()) {
-                    // nothing left
-                    break;
-                }
-                Set<LambdaResourceAllocation> freeL = new HashSet<>();
-                for (ResourceAllocation r : lmd) {
-                    if (r instanceof LambdaResourceAllocation) {
-                        freeL.add((LambdaResourceAllocation) r);
-                    }
-                }
-
-                // enumerate current allocations, removing resources
-                for (LinkResourceAllocations alloc : allocations) {
-                    Set<ResourceAllocation> types = alloc.getResourceAllocation(link);
-                    for (ResourceAllocation a : types) {
-                        if (a instanceof LambdaResourceAllocation) {
-                            freeL.remove(a);
-                        }
-                    }
-                }
-
-                free.put(type, freeL);
-                break;
-            }
-
-            case MPLS_LABEL:
-                Set<? extends ResourceAllocation> mpls = caps.get(type);
-                if (mpls == null || mpls.isEmpty()) {
-                    // nothing left
-                    break;
-                }
-                Set<MplsLabelResourceAllocation> freeLabel = new HashSet<>();
-                for (ResourceAllocation r : mpls) {
-                    if (r instanceof MplsLabelResourceAllocation) {
-                        freeLabel.add((MplsLabelResourceAllocation) r);
-                    }
-                }
-
-                // enumerate current allocations, removing resources
-                for (LinkResourceAllocations alloc : allocations) {
-                    Set<ResourceAllocation> types = alloc
-                            .getResourceAllocation(link);
-                    for (ResourceAllocation a : types) {
-                        if (a instanceof MplsLabelResourceAllocation) {
-                            freeLabel.remove(a);
-                        }
-                    }
-                }
-
-                free.put(type, freeLabel);
-                break;
-
-            default:
-                break;
+        LinkResourcePool pool = new LinkResourcePool(getBandwidthCapacity(link),
+                                                     getLambdaCount(link),
+                                                     MIN_MPLS_LABEL, maxMplsLabel);
+        for (LinkResourceAllocations alloc : getAllocations(tx, link)) {
+            for (ResourceAllocation a : alloc.getResourceAllocation(link)) {
+                pool.allocate(a);
             }
         }
-        return free;
+        return pool;
     }
 
     @Override
@@ -366,18 +256,12 @@ public class HazelcastLinkResourceStore
         // requested resources
         Set<ResourceAllocation> reqs = allocations.getResourceAllocation(link);
 
-        Map<ResourceType, Set<? extends ResourceAllocation>> available = getFreeResourcesEx(tx, link);
+        LinkResourcePool pool = getResourcePool(tx, link);
         for (ResourceAllocation req : reqs) {
-            Set<? extends ResourceAllocation> avail = available.get(req.type());
             if (req instanceof BandwidthResourceAllocation) {
                 // check if allocation should be accepted
-                if (avail.isEmpty()) {
-                    checkState(!avail.isEmpty(),
-                               "There's no Bandwidth resource on %s?",
-                               link);
-                }
-                BandwidthResourceAllocation bw = (BandwidthResourceAllocation) avail.iterator().next();
-                double bwLeft = bw.bandwidth().toDouble();
+                Bandwidth bw = pool.freeBandwidth();
+                double bwLeft = bw.toDouble();
                 BandwidthResourceAllocation bwReq = ((BandwidthResourceAllocation) req);
                 bwLeft -= bwReq.bandwidth().toDouble();
                 if (bwLeft < 0) {
@@ -392,7 +276,7 @@ public class HazelcastLinkResourceStore
             } else if (req instanceof LambdaResourceAllocation) {
                 LambdaResourceAllocation lambdaAllocation = (LambdaResourceAllocation) req;
                 // check if allocation should be accepted
-                if (!avail.contains(req)) {
+                if (!pool.isFree(req)) {
                     // requested lambda was not available
                     throw new ResourceAllocationException(
                             PositionalParameterStringFormatter.format(
@@ -402,7 +286,7 @@ public class HazelcastLinkResourceStore
                 }
             } else if (req instanceof MplsLabelResourceAllocation) {
                 MplsLabelResourceAllocation mplsAllocation = (MplsLabelResourceAllocation) req;
-                if (!avail.contains(req)) {
+                if (!pool.isFree(req)) {
                     throw new ResourceAllocationException(
                                                           PositionalParameterStringFormatter
                                                                   .format("Unable to allocate MPLS label for link "
@@ -413,6 +297,7 @@ public class HazelcastLinkResourceStore
                                                                                   .toString()));
                 }
             }
+            pool.allocate(req);
         }
         // all requests allocatable => add allocation
         final LinkKey linkKey = LinkKey.linkKey(link);
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.resource.impl;
+
+import org.onosproject.net.resource.Bandwidth;
+import org.onosproject.net.resource.BandwidthResourceAllocation;
+import org.onosproject.net.resource.Lambda;
+import org.onosproject.net.resource.LambdaResourceAllocation;
+import org.onosproject.net.resource.MplsLabel;
+import org.onosproject.net.resource.MplsLabelResourceAllocation;
+import org.onosproject.net.resource.ResourceAllocation;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Resources of a single link.
+ * <p>
+ * Lambdas and MPLS labels in use are tracked as bits of a bitmap and the
+ * bandwidth in use as a single counter, so neither the capacity nor the
+ * free resources of the link are ever enumerated as allocation objects.
+ * Allocating, releasing and checking a resource, as well as finding the
+ * next free lambda or label, do not depend on the size of the pools.
+ * </p>
+ */
+final class LinkResourcePool {
+
+    private final double bandwidthCapacity;
+    private double bandwidthInUse;
+
+    // Lambdas are numbered from 1 up to the lambda count
+    private final int lambdaCount;
+    private final BitSet lambdasInUse = new BitSet();
+
+    private final int minLabel;
+    private final int maxLabel;
+    private final BitSet labelsInUse = new BitSet();
+
+    /**
+     * Creates a pool with nothing in use.
+     *
+     * @param bandwidth   bandwidth capacity of the link
+     * @param lambdaCount number of lambdas of the link
+     * @param minLabel    smallest MPLS label of the link
+     * @param maxLabel    largest MPLS label of the link
+     */
+    LinkResourcePool(Bandwidth bandwidth, int lambdaCount, int minLabel, int maxLabel) {
+        checkArgument(lambdaCount >= 0, "Lambda count must not be negative");
+        checkArgument(minLabel <= maxLabel + 1, "Invalid MPLS label range");
+        this.bandwidthCapacity = bandwidth.toDouble();
+        this.lambdaCount = lambdaCount;
+        this.minLabel = minLabel;
+        this.maxLabel = maxLabel;
+    }
+
+    /**
+     * Marks the specified resource as in use. Resources of other types
+     * and lambdas or labels outside of the pool are ignored.
+     *
+     * @param allocation resource allocation
+     */
+    void allocate(ResourceAllocation allocation) {
+        update(allocation, true);
+    }
+
+    /**
+     * Marks the specified resource as free again.
+     *
+     * @param allocation resource allocation
+     */
+    void release(ResourceAllocation allocation) {
+        update(allocation, false);
+    }
+
+    private void update(ResourceAllocation allocation, boolean inUse) {
+        if (allocation instanceof BandwidthResourceAllocation) {
+            double bw = ((BandwidthResourceAllocation) allocation).bandwidth().toDouble();
+            bandwidthInUse += inUse ? bw : -bw;
+        } else if (allocation instanceof LambdaResourceAllocation) {
+            int lambda = lambda((LambdaResourceAllocation) allocation);
+            if (isLambda(lambda)) {
+                lambdasInUse.set(lambda, inUse);
+            }
+        } else if (allocation instanceof MplsLabelResourceAllocation) {
+            int label = label((MplsLabelResourceAllocation) allocation);
+            if (isLabel(label)) {
+                labelsInUse.set(label - minLabel, inUse);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the specified lambda or MPLS label is part of the pool
+     * and not in use.
+     *
+     * @param allocation lambda or MPLS label allocation
+     * @return true if the resource is free
+     */
+    boolean isFree(ResourceAllocation allocation) {
+        if (allocation instanceof LambdaResourceAllocation) {
+            int lambda = lambda((LambdaResourceAllocation) allocation);
+            return isLambda(lambda) && !lambdasInUse.get(lambda);
+        } else if (allocation instanceof MplsLabelResourceAllocation) {
+            int label = label((MplsLabelResourceAllocation) allocation);
+            return isLabel(label) && !labelsInUse.get(label - minLabel);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the bandwidth that is not in use.
+     *
+     * @return free bandwidth
+     */
+    Bandwidth freeBandwidth() {
+        return Bandwidth.bps(bandwidthCapacity - bandwidthInUse);
+    }
+
+    /**
+     * Returns the first free lambda not below the specified one.
+     *
+     * @param from lambda to start from
+     * @return free lambda number; -1 if there is none
+     */
+    int nextFreeLambda(int from) {
+        int lambda = lambdasInUse.nextClearBit(Math.max(from, 1));
+        return lambda <= lambdaCount ? lambda : -1;
+    }
+
+    /**
+     * Returns the lambdas that are not in use.
+     *
+     * @return free lambda numbers
+     */
+    BitSet freeLambdas() {
+        BitSet free = new BitSet(lambdaCount + 1);
+        free.set(1, lambdaCount + 1);
+        free.andNot(lambdasInUse);
+        return free;
+    }
+
+    /**
+     * Returns the first free MPLS label not below the specified one.
+     *
+     * @param from label to start from
+     * @return free label; -1 if there is none
+     */
+    int nextFreeLabel(int from) {
+        int label = labelsInUse.nextClearBit(Math.max(from, minLabel) - minLabel) + minLabel;
+        return label <= maxLabel ? label : -1;
+    }
+
+    /**
+     * Returns a view of the free resources of the pool: the free bandwidth,
+     * followed by the free lambdas and the free MPLS labels in ascending
+     * order. Allocation objects are created as the view is iterated.
+     *
+     * @return free resources
+     */
+    Set<ResourceAllocation> freeResources() {
+        return new FreeResources();
+    }
+
+    private boolean isLambda(int lambda) {
+        return lambda >= 1 && lambda <= lambdaCount;
+    }
+
+    private boolean isLabel(int label) {
+        return label >= minLabel && label <= maxLabel;
+    }
+
+    private static int lambda(LambdaResourceAllocation allocation) {
+        return allocation.lambda().toInt();
+    }
+
+    private static int label(MplsLabelResourceAllocation allocation) {
+        return allocation.mplsLabel().label().toInt();
+    }
+
+    private final class FreeResources extends AbstractSet<ResourceAllocation> {
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof BandwidthResourceAllocation) {
+                return ((BandwidthResourceAllocation) o).bandwidth().equals(freeBandwidth());
+            }
+            return o instanceof ResourceAllocation && isFree((ResourceAllocation) o);
+        }
+
+        @Override
+        public int size() {
+            int freeLambdas = lambdaCount - lambdasInUse.cardinality();
+            int freeLabels = maxLabel - minLabel + 1 - labelsInUse.cardinality();
+            return 1 + freeLambdas + freeLabels;
+        }
+
+        @Override
+        public Iterator<ResourceAllocation> iterator() {
+            return new Iterator<ResourceAllocation>() {
+                private boolean bandwidthDone;
+                private int lambda = nextFreeLambda(1);
+                private int label = nextFreeLabel(minLabel);
+
+                @Override
+                public boolean hasNext() {
+                    return !bandwidthDone || lambda != -1 || label != -1;
+                }
+
+                @Override
+                public ResourceAllocation next() {
+                    if (!bandwidthDone) {
+                        bandwidthDone = true;
+                        return new BandwidthResourceAllocation(freeBandwidth());
+                    }
+                    if (lambda != -1) {
+                        ResourceAllocation next = new LambdaResourceAllocation(Lambda.valueOf(lambda));
+                        lambda = nextFreeLambda(lambda + 1);
+                        return next;
+                    }
+                    if (label != -1) {
+                        ResourceAllocation next = new MplsLabelResourceAllocation(MplsLabel.valueOf(label));
+                        label = nextFreeLabel(label + 1);
+                        return next;
+                    }
+                    throw new NoSuchElementException();
+                }
+            };
+        }
+    }
+}
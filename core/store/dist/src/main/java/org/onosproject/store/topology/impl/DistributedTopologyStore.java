@@ -24,7 +24,12 @@ import java.util.Set;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onosproject.event.Event;
 import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.Device;
@@ -45,12 +50,18 @@ import org.onosproject.net.topology.TopologyStoreDelegate;
 import org.onosproject.store.AbstractStore;
 import org.slf4j.Logger;
 
+import com.codahale.metrics.Gauge;
+import com.google.common.cache.CacheStats;
+
 /**
  * Manages inventory of topology snapshots using trivial in-memory
  * structures implementation.
  *
  * Note: This component is not distributed per-se. It runs on every
  * instance and feeds off of other distributed stores.
+ *
+ * The hit, miss and eviction counts of the shortest path cache of the
+ * current topology are reported as metrics.
  */
 @Component(immediate = true)
 @Service
@@ -58,8 +69,20 @@ public class DistributedTopologyStore
 extends AbstractStore<TopologyEvent, TopologyStoreDelegate>
 implements TopologyStore {
 
+    private static final String COMPONENT = "Topology";
+    private static final String FEATURE = "pathCache";
+    private static final String HITS = "hits";
+    private static final String MISSES = "misses";
+    private static final String EVICTIONS = "evictions";
+
     private final Logger log = getLogger(getClass());
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
+    private MetricsComponent metricsComponent;
+    private MetricsFeature metricsFeature;
+
     private volatile DefaultTopology current =
             new DefaultTopology(ProviderId.NONE,
                     new DefaultGraphDescription(0L,
@@ -68,13 +91,25 @@ implements TopologyStore {
 
     @Activate
     public void activate() {
+        metricsComponent = metricsService.registerComponent(COMPONENT);
+        metricsFeature = metricsComponent.registerFeature(FEATURE);
+        metricsService.registerMetric(metricsComponent, metricsFeature, HITS,
+                (Gauge<Long>) () -> pathCacheStats().hitCount());
+        metricsService.registerMetric(metricsComponent, metricsFeature, MISSES,
+                (Gauge<Long>) () -> pathCacheStats().missCount());
+        metricsService.registerMetric(metricsComponent, metricsFeature, EVICTIONS,
+                (Gauge<Long>) () -> pathCacheStats().evictionCount());
         log.info("Started");
     }
 
     @Deactivate
     public void deactivate() {
+        metricsService.removeMetric(metricsComponent, metricsFeature, HITS);
+        metricsService.removeMetric(metricsComponent, metricsFeature, MISSES);
+        metricsService.removeMetric(metricsComponent, metricsFeature, EVICTIONS);
         log.info("Stopped");
     }
+
     @Override
     public Topology currentTopology() {
         return current;
@@ -142,9 +177,13 @@ implements TopologyStore {
             return null;
         }
 
-        // Have the default topology construct self from the description data.
+        // Have the default topology construct self from the description data,
+        // deriving what it can from the current topology.
         DefaultTopology newTopology =
-                new DefaultTopology(providerId, graphDescription);
+                new DefaultTopology(providerId, graphDescription, current);
+        log.debug("Computed {} topology in {} ns",
+                  newTopology.isIncremental() ? "incremental" : "full",
+                  newTopology.computeCost());
 
         // Promote the new topology to current and return a ready-to-send event.
         synchronized (this) {
@@ -154,6 +193,11 @@ implements TopologyStore {
         }
     }
 
+    // Returns the path cache statistics of the current topology
+    private CacheStats pathCacheStats() {
+        return current.pathCacheStats();
+    }
+
     // Validates the specified topology and returns it as a default
     private DefaultTopology defaultTopology(Topology topology) {
         if (topology instanceof DefaultTopology) {
@@ -60,10 +60,10 @@ public class ClusterCommunicationManagerTest {
         messagingService.activate();
 
         ccm1 = new ClusterCommunicationManager();
-        ccm1.activate();
+        ccm1.activate(null);
 
         ccm2 = new ClusterCommunicationManager();
-        ccm2.activate();
+        ccm2.activate(null);
 
 //        ccm1.initialize(node1, cnd1);
 //        ccm2.initialize(node2, cnd2);
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.consistent.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CompletableFuture;
+
+import net.kuujo.copycat.state.StateContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.store.service.Serializer;
+import org.onosproject.store.service.Versioned;
+
+/**
+ * Tests of the consistent map with a local cache of the values it reads.
+ */
+public class CachingAsyncConsistentMapTest {
+
+    private static final String NAME = "map";
+    private static final long STALENESS_MILLIS = 60_000;
+
+    private static final Serializer SERIALIZER = new Serializer() {
+        @Override
+        public <T> byte[] encode(T object) {
+            return ((String) object).getBytes(UTF_8);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T decode(byte[] bytes) {
+            return (T) new String(bytes, UTF_8);
+        }
+    };
+
+    private DefaultDatabaseState<DatabaseKey, byte[]> state;
+    private TestDatabaseProxy proxy;
+    private CachingAsyncConsistentMap<String, String> map;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        StateContext<DatabaseState<DatabaseKey, byte[]>> context = createNiceMock(StateContext.class);
+        replay(context);
+        state = new DefaultDatabaseState<>();
+        state.init(context);
+        proxy = new TestDatabaseProxy();
+        map = new CachingAsyncConsistentMap<>(NAME, proxy, SERIALIZER, 10, STALENESS_MILLIS);
+        DefaultDatabaseState.addUpdateListener(map);
+    }
+
+    @After
+    public void tearDown() {
+        DefaultDatabaseState.removeUpdateListener(map);
+    }
+
+    // Applies an update made by another node to the local replica.
+    private void remotePut(String key, String value) {
+        state.put(NAME, DatabaseKey.of(SERIALIZER.encode(key)), SERIALIZER.encode(value));
+    }
+
+    private String get(String key) {
+        Versioned<String> value = map.get(key).join();
+        return value != null ? value.value() : null;
+    }
+
+    @Test
+    public void readsServedFromCache() {
+        map.put("a", "1").join();
+        assertEquals("incorrect value", "1", get("a"));
+        assertEquals("incorrect value", "1", get("a"));
+        assertEquals("cached value not served", 1, proxy.reads);
+    }
+
+    @Test
+    public void updatesInvalidateCache() {
+        map.put("a", "1").join();
+        assertEquals("incorrect value", "1", get("a"));
+
+        // updates applied by the local replica drop older values
+        remotePut("a", "2");
+        assertEquals("stale value served", "2", get("a"));
+        assertEquals("incorrect value", "2", get("a"));
+        assertEquals("incorrect number of reads", 2, proxy.reads);
+
+        state.remove(NAME, DatabaseKey.of(SERIALIZER.encode("a")));
+        assertEquals("removed value served", null, get("a"));
+
+        remotePut("a", "3");
+        assertEquals("incorrect value", "3", get("a"));
+        state.clear(NAME);
+        assertEquals("cleared value served", null, get("a"));
+
+        // updates of other maps are ignored
+        map.put("a", "4").join();
+        assertEquals("incorrect value", "4", get("a"));
+        state.put("other", DatabaseKey.of(SERIALIZER.encode("a")), SERIALIZER.encode("5"));
+        int reads = proxy.reads;
+        assertEquals("incorrect value", "4", get("a"));
+        assertEquals("cached value not served", reads, proxy.reads);
+    }
+
+    @Test
+    public void staleReadNotCached() {
+        remotePut("a", "1");
+
+        // the local replica applies an update while the read is in flight
+        proxy.pendingRead = new CompletableFuture<>();
+        CompletableFuture<Versioned<String>> read = map.get("a");
+        Versioned<byte[]> oldValue = state.get(NAME, DatabaseKey.of(SERIALIZER.encode("a")));
+        remotePut("a", "2");
+        proxy.pendingRead.complete(oldValue);
+        proxy.pendingRead = null;
+        assertEquals("incorrect value", "1", read.join().value());
+
+        assertEquals("stale value cached", "2", get("a"));
+    }
+
+    @Test
+    public void readDuringLocalUpdateNotCached() {
+        remotePut("a", "1");
+
+        // the update completes before the local replica applies it
+        proxy.pendingRead = new CompletableFuture<>();
+        CompletableFuture<Versioned<String>> read = map.get("a");
+        Versioned<byte[]> oldValue = state.get(NAME, DatabaseKey.of(SERIALIZER.encode("a")));
+        DefaultDatabaseState.removeUpdateListener(map);
+        map.put("a", "2").join();
+        DefaultDatabaseState.addUpdateListener(map);
+        proxy.pendingRead.complete(oldValue);
+        proxy.pendingRead = null;
+        assertEquals("incorrect value", "1", read.join().value());
+
+        assertEquals("stale value cached", "2", get("a"));
+    }
+
+    // Database proxy applying commands to the local state, as the leader
+    // of a partition replicated locally would.
+    private class TestDatabaseProxy extends DatabaseProxyAdapter<DatabaseKey, byte[]> {
+
+        private int reads = 0;
+        private CompletableFuture<Versioned<byte[]>> pendingRead;
+
+        @Override
+        public CompletableFuture<Versioned<byte[]>> get(String tableName, DatabaseKey key) {
+            reads++;
+            if (pendingRead != null) {
+                return pendingRead;
+            }
+            return CompletableFuture.completedFuture(state.get(tableName, key));
+        }
+
+        @Override
+        public CompletableFuture<Boolean> containsKey(String tableName, DatabaseKey key) {
+            return CompletableFuture.completedFuture(state.containsKey(tableName, key));
+        }
+
+        @Override
+        public CompletableFuture<Versioned<byte[]>> put(String tableName, DatabaseKey key, byte[] value) {
+            return CompletableFuture.completedFuture(state.put(tableName, key, value));
+        }
+
+        @Override
+        public CompletableFuture<Versioned<byte[]>> remove(String tableName, DatabaseKey key) {
+            return CompletableFuture.completedFuture(state.remove(tableName, key));
+        }
+    }
+}
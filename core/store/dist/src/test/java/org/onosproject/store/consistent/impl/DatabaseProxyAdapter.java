@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.consistent.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.onosproject.store.service.UpdateOperation;
+import org.onosproject.store.service.Versioned;
+
+/**
+ * Test adapter for the database proxy.
+ */
+public class DatabaseProxyAdapter<K, V> implements DatabaseProxy<K, V> {
+
+    @Override
+    public CompletableFuture<Integer> size(String tableName) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isEmpty(String tableName) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> containsKey(String tableName, K key) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> containsValue(String tableName, V value) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Versioned<V>> get(String tableName, K key) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Versioned<V>> put(String tableName, K key, V value) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Versioned<V>> remove(String tableName, K key) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Void> clear(String tableName) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Set<K>> keySet(String tableName) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Collection<Versioned<V>>> values(String tableName) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Set<Map.Entry<K, Versioned<V>>>> entrySet(String tableName) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Versioned<V>> putIfAbsent(String tableName, K key, V value) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> remove(String tableName, K key, V value) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> remove(String tableName, K key, long version) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> replace(String tableName, K key, V oldValue, V newValue) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> replace(String tableName, K key, long oldVersion, V newValue) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> atomicBatchUpdate(List<UpdateOperation<K, V>> updates) {
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<List<Versioned<V>>> applyUpdates(List<UpdateOperation<K, V>> updates) {
+        return null;
+    }
+}
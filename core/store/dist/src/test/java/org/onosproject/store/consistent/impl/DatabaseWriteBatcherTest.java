@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.consistent.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.store.service.UpdateOperation;
+import org.onosproject.store.service.Versioned;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.UniformReservoir;
+
+/**
+ * Tests of the ordering and batching of the operations on a partition.
+ */
+public class DatabaseWriteBatcherTest {
+
+    private static final String TABLE = "table";
+    private static final long LONG_WINDOW = 60_000;
+
+    private ScheduledExecutorService timer;
+    private final TestPartition partition = new TestPartition();
+
+    // Operations handed to the partition, in order, and the futures of the
+    // batches committed
+    private final List<String> operations = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<List<Versioned<byte[]>>>> commits =
+            new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    private DatabaseWriteBatcher batcher(int maxBatchSize, long windowMillis) {
+        return new DatabaseWriteBatcher(partition, timer, maxBatchSize, windowMillis,
+                                        new Histogram(new UniformReservoir()), new Timer());
+    }
+
+    private static UpdateOperation<DatabaseKey, byte[]> put(String key) {
+        return UpdateOperation.<DatabaseKey, byte[]>newBuilder()
+                .withType(UpdateOperation.Type.PUT)
+                .withTableName(TABLE)
+                .withKey(DatabaseKey.of(key.getBytes()))
+                .withValue(key.getBytes())
+                .build();
+    }
+
+    private static List<Versioned<byte[]>> previous(long... versions) {
+        return Arrays.stream(versions)
+                .mapToObj(v -> new Versioned<>(new byte[0], v))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void writeCommittedAtOnceWhenIdle() throws Exception {
+        DatabaseWriteBatcher batcher = batcher(10, LONG_WINDOW);
+        CompletableFuture<Versioned<byte[]>> write = batcher.submit(put("a"));
+        assertEquals("write not committed", Arrays.asList("a"), operations);
+
+        commits.get(0).complete(previous(1));
+        assertEquals("incorrect previous value", 1, write.get().version());
+    }
+
+    @Test
+    public void writesBatchedWhileInFlight() throws Exception {
+        DatabaseWriteBatcher batcher = batcher(10, LONG_WINDOW);
+        batcher.submit(put("a"));
+        CompletableFuture<Versioned<byte[]>> b = batcher.submit(put("b"));
+        CompletableFuture<Versioned<byte[]>> c = batcher.submit(put("c"));
+        assertEquals("writes not held", Arrays.asList("a"), operations);
+
+        commits.get(0).complete(previous(1));
+        assertEquals("writes not batched", Arrays.asList("a", "b,c"), operations);
+        assertFalse("write completed early", b.isDone());
+
+        commits.get(1).complete(previous(2, 3));
+        assertEquals("incorrect previous value", 2, b.get().version());
+        assertEquals("incorrect previous value", 3, c.get().version());
+    }
+
+    @Test
+    public void fullBatchCommittedWithoutWaiting() {
+        DatabaseWriteBatcher batcher = batcher(2, LONG_WINDOW);
+        batcher.submit(put("a"));
+        batcher.submit(put("b"));
+        batcher.submit(put("c"));
+        assertEquals("full batch not committed", Arrays.asList("a", "b,c"), operations);
+    }
+
+    @Test
+    public void windowBoundsWaitForBatchInFlight() throws Exception {
+        DatabaseWriteBatcher batcher = batcher(10, 10);
+        batcher.submit(put("a"));
+        batcher.submit(put("b"));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (operations.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("window did not expire", Arrays.asList("a", "b"), operations);
+    }
+
+    @Test
+    public void operationsFollowEarlierWrites() throws Exception {
+        DatabaseWriteBatcher batcher = batcher(10, LONG_WINDOW);
+        batcher.submit(put("a"));
+        batcher.submit(put("b"));
+        CompletableFuture<String> read = batcher.execute(() -> {
+            operations.add("get");
+            return CompletableFuture.completedFuture("value");
+        });
+        assertEquals("operation overtook writes", Arrays.asList("a", "b", "get"), operations);
+        assertEquals("incorrect result", "value", read.get());
+
+        // writes after the operation go after it
+        batcher.submit(put("c"));
+        commits.get(0).complete(previous(1));
+        commits.get(1).complete(previous(2));
+        assertEquals("incorrect order", Arrays.asList("a", "b", "get", "c"), operations);
+    }
+
+    @Test
+    public void failedCommitFailsItsWrites() throws Exception {
+        DatabaseWriteBatcher batcher = batcher(10, LONG_WINDOW);
+        CompletableFuture<Versioned<byte[]>> a = batcher.submit(put("a"));
+        CompletableFuture<Versioned<byte[]>> b = batcher.submit(put("b"));
+
+        commits.get(0).completeExceptionally(new IllegalStateException("no leader"));
+        assertTrue("write did not fail", a.isCompletedExceptionally());
+        try {
+            a.get(1, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            assertTrue("incorrect error", e.getCause() instanceof IllegalStateException);
+        }
+
+        // the next batch is committed on its own
+        assertEquals("pending write not committed", Arrays.asList("a", "b"), operations);
+        commits.get(1).complete(previous(7));
+        assertEquals("incorrect previous value", 7, b.get().version());
+    }
+
+    // Partition that records the batches committed to it.
+    private class TestPartition extends DatabaseProxyAdapter<DatabaseKey, byte[]> {
+        @Override
+        public CompletableFuture<List<Versioned<byte[]>>> applyUpdates(
+                List<UpdateOperation<DatabaseKey, byte[]>> updates) {
+            operations.add(updates.stream()
+                                   .map(u -> new String(u.key().bytes()))
+                                   .collect(Collectors.joining(",")));
+            CompletableFuture<List<Versioned<byte[]>>> commit = new CompletableFuture<>();
+            commits.add(commit);
+            return commit;
+        }
+    }
+}
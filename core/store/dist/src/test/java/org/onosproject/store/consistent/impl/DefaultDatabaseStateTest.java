@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.consistent.impl;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.kuujo.copycat.state.StateContext;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.store.service.UpdateOperation;
+import org.onosproject.store.service.Versioned;
+
+/**
+ * Tests of the unconditional batch updates of the database state.
+ */
+public class DefaultDatabaseStateTest {
+
+    private static final String TABLE = "table";
+
+    private DefaultDatabaseState<String, String> state;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        StateContext<DatabaseState<String, String>> context = createNiceMock(StateContext.class);
+        replay(context);
+        state = new DefaultDatabaseState<>();
+        state.init(context);
+    }
+
+    private static UpdateOperation<String, String> update(UpdateOperation.Type type,
+                                                          String key, String value) {
+        return UpdateOperation.<String, String>newBuilder()
+                .withType(type)
+                .withTableName(TABLE)
+                .withKey(key)
+                .withValue(value)
+                .build();
+    }
+
+    private static UpdateOperation<String, String> remove(String key) {
+        return UpdateOperation.<String, String>newBuilder()
+                .withType(UpdateOperation.Type.REMOVE)
+                .withTableName(TABLE)
+                .withKey(key)
+                .build();
+    }
+
+    @Test
+    public void applyUpdates() {
+        state.put(TABLE, "a", "1");
+        long version = state.get(TABLE, "a").version();
+
+        List<Versioned<String>> previous = state.applyUpdates(Arrays.asList(
+                update(UpdateOperation.Type.PUT, "a", "2"),
+                update(UpdateOperation.Type.PUT, "b", "1"),
+                update(UpdateOperation.Type.PUT, "a", "3"),
+                remove("b"),
+                remove("c")));
+
+        // Each update yields the value it replaced, in order.
+        assertEquals("incorrect result count", 5, previous.size());
+        assertEquals("incorrect previous value", "1", previous.get(0).value());
+        assertEquals("incorrect previous version", version, previous.get(0).version());
+        assertNull("no previous value expected", previous.get(1));
+        assertEquals("incorrect previous value", "2", previous.get(2).value());
+        assertEquals("incorrect previous value", "1", previous.get(3).value());
+        assertNull("no previous value expected", previous.get(4));
+
+        assertEquals("incorrect value", "3", state.get(TABLE, "a").value());
+        assertEquals("incorrect version", version + 3, state.get(TABLE, "a").version());
+        assertNull("no value expected", state.get(TABLE, "b"));
+        assertEquals("incorrect size", 1, state.size(TABLE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void conditionalUpdatesRejected() {
+        state.applyUpdates(Arrays.asList(update(UpdateOperation.Type.PUT_IF_ABSENT, "a", "1")));
+    }
+}
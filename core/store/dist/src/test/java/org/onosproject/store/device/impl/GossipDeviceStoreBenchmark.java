@@ -0,0 +1,213 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.device.impl;
+
+import org.onlab.packet.ChassisId;
+import org.onlab.packet.IpAddress;
+import org.onosproject.cluster.DefaultControllerNode;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.mastership.MastershipServiceAdapter;
+import org.onosproject.mastership.MastershipTerm;
+import org.onosproject.net.Device;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Port;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.device.DefaultDeviceDescription;
+import org.onosproject.net.device.DefaultPortDescription;
+import org.onosproject.net.device.DeviceDescription;
+import org.onosproject.net.device.PortDescription;
+import org.onosproject.net.provider.ProviderId;
+import org.onosproject.store.cluster.StaticClusterService;
+import org.onosproject.store.cluster.messaging.ClusterCommunicationService;
+
+import java.net.URI;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.lang.System.out;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.replay;
+import static org.onlab.util.Tools.toHex;
+import static org.onosproject.cluster.ControllerNode.State.ACTIVE;
+
+/**
+ * Auxiliary test fixture to measure the rate at which the gossip device
+ * store applies device and port updates arriving from several threads, as
+ * when many switches reconnect at once. Devices and ports are described
+ * the same way the null device provider describes them.
+ */
+public final class GossipDeviceStoreBenchmark {
+
+    private static final ProviderId PID = new ProviderId("null", "org.onosproject.provider.nil");
+    private static final String SCHEME = "null";
+    private static final NodeId NID = new NodeId("local");
+
+    private static final int DEVICES = 1000;
+    private static final int PORTS = 10;
+    private static final int[] THREADS = {1, 2, 4, 8, 16};
+    private static final int WARMUP_ROUNDS = 3;
+
+    private final int deviceCount;
+    private final int portCount;
+
+    private DeviceClockManager deviceClockManager;
+    private GossipDeviceStore store;
+
+    private GossipDeviceStoreBenchmark(int deviceCount, int portCount) {
+        this.deviceCount = deviceCount;
+        this.portCount = portCount;
+    }
+
+    /**
+     * Main entry point to launch the benchmark.
+     *
+     * @param args optional number of devices and number of ports per device
+     * @throws Exception if the updates fail
+     */
+    public static void main(String[] args) throws Exception {
+        int deviceCount = args.length > 0 ? Integer.parseInt(args[0]) : DEVICES;
+        int portCount = args.length > 1 ? Integer.parseInt(args[1]) : PORTS;
+        new GossipDeviceStoreBenchmark(deviceCount, portCount).run();
+    }
+
+    private void run() throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            measure(THREADS[THREADS.length - 1], false);
+        }
+        for (int threads : THREADS) {
+            measure(threads, true);
+        }
+    }
+
+    // Connects all devices to a new store from the given number of threads,
+    // optionally reporting the rate at which the events were produced.
+    private void measure(int threads, boolean report) throws Exception {
+        setUp();
+        try {
+            long start = nanoTime();
+            int events = connectDevices(threads);
+            long nanos = nanoTime() - start;
+            if (report) {
+                DecimalFormat fmt = new DecimalFormat("#,###");
+                out.println(format("Applied %s device events from %d threads at %s events/s",
+                                   fmt.format(events), threads,
+                                   fmt.format(events * 1_000_000_000L / nanos)));
+            }
+        } finally {
+            tearDown();
+        }
+    }
+
+    private void setUp() {
+        deviceClockManager = new DeviceClockManager();
+        deviceClockManager.activate();
+
+        ClusterCommunicationService clusterCommunicator =
+                createNiceMock(ClusterCommunicationService.class);
+        replay(clusterCommunicator);
+
+        store = new GossipDeviceStore();
+        store.deviceClockService = deviceClockManager;
+        store.clusterService = new LocalClusterService();
+        store.clusterCommunicator = clusterCommunicator;
+        store.mastershipService = new LocalMastershipService();
+        store.activate();
+    }
+
+    private void tearDown() {
+        store.deactivate();
+        deviceClockManager.deactivate();
+    }
+
+    // Connects every device with its ports, then takes every port down;
+    // each thread handles its own share of the devices.
+    private int connectDevices(int threads) throws Exception {
+        List<DeviceId> deviceIds = new ArrayList<>();
+        for (int i = 0; i < deviceCount; i++) {
+            DeviceId deviceId = DeviceId.deviceId(new URI(SCHEME, toHex(i), null));
+            deviceClockManager.setMastershipTerm(deviceId, MastershipTerm.of(NID, 1));
+            deviceIds.add(deviceId);
+        }
+
+        AtomicInteger events = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            tasks.add(() -> {
+                for (int i = offset; i < deviceCount; i += threads) {
+                    DeviceId deviceId = deviceIds.get(i);
+                    DeviceDescription description =
+                            new DefaultDeviceDescription(deviceId.uri(), Device.Type.SWITCH,
+                                                         "ON.Lab", "0.0.1", "0.0.1", "1234",
+                                                         new ChassisId(i));
+                    if (store.createOrUpdateDevice(PID, deviceId, description) != null) {
+                        events.incrementAndGet();
+                    }
+                    events.addAndGet(store.updatePorts(PID, deviceId, ports(true)).size());
+                }
+                for (int i = offset; i < deviceCount; i += threads) {
+                    for (PortDescription port : ports(false)) {
+                        if (store.updatePortStatus(PID, deviceIds.get(i), port) != null) {
+                            events.incrementAndGet();
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return events.get();
+    }
+
+    private List<PortDescription> ports(boolean enabled) {
+        List<PortDescription> ports = new ArrayList<>();
+        for (int i = 0; i < portCount; i++) {
+            ports.add(new DefaultPortDescription(PortNumber.portNumber(i), enabled,
+                                                 Port.Type.COPPER, 0));
+        }
+        return ports;
+    }
+
+    private static final class LocalMastershipService extends MastershipServiceAdapter {
+        @Override
+        public NodeId getMasterFor(DeviceId deviceId) {
+            return NID;
+        }
+    }
+
+    private static final class LocalClusterService extends StaticClusterService {
+        private LocalClusterService() {
+            localNode = new DefaultControllerNode(NID, IpAddress.valueOf("127.0.0.1"));
+            nodes.put(NID, localNode);
+            nodeStates.put(NID, ACTIVE);
+        }
+    }
+}
@@ -17,6 +17,7 @@ package org.onosproject.store.device.impl;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Striped;
 
 import org.easymock.Capture;
 import org.junit.After;
@@ -56,15 +57,23 @@ import org.onosproject.store.cluster.messaging.ClusterMessageHandler;
 import org.onosproject.store.cluster.messaging.MessageSubject;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 
 import static java.util.Arrays.asList;
 import static org.easymock.EasyMock.*;
@@ -808,7 +817,186 @@ public class GossipDeviceStoreTest {
         assertTrue("Remove event fired", removeLatch.await(1, TimeUnit.SECONDS));
     }
 
-    private final class TestMastershipService extends MastershipServiceAdapter {
+    // Connects the given number of devices, each with the given number of
+    // ports, the way the null device provider does, from the given number of
+    // threads; then flaps the status of every port. Returns the number of
+    // events produced.
+    private int connectDevices(int threads, int deviceCount, int portCount)
+            throws Exception {
+        reset(clusterCommunicator);
+        expect(clusterCommunicator.broadcast(anyObject(ClusterMessage.class)))
+            .andReturn(true).anyTimes();
+        replay(clusterCommunicator);
+
+        List<DeviceId> deviceIds = new ArrayList<>();
+        for (int i = 0; i < deviceCount; i++) {
+            DeviceId deviceId = deviceId("null:" + i);
+            deviceClockManager.setMastershipTerm(deviceId, MastershipTerm.of(NID1, 1));
+            deviceIds.add(deviceId);
+        }
+
+        AtomicInteger events = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            tasks.add(() -> {
+                for (int i = offset; i < deviceCount; i += threads) {
+                    DeviceId deviceId = deviceIds.get(i);
+                    DeviceDescription description =
+                            new DefaultDeviceDescription(deviceId.uri(), SWITCH, MFR,
+                                                         HW, SW1, SN, CID);
+                    List<PortDescription> ports = new ArrayList<>();
+                    for (int p = 1; p <= portCount; p++) {
+                        ports.add(new DefaultPortDescription(PortNumber.portNumber(p), true));
+                    }
+                    if (deviceStore.createOrUpdateDevice(PID, deviceId, description) != null) {
+                        events.incrementAndGet();
+                    }
+                    events.addAndGet(deviceStore.updatePorts(PID, deviceId, ports).size());
+                }
+                for (int i = offset; i < deviceCount; i += threads) {
+                    for (int p = 1; p <= portCount; p++) {
+                        PortDescription down =
+                                new DefaultPortDescription(PortNumber.portNumber(p), false);
+                        if (deviceStore.updatePortStatus(PID, deviceIds.get(i), down) != null) {
+                            events.incrementAndGet();
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return events.get();
+    }
+
+    @Test
+    public final void testConcurrentUpdates() throws Exception {
+        final int deviceCount = 200;
+        final int portCount = 10;
+        int events = connectDevices(8, deviceCount, portCount);
+
+        // One addition per device and port, then one update per port.
+        assertEquals(deviceCount * (1 + 2 * portCount), events);
+        assertEquals(deviceCount, deviceStore.getDeviceCount());
+        for (Device device : deviceStore.getDevices()) {
+            assertTrue(deviceStore.isAvailable(device.id()));
+            List<Port> ports = deviceStore.getPorts(device.id());
+            assertEquals(portCount, ports.size());
+            for (Port port : ports) {
+                assertFalse(port.isEnabled());
+            }
+        }
+    }
+
+    @Test
+    public final void testConcurrentUpdatesOfOneDevice() throws Exception {
+        reset(clusterCommunicator);
+        expect(clusterCommunicator.broadcast(anyObject(ClusterMessage.class)))
+            .andReturn(true).anyTimes();
+        replay(clusterCommunicator);
+        putDevice(DID1, SW1);
+        deviceStore.updatePorts(PID, DID1, asList(new DefaultPortDescription(P1, true)));
+
+        // Interleaved flaps of the same port must leave it in the state of
+        // the last update applied, with one event per actual change.
+        final int flaps = 1000;
+        AtomicInteger events = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final boolean enabled = t % 2 == 0;
+            tasks.add(() -> {
+                for (int i = 0; i < flaps; i++) {
+                    if (deviceStore.updatePortStatus(PID, DID1,
+                            new DefaultPortDescription(P1, enabled)) != null) {
+                        events.incrementAndGet();
+                    }
+                }
+                return enabled;
+            });
+        }
+        try {
+            for (Future<Boolean> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The port started enabled, so an odd number of changes leaves it down.
+        assertEquals(events.get() % 2 == 0, deviceStore.getPort(DID1, P1).isEnabled());
+    }
+
+    @Test
+    public final void testUpdateNotBlockedByOtherDevice() throws Exception {
+        reset(clusterCommunicator);
+        expect(clusterCommunicator.broadcast(anyObject(ClusterMessage.class)))
+            .andReturn(true).anyTimes();
+        replay(clusterCommunicator);
+
+        // Pick a device whose updates are not serialized with those of DID1
+        Field field = GossipDeviceStore.class.getDeclaredField("deviceLocks");
+        field.setAccessible(true);
+        @SuppressWarnings("unchecked")
+        Striped<Lock> deviceLocks = (Striped<Lock>) field.get(gossipDeviceStore);
+        DeviceId other = DID2;
+        for (int i = 0; i < 1000 && deviceLocks.get(other) == deviceLocks.get(DID1); i++) {
+            other = deviceId("of:" + i);
+        }
+        deviceClockManager.setMastershipTerm(other, MastershipTerm.of(NID1, 1));
+
+        // Hold the update of DID1 while it looks up the master of the device
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        testGossipDeviceStore.mastershipService = new TestMastershipService() {
+            @Override
+            public NodeId getMasterFor(DeviceId deviceId) {
+                if (deviceId.equals(DID1)) {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getMasterFor(deviceId);
+            }
+        };
+
+        final DeviceId otherId = other;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<DeviceEvent> first = executor.submit(() -> deviceStore.createOrUpdateDevice(
+                    PID, DID1, new DefaultDeviceDescription(DID1.uri(), SWITCH, MFR, HW, SW1, SN, CID)));
+            assertTrue("update of the first device not started",
+                       blocked.await(1, TimeUnit.SECONDS));
+
+            Future<DeviceEvent> second = executor.submit(() -> deviceStore.createOrUpdateDevice(
+                    PID, otherId, new DefaultDeviceDescription(otherId.uri(), SWITCH, MFR, HW, SW1, SN, CID)));
+            try {
+                assertNotNull("update of another device failed", second.get(1, TimeUnit.SECONDS));
+            } catch (TimeoutException e) {
+                fail("update of another device blocked");
+            }
+            assertFalse("update of the first device not held", first.isDone());
+
+            release.countDown();
+            assertNotNull("update of the first device failed", first.get(1, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private class TestMastershipService extends MastershipServiceAdapter {
         @Override
         public NodeId getMasterFor(DeviceId deviceId) {
             return NID1;
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.ecmap;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for BucketedHashTree.
+ */
+public class BucketedHashTreeTest {
+
+    private static final byte[] KEY1 = {1, 2, 3};
+    private static final byte[] KEY2 = {4, 5, 6};
+    private static final byte[] TS1 = {1};
+    private static final byte[] TS2 = {2};
+
+    @Test
+    public void testOrderIndependence() {
+        BucketedHashTree tree1 = new BucketedHashTree(16);
+        BucketedHashTree tree2 = new BucketedHashTree(16);
+
+        tree1.toggle(KEY1, TS1, true);
+        tree1.toggle(KEY2, TS2, false);
+
+        tree2.toggle(KEY2, TS2, false);
+        tree2.toggle(KEY1, TS1, true);
+
+        assertArrayEquals(tree1.leaves(), tree2.leaves());
+        assertEquals(BucketedHashTree.root(tree1.leaves()),
+                     BucketedHashTree.root(tree2.leaves()));
+    }
+
+    @Test
+    public void testToggleRemoves() {
+        BucketedHashTree tree = new BucketedHashTree(16);
+        long[] empty = tree.leaves();
+
+        tree.toggle(KEY1, TS1, true);
+        assertNotEquals(BucketedHashTree.root(empty), BucketedHashTree.root(tree.leaves()));
+
+        tree.toggle(KEY1, TS1, true);
+        assertArrayEquals(empty, tree.leaves());
+    }
+
+    @Test
+    public void testLiveAndTombstoneDiffer() {
+        BucketedHashTree live = new BucketedHashTree(16);
+        BucketedHashTree dead = new BucketedHashTree(16);
+
+        live.toggle(KEY1, TS1, true);
+        dead.toggle(KEY1, TS1, false);
+
+        assertNotEquals(BucketedHashTree.root(live.leaves()),
+                        BucketedHashTree.root(dead.leaves()));
+    }
+
+    @Test
+    public void testDifferingBuckets() {
+        BucketedHashTree tree1 = new BucketedHashTree(16);
+        BucketedHashTree tree2 = new BucketedHashTree(16);
+
+        tree1.toggle(KEY1, TS1, true);
+        tree2.toggle(KEY1, TS2, true);
+
+        assertEquals(ImmutableSet.of(tree1.bucketOf(KEY1)),
+                     BucketedHashTree.differingBuckets(tree1.leaves(), tree2.leaves()));
+
+        tree2.toggle(KEY1, TS2, true);
+        tree2.toggle(KEY1, TS1, true);
+        assertTrue(BucketedHashTree.differingBuckets(tree1.leaves(), tree2.leaves()).isEmpty());
+    }
+
+    @Test
+    public void testWidthMismatch() {
+        BucketedHashTree tree1 = new BucketedHashTree(16);
+        BucketedHashTree tree2 = new BucketedHashTree(8);
+
+        assertEquals(16, BucketedHashTree.differingBuckets(tree1.leaves(),
+                                                           tree2.leaves()).size());
+    }
+}
@@ -16,8 +16,10 @@
 package org.onosproject.store.ecmap;
 
 import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import org.junit.After;
@@ -25,6 +27,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.onlab.packet.IpAddress;
 import org.onlab.util.KryoNamespace;
+import org.onlab.util.SlidingWindowCounter;
 import org.onosproject.cluster.ClusterService;
 import org.onosproject.cluster.ControllerNode;
 import org.onosproject.cluster.DefaultControllerNode;
@@ -43,12 +46,15 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -105,6 +111,9 @@ public class EventuallyConsistentMapImplTest {
                     .register(ArrayList.class)
                     .register(AntiEntropyAdvertisement.class)
                     .register(HashMap.class)
+                    .register(AntiEntropyDigest.class)
+                    .register(long[].class)
+                    .register(HashSet.class)
                     .build();
         }
     };
@@ -588,6 +597,99 @@ public class EventuallyConsistentMapImplTest {
         }
     }
 
+    @Test
+    public void testDigestAntiEntropy() throws Exception {
+        ControllerNode peer = new DefaultControllerNode(new NodeId("peer"), IpAddress.valueOf(2));
+        Map<NodeId, Map<MessageSubject, ClusterMessageHandler>> handlers = Maps.newConcurrentMap();
+        List<AntiEntropyAdvertisement<String>> ads = new CopyOnWriteArrayList<>();
+        AtomicBoolean connected = new AtomicBoolean(true);
+
+        EventuallyConsistentMapImpl<String, String> local =
+                digestMap(self, peer, handlers, ads, connected);
+        EventuallyConsistentMapImpl<String, String> remote =
+                digestMap(peer, self, handlers, ads, connected);
+        try {
+            for (int i = 0; i < 20; i++) {
+                local.put("k" + i, "v" + i);
+            }
+            awaitValue(remote, "k19", "v19");
+
+            // diverge in a few buckets while the instances cannot talk
+            connected.set(false);
+            local.put("k3", "new");
+            local.put("extra", "x");
+            remote.put("k7", "new");
+            remote.remove("k11");
+            // let the batched updates to the peer be dropped
+            Thread.sleep(200);
+            connected.set(true);
+
+            // each round repairs what the initiating instance has newer
+            quiesce(local, remote);
+            local.runAntiEntropy();
+            awaitValue(remote, "k3", "new");
+            awaitValue(remote, "extra", "x");
+            assertNull("remove not applied", local.get("k11"));
+
+            quiesce(local, remote);
+            remote.runAntiEntropy();
+            awaitValue(local, "k7", "new");
+
+            assertEquals("maps not repaired", local.size(), remote.size());
+            for (String key : local.keySet()) {
+                assertEquals("maps not repaired", local.get(key), remote.get(key));
+            }
+
+            // only the differing buckets were advertised
+            assertFalse("no advertisement sent", ads.isEmpty());
+            for (AntiEntropyAdvertisement<String> ad : ads) {
+                assertNotNull("advertisement not filtered", ad.buckets());
+                assertTrue("advertisement not filtered",
+                           ad.timestamps().size() + ad.tombstones().size() < 10);
+            }
+        } finally {
+            local.destroy();
+            remote.destroy();
+        }
+    }
+
+    private EventuallyConsistentMapImpl<String, String> digestMap(
+            ControllerNode node, ControllerNode peer,
+            Map<NodeId, Map<MessageSubject, ClusterMessageHandler>> handlers,
+            List<AntiEntropyAdvertisement<String>> ads, AtomicBoolean connected) {
+        ClusterService cluster = createMock(ClusterService.class);
+        expect(cluster.getLocalNode()).andReturn(node).anyTimes();
+        expect(cluster.getNodes()).andReturn(ImmutableSet.of(node, peer)).anyTimes();
+        replay(cluster);
+
+        KryoNamespace.Builder serializer = KryoNamespace.newBuilder()
+                .register(KryoNamespaces.API)
+                .register(TestTimestamp.class);
+        return new EventuallyConsistentMapImpl<>(
+                MAP_NAME, cluster,
+                new LoopbackClusterCommunicationService(node.id(), handlers, ads, connected),
+                serializer, clockService)
+                .withBroadcastMessageExecutor(MoreExecutors.newDirectExecutorService())
+                .withDigestAntiEntropy(true);
+    }
+
+    // Forgets recent operations, which hold off anti-entropy for a while
+    private static void quiesce(EventuallyConsistentMapImpl<?, ?>... maps) {
+        for (EventuallyConsistentMapImpl<?, ?> map : maps) {
+            map.counter.destroy();
+            map.counter = new SlidingWindowCounter(5);
+        }
+    }
+
+    private static void awaitValue(EventuallyConsistentMap<String, String> map,
+                                   String key, String value) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Objects.equals(map.get(key), value) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("value not propagated", value, map.get(key));
+    }
+
     private ClusterMessage generatePutMessage(String key, String value, Timestamp timestamp) {
         PutEntry<String, String> event = new PutEntry<>(key, value, timestamp);
 
@@ -779,6 +881,86 @@ public class EventuallyConsistentMapImplTest {
         public void removeSubscriber(MessageSubject subject) {}
     }
 
+    /**
+     * ClusterCommunicationService that hands unicast messages straight to the
+     * handlers another map instance registered for the recipient node, and
+     * records the anti-entropy advertisements exchanged.
+     */
+    private static final class LoopbackClusterCommunicationService
+            implements ClusterCommunicationService {
+
+        private final NodeId node;
+        private final Map<NodeId, Map<MessageSubject, ClusterMessageHandler>> handlers;
+        private final List<AntiEntropyAdvertisement<String>> ads;
+        private final AtomicBoolean connected;
+
+        private LoopbackClusterCommunicationService(
+                NodeId node, Map<NodeId, Map<MessageSubject, ClusterMessageHandler>> handlers,
+                List<AntiEntropyAdvertisement<String>> ads, AtomicBoolean connected) {
+            this.node = node;
+            this.handlers = handlers;
+            this.ads = ads;
+            this.connected = connected;
+        }
+
+        @Override
+        public boolean broadcast(ClusterMessage message) {
+            return false;
+        }
+
+        @Override
+        public boolean broadcastIncludeSelf(ClusterMessage message) {
+            return false;
+        }
+
+        @Override
+        public boolean unicast(ClusterMessage message, NodeId toNodeId) {
+            if (!connected.get()) {
+                return false;
+            }
+            if (message.subject().equals(ANTI_ENTROPY_MESSAGE_SUBJECT)) {
+                ads.add(SERIALIZER.decode(message.payload()));
+            }
+            ClusterMessageHandler handler = handlers.getOrDefault(toNodeId, ImmutableMap.of())
+                    .get(message.subject());
+            if (handler == null) {
+                return false;
+            }
+            handler.handle(message);
+            return true;
+        }
+
+        @Override
+        public boolean multicast(ClusterMessage message, Iterable<NodeId> nodeIds) {
+            return false;
+        }
+
+        @Override
+        public ListenableFuture<byte[]> sendAndReceive(ClusterMessage message,
+                                                       NodeId toNodeId)
+                throws IOException {
+            return null;
+        }
+
+        @Override
+        public void addSubscriber(MessageSubject subject,
+                                  ClusterMessageHandler subscriber) {
+            handlers.computeIfAbsent(node, n -> Maps.newConcurrentMap()).put(subject, subscriber);
+        }
+
+        @Override
+        public void addSubscriber(MessageSubject subject,
+                                  ClusterMessageHandler subscriber,
+                                  ExecutorService executor) {
+            addSubscriber(subject, subscriber);
+        }
+
+        @Override
+        public void removeSubscriber(MessageSubject subject) {
+            handlers.getOrDefault(node, Maps.newConcurrentMap()).remove(subject);
+        }
+    }
+
     /**
      * ClockService implementation that gives out timestamps based on a
      * sequential counter. This clock service enables more control over the
@@ -840,10 +1022,15 @@ public class EventuallyConsistentMapImplTest {
      * Timestamp implementation where the value of the timestamp can be
      * specified explicitly at creation time.
      */
-    private class TestTimestamp implements Timestamp {
+    private static class TestTimestamp implements Timestamp {
 
         private final long timestamp;
 
+        // for serialization
+        private TestTimestamp() {
+            this.timestamp = 0;
+        }
+
         /**
          * Creates a new timestamp that has the specified value.
          *
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.ecmap;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for FairQueueExecutor.
+ */
+public class FairQueueExecutorTest {
+
+    private static final int CAPACITY = 100;
+
+    /**
+     * Executor that only runs jobs when asked to, in submission order.
+     */
+    private static final class ManualExecutor implements Executor {
+        private final Queue<Runnable> jobs = new LinkedList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            jobs.add(command);
+        }
+
+        void runAll() {
+            Runnable job;
+            while ((job = jobs.poll()) != null) {
+                job.run();
+            }
+        }
+    }
+
+    @Test
+    public void testOrderingWithSingleLane() {
+        ManualExecutor delegate = new ManualExecutor();
+        FairQueueExecutor lane = new FairQueueExecutor(delegate, 1, 2, CAPACITY);
+        List<Integer> ran = Lists.newArrayList();
+
+        for (int i = 0; i < 5; i++) {
+            final int n = i;
+            lane.execute(() -> ran.add(n));
+        }
+        assertEquals(5, lane.queueDepth());
+
+        delegate.runAll();
+        assertEquals(Lists.newArrayList(0, 1, 2, 3, 4), ran);
+        assertEquals(0, lane.queueDepth());
+    }
+
+    @Test
+    public void testRoundRobinBetweenLanes() {
+        ManualExecutor delegate = new ManualExecutor();
+        FairQueueExecutor busy = new FairQueueExecutor(delegate, 1, 2, CAPACITY);
+        FairQueueExecutor quiet = new FairQueueExecutor(delegate, 1, 2, CAPACITY);
+        List<String> ran = Lists.newArrayList();
+
+        for (int i = 0; i < 6; i++) {
+            busy.execute(() -> ran.add("busy"));
+        }
+        quiet.execute(() -> ran.add("quiet"));
+
+        delegate.runAll();
+        assertEquals(7, ran.size());
+        // the quiet lane is served after the busy lane's first quantum
+        assertEquals("quiet", ran.get(2));
+    }
+
+    @Test
+    public void testParallelLane() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        FairQueueExecutor lane = new FairQueueExecutor(pool, 4, 1, CAPACITY);
+        CountDownLatch started = new CountDownLatch(4);
+        CountDownLatch release = new CountDownLatch(1);
+
+        for (int i = 0; i < 4; i++) {
+            lane.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        lane.shutdown();
+        assertTrue(lane.awaitTermination(5, TimeUnit.SECONDS));
+        pool.shutdown();
+    }
+
+    @Test
+    public void testFullLaneRunsOnCaller() {
+        ManualExecutor delegate = new ManualExecutor();
+        FairQueueExecutor lane = new FairQueueExecutor(delegate, 1, 2, 2);
+        List<Integer> ran = Lists.newArrayList();
+
+        lane.execute(() -> ran.add(0));
+        lane.execute(() -> ran.add(1));
+        // no room left; the task runs on this thread after the wait
+        lane.execute(() -> ran.add(2));
+        assertEquals(Lists.newArrayList(2), ran);
+        assertEquals(2, lane.queueDepth());
+
+        // running queued tasks makes room again
+        delegate.runAll();
+        lane.execute(() -> ran.add(3));
+        assertEquals(1, lane.queueDepth());
+        delegate.runAll();
+        assertEquals(Lists.newArrayList(2, 0, 1, 3), ran);
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testRejectAfterShutdown() {
+        FairQueueExecutor lane = new FairQueueExecutor(new ManualExecutor(), 1, 1, CAPACITY);
+        lane.shutdown();
+        lane.execute(() -> { });
+    }
+}
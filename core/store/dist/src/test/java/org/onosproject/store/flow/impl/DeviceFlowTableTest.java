@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import org.junit.Test;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.StoredFlowEntry;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the per-device flow table.
+ */
+public class DeviceFlowTableTest {
+
+    private static final DeviceId DID = DeviceId.deviceId("of:1");
+
+    private static FlowRule rule(long flowId, int priority) {
+        return new DefaultFlowRule(DID, DefaultTrafficSelector.emptySelector(),
+                                   DefaultTrafficTreatment.emptyTreatment(),
+                                   priority, flowId, 0, true);
+    }
+
+    @Test
+    public void putGetRemove() {
+        DeviceFlowTable table = new DeviceFlowTable();
+        StoredFlowEntry entry = new DefaultFlowEntry(rule(1, 10));
+        table.put(entry);
+
+        assertSame(entry, table.get(rule(1, 10)));
+        assertNull(table.get(rule(1, 20)));
+        assertNull(table.get(rule(2, 10)));
+        assertEquals(1, table.size());
+
+        StoredFlowEntry replacement = new DefaultFlowEntry(rule(1, 10));
+        table.put(replacement);
+        assertSame(replacement, table.get(rule(1, 10)));
+        assertEquals(1, table.size());
+
+        assertFalse(table.remove(rule(2, 10)));
+        assertTrue(table.remove(rule(1, 10)));
+        assertNull(table.get(rule(1, 10)));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void snapshotReuse() {
+        DeviceFlowTable table = new DeviceFlowTable();
+        StoredFlowEntry entry = new DefaultFlowEntry(rule(1, 10));
+        table.put(entry);
+
+        Set<StoredFlowEntry> first = table.snapshot();
+        assertEquals(1, first.size());
+        assertSame(first, table.snapshot());
+
+        // Counter updates of stored entries leave the snapshot valid
+        table.get(rule(1, 10)).setBytes(100);
+        assertSame(first, table.snapshot());
+
+        table.put(new DefaultFlowEntry(rule(2, 20)));
+        Set<StoredFlowEntry> second = table.snapshot();
+        assertNotSame(first, second);
+        assertEquals(2, second.size());
+        assertEquals(1, first.size());
+
+        table.remove(rule(2, 20));
+        assertEquals(1, table.snapshot().size());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.host.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onosproject.cluster.DefaultControllerNode;
+import org.onosproject.cluster.NodeId;
+import org.onosproject.net.Host;
+import org.onosproject.net.HostId;
+import org.onosproject.net.HostLocation;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.host.DefaultHostDescription;
+import org.onosproject.net.host.HostDescription;
+import org.onosproject.net.provider.ProviderId;
+import org.onosproject.store.cluster.StaticClusterService;
+import org.onosproject.store.cluster.messaging.ClusterCommunicationService;
+
+import java.util.Set;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.cluster.ControllerNode.State.ACTIVE;
+import static org.onosproject.net.DeviceId.deviceId;
+
+/**
+ * Test of the address, VLAN and location indexes of the gossip host store.
+ */
+public class GossipHostStoreTest {
+
+    private static final ProviderId PID = new ProviderId("of", "foo");
+    private static final NodeId NID1 = new NodeId("local");
+
+    private static final VlanId VLAN1 = VlanId.vlanId((short) 1);
+    private static final VlanId VLAN2 = VlanId.vlanId((short) 2);
+    private static final MacAddress MAC1 = MacAddress.valueOf("00:00:00:00:00:01");
+    private static final MacAddress MAC2 = MacAddress.valueOf("00:00:00:00:00:02");
+    private static final IpAddress IP1 = IpAddress.valueOf("10.0.0.1");
+    private static final IpAddress IP2 = IpAddress.valueOf("10.0.0.2");
+    private static final IpAddress IP3 = IpAddress.valueOf("10.0.0.3");
+
+    private static final HostLocation LOC1 =
+            new HostLocation(deviceId("of:1"), PortNumber.portNumber(1), 0);
+    private static final HostLocation LOC2 =
+            new HostLocation(deviceId("of:2"), PortNumber.portNumber(1), 0);
+
+    private GossipHostStore store;
+    private HostClockManager hostClockManager;
+
+    @Before
+    public void setUp() {
+        hostClockManager = new HostClockManager();
+        hostClockManager.activate();
+
+        ClusterCommunicationService clusterCommunicator =
+                createNiceMock(ClusterCommunicationService.class);
+        replay(clusterCommunicator);
+
+        store = new GossipHostStore();
+        store.hostClockService = hostClockManager;
+        store.clusterCommunicator = clusterCommunicator;
+        store.clusterService = new TestClusterService();
+        store.activate();
+    }
+
+    @After
+    public void tearDown() {
+        store.deactivate();
+        hostClockManager.deactivate();
+    }
+
+    private Host createHost(MacAddress mac, VlanId vlan, HostLocation location,
+                            Set<IpAddress> ips) {
+        HostId hostId = HostId.hostId(mac, vlan);
+        HostDescription description = new DefaultHostDescription(mac, vlan, location, ips);
+        store.createOrUpdateHost(PID, hostId, description);
+        return store.getHost(hostId);
+    }
+
+    @Test
+    public void addressAndVlanLookups() {
+        Host h1 = createHost(MAC1, VLAN1, LOC1, of(IP1));
+        Host h2 = createHost(MAC1, VLAN2, LOC1, of(IP2));
+        Host h3 = createHost(MAC2, VLAN2, LOC2, of(IP2, IP3));
+
+        assertEquals("incorrect MAC lookup", of(h1, h2), store.getHosts(MAC1));
+        assertEquals("incorrect MAC lookup", of(h3), store.getHosts(MAC2));
+        assertEquals("incorrect VLAN lookup", of(h2, h3), store.getHosts(VLAN2));
+        assertEquals("incorrect IP lookup", of(h1), store.getHosts(IP1));
+        assertEquals("incorrect IP lookup", of(h2, h3), store.getHosts(IP2));
+        assertEquals("incorrect location lookup", of(h1, h2), store.getConnectedHosts(LOC1));
+        assertTrue("no hosts expected",
+                   store.getHosts(IpAddress.valueOf("10.0.0.9")).isEmpty());
+    }
+
+    @Test
+    public void lookupsFollowUpdates() {
+        createHost(MAC1, VLAN1, LOC1, of(IP1));
+        Host updated = createHost(MAC1, VLAN1, LOC1, of(IP2));
+        assertEquals("incorrect IP lookup", of(updated), store.getHosts(IP1));
+        assertEquals("incorrect IP lookup", of(updated), store.getHosts(IP2));
+        assertEquals("incorrect MAC lookup", of(updated), store.getHosts(MAC1));
+        assertEquals("incorrect location lookup", of(updated), store.getConnectedHosts(LOC1));
+    }
+
+    @Test
+    public void lookupsFollowMoves() {
+        createHost(MAC1, VLAN1, LOC1, of(IP1));
+        Host moved = createHost(MAC1, VLAN1, LOC2, of(IP1));
+        assertTrue("no hosts expected", store.getConnectedHosts(LOC1).isEmpty());
+        assertEquals("incorrect location lookup", of(moved), store.getConnectedHosts(LOC2));
+        assertEquals("incorrect IP lookup", of(moved), store.getHosts(IP1));
+        assertEquals("incorrect MAC lookup", of(moved), store.getHosts(MAC1));
+        assertEquals("incorrect VLAN lookup", of(moved), store.getHosts(VLAN1));
+    }
+
+    @Test
+    public void lookupsFollowRemovals() {
+        Host h1 = createHost(MAC1, VLAN1, LOC1, of(IP1));
+        Host h2 = createHost(MAC1, VLAN2, LOC1, of(IP1, IP2));
+        Host h3 = createHost(MAC2, VLAN2, LOC1, of(IP2));
+
+        store.removeHost(h2.id());
+        assertEquals("incorrect host count", 2, store.getHostCount());
+        assertEquals("incorrect IP lookup", of(h1), store.getHosts(IP1));
+        assertEquals("incorrect IP lookup", of(h3), store.getHosts(IP2));
+        assertEquals("incorrect MAC lookup", of(h1), store.getHosts(MAC1));
+        assertEquals("incorrect VLAN lookup", of(h3), store.getHosts(VLAN2));
+        assertEquals("incorrect location lookup", of(h1, h3), store.getConnectedHosts(LOC1));
+
+        store.removeHost(h1.id());
+        store.removeHost(h3.id());
+        assertTrue("no hosts expected", store.getHosts(IP1).isEmpty());
+        assertTrue("no hosts expected", store.getHosts(MAC2).isEmpty());
+        assertTrue("no hosts expected", store.getHosts(VLAN2).isEmpty());
+        assertTrue("no hosts expected", store.getConnectedHosts(LOC1).isEmpty());
+    }
+
+    private static final class TestClusterService extends StaticClusterService {
+
+        private TestClusterService() {
+            localNode = new DefaultControllerNode(NID1, IpAddress.valueOf("127.0.0.1"));
+            nodes.put(NID1, localNode);
+            nodeStates.put(NID1, ACTIVE);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.intent.impl;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.onosproject.cluster.NodeId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the consistent-hash assignment of intent partitions.
+ */
+public class PartitionRingTest {
+
+    private static final int PARTITIONS = 14;
+    private static final int VIRTUAL_NODES = 64;
+
+    private static List<NodeId> nodes(int count) {
+        List<NodeId> nodes = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            nodes.add(new NodeId("10.0.0." + i));
+        }
+        return nodes;
+    }
+
+    private static Map<NodeId, Integer> loads(PartitionRing ring) {
+        Map<NodeId, Integer> loads = new HashMap<>();
+        for (int p = 0; p < ring.partitionCount(); p++) {
+            loads.merge(ring.owner(p), 1, Integer::sum);
+        }
+        return loads;
+    }
+
+    private static int moved(PartitionRing before, PartitionRing after) {
+        int moved = 0;
+        for (int p = 0; p < before.partitionCount(); p++) {
+            if (!before.owner(p).equals(after.owner(p))) {
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    @Test
+    public void evenSpread() {
+        for (int n : new int[]{1, 3, 5, 7, 9}) {
+            PartitionRing ring = new PartitionRing(nodes(n), PARTITIONS, VIRTUAL_NODES);
+            Map<NodeId, Integer> loads = loads(ring);
+            int share = (PARTITIONS + n - 1) / n;
+            assertEquals("all instances should get partitions",
+                         Math.min(n, PARTITIONS), loads.size());
+            loads.values().forEach(l -> assertTrue("load above fair share", l <= share));
+        }
+    }
+
+    @Test
+    public void independentOfNodeOrder() {
+        List<NodeId> nodes = nodes(7);
+        PartitionRing ring = new PartitionRing(nodes, PARTITIONS, VIRTUAL_NODES);
+        List<NodeId> shuffled = Lists.newArrayList(nodes);
+        Collections.reverse(shuffled);
+        PartitionRing other = new PartitionRing(shuffled, PARTITIONS, VIRTUAL_NODES);
+        assertEquals(0, moved(ring, other));
+    }
+
+    @Test
+    public void fewMovesOnMembershipChange() {
+        for (int n : new int[]{5, 7, 9}) {
+            List<NodeId> nodes = nodes(n);
+            PartitionRing ring = new PartitionRing(nodes, PARTITIONS, VIRTUAL_NODES);
+
+            // Only the departed instance's partitions, plus a few to keep
+            // the load bounded, should move
+            PartitionRing left = new PartitionRing(nodes.subList(0, n - 1), PARTITIONS, VIRTUAL_NODES);
+            int owned = loads(ring).getOrDefault(nodes.get(n - 1), 0);
+            int moved = moved(ring, left);
+            assertTrue("too many moves on leave: " + moved, moved <= owned + PARTITIONS / n + 1);
+
+            List<NodeId> joined = nodes(n + 1);
+            PartitionRing grown = new PartitionRing(joined, PARTITIONS, VIRTUAL_NODES);
+            int gained = loads(grown).getOrDefault(joined.get(n), 0);
+            moved = moved(ring, grown);
+            assertTrue("too many moves on join: " + moved, moved <= gained + PARTITIONS / n + 1);
+        }
+    }
+
+    @Test
+    public void noNodes() {
+        PartitionRing ring = new PartitionRing(new ArrayList<>(), PARTITIONS, VIRTUAL_NODES);
+        assertEquals(PARTITIONS, ring.partitionCount());
+        assertNull(ring.owner(0));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.resource.impl;
+
+import org.junit.Test;
+import org.onosproject.net.resource.Bandwidth;
+import org.onosproject.net.resource.BandwidthResourceAllocation;
+import org.onosproject.net.resource.Lambda;
+import org.onosproject.net.resource.LambdaResourceAllocation;
+import org.onosproject.net.resource.MplsLabel;
+import org.onosproject.net.resource.MplsLabelResourceAllocation;
+import org.onosproject.net.resource.ResourceAllocation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the bitmap-based link resource pool.
+ */
+public class LinkResourcePoolTest {
+
+    private static LambdaResourceAllocation lambda(int lambda) {
+        return new LambdaResourceAllocation(Lambda.valueOf(lambda));
+    }
+
+    private static MplsLabelResourceAllocation label(int label) {
+        return new MplsLabelResourceAllocation(MplsLabel.valueOf(label));
+    }
+
+    private static BandwidthResourceAllocation bandwidth(double mbps) {
+        return new BandwidthResourceAllocation(Bandwidth.mbps(mbps));
+    }
+
+    @Test
+    public void allocateRelease() {
+        LinkResourcePool pool = new LinkResourcePool(Bandwidth.mbps(1000), 80, 16, 0xFFFFF);
+
+        assertTrue(pool.isFree(lambda(1)));
+        assertTrue(pool.isFree(lambda(80)));
+        assertFalse(pool.isFree(lambda(0)));
+        assertFalse(pool.isFree(lambda(81)));
+        assertTrue(pool.isFree(label(16)));
+        assertFalse(pool.isFree(label(15)));
+
+        pool.allocate(lambda(1));
+        pool.allocate(label(16));
+        pool.allocate(bandwidth(300));
+        assertFalse(pool.isFree(lambda(1)));
+        assertFalse(pool.isFree(label(16)));
+        assertEquals(Bandwidth.mbps(700), pool.freeBandwidth());
+        assertEquals(2, pool.nextFreeLambda(1));
+        assertEquals(79, pool.freeLambdas().cardinality());
+        assertEquals(2, pool.freeLambdas().nextSetBit(0));
+        assertEquals(17, pool.nextFreeLabel(0));
+
+        pool.release(lambda(1));
+        pool.release(label(16));
+        pool.release(bandwidth(300));
+        assertTrue(pool.isFree(lambda(1)));
+        assertTrue(pool.isFree(label(16)));
+        assertEquals(Bandwidth.mbps(1000), pool.freeBandwidth());
+    }
+
+    @Test
+    public void exhausted() {
+        LinkResourcePool pool = new LinkResourcePool(Bandwidth.mbps(1000), 2, 16, 17);
+        pool.allocate(lambda(1));
+        pool.allocate(lambda(2));
+        pool.allocate(label(16));
+        pool.allocate(label(17));
+        assertEquals(-1, pool.nextFreeLambda(1));
+        assertEquals(-1, pool.nextFreeLabel(16));
+
+        // Only the bandwidth is left
+        assertEquals(1, pool.freeResources().size());
+        ResourceAllocation bw = pool.freeResources().iterator().next();
+        assertEquals(Bandwidth.mbps(1000), ((BandwidthResourceAllocation) bw).bandwidth());
+    }
+
+    @Test
+    public void freeResources() {
+        LinkResourcePool pool = new LinkResourcePool(Bandwidth.mbps(1000), 3, 16, 19);
+        pool.allocate(lambda(2));
+        pool.allocate(label(17));
+        pool.allocate(bandwidth(100));
+
+        Set<ResourceAllocation> free = pool.freeResources();
+        assertEquals(1 + 2 + 3, free.size());
+        assertTrue(free.contains(bandwidth(900)));
+        assertTrue(free.contains(lambda(3)));
+        assertFalse(free.contains(lambda(2)));
+        assertTrue(free.contains(label(19)));
+        assertFalse(free.contains(label(17)));
+
+        List<ResourceAllocation> listed = new ArrayList<>(free);
+        assertEquals(Bandwidth.mbps(900), ((BandwidthResourceAllocation) listed.get(0)).bandwidth());
+
+        List<ResourceAllocation> expected = new ArrayList<>();
+        expected.add(lambda(1));
+        expected.add(lambda(3));
+        expected.add(label(16));
+        expected.add(label(18));
+        expected.add(label(19));
+        assertEquals(expected, listed.subList(1, listed.size()));
+    }
+}
@@ -18,20 +18,17 @@ package org.onosproject.store.trivial.impl;
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static org.onlab.graph.GraphPathSearch.ALL_PATHS;
 import static org.onosproject.core.CoreService.CORE_PROVIDER_ID;
-import static org.onosproject.net.Link.State.ACTIVE;
-import static org.onosproject.net.Link.State.INACTIVE;
-import static org.onosproject.net.Link.Type.INDIRECT;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
-import org.onlab.graph.DijkstraGraphSearch;
-import org.onlab.graph.GraphPathSearch;
-import org.onlab.graph.GraphPathSearch.Result;
-import org.onlab.graph.TarjanGraphSearch;
-import org.onlab.graph.TarjanGraphSearch.SCCResult;
+import org.onlab.graph.CompactGraphSearch;
+import org.onlab.graph.CompactGraphSearch.ShortestPathTree;
 import org.onosproject.net.AbstractModel;
 import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.DefaultPath;
@@ -40,7 +37,6 @@ import org.onosproject.net.Link;
 import org.onosproject.net.Path;
 import org.onosproject.net.provider.ProviderId;
 import org.onosproject.net.topology.ClusterId;
-import org.onosproject.net.topology.DefaultTopologyCluster;
 import org.onosproject.net.topology.DefaultTopologyVertex;
 import org.onosproject.net.topology.GraphDescription;
 import org.onosproject.net.topology.LinkWeight;
@@ -52,33 +48,46 @@ import org.onosproject.net.topology.TopologyVertex;
 
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.ImmutableSetMultimap;
-import com.google.common.collect.ImmutableSetMultimap.Builder;
 
 // FIXME: Move to onos-core-common when ready
 /**
  * Default implementation of the topology descriptor. This carries the backing
  * topology data.
+ * <p>
+ * The clusters of a topology are computed when it is created, incrementally
+ * from those of the preceding topology when one is given; the compute cost
+ * reports the time spent either way.
+ * </p>
+ * <p>
+ * Shortest paths are served from shortest path trees computed once per
+ * source device and link weight, and shared by all destinations. The trees
+ * are softly referenced, so they are reclaimed under memory pressure, and
+ * they die together with the topology instance. They are computed over the
+ * vertex and edge indexes of the compact topology graph.
+ * </p>
  */
 public class DefaultTopology extends AbstractModel implements Topology {
 
-    private static final DijkstraGraphSearch<TopologyVertex, TopologyEdge> DIJKSTRA = new DijkstraGraphSearch<>();
-    private static final TarjanGraphSearch<TopologyVertex, TopologyEdge> TARJAN = new TarjanGraphSearch<>();
+    // Upper bound on the number of cached shortest path trees
+    private static final int MAX_PATH_TREES = 4096;
 
     private final long time;
     private final long creationTime;
     private final long computeCost;
-    private final TopologyGraph graph;
+    private final DefaultTopologyGraph graph;
 
-    private final LinkWeight weight;
-    private final Supplier<SCCResult<TopologyVertex, TopologyEdge>> clusterResults;
-    private final Supplier<ImmutableMap<ClusterId, TopologyCluster>> clusters;
+    private final TopologyClusters clusters;
     private final Supplier<ImmutableSet<ConnectPoint>> infrastructurePoints;
-    private final Supplier<ImmutableSetMultimap<ClusterId, ConnectPoint>> broadcastSets;
+    private final LoadingCache<PathKey, PathTree> pathTrees;
 
-    private final Supplier<ClusterIndexes> clusterIndexes;
+    // Searches are not thread-safe, but their scratch space is worth reusing
+    private final Queue<CompactGraphSearch<TopologyVertex, TopologyEdge>> searches =
+            new ConcurrentLinkedQueue<>();
 
     /**
      * Creates a topology descriptor attributed to the specified provider.
@@ -89,24 +98,49 @@ public class DefaultTopology extends AbstractModel implements Topology {
      *            data describing the new topology
      */
     DefaultTopology(ProviderId providerId, GraphDescription description) {
+        this(providerId, description, null);
+    }
+
+    /**
+     * Creates a topology descriptor attributed to the specified provider,
+     * deriving its clusters from those of the preceding topology.
+     *
+     * @param providerId
+     *            identity of the provider
+     * @param description
+     *            data describing the new topology
+     * @param previous
+     *            preceding topology; null to compute from scratch
+     */
+    DefaultTopology(ProviderId providerId, GraphDescription description,
+                    DefaultTopology previous) {
         super(providerId);
         this.time = description.timestamp();
         this.creationTime = description.creationTime();
 
+        long start = System.nanoTime();
+
         // Build the graph
         this.graph = new DefaultTopologyGraph(description.vertexes(),
                 description.edges());
 
-        this.clusterResults = Suppliers.memoize(() -> searchForClusters());
-        this.clusters = Suppliers.memoize(() -> buildTopologyClusters());
-
-        this.clusterIndexes = Suppliers.memoize(() -> buildIndexes());
+        this.clusters = previous == null
+                ? TopologyClusters.compute(graph)
+                : TopologyClusters.update(previous.clusters, previous.graph, graph);
 
-        this.weight = new HopCountLinkWeight(graph.getVertexes().size());
-        this.broadcastSets = Suppliers.memoize(() -> buildBroadcastSets());
         this.infrastructurePoints = Suppliers
                 .memoize(() -> findInfrastructurePoints());
-        this.computeCost = Math.max(0, System.nanoTime() - time);
+        this.pathTrees = CacheBuilder.newBuilder()
+                .softValues()
+                .maximumSize(MAX_PATH_TREES)
+                .recordStats()
+                .build(new CacheLoader<PathKey, PathTree>() {
+                    @Override
+                    public PathTree load(PathKey key) {
+                        return new PathTree(searchTree(key));
+                    }
+                });
+        this.computeCost = Math.max(0, System.nanoTime() - start);
     }
 
     @Override
@@ -126,7 +160,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
 
     @Override
     public int clusterCount() {
-        return clusters.get().size();
+        return clusters.clusterCount();
     }
 
     @Override
@@ -139,16 +173,14 @@ public class DefaultTopology extends AbstractModel implements Topology {
         return graph.getEdges().size();
     }
 
-    private ImmutableMap<DeviceId, TopologyCluster> clustersByDevice() {
-        return clusterIndexes.get().clustersByDevice;
-    }
-
-    private ImmutableSetMultimap<TopologyCluster, DeviceId> devicesByCluster() {
-        return clusterIndexes.get().devicesByCluster;
-    }
-
-    private ImmutableSetMultimap<TopologyCluster, Link> linksByCluster() {
-        return clusterIndexes.get().linksByCluster;
+    /**
+     * Indicates whether the clusters of this topology were derived
+     * incrementally from those of the preceding topology.
+     *
+     * @return true if computed incrementally
+     */
+    boolean isIncremental() {
+        return clusters.isIncremental();
     }
 
     /**
@@ -166,7 +198,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
      * @return set of clusters
      */
     Set<TopologyCluster> getClusters() {
-        return ImmutableSet.copyOf(clusters.get().values());
+        return clusters.getClusters();
     }
 
     /**
@@ -177,7 +209,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
      * @return topology cluster
      */
     TopologyCluster getCluster(ClusterId clusterId) {
-        return clusters.get().get(clusterId);
+        return clusters.getCluster(clusterId);
     }
 
     /**
@@ -188,7 +220,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
      * @return topology cluster
      */
     TopologyCluster getCluster(DeviceId deviceId) {
-        return clustersByDevice().get(deviceId);
+        return clusters.getCluster(deviceId);
     }
 
     /**
@@ -199,7 +231,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
      * @return cluster devices
      */
     Set<DeviceId> getClusterDevices(TopologyCluster cluster) {
-        return devicesByCluster().get(cluster);
+        return clusters.getClusterDevices(cluster);
     }
 
     /**
@@ -210,7 +242,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
      * @return cluster links
      */
     Set<Link> getClusterLinks(TopologyCluster cluster) {
-        return linksByCluster().get(cluster);
+        return clusters.getClusterLinks(cluster);
     }
 
     /**
@@ -238,7 +270,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
         }
 
         // Find the cluster to which the device belongs.
-        TopologyCluster cluster = clustersByDevice().get(connectPoint.deviceId());
+        TopologyCluster cluster = clusters.getCluster(connectPoint.deviceId());
         if (cluster == null) {
             throw new IllegalArgumentException("No cluster found for device "
                     + connectPoint.deviceId());
@@ -246,7 +278,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
 
         // If the broadcast set is null or empty, or if the point explicitly
         // belongs to it, return true;
-        Set<ConnectPoint> points = broadcastSets.get().get(cluster.id());
+        Set<ConnectPoint> points = clusters.getBroadcastPoints(cluster.id());
         return (points == null) || points.isEmpty() || points.contains(connectPoint);
     }
 
@@ -258,7 +290,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
      * @return size of the cluster broadcast set
      */
     int broadcastSetSize(ClusterId clusterId) {
-        return broadcastSets.get().get(clusterId).size();
+        return clusters.getBroadcastPoints(clusterId).size();
     }
 
     /**
@@ -296,13 +328,17 @@ public class DefaultTopology extends AbstractModel implements Topology {
             return ImmutableSet.of();
         }
 
-        GraphPathSearch.Result<TopologyVertex, TopologyEdge> result =
-                DIJKSTRA.search(graph, srcV, dstV, weight, ALL_PATHS);
-        ImmutableSet.Builder<Path> builder = ImmutableSet.builder();
-        for (org.onlab.graph.Path<TopologyVertex, TopologyEdge> path : result.paths()) {
-            builder.add(networkPath(path));
-        }
-        return builder.build();
+        return pathTrees.getUnchecked(new PathKey(src, weight)).paths(dstV);
+    }
+
+    /**
+     * Returns the hit, miss and eviction statistics of the shortest path
+     * tree cache.
+     *
+     * @return path cache statistics
+     */
+    CacheStats pathCacheStats() {
+        return pathTrees.stats();
     }
 
     // Converts graph path to a network path with the same cost.
@@ -314,84 +350,41 @@ public class DefaultTopology extends AbstractModel implements Topology {
         return new DefaultPath(CORE_PROVIDER_ID, links, path.cost());
     }
 
-    // Searches for SCC clusters in the network topology graph using Tarjan
-    // algorithm.
-    private SCCResult<TopologyVertex, TopologyEdge> searchForClusters() {
-        return TARJAN.search(graph, new NoIndirectLinksWeight());
-    }
-
-    // Builds the topology clusters and returns the id-cluster bindings.
-    private ImmutableMap<ClusterId, TopologyCluster> buildTopologyClusters() {
-        ImmutableMap.Builder<ClusterId, TopologyCluster> clusterBuilder = ImmutableMap.builder();
-        SCCResult<TopologyVertex, TopologyEdge> results = clusterResults.get();
-        // Extract both vertexes and edges from the results; the lists form
-        // pairs along the same index.
-        List<Set<TopologyVertex>> clusterVertexes = results.clusterVertexes();
-        List<Set<TopologyEdge>> clusterEdges = results.clusterEdges();
-
-        // Scan over the lists and create a cluster from the results.
-        for (int i = 0, n = results.clusterCount(); i < n; i++) {
-            Set<TopologyVertex> vertexSet = clusterVertexes.get(i);
-            Set<TopologyEdge> edgeSet = clusterEdges.get(i);
-
-            ClusterId cid = ClusterId.clusterId(i);
-            DefaultTopologyCluster cluster = new DefaultTopologyCluster(cid,
-                                                                        vertexSet.size(),
-                                                                        edgeSet.size(),
-                                                                        findRoot(vertexSet));
-            clusterBuilder.put(cid, cluster);
+    // Computes the shortest path tree for the given key, using a pooled
+    // search if one is available.
+    private ShortestPathTree<TopologyVertex, TopologyEdge> searchTree(PathKey key) {
+        CompactGraphSearch<TopologyVertex, TopologyEdge> search = searches.poll();
+        if (search == null) {
+            search = new CompactGraphSearch<>(graph);
         }
-        return clusterBuilder.build();
-    }
-
-    // Finds the vertex whose device id is the lexicographical minimum in the
-    // specified set.
-    private TopologyVertex findRoot(Set<TopologyVertex> vertexSet) {
-        TopologyVertex minVertex = null;
-        for (TopologyVertex vertex : vertexSet) {
-            if ((minVertex == null) || (minVertex.deviceId().toString()
-                    .compareTo(minVertex.deviceId().toString()) < 0)) {
-                minVertex = vertex;
-            }
+        try {
+            return search.dijkstra(graph.index(new DefaultTopologyVertex(key.src())),
+                                   graph.weights(key.weight()));
+        } finally {
+            searches.offer(search);
         }
-        return minVertex;
     }
 
-    // Processes a map of broadcast sets for each cluster.
-    private ImmutableSetMultimap<ClusterId, ConnectPoint> buildBroadcastSets() {
-        Builder<ClusterId, ConnectPoint> builder = ImmutableSetMultimap.builder();
-        for (TopologyCluster cluster : clusters.get().values()) {
-            addClusterBroadcastSet(cluster, builder);
+    // Shortest path tree rooted at a source device, with the network paths
+    // built from it memoized per destination.
+    private final class PathTree {
+        private final ShortestPathTree<TopologyVertex, TopologyEdge> tree;
+        private final ConcurrentMap<TopologyVertex, Set<Path>> paths =
+                new ConcurrentHashMap<>();
+
+        private PathTree(ShortestPathTree<TopologyVertex, TopologyEdge> tree) {
+            this.tree = tree;
         }
-        return builder.build();
-    }
 
-    // Finds all broadcast points for the cluster. These are those connection
-    // points which lie along the shortest paths between the cluster root and
-    // all other devices within the cluster.
-    private void addClusterBroadcastSet(TopologyCluster cluster, Builder<ClusterId, ConnectPoint> builder) {
-        // Use the graph root search results to build the broadcast set.
-        Result<TopologyVertex, TopologyEdge> result =
-                DIJKSTRA.search(graph, cluster.root(), null, weight, 1);
-        for (Map.Entry<TopologyVertex, Set<TopologyEdge>> entry : result.parents().entrySet()) {
-            TopologyVertex vertex = entry.getKey();
-
-            // Ignore any parents that lead outside the cluster.
-            if (clustersByDevice().get(vertex.deviceId()) != cluster) {
-                continue;
-            }
-
-            // Ignore any back-link sets that are empty.
-            Set<TopologyEdge> parents = entry.getValue();
-            if (parents.isEmpty()) {
-                continue;
-            }
-
-            // Use the first back-link source and destinations to add to the
-            // broadcast set.
-            Link link = parents.iterator().next().link();
-            builder.put(cluster.id(), link.src());
-            builder.put(cluster.id(), link.dst());
+        private Set<Path> paths(TopologyVertex dst) {
+            return paths.computeIfAbsent(dst, v -> {
+                ImmutableSet.Builder<Path> builder = ImmutableSet.builder();
+                for (org.onlab.graph.Path<TopologyVertex, TopologyEdge> path :
+                        tree.paths(graph.index(v), ALL_PATHS)) {
+                    builder.add(networkPath(path));
+                }
+                return builder.build();
+            });
         }
     }
 
@@ -405,86 +398,13 @@ public class DefaultTopology extends AbstractModel implements Topology {
         return builder.build();
     }
 
-    // Builds cluster-devices, cluster-links and device-cluster indexes.
-    private ClusterIndexes buildIndexes() {
-        // Prepare the index builders
-        ImmutableMap.Builder<DeviceId, TopologyCluster> clusterBuilder =
-                ImmutableMap.builder();
-        ImmutableSetMultimap.Builder<TopologyCluster, DeviceId> devicesBuilder =
-                ImmutableSetMultimap.builder();
-        ImmutableSetMultimap.Builder<TopologyCluster, Link> linksBuilder =
-                ImmutableSetMultimap.builder();
-
-        // Now scan through all the clusters
-        for (TopologyCluster cluster : clusters.get().values()) {
-            int i = cluster.id().index();
-
-            // Scan through all the cluster vertexes.
-            for (TopologyVertex vertex : clusterResults.get().clusterVertexes().get(i)) {
-                devicesBuilder.put(cluster, vertex.deviceId());
-                clusterBuilder.put(vertex.deviceId(), cluster);
-            }
-
-            // Scan through all the cluster edges.
-            for (TopologyEdge edge : clusterResults.get().clusterEdges().get(i)) {
-                linksBuilder.put(cluster, edge.link());
-            }
-        }
-
-        // Finalize all indexes.
-        return new ClusterIndexes(clusterBuilder.build(),
-                devicesBuilder.build(), linksBuilder.build());
-    }
-
-    // Link weight for measuring link cost as hop count with indirect links
-    // being as expensive as traversing the entire graph to assume the worst.
-    private static class HopCountLinkWeight implements LinkWeight {
-        private final int indirectLinkCost;
-
-        HopCountLinkWeight(int indirectLinkCost) {
-            this.indirectLinkCost = indirectLinkCost;
-        }
-
-        @Override
-        public double weight(TopologyEdge edge) {
-            // To force preference to use direct paths first, make indirect
-            // links as expensive as the linear vertex traversal.
-            return edge.link().state() ==
-                    ACTIVE ? (edge.link().type() ==
-                    INDIRECT ? indirectLinkCost : 1) : -1;
-        }
-    }
-
-    // Link weight for preventing traversal over indirect links.
-    private static class NoIndirectLinksWeight implements LinkWeight {
-        @Override
-        public double weight(TopologyEdge edge) {
-            return (edge.link().state() == INACTIVE)
-                    || (edge.link().type() == INDIRECT) ? -1 : 1;
-        }
-    }
-
-    static final class ClusterIndexes {
-        final ImmutableMap<DeviceId, TopologyCluster> clustersByDevice;
-        final ImmutableSetMultimap<TopologyCluster, DeviceId> devicesByCluster;
-        final ImmutableSetMultimap<TopologyCluster, Link> linksByCluster;
-
-        public ClusterIndexes(
-                ImmutableMap<DeviceId, TopologyCluster> clustersByDevice,
-                ImmutableSetMultimap<TopologyCluster, DeviceId> devicesByCluster,
-                ImmutableSetMultimap<TopologyCluster, Link> linksByCluster) {
-            this.clustersByDevice = clustersByDevice;
-            this.devicesByCluster = devicesByCluster;
-            this.linksByCluster = linksByCluster;
-        }
-    }
-
     @Override
     public String toString() {
         return toStringHelper(this)
                 .add("time", time)
                 .add("created", creationTime)
                 .add("computeCost", computeCost)
+                .add("incremental", isIncremental())
                 .add("clusters", clusterCount())
                 .add("devices", deviceCount())
                 .add("links", linkCount()).toString();
@@ -16,29 +16,49 @@
 package org.onosproject.store.trivial.impl;
 
 import org.onosproject.net.DeviceId;
+import org.onosproject.net.topology.LinkWeight;
 
 import java.util.Objects;
 
 /**
- * Key for filing pre-computed paths between source and destination devices.
+ * Key for filing shortest path trees rooted at a source device and computed
+ * with a link weight function. Weight functions are compared with their own
+ * equality, so a function that carries value semantics is shared by all its
+ * equal instances, while any other one is told apart by identity.
  */
 class PathKey {
     private final DeviceId src;
-    private final DeviceId dst;
+    private final LinkWeight weight;
 
     /**
-     * Creates a path key from the given source/dest pair.
+     * Creates a path key from the given source/weight pair.
      * @param src source device
-     * @param dst destination device
+     * @param weight link weight function; null for hop count
      */
-    PathKey(DeviceId src, DeviceId dst) {
+    PathKey(DeviceId src, LinkWeight weight) {
         this.src = src;
-        this.dst = dst;
+        this.weight = weight;
+    }
+
+    /**
+     * Returns the source device.
+     * @return source device
+     */
+    DeviceId src() {
+        return src;
+    }
+
+    /**
+     * Returns the link weight function.
+     * @return link weight function; null for hop count
+     */
+    LinkWeight weight() {
+        return weight;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(src, dst);
+        return Objects.hash(src, weight);
     }
 
     @Override
@@ -48,7 +68,7 @@ class PathKey {
         }
         if (obj instanceof PathKey) {
             final PathKey other = (PathKey) obj;
-            return Objects.equals(this.src, other.src) && Objects.equals(this.dst, other.dst);
+            return Objects.equals(this.src, other.src) && Objects.equals(this.weight, other.weight);
         }
         return false;
     }
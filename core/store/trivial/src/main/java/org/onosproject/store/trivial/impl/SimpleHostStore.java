@@ -77,6 +77,14 @@ public class SimpleHostStore
     // Hosts tracked by their location
     private final Multimap<ConnectPoint, Host> locations = HashMultimap.create();
 
+    // Hosts tracked by their addresses and VLAN
+    private final SetMultimap<IpAddress, Host> ipAddresses =
+            Multimaps.synchronizedSetMultimap(HashMultimap.<IpAddress, Host>create());
+    private final SetMultimap<MacAddress, Host> macAddresses =
+            Multimaps.synchronizedSetMultimap(HashMultimap.<MacAddress, Host>create());
+    private final SetMultimap<VlanId, Host> vlans =
+            Multimaps.synchronizedSetMultimap(HashMultimap.<VlanId, Host>create());
+
     private final SetMultimap<ConnectPoint, PortAddresses> portAddresses =
             Multimaps.synchronizedSetMultimap(
                     HashMultimap.<ConnectPoint, PortAddresses>create());
@@ -112,7 +120,7 @@ public class SimpleHostStore
                                             descr.annotations());
         synchronized (this) {
             hosts.put(hostId, newhost);
-            locations.put(descr.location(), newhost);
+            index(newhost);
         }
         return new HostEvent(HOST_ADDED, newhost);
     }
@@ -122,7 +130,11 @@ public class SimpleHostStore
                                  HostDescription descr) {
         HostEvent event;
         if (!host.location().equals(descr.location())) {
-            host.setLocation(descr.location());
+            synchronized (this) {
+                unindex(host);
+                host.setLocation(descr.location());
+                index(host);
+            }
             return new HostEvent(HOST_MOVED, host);
         }
 
@@ -142,18 +154,40 @@ public class SimpleHostStore
         event = new HostEvent(HOST_UPDATED, updated);
         synchronized (this) {
             hosts.put(host.id(), updated);
-            locations.remove(host.location(), host);
-            locations.put(updated.location(), updated);
+            unindex(host);
+            index(updated);
         }
         return event;
     }
 
+    // Adds the host to the location, address and VLAN indexes; must be
+    // invoked while holding this store.
+    private void index(Host host) {
+        locations.put(host.location(), host);
+        for (IpAddress ip : host.ipAddresses()) {
+            ipAddresses.put(ip, host);
+        }
+        macAddresses.put(host.mac(), host);
+        vlans.put(host.vlan(), host);
+    }
+
+    // Removes the host from the location, address and VLAN indexes; must be
+    // invoked while holding this store.
+    private void unindex(Host host) {
+        locations.remove(host.location(), host);
+        for (IpAddress ip : host.ipAddresses()) {
+            ipAddresses.remove(ip, host);
+        }
+        macAddresses.remove(host.mac(), host);
+        vlans.remove(host.vlan(), host);
+    }
+
     @Override
     public HostEvent removeHost(HostId hostId) {
         synchronized (this) {
             Host host = hosts.remove(hostId);
             if (host != null) {
-                locations.remove((host.location()), host);
+                unindex(host);
                 return new HostEvent(HOST_REMOVED, host);
             }
             return null;
@@ -177,35 +211,24 @@ public class SimpleHostStore
 
     @Override
     public Set<Host> getHosts(VlanId vlanId) {
-        Set<Host> vlanset = new HashSet<>();
-        for (Host h : hosts.values()) {
-            if (h.vlan().equals(vlanId)) {
-                vlanset.add(h);
-            }
-        }
-        return vlanset;
+        return copyOf(vlans, vlanId);
     }
 
     @Override
     public Set<Host> getHosts(MacAddress mac) {
-        Set<Host> macset = new HashSet<>();
-        for (Host h : hosts.values()) {
-            if (h.mac().equals(mac)) {
-                macset.add(h);
-            }
-        }
-        return macset;
+        return copyOf(macAddresses, mac);
     }
 
     @Override
     public Set<Host> getHosts(IpAddress ip) {
-        Set<Host> ipset = new HashSet<>();
-        for (Host h : hosts.values()) {
-            if (h.ipAddresses().contains(ip)) {
-                ipset.add(h);
-            }
+        return copyOf(ipAddresses, ip);
+    }
+
+    // Returns a copy of the hosts filed under the key in the given index.
+    private static <K> Set<Host> copyOf(SetMultimap<K, Host> index, K key) {
+        synchronized (index) {
+            return ImmutableSet.copyOf(index.get(key));
         }
-        return ipset;
     }
 
     @Override
@@ -38,6 +38,7 @@ import org.onosproject.net.resource.LambdaResourceAllocation;
 import org.onosproject.net.resource.LinkResourceAllocations;
 import org.onosproject.net.resource.LinkResourceEvent;
 import org.onosproject.net.resource.LinkResourceStore;
+import org.onosproject.net.resource.MplsLabel;
 import org.onosproject.net.resource.ResourceAllocation;
 import org.onosproject.net.resource.ResourceAllocationException;
 import org.onosproject.net.resource.ResourceType;
@@ -221,6 +222,28 @@ public class SimpleLinkResourceStore implements LinkResourceStore {
         return freeRes;
     }
 
+    @Override
+    public synchronized Bandwidth getFreeBandwidth(Link link) {
+        return getBandwidth(getFreeResources(link)).bandwidth();
+    }
+
+    @Override
+    public synchronized Set<Lambda> getFreeLambdas(Link link) {
+        Set<Lambda> lambdas = new HashSet<>();
+        for (ResourceAllocation res : getFreeResources(link)) {
+            if (res.type() == ResourceType.LAMBDA) {
+                lambdas.add(((LambdaResourceAllocation) res).lambda());
+            }
+        }
+        return lambdas;
+    }
+
+    @Override
+    public MplsLabel getFreeMplsLabel(Link link) {
+        // MPLS labels are not tracked by this store
+        return null;
+    }
+
     @Override
     public synchronized void allocateResources(LinkResourceAllocations allocations) {
         checkNotNull(allocations);
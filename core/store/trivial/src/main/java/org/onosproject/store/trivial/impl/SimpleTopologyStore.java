@@ -132,9 +132,10 @@ public class SimpleTopologyStore
             return null;
         }
 
-        // Have the default topology construct self from the description data.
+        // Have the default topology construct self from the description data,
+        // deriving what it can from the current topology.
         DefaultTopology newTopology =
-                new DefaultTopology(providerId, graphDescription);
+                new DefaultTopology(providerId, graphDescription, current);
 
         // Promote the new topology to current and return a ready-to-send event.
         synchronized (this) {
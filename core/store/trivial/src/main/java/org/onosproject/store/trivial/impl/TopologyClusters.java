@@ -0,0 +1,697 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.trivial.impl;
+
+import static org.onosproject.net.Link.State.INACTIVE;
+import static org.onosproject.net.Link.Type.INDIRECT;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import org.onlab.graph.CompactGraphSearch;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+import org.onosproject.net.topology.ClusterId;
+import org.onosproject.net.topology.DefaultTopologyCluster;
+import org.onosproject.net.topology.DefaultTopologyVertex;
+import org.onosproject.net.topology.LinkWeight;
+import org.onosproject.net.topology.TopologyCluster;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyGraph;
+import org.onosproject.net.topology.TopologyVertex;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * SCC clusters of a topology graph together with their device, link and
+ * broadcast point indexes.
+ * <p>
+ * Clusters are either computed from scratch or derived from the clusters of
+ * the preceding topology. In the latter case only the clusters touched by
+ * the graph changes are searched again: removed links and devices split
+ * their own cluster at most, added links merge the clusters lying on a
+ * cycle through them, and the broadcast tree of a cluster is recomputed
+ * only if it may have changed. All other clusters, including their indexes
+ * and broadcast trees, are shared with the preceding topology.
+ * </p>
+ */
+final class TopologyClusters {
+
+    // Above 1/MAX_CHANGE_RATIO of changed devices and links, rebuild fully
+    private static final int MAX_CHANGE_RATIO = 4;
+
+    private static final LinkWeight NO_INDIRECT_LINKS = new NoIndirectLinksWeight();
+
+    private final ImmutableMap<ClusterId, ClusterData> clusters;
+    private final ImmutableMap<DeviceId, ClusterId> clusterIds;
+    private final boolean incremental;
+
+    private TopologyClusters(ImmutableMap<ClusterId, ClusterData> clusters,
+                             ImmutableMap<DeviceId, ClusterId> clusterIds,
+                             boolean incremental) {
+        this.clusters = clusters;
+        this.clusterIds = clusterIds;
+        this.incremental = incremental;
+    }
+
+    /**
+     * Computes the clusters of the given graph from scratch.
+     *
+     * @param graph topology graph
+     * @return topology clusters
+     */
+    static TopologyClusters compute(DefaultTopologyGraph graph) {
+        CompactGraphSearch<TopologyVertex, TopologyEdge> search = new CompactGraphSearch<>(graph);
+        double[] weights = graph.weights(NO_INDIRECT_LINKS);
+        int[] components = new int[graph.vertexCount()];
+        int count = search.tarjan(weights, components);
+        List<Set<TopologyVertex>> members = members(graph, components, count);
+
+        // Broadcast trees never leave their cluster, so with the links
+        // between clusters cut, a search from each root spans its cluster.
+        for (int e = 0; e < weights.length; e++) {
+            if (components[graph.src(e)] != components[graph.dst(e)]) {
+                weights[e] = -1;
+            }
+        }
+        int[] order = new int[graph.vertexCount()];
+        int[] parentEdges = new int[graph.vertexCount()];
+
+        Map<ClusterId, ClusterData> clusters = new LinkedHashMap<>();
+        Map<DeviceId, ClusterId> clusterIds = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            ClusterId cid = ClusterId.clusterId(i);
+            Set<TopologyVertex> vertexes = members.get(i);
+            TopologyVertex root = findRoot(vertexes);
+            int reached = search.breadthFirst(graph.index(root), weights, order, parentEdges);
+            ImmutableSet.Builder<ConnectPoint> broadcastPoints = ImmutableSet.builder();
+            for (int j = 1; j < reached; j++) {
+                Link link = graph.edge(parentEdges[order[j]]).link();
+                broadcastPoints.add(link.src());
+                broadcastPoints.add(link.dst());
+            }
+            ClusterData data = buildCluster(graph, cid, vertexes, root,
+                                            broadcastPoints.build());
+            clusters.put(cid, data);
+            for (DeviceId deviceId : data.devices) {
+                clusterIds.put(deviceId, cid);
+            }
+        }
+        return new TopologyClusters(ImmutableMap.copyOf(clusters),
+                                    ImmutableMap.copyOf(clusterIds), false);
+    }
+
+    /**
+     * Derives the clusters of the given graph from the clusters of the
+     * preceding graph, falling back to a full computation if the graphs
+     * differ too much.
+     *
+     * @param previous      clusters of the preceding graph
+     * @param previousGraph preceding topology graph
+     * @param graph         topology graph
+     * @return topology clusters
+     */
+    static TopologyClusters update(TopologyClusters previous, TopologyGraph previousGraph,
+                                   DefaultTopologyGraph graph) {
+        TopologyClusters clusters = new Update(previous, previousGraph, graph).apply();
+        return clusters != null ? clusters : compute(graph);
+    }
+
+    /**
+     * Indicates whether the clusters were derived from the clusters of the
+     * preceding graph.
+     *
+     * @return true if computed incrementally
+     */
+    boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Returns all clusters.
+     *
+     * @return set of clusters
+     */
+    Set<TopologyCluster> getClusters() {
+        ImmutableSet.Builder<TopologyCluster> builder = ImmutableSet.builder();
+        for (ClusterData data : clusters.values()) {
+            builder.add(data.cluster);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the number of clusters.
+     *
+     * @return cluster count
+     */
+    int clusterCount() {
+        return clusters.size();
+    }
+
+    /**
+     * Returns the cluster with the given identifier.
+     *
+     * @param clusterId cluster identifier
+     * @return cluster, or null if there is none
+     */
+    TopologyCluster getCluster(ClusterId clusterId) {
+        ClusterData data = clusters.get(clusterId);
+        return data == null ? null : data.cluster;
+    }
+
+    /**
+     * Returns the cluster containing the given device.
+     *
+     * @param deviceId device identifier
+     * @return cluster, or null if the device is not in the graph
+     */
+    TopologyCluster getCluster(DeviceId deviceId) {
+        ClusterId cid = clusterIds.get(deviceId);
+        return cid == null ? null : getCluster(cid);
+    }
+
+    /**
+     * Returns the devices of the given cluster.
+     *
+     * @param cluster topology cluster
+     * @return cluster devices
+     */
+    Set<DeviceId> getClusterDevices(TopologyCluster cluster) {
+        ClusterData data = data(cluster);
+        return data == null ? ImmutableSet.of() : data.devices;
+    }
+
+    /**
+     * Returns the links of the given cluster.
+     *
+     * @param cluster topology cluster
+     * @return cluster links
+     */
+    Set<Link> getClusterLinks(TopologyCluster cluster) {
+        ClusterData data = data(cluster);
+        return data == null ? ImmutableSet.of() : data.links;
+    }
+
+    /**
+     * Returns the broadcast points of the given cluster.
+     *
+     * @param clusterId cluster identifier
+     * @return broadcast points of the cluster
+     */
+    Set<ConnectPoint> getBroadcastPoints(ClusterId clusterId) {
+        ClusterData data = clusters.get(clusterId);
+        return data == null ? ImmutableSet.of() : data.broadcastPoints;
+    }
+
+    // Returns the data of the given cluster, provided it belongs to us.
+    private ClusterData data(TopologyCluster cluster) {
+        ClusterData data = clusters.get(cluster.id());
+        return data != null && data.cluster.equals(cluster) ? data : null;
+    }
+
+    // Groups the vertexes of the graph by their strongly connected component.
+    private static List<Set<TopologyVertex>> members(DefaultTopologyGraph graph,
+                                                     int[] components, int count) {
+        List<Set<TopologyVertex>> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            members.add(new HashSet<>());
+        }
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            members.get(components[v]).add(graph.vertex(v));
+        }
+        return members;
+    }
+
+    // Indicates whether the edge takes part in the cluster search.
+    private static boolean isTraversable(TopologyEdge edge) {
+        return edge.link().state() != INACTIVE && edge.link().type() != INDIRECT;
+    }
+
+    // Finds the vertex whose device id is the lexicographical minimum in the
+    // specified set.
+    private static TopologyVertex findRoot(Set<TopologyVertex> vertexSet) {
+        TopologyVertex minVertex = null;
+        for (TopologyVertex vertex : vertexSet) {
+            if ((minVertex == null) || (vertex.deviceId()
+                    .toString().compareTo(minVertex.deviceId().toString()) < 0)) {
+                minVertex = vertex;
+            }
+        }
+        return minVertex;
+    }
+
+    // Builds the cluster made of the given vertexes; the broadcast points
+    // are carried over if given, or computed otherwise.
+    private static ClusterData buildCluster(TopologyGraph graph, ClusterId cid,
+                                            Set<TopologyVertex> vertexes, TopologyVertex root,
+                                            ImmutableSet<ConnectPoint> broadcastPoints) {
+        ImmutableSet.Builder<DeviceId> devices = ImmutableSet.builder();
+        ImmutableSet.Builder<Link> links = ImmutableSet.builder();
+        int linkCount = 0;
+        for (TopologyVertex vertex : vertexes) {
+            devices.add(vertex.deviceId());
+            for (TopologyEdge edge : graph.getEdgesFrom(vertex)) {
+                if (vertexes.contains(edge.dst())) {
+                    links.add(edge.link());
+                    linkCount++;
+                }
+            }
+        }
+
+        if (broadcastPoints == null) {
+            broadcastPoints = findBroadcastPoints(vertexes, graph, root);
+        }
+        TopologyCluster cluster = new DefaultTopologyCluster(cid, vertexes.size(),
+                                                             linkCount, root);
+        return new ClusterData(cluster, devices.build(), links.build(), broadcastPoints);
+    }
+
+    // Finds all broadcast points for the cluster. These are those connection
+    // points which lie along the shortest paths between the cluster root and
+    // all other devices within the cluster. Shortest paths within a cluster
+    // never leave it nor use indirect links, which cost more than crossing
+    // the whole graph, so a breadth first search of the cluster finds them.
+    private static ImmutableSet<ConnectPoint> findBroadcastPoints(Set<TopologyVertex> vertexes,
+                                                                  TopologyGraph graph,
+                                                                  TopologyVertex root) {
+        ImmutableSet.Builder<ConnectPoint> builder = ImmutableSet.builder();
+        Set<TopologyVertex> seen = new HashSet<>();
+        Queue<TopologyVertex> queue = new ArrayDeque<>();
+        seen.add(root);
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            for (TopologyEdge edge : graph.getEdgesFrom(queue.remove())) {
+                TopologyVertex next = edge.dst();
+                if (isTraversable(edge) && vertexes.contains(next) && seen.add(next)) {
+                    // Use the first back-link source and destinations to add
+                    // to the broadcast set.
+                    builder.add(edge.link().src());
+                    builder.add(edge.link().dst());
+                    queue.add(next);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Devices, links and broadcast points of a single cluster.
+     */
+    private static final class ClusterData {
+        final TopologyCluster cluster;
+        final ImmutableSet<DeviceId> devices;
+        final ImmutableSet<Link> links;
+        final ImmutableSet<ConnectPoint> broadcastPoints;
+
+        ClusterData(TopologyCluster cluster, ImmutableSet<DeviceId> devices,
+                    ImmutableSet<Link> links, ImmutableSet<ConnectPoint> broadcastPoints) {
+            this.cluster = cluster;
+            this.devices = devices;
+            this.links = links;
+            this.broadcastPoints = broadcastPoints;
+        }
+    }
+
+    /**
+     * Group of vertexes forming a cluster while the update is in progress.
+     */
+    private static final class Group {
+        // Cluster this group originates from, or null if it is new
+        final ClusterData origin;
+        final Set<TopologyVertex> vertexes;
+        // Whether the vertexes or links of the cluster changed
+        boolean touched;
+        // Whether the broadcast tree of the cluster may have changed
+        boolean reroute;
+
+        Group(ClusterData origin, Set<TopologyVertex> vertexes) {
+            this.origin = origin;
+            this.vertexes = vertexes;
+        }
+    }
+
+    /**
+     * Single incremental update of the clusters.
+     */
+    private static final class Update {
+        private final TopologyClusters previous;
+        private final TopologyGraph previousGraph;
+        private final TopologyGraph graph;
+
+        private final Map<ClusterId, Group> groups = new HashMap<>();
+        private final List<Group> newGroups = new ArrayList<>();
+        private final Map<DeviceId, Group> groupOf = new HashMap<>();
+
+        private final List<TopologyEdge> addedEdges = new ArrayList<>();
+        private final List<TopologyEdge> removedEdges = new ArrayList<>();
+
+        Update(TopologyClusters previous, TopologyGraph previousGraph,
+               TopologyGraph graph) {
+            this.previous = previous;
+            this.previousGraph = previousGraph;
+            this.graph = graph;
+        }
+
+        // Applies the update; returns null if a full computation is preferable.
+        TopologyClusters apply() {
+            Set<TopologyVertex> vertexes = graph.getVertexes();
+            Set<TopologyVertex> previousVertexes = previousGraph.getVertexes();
+            int budget = (vertexes.size() + graph.getEdges().size()) / MAX_CHANGE_RATIO;
+
+            List<TopologyVertex> addedVertexes = new ArrayList<>();
+            for (TopologyVertex vertex : vertexes) {
+                if (!previousVertexes.contains(vertex)) {
+                    addedVertexes.add(vertex);
+                }
+            }
+            int removedVertexCount = previousVertexes.size() - (vertexes.size() - addedVertexes.size());
+            if (addedVertexes.size() + removedVertexCount > budget) {
+                return null;
+            }
+
+            // Start off with the clusters of the preceding graph
+            for (ClusterData data : previous.clusters.values()) {
+                Set<TopologyVertex> members = new HashSet<>();
+                Group group = new Group(data, members);
+                for (DeviceId deviceId : data.devices) {
+                    TopologyVertex vertex = new DefaultTopologyVertex(deviceId);
+                    if (vertexes.contains(vertex)) {
+                        members.add(vertex);
+                        groupOf.put(deviceId, group);
+                    } else {
+                        group.touched = true;
+                        group.reroute = true;
+                    }
+                }
+                groups.put(data.cluster.id(), group);
+            }
+            for (TopologyVertex vertex : addedVertexes) {
+                Set<TopologyVertex> members = new HashSet<>();
+                members.add(vertex);
+                Group group = new Group(null, members);
+                group.touched = true;
+                newGroups.add(group);
+                groupOf.put(vertex.deviceId(), group);
+            }
+
+            if (!diffEdges(budget)) {
+                return null;
+            }
+
+            splitClusters();
+            mergeClusters();
+            return build();
+        }
+
+        // Finds the added and removed traversable edges and marks the
+        // clusters whose links changed.
+        private boolean diffEdges(int budget) {
+            Map<TopologyEdge, TopologyEdge> previousEdges = new HashMap<>();
+            for (TopologyEdge edge : previousGraph.getEdges()) {
+                previousEdges.put(edge, edge);
+            }
+
+            int changes = 0;
+            for (TopologyEdge edge : graph.getEdges()) {
+                TopologyEdge old = previousEdges.remove(edge);
+                if (old != null && old.link() == edge.link()) {
+                    continue;
+                }
+                if (++changes > budget) {
+                    return false;
+                }
+                boolean wasTraversable = old != null && isTraversable(old);
+                edgeChanged(edge, wasTraversable, isTraversable(edge));
+            }
+
+            for (TopologyEdge old : previousEdges.values()) {
+                if (++changes > budget) {
+                    return false;
+                }
+                edgeChanged(old, isTraversable(old), false);
+            }
+            return true;
+        }
+
+        private void edgeChanged(TopologyEdge edge, boolean wasTraversable, boolean isTraversable) {
+            if (wasTraversable && !isTraversable) {
+                removedEdges.add(edge);
+            } else if (!wasTraversable && isTraversable) {
+                addedEdges.add(edge);
+            }
+
+            Group group = groupOf.get(edge.src().deviceId());
+            if (group != null && group == groupOf.get(edge.dst().deviceId())) {
+                group.touched = true;
+                if (wasTraversable != isTraversable) {
+                    group.reroute |= isTraversable || isBroadcastLink(group, edge);
+                }
+            }
+        }
+
+        // Indicates whether the edge may be part of the cluster broadcast tree.
+        private boolean isBroadcastLink(Group group, TopologyEdge edge) {
+            if (group.origin == null) {
+                return true;
+            }
+            Set<ConnectPoint> points = group.origin.broadcastPoints;
+            return points.contains(edge.link().src()) || points.contains(edge.link().dst());
+        }
+
+        // Searches again each cluster that may have been split by the removal
+        // of its devices or links.
+        private void splitClusters() {
+            Set<Group> suspects = new HashSet<>();
+            for (Group group : groups.values()) {
+                if (group.origin != null && group.vertexes.size() < group.origin.devices.size()) {
+                    suspects.add(group);
+                }
+            }
+            for (TopologyEdge edge : removedEdges) {
+                Group group = groupOf.get(edge.src().deviceId());
+                if (group != null && group == groupOf.get(edge.dst().deviceId())
+                        && !suspects.contains(group)
+                        && !reaches(edge.src(), edge.dst(), group.vertexes)) {
+                    suspects.add(group);
+                }
+            }
+
+            for (Group group : suspects) {
+                if (group.vertexes.isEmpty()) {
+                    groups.remove(group.origin.cluster.id());
+                    continue;
+                }
+                Set<TopologyEdge> edges = new HashSet<>();
+                for (TopologyVertex vertex : group.vertexes) {
+                    for (TopologyEdge edge : graph.getEdgesFrom(vertex)) {
+                        if (group.vertexes.contains(edge.dst())) {
+                            edges.add(edge);
+                        }
+                    }
+                }
+                DefaultTopologyGraph subgraph = new DefaultTopologyGraph(group.vertexes, edges);
+                int[] components = new int[subgraph.vertexCount()];
+                int count = new CompactGraphSearch<>(subgraph)
+                        .tarjan(subgraph.weights(NO_INDIRECT_LINKS), components);
+                if (count == 1) {
+                    continue;
+                }
+
+                // The part holding the old root keeps the cluster identity.
+                groups.remove(group.origin.cluster.id());
+                for (Set<TopologyVertex> part : members(subgraph, components, count)) {
+                    Group split = part.contains(group.origin.cluster.root())
+                            ? new Group(group.origin, part)
+                            : new Group(null, part);
+                    split.touched = true;
+                    split.reroute = true;
+                    if (split.origin != null) {
+                        groups.put(split.origin.cluster.id(), split);
+                    } else {
+                        newGroups.add(split);
+                    }
+                    for (TopologyVertex vertex : part) {
+                        groupOf.put(vertex.deviceId(), split);
+                    }
+                }
+            }
+        }
+
+        // Merges the clusters lying on a cycle through each added link.
+        private void mergeClusters() {
+            for (TopologyEdge edge : addedEdges) {
+                Group srcGroup = groupOf.get(edge.src().deviceId());
+                Group dstGroup = groupOf.get(edge.dst().deviceId());
+                if (srcGroup == dstGroup || !reaches(edge.dst(), edge.src(), null)) {
+                    continue;
+                }
+
+                // The new cluster is made of the vertexes both reachable from
+                // and reaching the link source.
+                Set<TopologyVertex> forward = search(edge.src(), true, null);
+                Set<TopologyVertex> cycle = search(edge.src(), false, forward);
+
+                Set<Group> merged = new HashSet<>();
+                for (TopologyVertex vertex : cycle) {
+                    merged.add(groupOf.get(vertex.deviceId()));
+                }
+
+                // The merged cluster with the lowest identifier lives on.
+                Group survivor = null;
+                for (Group group : merged) {
+                    if (group.origin != null && groups.get(group.origin.cluster.id()) == group
+                            && (survivor == null || group.origin.cluster.id().index()
+                                    < survivor.origin.cluster.id().index())) {
+                        survivor = group;
+                    }
+                }
+                for (Group group : merged) {
+                    if (group.origin != null && groups.get(group.origin.cluster.id()) == group) {
+                        groups.remove(group.origin.cluster.id());
+                    } else {
+                        newGroups.remove(group);
+                    }
+                }
+
+                Group union = new Group(survivor != null ? survivor.origin : null, cycle);
+                union.touched = true;
+                union.reroute = true;
+                if (union.origin != null) {
+                    groups.put(union.origin.cluster.id(), union);
+                } else {
+                    newGroups.add(union);
+                }
+                for (TopologyVertex vertex : cycle) {
+                    groupOf.put(vertex.deviceId(), union);
+                }
+            }
+        }
+
+        // Indicates whether the destination can be reached from the source
+        // over traversable edges, optionally staying within the given set.
+        private boolean reaches(TopologyVertex src, TopologyVertex dst, Set<TopologyVertex> within) {
+            Set<TopologyVertex> seen = new HashSet<>();
+            Queue<TopologyVertex> queue = new ArrayDeque<>();
+            seen.add(src);
+            queue.add(src);
+            while (!queue.isEmpty()) {
+                for (TopologyEdge edge : graph.getEdgesFrom(queue.remove())) {
+                    TopologyVertex next = edge.dst();
+                    if (!isTraversable(edge) || (within != null && !within.contains(next))) {
+                        continue;
+                    }
+                    if (next.equals(dst)) {
+                        return true;
+                    }
+                    if (seen.add(next)) {
+                        queue.add(next);
+                    }
+                }
+            }
+            return false;
+        }
+
+        // Collects the vertexes reachable from, or reaching, the given vertex
+        // over traversable edges, optionally staying within the given set.
+        private Set<TopologyVertex> search(TopologyVertex start, boolean forward,
+                                           Set<TopologyVertex> within) {
+            Set<TopologyVertex> seen = new HashSet<>();
+            Queue<TopologyVertex> queue = new ArrayDeque<>();
+            seen.add(start);
+            queue.add(start);
+            while (!queue.isEmpty()) {
+                TopologyVertex vertex = queue.remove();
+                Set<TopologyEdge> edges = forward ? graph.getEdgesFrom(vertex)
+                                                  : graph.getEdgesTo(vertex);
+                for (TopologyEdge edge : edges) {
+                    TopologyVertex next = forward ? edge.dst() : edge.src();
+                    if (isTraversable(edge) && (within == null || within.contains(next))
+                            && seen.add(next)) {
+                        queue.add(next);
+                    }
+                }
+            }
+            return seen;
+        }
+
+        // Assembles the clusters, reusing those that are unchanged.
+        private TopologyClusters build() {
+            Map<ClusterId, ClusterData> clusters = new LinkedHashMap<>();
+            Map<DeviceId, ClusterId> clusterIds = new HashMap<>();
+
+            for (Map.Entry<ClusterId, Group> entry : groups.entrySet()) {
+                ClusterId cid = entry.getKey();
+                Group group = entry.getValue();
+                ClusterData data = group.origin;
+                if (group.touched) {
+                    TopologyVertex root = findRoot(group.vertexes);
+                    boolean keepTree = !group.reroute && root.equals(data.cluster.root());
+                    data = buildCluster(graph, cid, group.vertexes, root,
+                                        keepTree ? data.broadcastPoints : null);
+                }
+                clusters.put(cid, data);
+            }
+
+            // New clusters take the lowest identifiers left unused.
+            int index = 0;
+            for (Group group : newGroups) {
+                while (groups.containsKey(ClusterId.clusterId(index))) {
+                    index++;
+                }
+                ClusterId cid = ClusterId.clusterId(index++);
+                clusters.put(cid, buildCluster(graph, cid, group.vertexes,
+                                               findRoot(group.vertexes), null));
+            }
+
+            for (ClusterData data : clusters.values()) {
+                for (DeviceId deviceId : data.devices) {
+                    clusterIds.put(deviceId, data.cluster.id());
+                }
+            }
+            return new TopologyClusters(ImmutableMap.copyOf(sortById(clusters)),
+                                        ImmutableMap.copyOf(clusterIds), true);
+        }
+
+        private Map<ClusterId, ClusterData> sortById(Map<ClusterId, ClusterData> clusters) {
+            List<ClusterId> ids = new ArrayList<>(clusters.keySet());
+            Collections.sort(ids, (a, b) -> Integer.compare(a.index(), b.index()));
+            Map<ClusterId, ClusterData> sorted = new LinkedHashMap<>();
+            for (ClusterId cid : ids) {
+                sorted.put(cid, clusters.get(cid));
+            }
+            return sorted;
+        }
+    }
+
+    // Link weight for preventing traversal over indirect links.
+    private static class NoIndirectLinksWeight implements LinkWeight {
+        @Override
+        public double weight(TopologyEdge edge) {
+            return isTraversable(edge) ? 1 : -1;
+        }
+    }
+}
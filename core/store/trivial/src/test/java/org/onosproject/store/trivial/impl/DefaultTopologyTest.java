@@ -32,6 +32,9 @@ import org.onosproject.net.topology.DefaultGraphDescription;
 import org.onosproject.net.topology.GraphDescription;
 import org.onosproject.net.topology.LinkWeight;
 import org.onosproject.net.topology.TopologyCluster;
+import org.onosproject.net.topology.TopologyEdge;
+
+import com.google.common.collect.Sets;
 
 import java.util.Set;
 
@@ -61,17 +64,19 @@ public class DefaultTopologyTest {
                     ? 2.0 : 1.0;
 
     private DefaultTopology dt;
+    private Set<Device> devices;
+    private Set<Link> links;
 
     @Before
     public void setUp() {
         long now = System.currentTimeMillis();
-        Set<Device> devices = of(device("1"), device("2"),
-                                 device("3"), device("4"),
-                                 device("5"));
-        Set<Link> links = of(link("1", 1, "2", 1), link("2", 1, "1", 1),
-                             link("3", 2, "2", 2), link("2", 2, "3", 2),
-                             link("1", 3, "4", 3), link("4", 3, "1", 3),
-                             link("3", 4, "4", 4), link("4", 4, "3", 4));
+        devices = of(device("1"), device("2"),
+                     device("3"), device("4"),
+                     device("5"));
+        links = of(link("1", 1, "2", 1), link("2", 1, "1", 1),
+                   link("3", 2, "2", 2), link("2", 2, "3", 2),
+                   link("1", 3, "4", 3), link("4", 3, "1", 3),
+                   link("3", 4, "4", 4), link("4", 4, "3", 4));
         GraphDescription graphDescription =
                 new DefaultGraphDescription(now, devices, links);
 
@@ -100,6 +105,57 @@ public class DefaultTopologyTest {
         assertEquals("incorrect path count", 1, paths.size());
     }
 
+    @Test
+    public void pathCache() {
+        Set<Path> paths = dt.getPaths(D1, D3);
+        assertEquals("incorrect miss count", 1, dt.pathCacheStats().missCount());
+
+        // Destinations of the same source and weight share one tree.
+        assertEquals("incorrect paths", paths, dt.getPaths(D1, D3));
+        assertEquals("incorrect path count", 1, dt.getPaths(D1, D2).size());
+        assertEquals("incorrect miss count", 1, dt.pathCacheStats().missCount());
+        assertEquals("incorrect hit count", 2, dt.pathCacheStats().hitCount());
+
+        // Weights without value semantics are told apart by identity.
+        assertEquals("incorrect path count", 1, dt.getPaths(D1, D3, WEIGHT).size());
+        assertEquals("incorrect miss count", 2, dt.pathCacheStats().missCount());
+        assertEquals("incorrect path count", 2, dt.getPaths(D1, D3, edge -> 1.0).size());
+        assertEquals("incorrect miss count", 3, dt.pathCacheStats().missCount());
+
+        // Equal weights share a tree.
+        assertEquals("incorrect path count", 1, dt.getPaths(D1, D3, new PenaltyWeight(D4)).size());
+        assertEquals("incorrect miss count", 4, dt.pathCacheStats().missCount());
+        assertEquals("incorrect path count", 1, dt.getPaths(D1, D3, new PenaltyWeight(D4)).size());
+        assertEquals("incorrect miss count", 4, dt.pathCacheStats().missCount());
+        assertEquals("incorrect path count", 1, dt.getPaths(D1, D3, new PenaltyWeight(D2)).size());
+        assertEquals("incorrect miss count", 5, dt.pathCacheStats().missCount());
+    }
+
+    // Weight penalizing the links of a device, with value semantics.
+    private static final class PenaltyWeight implements LinkWeight {
+        private final DeviceId device;
+
+        private PenaltyWeight(DeviceId device) {
+            this.device = device;
+        }
+
+        @Override
+        public double weight(TopologyEdge edge) {
+            return edge.src().deviceId().equals(device) ||
+                    edge.dst().deviceId().equals(device) ? 2.0 : 1.0;
+        }
+
+        @Override
+        public int hashCode() {
+            return device.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof PenaltyWeight && device.equals(((PenaltyWeight) obj).device);
+        }
+    }
+
     @Test
     public void pointRelated() {
         assertTrue("should be infrastructure point",
@@ -120,6 +176,64 @@ public class DefaultTopologyTest {
         assertFalse("cluster should not contain D5", devs.contains(D5));
     }
 
+    @Test
+    public void incrementalUpdates() {
+        // Cutting the ring leaves the cluster in one piece.
+        Set<Link> cut = Sets.difference(links, of(link("3", 2, "2", 2), link("2", 2, "3", 2)));
+        DefaultTopology t1 = update(dt, devices, cut);
+        assertEquals("incorrect cluster count", 2, t1.clusterCount());
+        assertEquals("incorrect cluster device count", 4,
+                     t1.getClusterDevices(t1.getCluster(D2)).size());
+        assertEquals("incorrect cluster link count", 6,
+                     t1.getClusterLinks(t1.getCluster(D2)).size());
+
+        // A one-way link splits the cluster.
+        Set<Link> oneWay = Sets.difference(cut, of(link("1", 1, "2", 1)));
+        DefaultTopology t2 = update(t1, devices, oneWay);
+        assertEquals("incorrect cluster count", 3, t2.clusterCount());
+        assertNotEquals("D2 should be split off", t2.getCluster(D1), t2.getCluster(D2));
+
+        // Linking the stray devices back merges all clusters.
+        Set<Link> merged = Sets.union(oneWay, of(link("1", 1, "2", 1),
+                                                 link("5", 1, "1", 2), link("1", 2, "5", 1)));
+        DefaultTopology t3 = update(t2, devices, merged);
+        assertEquals("incorrect cluster count", 1, t3.clusterCount());
+        assertEquals("incorrect broadcast set size", 8,
+                     t3.broadcastSetSize(t3.getCluster(D5).id()));
+
+        // Removing a device shrinks its cluster.
+        Set<Device> fewer = Sets.difference(devices, of(device("5")));
+        Set<Link> remaining = Sets.filter(merged, l -> !l.src().deviceId().equals(D5)
+                && !l.dst().deviceId().equals(D5));
+        DefaultTopology t4 = update(t3, fewer, remaining);
+        assertEquals("incorrect cluster count", 1, t4.clusterCount());
+        assertNull("D5 should be gone", t4.getCluster(D5));
+        assertEquals("incorrect broadcast set size", 6,
+                     t4.broadcastSetSize(t4.getCluster(D1).id()));
+    }
+
+    // Derives a topology from the given one and checks it against a topology
+    // computed from scratch.
+    private DefaultTopology update(DefaultTopology previous, Set<Device> devices, Set<Link> links) {
+        GraphDescription description =
+                new DefaultGraphDescription(System.nanoTime(), devices, links);
+        DefaultTopology incremental = new DefaultTopology(PID, description, previous);
+        DefaultTopology full = new DefaultTopology(PID, description);
+        assertTrue("should be incremental", incremental.isIncremental());
+        assertFalse("should be full", full.isIncremental());
+        assertEquals("incorrect cluster count", full.clusterCount(), incremental.clusterCount());
+        for (TopologyCluster cluster : full.getClusters()) {
+            TopologyCluster other = incremental.getCluster(cluster.root().deviceId());
+            assertEquals("incorrect cluster devices", full.getClusterDevices(cluster),
+                         incremental.getClusterDevices(other));
+            assertEquals("incorrect cluster links", full.getClusterLinks(cluster),
+                         incremental.getClusterLinks(other));
+            assertEquals("incorrect broadcast set size", full.broadcastSetSize(cluster.id()),
+                         incremental.broadcastSetSize(other.id()));
+        }
+        return incremental;
+    }
+
     // Short-hand for creating a link.
     public static Link link(String src, int sp, String dst, int dp) {
         return new DefaultLink(PID, new ConnectPoint(did(src), portNumber(sp)),
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.trivial.impl;
+
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onosproject.net.HostId;
+import org.onosproject.net.HostLocation;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.host.DefaultHostDescription;
+import org.onosproject.net.provider.ProviderId;
+
+import java.text.DecimalFormat;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.lang.System.out;
+import static org.onosproject.net.DeviceId.deviceId;
+
+/**
+ * Auxiliary test fixture to measure the cost of looking up hosts by IP and
+ * MAC address in the simple host store as the number of hosts grows.
+ */
+public final class SimpleHostStoreBenchmark {
+
+    private static final ProviderId PID = new ProviderId("of", "foo");
+    private static final VlanId VLAN = VlanId.vlanId((short) 1);
+    private static final HostLocation LOCATION =
+            new HostLocation(deviceId("of:1"), PortNumber.portNumber(1), 0);
+    private static final int BASE_IP = 0x0a000000;
+
+    private static final int MAX_HOSTS = 1_000_000;
+    private static final int LOOKUPS = 1_000_000;
+    private static final int WARMUP_ROUNDS = 3;
+
+    private final SimpleHostStore store = new SimpleHostStore();
+    private int hostCount = 0;
+
+    // Prevents the lookups from being optimized away
+    private int sink = 0;
+
+    private SimpleHostStoreBenchmark() {
+    }
+
+    /**
+     * Main entry point to launch the benchmark.
+     *
+     * @param args optional maximum number of hosts and lookups per round
+     */
+    public static void main(String[] args) {
+        int maxHosts = args.length > 0 ? Integer.parseInt(args[0]) : MAX_HOSTS;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : LOOKUPS;
+        new SimpleHostStoreBenchmark().run(maxHosts, lookups);
+    }
+
+    private void run(int maxHosts, int lookups) {
+        DecimalFormat fmt = new DecimalFormat("#,###");
+        store.activate();
+        try {
+            for (int size = 1000; size <= maxHosts; size *= 10) {
+                addHosts(size);
+                for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                    lookup(lookups);
+                }
+                long start = nanoTime();
+                lookup(lookups);
+                long nanos = nanoTime() - start;
+                out.println(format("Lookup cost with %s hosts is %s nanos",
+                                   fmt.format(hostCount), fmt.format(nanos / lookups / 2)));
+            }
+        } finally {
+            store.deactivate();
+        }
+        out.println(format("Looked up %s hosts in total", fmt.format(sink)));
+    }
+
+    // Grows the store to the given number of hosts, each with its own
+    // MAC and IP address.
+    private void addHosts(int size) {
+        for (; hostCount < size; hostCount++) {
+            MacAddress mac = MacAddress.valueOf(hostCount + 1);
+            IpAddress ip = IpAddress.valueOf(BASE_IP + hostCount);
+            store.createOrUpdateHost(PID, HostId.hostId(mac, VLAN),
+                                     new DefaultHostDescription(mac, VLAN, LOCATION, of(ip)));
+        }
+    }
+
+    // Looks up the given number of hosts by IP and by MAC address.
+    private void lookup(int lookups) {
+        for (int i = 0; i < lookups; i++) {
+            int host = (int) ((i * 2_654_435_761L) % hostCount);
+            sink += store.getHosts(IpAddress.valueOf(BASE_IP + host)).size();
+            sink += store.getHosts(MacAddress.valueOf(host + 1)).size();
+        }
+    }
+}
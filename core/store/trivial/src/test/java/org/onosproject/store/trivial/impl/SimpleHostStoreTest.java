@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.trivial.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onosproject.net.Host;
+import org.onosproject.net.HostId;
+import org.onosproject.net.HostLocation;
+import org.onosproject.net.PortNumber;
+import org.onosproject.net.host.DefaultHostDescription;
+import org.onosproject.net.host.HostDescription;
+import org.onosproject.net.provider.ProviderId;
+
+import java.util.Set;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.net.DeviceId.deviceId;
+
+/**
+ * Test of the simple HostStore implementation.
+ */
+public class SimpleHostStoreTest {
+
+    private static final ProviderId PID = new ProviderId("of", "foo");
+
+    private static final VlanId VLAN1 = VlanId.vlanId((short) 1);
+    private static final VlanId VLAN2 = VlanId.vlanId((short) 2);
+    private static final MacAddress MAC1 = MacAddress.valueOf("00:00:00:00:00:01");
+    private static final MacAddress MAC2 = MacAddress.valueOf("00:00:00:00:00:02");
+    private static final IpAddress IP1 = IpAddress.valueOf("10.0.0.1");
+    private static final IpAddress IP2 = IpAddress.valueOf("10.0.0.2");
+    private static final IpAddress IP3 = IpAddress.valueOf("10.0.0.3");
+
+    private static final HostLocation LOC1 =
+            new HostLocation(deviceId("of:1"), PortNumber.portNumber(1), 0);
+    private static final HostLocation LOC2 =
+            new HostLocation(deviceId("of:2"), PortNumber.portNumber(1), 0);
+
+    private SimpleHostStore store;
+
+    @Before
+    public void setUp() {
+        store = new SimpleHostStore();
+        store.activate();
+    }
+
+    @After
+    public void tearDown() {
+        store.deactivate();
+    }
+
+    private Host createHost(MacAddress mac, VlanId vlan, Set<IpAddress> ips) {
+        return createHost(mac, vlan, LOC1, ips);
+    }
+
+    private Host createHost(MacAddress mac, VlanId vlan, HostLocation location,
+                            Set<IpAddress> ips) {
+        HostId hostId = HostId.hostId(mac, vlan);
+        HostDescription description = new DefaultHostDescription(mac, vlan, location, ips);
+        store.createOrUpdateHost(PID, hostId, description);
+        return store.getHost(hostId);
+    }
+
+    @Test
+    public void addressAndVlanLookups() {
+        Host h1 = createHost(MAC1, VLAN1, of(IP1));
+        Host h2 = createHost(MAC1, VLAN2, of(IP2));
+        Host h3 = createHost(MAC2, VLAN2, of(IP2, IP3));
+
+        assertEquals("incorrect MAC lookup", of(h1, h2), store.getHosts(MAC1));
+        assertEquals("incorrect MAC lookup", of(h3), store.getHosts(MAC2));
+        assertEquals("incorrect VLAN lookup", of(h2, h3), store.getHosts(VLAN2));
+        assertEquals("incorrect IP lookup", of(h1), store.getHosts(IP1));
+        assertEquals("incorrect IP lookup", of(h2, h3), store.getHosts(IP2));
+        assertTrue("no hosts expected",
+                   store.getHosts(IpAddress.valueOf("10.0.0.9")).isEmpty());
+    }
+
+    @Test
+    public void lookupsFollowUpdates() {
+        createHost(MAC1, VLAN1, of(IP1));
+        Host updated = createHost(MAC1, VLAN1, of(IP2));
+        assertEquals("incorrect IP lookup", of(updated), store.getHosts(IP1));
+        assertEquals("incorrect IP lookup", of(updated), store.getHosts(IP2));
+        assertEquals("incorrect MAC lookup", of(updated), store.getHosts(MAC1));
+
+        store.removeHost(updated.id());
+        assertTrue("no hosts expected", store.getHosts(IP1).isEmpty());
+        assertTrue("no hosts expected", store.getHosts(MAC1).isEmpty());
+        assertTrue("no hosts expected", store.getHosts(VLAN1).isEmpty());
+    }
+
+    @Test
+    public void lookupsFollowMoves() {
+        createHost(MAC1, VLAN1, of(IP1));
+        Host moved = createHost(MAC1, VLAN1, LOC2, of(IP1));
+        assertTrue("no hosts expected", store.getConnectedHosts(LOC1).isEmpty());
+        assertEquals("incorrect location lookup", of(moved), store.getConnectedHosts(LOC2));
+        assertEquals("incorrect IP lookup", of(moved), store.getHosts(IP1));
+        assertEquals("incorrect MAC lookup", of(moved), store.getHosts(MAC1));
+        assertEquals("incorrect VLAN lookup", of(moved), store.getHosts(VLAN1));
+    }
+
+    @Test
+    public void lookupsKeepOtherHostsOnRemoval() {
+        Host h1 = createHost(MAC1, VLAN1, of(IP1));
+        Host h2 = createHost(MAC1, VLAN2, of(IP1, IP2));
+        Host h3 = createHost(MAC2, VLAN2, of(IP2));
+
+        store.removeHost(h2.id());
+        assertEquals("incorrect host count", 2, store.getHostCount());
+        assertEquals("incorrect IP lookup", of(h1), store.getHosts(IP1));
+        assertEquals("incorrect IP lookup", of(h3), store.getHosts(IP2));
+        assertEquals("incorrect MAC lookup", of(h1), store.getHosts(MAC1));
+        assertEquals("incorrect VLAN lookup", of(h3), store.getHosts(VLAN2));
+        assertEquals("incorrect location lookup", of(h1, h3), store.getConnectedHosts(LOC1));
+    }
+}
@@ -46,6 +46,8 @@ import com.google.common.collect.ImmutableSet;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.onosproject.net.DeviceId.deviceId;
 import static org.onosproject.net.Link.Type.DIRECT;
 import static org.onosproject.net.PortNumber.portNumber;
@@ -247,6 +249,28 @@ public class SimpleLinkResourceStoreTest {
         }
     }
 
+    /**
+     * Tests the queries of the free resources of each type.
+     */
+    @Test
+    public void testFreeResourceQueries() {
+        store.allocateResources(new MockLinkResourceBandwidthAllocations(900.0));
+        store.allocateResources(new MockLinkResourceLambdaAllocations(1));
+
+        assertEquals(Bandwidth.bps(Bandwidth.mbps(1000.0).toDouble() - 900.0),
+                     store.getFreeBandwidth(link1));
+        assertEquals(Bandwidth.mbps(1000.0), store.getFreeBandwidth(link2));
+
+        Set<Lambda> lambdas = store.getFreeLambdas(link1);
+        assertEquals(79, lambdas.size());
+        assertFalse(lambdas.contains(Lambda.valueOf(1)));
+        assertTrue(lambdas.contains(Lambda.valueOf(2)));
+        assertTrue(lambdas.contains(Lambda.valueOf(80)));
+        assertEquals(80, store.getFreeLambdas(link2).size());
+
+        assertNull(store.getFreeMplsLabel(link1));
+    }
+
     /**
      * Tests a successful bandwidth allocation.
      */
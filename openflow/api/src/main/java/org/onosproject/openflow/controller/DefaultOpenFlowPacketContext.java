@@ -16,6 +16,8 @@
 package org.onosproject.openflow.controller;
 
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.onlab.packet.Ethernet;
 import org.projectfloodlight.openflow.protocol.OFPacketIn;
 import org.projectfloodlight.openflow.protocol.OFPacketOut;
@@ -36,6 +38,8 @@ public final class DefaultOpenFlowPacketContext implements OpenFlowPacketContext
     private final OpenFlowSwitch sw;
     private final OFPacketIn pktin;
     private OFPacketOut pktout = null;
+    // the frame is parsed once, when first requested
+    private final Supplier<Ethernet> parsed = Suppliers.memoize(this::parse);
 
     private final boolean isBuffered;
 
@@ -85,9 +89,17 @@ public final class DefaultOpenFlowPacketContext implements OpenFlowPacketContext
 
     @Override
     public Ethernet parsed() {
-        Ethernet eth = new Ethernet();
+        return parsed.get();
+    }
+
+    private Ethernet parse() {
+        byte[] data = pktin.getData();
+        if (data == null) {
+            return null;
+        }
         try {
-            eth.deserialize(pktin.getData(), 0, pktin.getData().length);
+            Ethernet eth = new Ethernet();
+            eth.deserialize(data, 0, data.length);
             return eth;
         } catch (BufferUnderflowException | NullPointerException e) {
             return null;
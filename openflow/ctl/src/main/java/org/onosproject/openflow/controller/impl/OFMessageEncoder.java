@@ -32,6 +32,14 @@ import org.projectfloodlight.openflow.protocol.OFMessage;
  */
 public class OFMessageEncoder extends OneToOneEncoder {
 
+    // Initial estimate of the encoded size of a message
+    private static final int INITIAL_MESSAGE_SIZE = 128;
+
+    // Average encoded size of the messages seen so far on this channel, used
+    // to size the buffer of a whole list up front so that encoding a large
+    // batch does not repeatedly grow and copy it
+    private volatile int messageSize = INITIAL_MESSAGE_SIZE;
+
     @Override
     protected Object encode(ChannelHandlerContext ctx, Channel channel,
                             Object msg) throws Exception {
@@ -41,17 +49,18 @@ public class OFMessageEncoder extends OneToOneEncoder {
 
         @SuppressWarnings("unchecked")
         List<OFMessage> msglist = (List<OFMessage>) msg;
-        /* XXX S can't get length of OFMessage in loxigen's openflowj??
-        int size = 0;
-        for (OFMessage ofm : msglist) {
-            size += ofm.getLengthU();
-        }*/
+        if (msglist.isEmpty()) {
+            return ChannelBuffers.EMPTY_BUFFER;
+        }
+        // loxigen's openflowj does not expose the length of a message
+        // before it is written, so the buffer is sized from the average
 
-        ChannelBuffer buf = ChannelBuffers.dynamicBuffer();
+        ChannelBuffer buf = ChannelBuffers.dynamicBuffer(msglist.size() * messageSize);
 
         for (OFMessage ofm : msglist) {
             ofm.writeTo(buf);
         }
+        messageSize = (messageSize + buf.readableBytes() / msglist.size() + 1) / 2;
         return buf;
     }
 
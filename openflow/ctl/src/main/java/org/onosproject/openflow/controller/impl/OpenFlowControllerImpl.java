@@ -53,13 +53,16 @@ import org.projectfloodlight.openflow.protocol.OFStatsReplyFlags;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.locks.Lock;
@@ -95,8 +98,8 @@ public class OpenFlowControllerImpl implements OpenFlowController {
 
     protected Set<OpenFlowEventListener> ofEventListener = Sets.newHashSet();
 
-    protected Multimap<Dpid, OFFlowStatsEntry> fullFlowStats =
-            ArrayListMultimap.create();
+    protected ConcurrentMap<Dpid, List<OFFlowStatsEntry>> fullFlowStats =
+            new ConcurrentHashMap<>();
 
     protected Multimap<Dpid, OFGroupStatsEntry> fullGroupStats =
             ArrayListMultimap.create();
@@ -213,7 +216,7 @@ public class OpenFlowControllerImpl implements OpenFlowController {
 
     @Override
     public void processPacket(Dpid dpid, OFMessage msg) {
-        Collection<OFFlowStatsEntry> flowStats;
+        List<OFFlowStatsEntry> flowStats;
         Collection<OFGroupStatsEntry> groupStats;
         Collection<OFGroupDescStatsEntry> groupDescStats;
 
@@ -255,7 +258,7 @@ public class OpenFlowControllerImpl implements OpenFlowController {
                     if (flowStats != null) {
                         OFFlowStatsReply.Builder rep =
                                 OFFactories.getFactory(msg.getVersion()).buildFlowStatsReply();
-                        rep.setEntries(Lists.newLinkedList(flowStats));
+                        rep.setEntries(flowStats);
                         executorMsgs.submit(new OFMessageHandler(dpid, rep.build()));
                     }
                     break;
@@ -313,12 +316,15 @@ public class OpenFlowControllerImpl implements OpenFlowController {
         }
     }
 
-    private synchronized Collection<OFFlowStatsEntry> publishFlowStats(Dpid dpid,
-                                                                       OFFlowStatsReply reply) {
-        //TODO: Get rid of synchronized
-        fullFlowStats.putAll(dpid, reply.getEntries());
+    private List<OFFlowStatsEntry> publishFlowStats(Dpid dpid,
+                                                    OFFlowStatsReply reply) {
+        // The replies of a switch are handled one at a time by the thread of
+        // its channel, so the parts of a reply need no lock of their own
+        List<OFFlowStatsEntry> parts =
+                fullFlowStats.computeIfAbsent(dpid, k -> new ArrayList<>());
+        parts.addAll(reply.getEntries());
         if (!reply.getFlags().contains(OFStatsReplyFlags.REPLY_MORE)) {
-            return fullFlowStats.removeAll(dpid);
+            return fullFlowStats.remove(dpid);
         }
         return null;
     }
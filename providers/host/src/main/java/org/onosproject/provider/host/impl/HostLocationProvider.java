@@ -30,6 +30,7 @@ import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.onlab.packet.ARP;
 import org.onlab.packet.Ethernet;
+import org.onlab.packet.EthernetView;
 import org.onlab.packet.IPacket;
 import org.onlab.packet.ICMP6;
 import org.onlab.packet.IPv6;
@@ -234,7 +235,9 @@ public class HostLocationProvider extends AbstractProvider implements HostProvid
             if (context == null) {
                 return;
             }
-            Ethernet eth = context.inPacket().parsed();
+            // Headers are read through the view; only ARP and IPv6 packets,
+            // whose addresses lie deeper, are parsed.
+            EthernetView eth = context.inPacket().view();
 
             if (eth == null) {
                 return;
@@ -256,7 +259,11 @@ public class HostLocationProvider extends AbstractProvider implements HostProvid
 
             // ARP: possible new hosts, update both location and IP
             if (eth.getEtherType() == Ethernet.TYPE_ARP) {
-                ARP arp = (ARP) eth.getPayload();
+                Ethernet parsed = context.inPacket().parsed();
+                if (parsed == null) {
+                    return;
+                }
+                ARP arp = (ARP) parsed.getPayload();
                 IpAddress ip = IpAddress.valueOf(IpAddress.Version.INET,
                                                  arp.getSenderProtocolAddress());
                 HostDescription hdescr =
@@ -276,8 +283,12 @@ public class HostLocationProvider extends AbstractProvider implements HostProvid
                 //
                 // IPv6: update location only
             } else if (eth.getEtherType() == Ethernet.TYPE_IPV6) {
+                Ethernet parsed = context.inPacket().parsed();
+                if (parsed == null) {
+                    return;
+                }
                 IpAddress ip = null;
-                IPv6 ipv6 = (IPv6) eth.getPayload();
+                IPv6 ipv6 = (IPv6) parsed.getPayload();
 
                 IPacket iPkt = ipv6;
                 while (iPkt != null) {
@@ -34,6 +34,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.jboss.netty.util.Timeout;
 import org.jboss.netty.util.TimerTask;
 import org.onlab.packet.Ethernet;
+import org.onlab.packet.EthernetView;
 import org.onlab.packet.ONOSLLDP;
 import org.onlab.util.Timer;
 import org.onosproject.mastership.MastershipService;
@@ -207,6 +208,13 @@ public class LinkDiscovery implements TimerTask {
      * @return true if handled
      */
     public boolean handleLLDP(PacketContext context) {
+        // check the Ethernet type before parsing the whole packet
+        EthernetView view = context.inPacket().view();
+        if (view != null && view.getEtherType() != Ethernet.TYPE_LLDP &&
+                view.getEtherType() != Ethernet.TYPE_BSN) {
+            return false;
+        }
+
         Ethernet eth = context.inPacket().parsed();
         if (eth == null) {
             return false;
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.provider.of.flow.impl;
+
+import com.codahale.metrics.Timer;
+import org.onosproject.openflow.controller.Dpid;
+import org.onosproject.openflow.controller.OpenFlowSwitch;
+import org.onosproject.openflow.controller.RoleState;
+import org.projectfloodlight.openflow.protocol.OFFlowStatsRequest;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.TableId;
+import org.slf4j.Logger;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static org.onlab.util.Tools.groupedThreads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Schedules the flow stats polls of all switches from a single thread.
+ * <p>
+ * Each switch gets a phase within the poll interval as it is added, taken
+ * from a low-discrepancy sequence, so the polls of switches added at the
+ * same time, e.g. after a mass reconnect, are spread across the interval
+ * rather than sent in lock-step. The interval of each switch adapts to its
+ * flow table: it grows with the size of the table and backs off while the
+ * switch is idle, i.e. no flow mods are sent to it and neither its flow
+ * count nor the byte counters of its flows change, up to a bound. Switches
+ * that carry traffic are polled at the sized interval, so the statistics
+ * derived from their counters stay fresh. The number of outstanding stats
+ * requests is capped; polls that fall due while the cap is reached wait and
+ * are counted as backlog. A request without a reply by the time the switch
+ * is due again is considered lost.
+ * </p>
+ */
+final class FlowStatsScheduler {
+
+    // Fractional part of the golden ratio; successive multiples of it
+    // modulo 1 are spread evenly over [0, 1) whatever their number
+    private static final double PHASE_STEP = 0.6180339887498949;
+
+    private static final long INITIAL_DELAY_MILLIS = 1000;
+    private static final long TICK_MILLIS = 100;
+
+    // Longest interval, as a multiple of the configured one
+    private static final int MAX_BACKOFF = 4;
+
+    // Number of flows per extra configured interval between polls
+    private static final int LARGE_TABLE = 10_000;
+
+    private final Logger log = getLogger(getClass());
+
+    // Updated while holding the scheduler; read without it to count flow mods
+    private final ConcurrentMap<Dpid, SwitchPolls> switches = new ConcurrentHashMap<>();
+    private final PriorityQueue<SwitchPolls> schedule =
+            new PriorityQueue<>(Comparator.comparingLong((SwitchPolls s) -> s.nextPoll));
+
+    private final Timer pollLatency;
+    private ScheduledExecutorService executor;
+
+    private long intervalMillis;
+    private int maxInFlight;
+    private long added;
+    private int inFlight;
+    private volatile int backlog;
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param intervalSeconds poll interval in seconds
+     * @param maxInFlight     maximum number of outstanding stats requests
+     * @param pollLatency     timer updated with the latency of each poll
+     */
+    FlowStatsScheduler(int intervalSeconds, int maxInFlight, Timer pollLatency) {
+        this.pollLatency = pollLatency;
+        configure(intervalSeconds, maxInFlight);
+    }
+
+    /**
+     * Starts polling.
+     */
+    synchronized void start() {
+        executor = newSingleThreadScheduledExecutor(groupedThreads("onos/of-flow", "stats-%d"));
+        executor.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS,
+                                        TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops polling.
+     */
+    synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        switches.clear();
+        schedule.clear();
+        inFlight = 0;
+        backlog = 0;
+    }
+
+    /**
+     * Changes the poll interval and the cap on outstanding requests. The
+     * interval of each switch changes from its next poll on.
+     *
+     * @param intervalSeconds poll interval in seconds
+     * @param maxInFlight     maximum number of outstanding stats requests
+     */
+    synchronized void configure(int intervalSeconds, int maxInFlight) {
+        this.intervalMillis = TimeUnit.SECONDS.toMillis(Math.max(intervalSeconds, 1));
+        this.maxInFlight = Math.max(maxInFlight, 1);
+        switches.values().forEach(s -> s.interval = intervalMillis);
+    }
+
+    /**
+     * Starts polling the specified switch.
+     *
+     * @param sw switch
+     */
+    synchronized void add(OpenFlowSwitch sw) {
+        Dpid dpid = new Dpid(sw.getId());
+        SwitchPolls polls = new SwitchPolls(sw, intervalMillis);
+        double phase = (added++ * PHASE_STEP) % 1.0;
+        polls.nextPoll = System.currentTimeMillis() + INITIAL_DELAY_MILLIS +
+                (long) (phase * intervalMillis);
+        SwitchPolls previous = switches.put(dpid, polls);
+        if (previous != null) {
+            forget(previous);
+        }
+        schedule.add(polls);
+        log.debug("Polling flow stats of {} every {} ms", sw.getStringId(), intervalMillis);
+    }
+
+    /**
+     * Stops polling the specified switch.
+     *
+     * @param dpid switch dpid
+     */
+    synchronized void remove(Dpid dpid) {
+        SwitchPolls polls = switches.remove(dpid);
+        if (polls != null) {
+            forget(polls);
+        }
+    }
+
+    /**
+     * Records flow mods sent to the specified switch, which make its flow
+     * table worth polling at the configured rate.
+     *
+     * @param dpid  switch dpid
+     * @param count number of flow mods
+     */
+    void flowModsSent(Dpid dpid, int count) {
+        SwitchPolls polls = switches.get(dpid);
+        if (polls != null) {
+            polls.flowMods.addAndGet(count);
+        }
+    }
+
+    /**
+     * Records the complete flow stats reply of the specified switch and
+     * adapts its poll interval.
+     *
+     * @param dpid  switch dpid
+     * @param flows number of flows reported
+     * @param bytes sum of the byte counters of the flows reported
+     */
+    synchronized void pollCompleted(Dpid dpid, int flows, long bytes) {
+        SwitchPolls polls = switches.get(dpid);
+        if (polls == null || polls.sentAt < 0) {
+            // not polled by us, or given up on already
+            return;
+        }
+        long latency = System.currentTimeMillis() - polls.sentAt;
+        pollLatency.update(latency, TimeUnit.MILLISECONDS);
+        polls.sentAt = -1;
+        inFlight--;
+
+        boolean idle = polls.pollFlowMods == 0 && flows == polls.flows &&
+                bytes == polls.bytes;
+        polls.flows = flows;
+        polls.bytes = bytes;
+        polls.backoff = idle ? Math.min(polls.backoff * 2, MAX_BACKOFF) : 1;
+        long sized = intervalMillis * (1 + flows / LARGE_TABLE);
+        polls.interval = Math.min(sized * polls.backoff, intervalMillis * MAX_BACKOFF);
+    }
+
+    /**
+     * Returns the time the specified switch is polled next.
+     *
+     * @param dpid switch dpid
+     * @return time of the next poll in milliseconds, or -1 if the switch
+     * is not polled
+     */
+    synchronized long nextPoll(Dpid dpid) {
+        SwitchPolls polls = switches.get(dpid);
+        return polls == null ? -1 : polls.nextPoll;
+    }
+
+    /**
+     * Returns the current poll interval of the specified switch.
+     *
+     * @param dpid switch dpid
+     * @return interval in milliseconds, or -1 if the switch is not polled
+     */
+    synchronized long interval(Dpid dpid) {
+        SwitchPolls polls = switches.get(dpid);
+        return polls == null ? -1 : polls.interval;
+    }
+
+    /**
+     * Returns the number of polls that are due but wait for outstanding
+     * requests to complete.
+     *
+     * @return poll backlog
+     */
+    int backlog() {
+        return backlog;
+    }
+
+    /**
+     * Returns the number of outstanding stats requests.
+     *
+     * @return requests in flight
+     */
+    synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private void forget(SwitchPolls polls) {
+        schedule.remove(polls);
+        if (polls.sentAt >= 0) {
+            inFlight--;
+        }
+    }
+
+    private void tick() {
+        tick(System.currentTimeMillis());
+    }
+
+    /**
+     * Sends the polls that are due at the specified time.
+     *
+     * @param now current time in milliseconds
+     */
+    synchronized void tick(long now) {
+        try {
+            SwitchPolls next;
+            while ((next = schedule.peek()) != null && next.nextPoll <= now) {
+                if (next.sentAt >= 0) {
+                    giveUp(next, now);
+                }
+                // requests of switches behind the head may be lost as well
+                if (inFlight >= maxInFlight && giveUpLost(now) == 0) {
+                    break;
+                }
+                schedule.poll();
+                poll(next, now);
+                // keep the phase of the switch unless it fell behind
+                next.nextPoll = Math.max(next.nextPoll + next.interval, now + TICK_MILLIS);
+                schedule.add(next);
+            }
+            backlog = countDue(now);
+        } catch (Exception e) {
+            log.warn("Unable to poll flow stats", e);
+        }
+    }
+
+    // Gives up on the requests of the switches that are due again without
+    // a reply, and returns their number
+    private int giveUpLost(long now) {
+        int lost = 0;
+        for (SwitchPolls polls : schedule) {
+            if (polls.sentAt >= 0 && polls.nextPoll <= now) {
+                giveUp(polls, now);
+                lost++;
+            }
+        }
+        return lost;
+    }
+
+    private void giveUp(SwitchPolls polls, long now) {
+        log.debug("No flow stats from {} for {} ms",
+                  polls.sw.getStringId(), now - polls.sentAt);
+        polls.sentAt = -1;
+        inFlight--;
+    }
+
+    private int countDue(long now) {
+        if (inFlight < maxInFlight) {
+            return 0;
+        }
+        int due = 0;
+        for (SwitchPolls polls : schedule) {
+            if (polls.nextPoll <= now) {
+                due++;
+            }
+        }
+        return due;
+    }
+
+    private void poll(SwitchPolls polls, long now) {
+        OpenFlowSwitch sw = polls.sw;
+        if (sw.getRole() != RoleState.MASTER) {
+            // Switch not master.
+            return;
+        }
+        OFFlowStatsRequest request = sw.factory().buildFlowStatsRequest()
+                .setMatch(sw.factory().matchWildcardAll())
+                .setTableId(TableId.ALL)
+                .setOutPort(OFPort.NO_MASK)
+                .build();
+        polls.pollFlowMods = polls.flowMods.getAndSet(0);
+        polls.sentAt = now;
+        inFlight++;
+        sw.sendMsg(request);
+    }
+
+    // Poll state of a single switch
+    private static final class SwitchPolls {
+        private final OpenFlowSwitch sw;
+        private long interval;
+        private long nextPoll;
+        private int backoff = 1;
+        private int flows;
+        private long bytes;
+        // flow mods sent since the last poll, and before the last poll
+        private final AtomicInteger flowMods = new AtomicInteger();
+        private int pollFlowMods;
+        // time the outstanding request was sent; -1 if none
+        private long sentAt = -1;
+
+        private SwitchPolls(OpenFlowSwitch sw, long interval) {
+            this.sw = sw;
+            this.interval = interval;
+        }
+    }
+}
@@ -16,17 +16,25 @@
 package org.onosproject.provider.of.flow.impl;
 
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Strings;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalCause;
 import com.google.common.cache.RemovalNotification;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.net.DeviceId;
 import org.onosproject.net.flow.CompletedBatchOperation;
@@ -45,6 +53,7 @@ import org.onosproject.openflow.controller.OpenFlowEventListener;
 import org.onosproject.openflow.controller.OpenFlowSwitch;
 import org.onosproject.openflow.controller.OpenFlowSwitchListener;
 import org.onosproject.openflow.controller.RoleState;
+import org.osgi.service.component.ComponentContext;
 import org.projectfloodlight.openflow.protocol.OFBarrierRequest;
 import org.projectfloodlight.openflow.protocol.OFErrorMsg;
 import org.projectfloodlight.openflow.protocol.OFErrorType;
@@ -58,14 +67,17 @@ import org.projectfloodlight.openflow.protocol.OFStatsType;
 import org.projectfloodlight.openflow.protocol.errormsg.OFFlowModFailedErrorMsg;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Dictionary;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import static org.onlab.util.Tools.get;
 import static org.slf4j.LoggerFactory.getLogger;
 
 
@@ -78,12 +90,41 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
 
     private final Logger log = getLogger(getClass());
 
+    private static final int DEFAULT_BARRIER_INTERVAL = 1000;
+    private static final int DEFAULT_MAX_STATS_REQUESTS = 64;
+
+    private static final String COMPONENT = "OpenFlowRuleProvider";
+    private static final String FEATURE = "flowStats";
+    private static final String POLL_LATENCY = "pollLatency";
+    private static final String POLL_BACKLOG = "pollBacklog";
+    private static final String POLLS_IN_FLIGHT = "pollsInFlight";
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected FlowRuleProviderRegistry providerRegistry;
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected OpenFlowController controller;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ComponentConfigService cfgService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
+    @Property(name = "barrierInterval", intValue = DEFAULT_BARRIER_INTERVAL,
+            label = "Number of flow mods of a batch after which a barrier is " +
+                    "sent; 0 for a single barrier at the end of the batch")
+    private int barrierInterval = DEFAULT_BARRIER_INTERVAL;
+
+    @Property(name = "flowPollInterval", intValue = POLL_INTERVAL,
+            label = "Base interval in seconds between flow stats polls of a switch")
+    private int flowPollInterval = POLL_INTERVAL;
+
+    @Property(name = "maxStatsRequests", intValue = DEFAULT_MAX_STATS_REQUESTS,
+            label = "Maximum number of outstanding flow stats requests " +
+                    "across all switches")
+    private int maxStatsRequests = DEFAULT_MAX_STATS_REQUESTS;
+
 
     private FlowRuleProviderService providerService;
 
@@ -91,7 +132,9 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
 
     private Cache<Long, InternalCacheEntry> pendingBatches;
 
-    private final Map<Dpid, FlowStatsCollector> collectors = Maps.newHashMap();
+    private FlowStatsScheduler statsScheduler;
+    private MetricsComponent metricsComponent;
+    private MetricsFeature metricsFeature;
 
 
     /**
@@ -102,7 +145,12 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
     }
 
     @Activate
-    public void activate() {
+    public void activate(ComponentContext context) {
+        cfgService.registerProperties(getClass());
+        statsScheduler = new FlowStatsScheduler(flowPollInterval, maxStatsRequests,
+                                                registerMetrics());
+        modified(context);
+
         providerService = providerRegistry.register(this);
         controller.addListener(listener);
         controller.addEventListener(listener);
@@ -117,10 +165,9 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
                 }).build();
 
 
+        statsScheduler.start();
         for (OpenFlowSwitch sw : controller.getSwitches()) {
-            FlowStatsCollector fsc = new FlowStatsCollector(sw, POLL_INTERVAL);
-            fsc.start();
-            collectors.put(new Dpid(sw.getId()), fsc);
+            statsScheduler.add(sw);
         }
 
 
@@ -129,12 +176,62 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
 
     @Deactivate
     public void deactivate() {
+        cfgService.unregisterProperties(getClass(), false);
+        controller.removeListener(listener);
+        controller.removeEventListener(listener);
+        statsScheduler.stop();
+        unregisterMetrics();
         providerRegistry.unregister(this);
         providerService = null;
 
         log.info("Stopped");
     }
 
+    @Modified
+    public void modified(ComponentContext context) {
+        if (context == null) {
+            return;
+        }
+        Dictionary<?, ?> properties = context.getProperties();
+
+        barrierInterval = getInt(properties, "barrierInterval", barrierInterval, 0);
+        flowPollInterval = getInt(properties, "flowPollInterval", flowPollInterval, 1);
+        maxStatsRequests = getInt(properties, "maxStatsRequests", maxStatsRequests, 1);
+        statsScheduler.configure(flowPollInterval, maxStatsRequests);
+
+        log.info("Settings: barrierInterval={}, flowPollInterval={}, maxStatsRequests={}",
+                 barrierInterval, flowPollInterval, maxStatsRequests);
+    }
+
+    private int getInt(Dictionary<?, ?> properties, String name, int current, int min) {
+        String s = get(properties, name);
+        if (Strings.isNullOrEmpty(s)) {
+            return current;
+        }
+        try {
+            return Math.max(Integer.parseInt(s), min);
+        } catch (NumberFormatException e) {
+            log.warn("Invalid {} {}; keeping {}", name, s, current);
+            return current;
+        }
+    }
+
+    private Timer registerMetrics() {
+        metricsComponent = metricsService.registerComponent(COMPONENT);
+        metricsFeature = metricsComponent.registerFeature(FEATURE);
+        metricsService.registerMetric(metricsComponent, metricsFeature, POLL_BACKLOG,
+                                      (Gauge<Integer>) () -> statsScheduler.backlog());
+        metricsService.registerMetric(metricsComponent, metricsFeature, POLLS_IN_FLIGHT,
+                                      (Gauge<Integer>) () -> statsScheduler.inFlight());
+        return metricsService.createTimer(metricsComponent, metricsFeature, POLL_LATENCY);
+    }
+
+    private void unregisterMetrics() {
+        metricsService.removeMetric(metricsComponent, metricsFeature, POLL_LATENCY);
+        metricsService.removeMetric(metricsComponent, metricsFeature, POLL_BACKLOG);
+        metricsService.removeMetric(metricsComponent, metricsFeature, POLLS_IN_FLIGHT);
+    }
+
     @Override
     public void applyFlowRule(FlowRule... flowRules) {
         for (FlowRule flowRule : flowRules) {
@@ -143,7 +240,9 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
     }
 
     private void applyRule(FlowRule flowRule) {
-        OpenFlowSwitch sw = controller.getSwitch(Dpid.dpid(flowRule.deviceId().uri()));
+        Dpid dpid = Dpid.dpid(flowRule.deviceId().uri());
+        OpenFlowSwitch sw = controller.getSwitch(dpid);
+        statsScheduler.flowModsSent(dpid, 1);
         if (flowRule.type() == FlowRule.Type.DEFAULT) {
             sw.sendMsg(FlowModBuilder.builder(flowRule, sw.factory(),
                     Optional.empty()).buildFlowAdd());
@@ -165,7 +264,9 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
     }
 
     private void removeRule(FlowRule flowRule) {
-        OpenFlowSwitch sw = controller.getSwitch(Dpid.dpid(flowRule.deviceId().uri()));
+        Dpid dpid = Dpid.dpid(flowRule.deviceId().uri());
+        OpenFlowSwitch sw = controller.getSwitch(dpid);
+        statsScheduler.flowModsSent(dpid, 1);
         if (flowRule.type() == FlowRule.Type.DEFAULT) {
             sw.sendMsg(FlowModBuilder.builder(flowRule, sw.factory(),
                     Optional.empty()).buildFlowDel());
@@ -185,12 +286,24 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
 
     public void executeBatch(FlowRuleBatchOperation batch) {
 
-        pendingBatches.put(batch.id(), new InternalCacheEntry(batch));
+        InternalCacheEntry entry = new InternalCacheEntry(batch);
+        pendingBatches.put(batch.id(), entry);
 
 
-        OpenFlowSwitch sw = controller.getSwitch(Dpid.dpid(batch.deviceId().uri()));
+        Dpid dpid = Dpid.dpid(batch.deviceId().uri());
+        OpenFlowSwitch sw = controller.getSwitch(dpid);
+        statsScheduler.flowModsSent(dpid, batch.size());
         OFFlowMod mod;
 
+        // Flow mods are collected and written as a single list, which the
+        // channel encodes into one buffer, instead of one write per flow mod
+        List<OFMessage> msgs = new ArrayList<>(batch.size() + 1);
+        int sinceBarrier = 0;
+
+        // The final barrier is counted before anything is written, so that
+        // replies to the barriers written ahead of it cannot complete the batch
+        entry.barrierSent();
+
         for (FlowRuleBatchEntry fbe : batch.getOperations()) {
 
             FlowModBuilder builder =
@@ -211,16 +324,41 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
                               fbe.operator(), fbe);
                     continue;
                 }
+            if (barrierInterval > 0 && sinceBarrier == barrierInterval) {
+                entry.barrierSent();
+                msgs.add(buildBarrier(sw, batch.id()));
+                sinceBarrier = 0;
+            }
+            sinceBarrier++;
             if (fbe.target().type() == FlowRule.Type.DEFAULT) {
-                sw.sendMsg(mod);
+                msgs.add(mod);
             } else {
+                // the driver writes transformed flow mods itself; flush what
+                // was collected so far to keep the order of the batch
+                if (!msgs.isEmpty()) {
+                    sw.sendMsg(msgs);
+                    msgs = new ArrayList<>();
+                }
                 sw.transformAndSendMsg(mod, getTableType(fbe.target().type()));
             }
         }
-        OFBarrierRequest.Builder builder = sw.factory()
+        msgs.add(buildBarrier(sw, batch.id()));
+        sw.sendMsg(msgs);
+    }
+
+    /**
+     * Builds a barrier request for a batch. All barriers of a batch carry
+     * the batch id, as its flow mods do.
+     *
+     * @param sw      switch the batch is sent to
+     * @param batchId batch id
+     * @return barrier request
+     */
+    private OFBarrierRequest buildBarrier(OpenFlowSwitch sw, long batchId) {
+        return sw.factory()
                 .buildBarrierRequest()
-                .setXid(batch.id());
-        sw.sendMsg(builder.build());
+                .setXid(batchId)
+                .build();
     }
 
     private OpenFlowSwitch.TableType getTableType(FlowRule.Type type) {
@@ -281,17 +419,15 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
 
         @Override
         public void switchAdded(Dpid dpid) {
-            FlowStatsCollector fsc = new FlowStatsCollector(controller.getSwitch(dpid), POLL_INTERVAL);
-            fsc.start();
-            collectors.put(dpid, fsc);
+            OpenFlowSwitch sw = controller.getSwitch(dpid);
+            if (sw != null) {
+                statsScheduler.add(sw);
+            }
         }
 
         @Override
         public void switchRemoved(Dpid dpid) {
-            FlowStatsCollector collector = collectors.remove(dpid);
-            if (collector != null) {
-                collector.stop();
-            }
+            statsScheduler.remove(dpid);
         }
 
         @Override
@@ -318,15 +454,17 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
                     }
                     break;
                 case BARRIER_REPLY:
-                    try {
-                        InternalCacheEntry entry = pendingBatches.getIfPresent(msg.getXid());
-                        if (entry != null) {
-                            providerService.batchOperationCompleted(msg.getXid(), entry.completed());
-                        } else {
-                            log.warn("Received unknown Barrier Reply: {}", msg.getXid());
+                    InternalCacheEntry pending = pendingBatches.getIfPresent(msg.getXid());
+                    if (pending == null) {
+                        log.warn("Received unknown Barrier Reply: {}", msg.getXid());
+                    } else if (pending.barrierReplied()) {
+                        // barriers are answered in order, so this was the
+                        // last one of the batch
+                        try {
+                            providerService.batchOperationCompleted(msg.getXid(), pending.completed());
+                        } finally {
+                            pendingBatches.invalidate(msg.getXid());
                         }
-                    } finally {
-                        pendingBatches.invalidate(msg.getXid());
                     }
                     break;
                 case ERROR:
@@ -377,6 +515,8 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
                                         .build())
                     .collect(Collectors.toList());
 
+            long bytes = flowEntries.stream().mapToLong(FlowEntry::bytes).sum();
+            statsScheduler.pollCompleted(dpid, flowEntries.size(), bytes);
             providerService.pushFlowMetrics(did, flowEntries);
 
         }
@@ -395,6 +535,7 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
 
         private final FlowRuleBatchOperation operation;
         private final Set<FlowRule> failures = Sets.newConcurrentHashSet();
+        private final AtomicInteger pendingBarriers = new AtomicInteger();
 
         public InternalCacheEntry(FlowRuleBatchOperation operation) {
             this.operation = operation;
@@ -408,6 +549,21 @@ public class OpenFlowRuleProvider extends AbstractProvider implements FlowRulePr
             failures.add(rule);
         }
 
+        /**
+         * Records that a barrier of the batch was sent.
+         */
+        public void barrierSent() {
+            pendingBarriers.incrementAndGet();
+        }
+
+        /**
+         * Records the reply to a barrier of the batch.
+         * @return true if no more barrier replies are expected
+         */
+        public boolean barrierReplied() {
+            return pendingBarriers.decrementAndGet() <= 0;
+        }
+
         /**
          * Fails the entire batch and returns the failed operation.
          * @return the failed operation
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.provider.of.flow.impl;
+
+import com.codahale.metrics.Timer;
+import org.junit.Test;
+import org.onosproject.openflow.controller.Dpid;
+import org.onosproject.openflow.controller.OpenFlowSwitch;
+import org.onosproject.openflow.controller.RoleState;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFPortDesc;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.types.TableId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the flow stats poll scheduling.
+ */
+public class FlowStatsSchedulerTest {
+
+    private static final int INTERVAL = 10;
+    private static final long INTERVAL_MILLIS = INTERVAL * 1000;
+
+    // Late enough for every switch added by a test to be due
+    private static final long DUE = System.currentTimeMillis() + 10 * INTERVAL_MILLIS;
+
+    private FlowStatsScheduler scheduler(int maxInFlight) {
+        return new FlowStatsScheduler(INTERVAL, maxInFlight, new Timer());
+    }
+
+    private List<TestOpenFlowSwitch> addSwitches(FlowStatsScheduler scheduler, int count) {
+        List<TestOpenFlowSwitch> switches = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            TestOpenFlowSwitch sw = new TestOpenFlowSwitch(i);
+            scheduler.add(sw);
+            switches.add(sw);
+        }
+        return switches;
+    }
+
+    private int polls(List<TestOpenFlowSwitch> switches) {
+        return switches.stream().mapToInt(sw -> sw.polls).sum();
+    }
+
+    @Test
+    public void phasesSpreadAcrossInterval() {
+        int count = 10;
+        FlowStatsScheduler scheduler = scheduler(count);
+        long[] phases = addSwitches(scheduler, count).stream()
+                .mapToLong(sw -> scheduler.nextPoll(sw.dpid))
+                .sorted()
+                .toArray();
+
+        long first = phases[0];
+        assertTrue("polls not spread across the interval",
+                   phases[count - 1] - first > INTERVAL_MILLIS / 2);
+        assertTrue("polls beyond the interval",
+                   phases[count - 1] - first < INTERVAL_MILLIS);
+        for (int i = 1; i < count; i++) {
+            assertTrue("polls too close: " + Arrays.toString(phases),
+                       phases[i] - phases[i - 1] > INTERVAL_MILLIS / (3 * count));
+        }
+    }
+
+    @Test
+    public void requestsInFlightCapped() {
+        FlowStatsScheduler scheduler = scheduler(2);
+        List<TestOpenFlowSwitch> switches = addSwitches(scheduler, 5);
+
+        scheduler.tick(DUE);
+        assertEquals("incorrect number of polls", 2, polls(switches));
+        assertEquals("incorrect requests in flight", 2, scheduler.inFlight());
+        assertEquals("incorrect backlog", 3, scheduler.backlog());
+
+        // a reply lets the next due poll go
+        TestOpenFlowSwitch polled = switches.stream().filter(sw -> sw.polls > 0)
+                .findFirst().get();
+        scheduler.pollCompleted(polled.dpid, 0, 0);
+        scheduler.tick(DUE);
+        assertEquals("incorrect number of polls", 3, polls(switches));
+        assertEquals("incorrect requests in flight", 2, scheduler.inFlight());
+        assertEquals("incorrect backlog", 2, scheduler.backlog());
+    }
+
+    @Test
+    public void lostRepliesGivenUp() {
+        FlowStatsScheduler scheduler = scheduler(1);
+        List<TestOpenFlowSwitch> switches = addSwitches(scheduler, 2);
+
+        scheduler.tick(DUE);
+        assertEquals("incorrect number of polls", 1, polls(switches));
+        TestOpenFlowSwitch lost = switches.stream().filter(sw -> sw.polls > 0)
+                .findFirst().get();
+        TestOpenFlowSwitch waiting = switches.stream().filter(sw -> sw.polls == 0)
+                .findFirst().get();
+
+        // once the unanswered switch is due again, the waiting one goes first
+        scheduler.tick(scheduler.nextPoll(lost.dpid));
+        assertEquals("waiting switch not polled", 1, waiting.polls);
+        assertEquals("incorrect requests in flight", 1, scheduler.inFlight());
+
+        // a reply to a request given up on is ignored
+        scheduler.pollCompleted(lost.dpid, 0, 0);
+        assertEquals("incorrect requests in flight", 1, scheduler.inFlight());
+    }
+
+    @Test
+    public void backoffWhileIdle() {
+        FlowStatsScheduler scheduler = scheduler(1);
+        TestOpenFlowSwitch sw = addSwitches(scheduler, 1).get(0);
+        long now = DUE;
+
+        // the first reply is a change from nothing
+        now = pollAndReply(scheduler, sw, now, 100, 1000);
+        assertEquals("incorrect interval", INTERVAL_MILLIS, scheduler.interval(sw.dpid));
+
+        // no change: the interval doubles up to its bound
+        now = pollAndReply(scheduler, sw, now, 100, 1000);
+        assertEquals("incorrect interval", 2 * INTERVAL_MILLIS, scheduler.interval(sw.dpid));
+        now = pollAndReply(scheduler, sw, now, 100, 1000);
+        assertEquals("incorrect interval", 4 * INTERVAL_MILLIS, scheduler.interval(sw.dpid));
+        now = pollAndReply(scheduler, sw, now, 100, 1000);
+        assertEquals("incorrect interval", 4 * INTERVAL_MILLIS, scheduler.interval(sw.dpid));
+
+        // steady traffic over the same flows keeps the base interval
+        now = pollAndReply(scheduler, sw, now, 100, 2000);
+        assertEquals("incorrect interval", INTERVAL_MILLIS, scheduler.interval(sw.dpid));
+        now = pollAndReply(scheduler, sw, now, 100, 3000);
+        assertEquals("incorrect interval", INTERVAL_MILLIS, scheduler.interval(sw.dpid));
+
+        // flow mods sent before a poll keep the base interval too
+        now = pollAndReply(scheduler, sw, now, 100, 3000);
+        assertEquals("incorrect interval", 2 * INTERVAL_MILLIS, scheduler.interval(sw.dpid));
+        scheduler.flowModsSent(sw.dpid, 1);
+        now = pollAndReply(scheduler, sw, now, 100, 3000);
+        assertEquals("incorrect interval", INTERVAL_MILLIS, scheduler.interval(sw.dpid));
+
+        // large tables are polled less often, within the same bound
+        now = pollAndReply(scheduler, sw, now, 25_000, 3000);
+        assertEquals("incorrect interval", 3 * INTERVAL_MILLIS, scheduler.interval(sw.dpid));
+        pollAndReply(scheduler, sw, now, 25_000, 3000);
+        assertEquals("incorrect interval", 4 * INTERVAL_MILLIS, scheduler.interval(sw.dpid));
+    }
+
+    // Polls the switch at its next poll after the given time and replies
+    // with the given flow count and bytes; returns the time of the poll.
+    private long pollAndReply(FlowStatsScheduler scheduler, TestOpenFlowSwitch sw,
+                              long after, int flows, long bytes) {
+        int polls = sw.polls;
+        long now = Math.max(after, scheduler.nextPoll(sw.dpid));
+        scheduler.tick(now);
+        assertEquals("switch not polled", polls + 1, sw.polls);
+        scheduler.pollCompleted(sw.dpid, flows, bytes);
+        return now;
+    }
+
+    private static class TestOpenFlowSwitch implements OpenFlowSwitch {
+
+        private final Dpid dpid;
+        private int polls;
+
+        TestOpenFlowSwitch(long dpid) {
+            this.dpid = new Dpid(dpid);
+        }
+
+        @Override
+        public void sendMsg(OFMessage msg) {
+            polls++;
+        }
+
+        @Override
+        public void sendMsg(List<OFMessage> msgs) {
+        }
+
+        @Override
+        public void handleMessage(OFMessage fromSwitch) {
+        }
+
+        @Override
+        public void setRole(RoleState role) {
+        }
+
+        @Override
+        public RoleState getRole() {
+            return RoleState.MASTER;
+        }
+
+        @Override
+        public List<OFPortDesc> getPorts() {
+            return null;
+        }
+
+        @Override
+        public OFFactory factory() {
+            return OFFactories.getFactory(OFVersion.OF_13);
+        }
+
+        @Override
+        public String getStringId() {
+            return dpid.toString();
+        }
+
+        @Override
+        public long getId() {
+            return dpid.value();
+        }
+
+        @Override
+        public String manufacturerDescription() {
+            return null;
+        }
+
+        @Override
+        public String datapathDescription() {
+            return null;
+        }
+
+        @Override
+        public String hardwareDescription() {
+            return null;
+        }
+
+        @Override
+        public String softwareDescription() {
+            return null;
+        }
+
+        @Override
+        public String serialNumber() {
+            return null;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public void disconnectSwitch() {
+        }
+
+        @Override
+        public void returnRoleReply(RoleState requested, RoleState response) {
+        }
+
+        @Override
+        public boolean isOptical() {
+            return false;
+        }
+
+        @Override
+        public String channelId() {
+            return null;
+        }
+
+        @Override
+        public TableType getTableType(TableId tid) {
+            return TableType.NONE;
+        }
+
+        @Override
+        public void transformAndSendMsg(OFMessage msg, TableType tableType) {
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable graph implemented using compressed sparse rows.
+ * <p>
+ * Vertexes are numbered densely from 0 in the iteration order of the
+ * vertex set, and edges are numbered so that the egress edges of each
+ * vertex form a contiguous range, keeping their original relative order.
+ * Besides the generic {@link Graph} view, the graph offers this numbering
+ * directly, so that searches such as {@link CompactGraphSearch} can work on
+ * primitive arrays instead of maps of boxed values.
+ * </p>
+ *
+ * @param <V> vertex type
+ * @param <E> edge type
+ */
+public class CompactGraph<V extends Vertex, E extends Edge<V>>
+        implements Graph<V, E> {
+
+    private final Set<V> vertexes;
+    private final Set<E> edges;
+
+    private final ImmutableMap<V, Integer> indexes;
+    private final Object[] vertexArray;
+    private final Object[] edgeArray;
+
+    // Edge end-point indexes, by edge index
+    private final int[] edgeSrc;
+    private final int[] edgeDst;
+
+    // Egress edges of vertex v are those in [outStart[v], outStart[v + 1])
+    private final int[] outStart;
+
+    // Ingress edges of vertex v are inEdges[inStart[v]] to
+    // inEdges[inStart[v + 1] - 1]
+    private final int[] inStart;
+    private final int[] inEdges;
+
+    /**
+     * Creates a graph comprising of the specified vertexes and edges.
+     *
+     * @param vertexes set of graph vertexes
+     * @param edges    set of graph edges
+     */
+    public CompactGraph(Set<V> vertexes, Set<E> edges) {
+        checkNotNull(vertexes, "Vertex set cannot be null");
+        checkNotNull(edges, "Edge set cannot be null");
+
+        // Make sure that all edge end-points are added as vertexes
+        ImmutableSet.Builder<V> actualVertexes = ImmutableSet.builder();
+        actualVertexes.addAll(vertexes);
+        for (E edge : edges) {
+            actualVertexes.add(edge.src());
+            actualVertexes.add(edge.dst());
+        }
+        this.vertexes = actualVertexes.build();
+        this.edges = ImmutableSet.copyOf(edges);
+
+        int n = this.vertexes.size();
+        int m = this.edges.size();
+
+        ImmutableMap.Builder<V, Integer> indexBuilder = ImmutableMap.builder();
+        vertexArray = new Object[n];
+        int i = 0;
+        for (V vertex : this.vertexes) {
+            indexBuilder.put(vertex, i);
+            vertexArray[i++] = vertex;
+        }
+        indexes = indexBuilder.build();
+
+        // Count the egress and ingress edges of each vertex.
+        int[] srcOf = new int[m];
+        int[] dstOf = new int[m];
+        outStart = new int[n + 1];
+        inStart = new int[n + 1];
+        i = 0;
+        for (E edge : this.edges) {
+            srcOf[i] = indexes.get(edge.src());
+            dstOf[i] = indexes.get(edge.dst());
+            outStart[srcOf[i] + 1]++;
+            inStart[dstOf[i] + 1]++;
+            i++;
+        }
+        for (int v = 0; v < n; v++) {
+            outStart[v + 1] += outStart[v];
+            inStart[v + 1] += inStart[v];
+        }
+
+        // Place the edges into their rows, preserving their relative order.
+        edgeArray = new Object[m];
+        edgeSrc = new int[m];
+        edgeDst = new int[m];
+        inEdges = new int[m];
+        int[] outNext = new int[n];
+        int[] inNext = new int[n];
+        System.arraycopy(outStart, 0, outNext, 0, n);
+        System.arraycopy(inStart, 0, inNext, 0, n);
+        i = 0;
+        for (E edge : this.edges) {
+            int e = outNext[srcOf[i]]++;
+            edgeArray[e] = edge;
+            edgeSrc[e] = srcOf[i];
+            edgeDst[e] = dstOf[i];
+            i++;
+        }
+        for (int e = 0; e < m; e++) {
+            inEdges[inNext[edgeDst[e]]++] = e;
+        }
+    }
+
+    @Override
+    public Set<V> getVertexes() {
+        return vertexes;
+    }
+
+    @Override
+    public Set<E> getEdges() {
+        return edges;
+    }
+
+    @Override
+    public Set<E> getEdgesFrom(V src) {
+        Integer v = indexes.get(src);
+        return v == null ? ImmutableSet.of() : new EdgeRange(v, false);
+    }
+
+    @Override
+    public Set<E> getEdgesTo(V dst) {
+        Integer v = indexes.get(dst);
+        return v == null ? ImmutableSet.of() : new EdgeRange(v, true);
+    }
+
+    /**
+     * Returns the number of vertexes in the graph.
+     *
+     * @return vertex count
+     */
+    public int vertexCount() {
+        return vertexArray.length;
+    }
+
+    /**
+     * Returns the number of edges in the graph.
+     *
+     * @return edge count
+     */
+    public int edgeCount() {
+        return edgeArray.length;
+    }
+
+    /**
+     * Returns the index of the specified vertex.
+     *
+     * @param vertex vertex
+     * @return vertex index; -1 if the vertex is not in the graph
+     */
+    public int index(V vertex) {
+        Integer v = indexes.get(vertex);
+        return v == null ? -1 : v;
+    }
+
+    /**
+     * Returns the vertex with the specified index.
+     *
+     * @param v vertex index
+     * @return vertex
+     */
+    @SuppressWarnings("unchecked")
+    public V vertex(int v) {
+        return (V) vertexArray[v];
+    }
+
+    /**
+     * Returns the edge with the specified index.
+     *
+     * @param e edge index
+     * @return edge
+     */
+    @SuppressWarnings("unchecked")
+    public E edge(int e) {
+        return (E) edgeArray[e];
+    }
+
+    /**
+     * Returns the index of the source vertex of the specified edge.
+     *
+     * @param e edge index
+     * @return source vertex index
+     */
+    public int src(int e) {
+        return edgeSrc[e];
+    }
+
+    /**
+     * Returns the index of the destination vertex of the specified edge.
+     *
+     * @param e edge index
+     * @return destination vertex index
+     */
+    public int dst(int e) {
+        return edgeDst[e];
+    }
+
+    /**
+     * Returns the index of the first egress edge of the specified vertex.
+     * The egress edges of vertex {@code v} are those with indexes from
+     * {@code firstEdgeFrom(v)} up to, but excluding,
+     * {@code firstEdgeFrom(v + 1)}.
+     *
+     * @param v vertex index; up to and including the vertex count
+     * @return edge index
+     */
+    public int firstEdgeFrom(int v) {
+        return outStart[v];
+    }
+
+    /**
+     * Returns the position of the first ingress edge of the specified vertex
+     * among the ingress edges of all vertexes. The ingress edges of vertex
+     * {@code v} are {@code edgeTo(i)} for positions {@code i} from
+     * {@code firstEdgeTo(v)} up to, but excluding, {@code firstEdgeTo(v + 1)}.
+     *
+     * @param v vertex index; up to and including the vertex count
+     * @return ingress edge position
+     */
+    public int firstEdgeTo(int v) {
+        return inStart[v];
+    }
+
+    /**
+     * Returns the index of the ingress edge at the specified position.
+     *
+     * @param i ingress edge position
+     * @return edge index
+     */
+    public int edgeTo(int i) {
+        return inEdges[i];
+    }
+
+    /**
+     * Returns the weights of all edges, by edge index, as given by the
+     * specified edge weight function.
+     *
+     * @param weight optional edge weight; if null the weight of each edge
+     *               will be 1.0
+     * @return array of edge weights
+     */
+    public double[] weights(EdgeWeight<V, E> weight) {
+        double[] weights = new double[edgeArray.length];
+        for (int e = 0; e < weights.length; e++) {
+            weights[e] = weight == null ? 1.0 : weight.weight(edge(e));
+        }
+        return weights;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof CompactGraph) {
+            CompactGraph that = (CompactGraph) obj;
+            return this.getClass() == that.getClass() &&
+                    Objects.equals(this.vertexes, that.vertexes) &&
+                    Objects.equals(this.edges, that.edges);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(vertexes, edges);
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("vertexes", vertexes)
+                .add("edges", edges)
+                .toString();
+    }
+
+    // Set view of the egress or ingress edges of a vertex.
+    private final class EdgeRange extends AbstractSet<E> {
+        private final int vertex;
+        private final boolean ingress;
+
+        private EdgeRange(int vertex, boolean ingress) {
+            this.vertex = vertex;
+            this.ingress = ingress;
+        }
+
+        @Override
+        public int size() {
+            return ingress ? inStart[vertex + 1] - inStart[vertex]
+                    : outStart[vertex + 1] - outStart[vertex];
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Edge)) {
+                return false;
+            }
+            for (E edge : this) {
+                if (edge.equals(o)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int i = ingress ? inStart[vertex] : outStart[vertex];
+                private final int end = ingress ? inStart[vertex + 1] : outStart[vertex + 1];
+
+                @Override
+                public boolean hasNext() {
+                    return i < end;
+                }
+
+                @Override
+                public E next() {
+                    if (i >= end) {
+                        throw new NoSuchElementException();
+                    }
+                    return edge(ingress ? inEdges[i++] : i++);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,442 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.onlab.graph.GraphPathSearch.ALL_PATHS;
+
+/**
+ * Dijkstra, breadth-first and Tarjan searches over the vertex and edge
+ * indexes of a {@link CompactGraph}.
+ * <p>
+ * Edge weights are given as arrays indexed by edge, as produced by
+ * {@link CompactGraph#weights}; edges with negative weight are not
+ * traversed. The searches keep their working state in scratch arrays sized
+ * to the graph and reused from one search to the next, so an instance must
+ * not be shared between threads. The shortest path trees it produces may be.
+ * </p>
+ *
+ * @param <V> vertex type
+ * @param <E> edge type
+ */
+public class CompactGraphSearch<V extends Vertex, E extends Edge<V>> {
+
+    private static final int UNSEEN = -1;
+
+    private final CompactGraph<V, E> graph;
+
+    // Dijkstra min priority queue of vertexes and their positions in it
+    private final int[] heap;
+    private final int[] heapPosition;
+
+    // Breadth-first search visit marks, valid when equal to the epoch
+    private final int[] marks;
+    private int epoch = 0;
+
+    // Tarjan discovery indexes, low links, vertex stack and call stack
+    private final int[] indexes;
+    private final int[] lowLinks;
+    private final boolean[] onStack;
+    private final int[] stack;
+    private final int[] callVertexes;
+    private final int[] callEdges;
+
+    /**
+     * Creates a search over the specified graph.
+     *
+     * @param graph graph to be searched
+     */
+    public CompactGraphSearch(CompactGraph<V, E> graph) {
+        this.graph = checkNotNull(graph, "Graph cannot be null");
+        int n = graph.vertexCount();
+        heap = new int[n];
+        heapPosition = new int[n];
+        marks = new int[n];
+        indexes = new int[n];
+        lowLinks = new int[n];
+        onStack = new boolean[n];
+        stack = new int[n];
+        callVertexes = new int[n];
+        callEdges = new int[n];
+    }
+
+    /**
+     * Returns the graph being searched.
+     *
+     * @return graph
+     */
+    public CompactGraph<V, E> graph() {
+        return graph;
+    }
+
+    /**
+     * Searches the graph for the shortest paths from the source to all other
+     * vertexes, recording all parent edges along which each vertex is
+     * reached at the same least cost.
+     *
+     * @param src     source vertex index
+     * @param weights edge weights, by edge index
+     * @return shortest path tree rooted at the source
+     */
+    public ShortestPathTree<V, E> dijkstra(int src, double[] weights) {
+        checkWeights(weights);
+        int n = graph.vertexCount();
+        double[] costs = new double[n];
+        int[] parentHead = new int[n];
+        int[] parentNext = new int[graph.edgeCount()];
+        Arrays.fill(costs, Double.MAX_VALUE);
+        Arrays.fill(parentHead, UNSEEN);
+        Arrays.fill(heapPosition, UNSEEN);
+
+        costs[src] = 0.0;
+        int size = 0;
+        heapPosition[src] = size;
+        heap[size++] = src;
+
+        while (size > 0) {
+            // Extract the nearest vertex.
+            int nearest = heap[0];
+            heapPosition[nearest] = UNSEEN;
+            size--;
+            if (size > 0) {
+                heap[0] = heap[size];
+                heapPosition[heap[0]] = 0;
+                siftDown(0, size, costs);
+            }
+
+            double cost = costs[nearest];
+            for (int e = graph.firstEdgeFrom(nearest), end = graph.firstEdgeFrom(nearest + 1);
+                    e < end; e++) {
+                double hopCost = weights[e];
+                if (hopCost < 0) {
+                    continue;
+                }
+                int v = graph.dst(e);
+                double oldCost = costs[v];
+                double newCost = cost + hopCost;
+                if (newCost < oldCost) {
+                    costs[v] = newCost;
+                    parentHead[v] = e;
+                    parentNext[e] = UNSEEN;
+                    if (heapPosition[v] == UNSEEN) {
+                        heapPosition[v] = size;
+                        heap[size++] = v;
+                    }
+                    siftUp(heapPosition[v], costs);
+                } else if (Math.abs(newCost - oldCost) <= Double.MIN_VALUE) {
+                    parentNext[e] = parentHead[v];
+                    parentHead[v] = e;
+                }
+            }
+        }
+        return new ShortestPathTree<>(graph, src, costs, parentHead, parentNext);
+    }
+
+    /**
+     * Searches the graph breadth-first from the source vertex.
+     *
+     * @param src        source vertex index
+     * @param weights    edge weights, by edge index
+     * @param order      array receiving the reached vertexes in the order of
+     *                   their discovery, starting with the source; must have
+     *                   room for all vertexes
+     * @param parentEdge array receiving, by vertex index, the edge through
+     *                   which each reached vertex was first discovered, or -1
+     *                   for the source; entries of vertexes not reached are
+     *                   left untouched
+     * @return number of vertexes reached, including the source
+     */
+    public int breadthFirst(int src, double[] weights, int[] order, int[] parentEdge) {
+        checkWeights(weights);
+        int mark = nextEpoch();
+        int head = 0;
+        int tail = 0;
+        marks[src] = mark;
+        parentEdge[src] = UNSEEN;
+        order[tail++] = src;
+        while (head < tail) {
+            int vertex = order[head++];
+            for (int e = graph.firstEdgeFrom(vertex), end = graph.firstEdgeFrom(vertex + 1);
+                    e < end; e++) {
+                int v = graph.dst(e);
+                if (weights[e] >= 0 && marks[v] != mark) {
+                    marks[v] = mark;
+                    parentEdge[v] = e;
+                    order[tail++] = v;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Searches the graph for its strongly connected components using an
+     * iterative rendition of the Tarjan algorithm. The components are
+     * numbered in the same order in which {@link TarjanGraphSearch} lists
+     * them.
+     *
+     * @param weights    edge weights, by edge index
+     * @param components array receiving the component number of each vertex,
+     *                   by vertex index
+     * @return number of components
+     */
+    public int tarjan(double[] weights, int[] components) {
+        checkWeights(weights);
+        int n = graph.vertexCount();
+        Arrays.fill(indexes, UNSEEN);
+        int index = 0;
+        int count = 0;
+        int top = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (indexes[root] != UNSEEN) {
+                continue;
+            }
+
+            // Descend into the root, then keep scanning the egress edges of
+            // the vertex atop the call stack, one edge at a time.
+            int depth = 0;
+            callVertexes[depth] = root;
+            callEdges[depth] = graph.firstEdgeFrom(root);
+            indexes[root] = index;
+            lowLinks[root] = index++;
+            stack[top++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int vertex = callVertexes[depth];
+                int e = callEdges[depth];
+                if (e < graph.firstEdgeFrom(vertex + 1)) {
+                    callEdges[depth]++;
+                    if (weights[e] < 0) {
+                        continue;
+                    }
+                    int next = graph.dst(e);
+                    if (indexes[next] == UNSEEN) {
+                        depth++;
+                        callVertexes[depth] = next;
+                        callEdges[depth] = graph.firstEdgeFrom(next);
+                        indexes[next] = index;
+                        lowLinks[next] = index++;
+                        stack[top++] = next;
+                        onStack[next] = true;
+                    } else if (onStack[next]) {
+                        lowLinks[vertex] = Math.min(lowLinks[vertex], indexes[next]);
+                    }
+                    continue;
+                }
+
+                // All edges scanned; pop the component if this is its root
+                // and return to the caller.
+                if (lowLinks[vertex] == indexes[vertex]) {
+                    int member;
+                    do {
+                        member = stack[--top];
+                        onStack[member] = false;
+                        components[member] = count;
+                    } while (member != vertex);
+                    count++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int caller = callVertexes[depth];
+                    lowLinks[caller] = Math.min(lowLinks[caller], lowLinks[vertex]);
+                }
+            }
+        }
+        return count;
+    }
+
+    // Validates that the weights cover all edges of the graph.
+    private void checkWeights(double[] weights) {
+        checkNotNull(weights, "Weights cannot be null");
+        checkArgument(weights.length == graph.edgeCount(),
+                      "Weights do not match the graph edges");
+    }
+
+    // Advances the breadth-first visit epoch, clearing the marks on wrap.
+    private int nextEpoch() {
+        if (++epoch == 0) {
+            Arrays.fill(marks, 0);
+            epoch = 1;
+        }
+        return epoch;
+    }
+
+    // Moves the heap entry at the given position up to where it belongs.
+    private void siftUp(int i, double[] costs) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (costs[p] <= costs[v]) {
+                break;
+            }
+            heap[i] = p;
+            heapPosition[p] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        heapPosition[v] = i;
+    }
+
+    // Moves the heap entry at the given position down to where it belongs.
+    private void siftDown(int i, int size, double[] costs) {
+        int v = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && costs[heap[child + 1]] < costs[heap[child]]) {
+                child++;
+            }
+            int c = heap[child];
+            if (costs[v] <= costs[c]) {
+                break;
+            }
+            heap[i] = c;
+            heapPosition[c] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapPosition[v] = i;
+    }
+
+    /**
+     * Costs and parent edges of the shortest paths from a source vertex to
+     * all other vertexes of a compact graph.
+     *
+     * @param <V> vertex type
+     * @param <E> edge type
+     */
+    public static final class ShortestPathTree<V extends Vertex, E extends Edge<V>> {
+
+        private final CompactGraph<V, E> graph;
+        private final int src;
+        private final double[] costs;
+
+        // Parent edges of vertex v form a list starting at parentHead[v] and
+        // linked through parentNext, by edge index.
+        private final int[] parentHead;
+        private final int[] parentNext;
+
+        private ShortestPathTree(CompactGraph<V, E> graph, int src, double[] costs,
+                                 int[] parentHead, int[] parentNext) {
+            this.graph = graph;
+            this.src = src;
+            this.costs = costs;
+            this.parentHead = parentHead;
+            this.parentNext = parentNext;
+        }
+
+        /**
+         * Returns the index of the source vertex.
+         *
+         * @return source vertex index
+         */
+        public int src() {
+            return src;
+        }
+
+        /**
+         * Returns the cost of the shortest paths to the specified vertex.
+         *
+         * @param v vertex index
+         * @return path cost; {@link Double#MAX_VALUE} if not reachable
+         */
+        public double cost(int v) {
+            return costs[v];
+        }
+
+        /**
+         * Builds the shortest paths from the source to the specified
+         * destination. Paths which would visit a vertex twice, possible only
+         * through edges of zero weight, are not built.
+         *
+         * @param dst      destination vertex index
+         * @param maxPaths limit on the number of paths built;
+         *                 {@link GraphPathSearch#ALL_PATHS} if no limit
+         * @return set of paths; empty if the destination is the source or
+         *         is not reachable
+         */
+        public Set<Path<V, E>> paths(int dst, int maxPaths) {
+            Set<Path<V, E>> paths = new HashSet<>();
+            if (dst == src || parentHead[dst] == UNSEEN) {
+                return paths;
+            }
+
+            // Walk back from the destination, trying each parent edge at
+            // each depth in turn.
+            int[] chain = new int[8];
+            int depth = 0;
+            chain[0] = parentHead[dst];
+            while (depth >= 0) {
+                int e = chain[depth];
+                if (e == UNSEEN) {
+                    depth--;
+                    if (depth >= 0) {
+                        chain[depth] = parentNext[chain[depth]];
+                    }
+                    continue;
+                }
+
+                int v = graph.src(e);
+                if (v == src) {
+                    paths.add(path(chain, depth, costs[dst]));
+                    if (maxPaths != ALL_PATHS && paths.size() >= maxPaths) {
+                        break;
+                    }
+                    chain[depth] = parentNext[e];
+                } else if (v == dst || onChain(chain, depth, v)) {
+                    chain[depth] = parentNext[e];
+                } else {
+                    if (++depth == chain.length) {
+                        chain = Arrays.copyOf(chain, chain.length * 2);
+                    }
+                    chain[depth] = parentHead[v];
+                }
+            }
+            return paths;
+        }
+
+        // Indicates whether the vertex is already passed by the chain.
+        private boolean onChain(int[] chain, int depth, int v) {
+            for (int i = 0; i < depth; i++) {
+                if (graph.src(chain[i]) == v) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Builds the path formed by the chain of edges, last edge first.
+        private Path<V, E> path(int[] chain, int depth, double cost) {
+            List<E> edges = new ArrayList<>(depth + 1);
+            for (int i = depth; i >= 0; i--) {
+                edges.add(graph.edge(chain[i]));
+            }
+            return new DefaultPath<>(edges, cost);
+        }
+    }
+}
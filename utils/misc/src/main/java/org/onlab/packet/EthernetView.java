@@ -0,0 +1,294 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.packet;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Read-only view of an Ethernet frame held in a byte buffer.
+ * <p>
+ * Unlike {@link Ethernet#deserialize(byte[], int, int)}, which builds an
+ * object for every header of the frame, the view decodes fields from the
+ * buffer only as they are requested, and copies no bytes. It suits code that
+ * only needs to look at a few header fields, e.g. to decide whether a frame
+ * is of interest before parsing it in full.
+ * </p>
+ * <p>
+ * The view covers the bytes between the position and the limit of the
+ * buffer at the time it is created; changing the position or the limit of
+ * the buffer later does not affect the view, but changing its contents does.
+ * </p>
+ */
+public final class EthernetView {
+
+    private static final int MAC_LENGTH = MacAddress.MAC_ADDRESS_LENGTH;
+    private static final int HEADER_LENGTH = 2 * MAC_LENGTH + 2;
+    private static final int VLAN_TAG_LENGTH = 4;
+    private static final int MIN_IPV4_HEADER_LENGTH = 20;
+    private static final int PORTS_LENGTH = 4;
+
+    private final ByteBuffer bb;
+    private final int start;
+    private final int end;
+    private final boolean tagged;
+
+    private EthernetView(ByteBuffer bb) {
+        this.bb = bb;
+        this.start = bb.position();
+        this.end = bb.limit();
+        this.tagged = getShort(start + 2 * MAC_LENGTH) == Ethernet.TYPE_VLAN &&
+                end - start >= HEADER_LENGTH + VLAN_TAG_LENGTH;
+    }
+
+    /**
+     * Returns a view of the Ethernet frame between the position and the
+     * limit of the specified buffer.
+     *
+     * @param bb buffer holding the frame
+     * @return view of the frame; null if the buffer is too short to hold an
+     * Ethernet header
+     */
+    public static EthernetView of(ByteBuffer bb) {
+        checkNotNull(bb, "Buffer cannot be null");
+        if (bb.remaining() < HEADER_LENGTH) {
+            return null;
+        }
+        return new EthernetView(bb);
+    }
+
+    /**
+     * Returns the destination MAC address.
+     *
+     * @return destination MAC address
+     */
+    public MacAddress getDestinationMAC() {
+        return MacAddress.valueOf(getMac(start));
+    }
+
+    /**
+     * Returns the source MAC address.
+     *
+     * @return source MAC address
+     */
+    public MacAddress getSourceMAC() {
+        return MacAddress.valueOf(getMac(start + MAC_LENGTH));
+    }
+
+    /**
+     * Returns the Ethernet type of the payload, following the VLAN tag of a
+     * tagged frame.
+     *
+     * @return Ethernet type
+     */
+    public short getEtherType() {
+        return getShort(payloadOffset() - 2);
+    }
+
+    /**
+     * Returns the VLAN ID.
+     *
+     * @return VLAN ID; {@link Ethernet#VLAN_UNTAGGED} if the frame is not
+     * tagged
+     */
+    public short getVlanID() {
+        if (!tagged) {
+            return Ethernet.VLAN_UNTAGGED;
+        }
+        return (short) (getShort(start + HEADER_LENGTH) & 0x0fff);
+    }
+
+    /**
+     * Returns the priority code point of the VLAN tag.
+     *
+     * @return priority code; 0 if the frame is not tagged
+     */
+    public byte getPriorityCode() {
+        if (!tagged) {
+            return 0;
+        }
+        return (byte) (getShort(start + HEADER_LENGTH) >> 13 & 0x07);
+    }
+
+    /**
+     * Returns the offset in the buffer of the payload of the frame, i.e. of
+     * the header following the Ethernet header and VLAN tag.
+     *
+     * @return payload offset
+     */
+    public int getPayloadOffset() {
+        return payloadOffset();
+    }
+
+    /**
+     * Returns whether the frame carries an IPv4 packet with a complete
+     * header.
+     *
+     * @return true if the IPv4 accessors can be used
+     */
+    public boolean isIpv4() {
+        int l3 = payloadOffset();
+        return getEtherType() == Ethernet.TYPE_IPV4 &&
+                end - l3 >= MIN_IPV4_HEADER_LENGTH &&
+                (bb.get(l3) >> 4 & 0x0f) == 4 &&
+                ipv4HeaderLength(l3) >= MIN_IPV4_HEADER_LENGTH &&
+                end - l3 >= ipv4HeaderLength(l3);
+    }
+
+    /**
+     * Returns the IP protocol of an IPv4 packet.
+     *
+     * @return IP protocol
+     * @throws IllegalStateException if the frame does not carry IPv4
+     */
+    public byte getIpProtocol() {
+        checkIpv4();
+        return bb.get(payloadOffset() + 9);
+    }
+
+    /**
+     * Returns the source address of an IPv4 packet.
+     *
+     * @return source address
+     * @throws IllegalStateException if the frame does not carry IPv4
+     */
+    public int getIpv4SourceAddress() {
+        checkIpv4();
+        return getInt(payloadOffset() + 12);
+    }
+
+    /**
+     * Returns the destination address of an IPv4 packet.
+     *
+     * @return destination address
+     * @throws IllegalStateException if the frame does not carry IPv4
+     */
+    public int getIpv4DestinationAddress() {
+        checkIpv4();
+        return getInt(payloadOffset() + 16);
+    }
+
+    /**
+     * Returns whether the frame carries a TCP or UDP segment whose ports are
+     * present, i.e. an unfragmented or first fragment of an IPv4 packet.
+     *
+     * @return true if the transport port accessors can be used
+     */
+    public boolean hasTransportPorts() {
+        if (!isIpv4()) {
+            return false;
+        }
+        int l3 = payloadOffset();
+        byte protocol = bb.get(l3 + 9);
+        int fragmentOffset = getShort(l3 + 6) & 0x1fff;
+        return (protocol == IPv4.PROTOCOL_TCP || protocol == IPv4.PROTOCOL_UDP) &&
+                fragmentOffset == 0 &&
+                end - l3 - ipv4HeaderLength(l3) >= PORTS_LENGTH;
+    }
+
+    /**
+     * Returns the source port of a TCP or UDP segment.
+     *
+     * @return source port
+     * @throws IllegalStateException if the frame carries no transport ports
+     */
+    public short getTransportSourcePort() {
+        checkTransportPorts();
+        return getShort(transportOffset());
+    }
+
+    /**
+     * Returns the destination port of a TCP or UDP segment.
+     *
+     * @return destination port
+     * @throws IllegalStateException if the frame carries no transport ports
+     */
+    public short getTransportDestinationPort() {
+        checkTransportPorts();
+        return getShort(transportOffset() + 2);
+    }
+
+    /**
+     * Parses the whole frame.
+     *
+     * @return parsed frame; null if it cannot be parsed
+     */
+    public Ethernet parse() {
+        byte[] data;
+        int offset;
+        if (bb.hasArray()) {
+            data = bb.array();
+            offset = bb.arrayOffset() + start;
+        } else {
+            data = new byte[end - start];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = bb.get(start + i);
+            }
+            offset = 0;
+        }
+        try {
+            Ethernet eth = new Ethernet();
+            eth.deserialize(data, offset, end - start);
+            return eth;
+        } catch (BufferUnderflowException | NullPointerException e) {
+            return null;
+        }
+    }
+
+    private int payloadOffset() {
+        return start + HEADER_LENGTH + (tagged ? VLAN_TAG_LENGTH : 0);
+    }
+
+    private int transportOffset() {
+        int l3 = payloadOffset();
+        return l3 + ipv4HeaderLength(l3);
+    }
+
+    private int ipv4HeaderLength(int l3) {
+        return (bb.get(l3) & 0x0f) * 4;
+    }
+
+    private void checkIpv4() {
+        if (!isIpv4()) {
+            throw new IllegalStateException("Frame does not carry IPv4");
+        }
+    }
+
+    private void checkTransportPorts() {
+        if (!hasTransportPorts()) {
+            throw new IllegalStateException("Frame does not carry transport ports");
+        }
+    }
+
+    private long getMac(int offset) {
+        long mac = 0;
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            mac = mac << 8 | bb.get(offset + i) & 0xff;
+        }
+        return mac;
+    }
+
+    // Reads are independent of the byte order set on the buffer
+    private short getShort(int offset) {
+        return (short) ((bb.get(offset) & 0xff) << 8 | bb.get(offset + 1) & 0xff);
+    }
+
+    private int getInt(int offset) {
+        return (getShort(offset) & 0xffff) << 16 | getShort(offset + 2) & 0xffff;
+    }
+}
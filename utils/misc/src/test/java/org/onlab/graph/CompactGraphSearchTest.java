@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.junit.Assert.assertEquals;
+import static org.onlab.graph.GraphPathSearch.ALL_PATHS;
+
+/**
+ * Tests of the searches over compact graphs.
+ */
+public class CompactGraphSearchTest extends GraphTest {
+
+    private CompactGraph<TestVertex, TestEdge> compact;
+    private CompactGraphSearch<TestVertex, TestEdge> search;
+
+    private void createGraph(Set<TestVertex> vertexes, Set<TestEdge> edges) {
+        compact = new CompactGraph<>(vertexes, edges);
+        search = new CompactGraphSearch<>(compact);
+        graph = compact;
+    }
+
+    // Checks that the compact search finds the same paths as the generic one.
+    private void validateDijkstra(TestVertex src) {
+        DijkstraGraphSearch<TestVertex, TestEdge> dijkstra = new DijkstraGraphSearch<>();
+        CompactGraphSearch.ShortestPathTree<TestVertex, TestEdge> tree =
+                search.dijkstra(compact.index(src), compact.weights(weight));
+        for (TestVertex dst : graph.getVertexes()) {
+            int v = compact.index(dst);
+            assertEquals("incorrect paths to " + dst,
+                         dijkstra.search(graph, src, dst, weight, ALL_PATHS).paths(),
+                         tree.paths(v, ALL_PATHS));
+            Double cost = dijkstra.search(graph, src, dst, weight, ALL_PATHS).costs().get(dst);
+            assertEquals("incorrect cost to " + dst,
+                         cost == null ? Double.MAX_VALUE : cost, tree.cost(v), 0.0);
+        }
+    }
+
+    @Test
+    public void dijkstra() {
+        createGraph(vertexes(), edges());
+        for (TestVertex src : vertexes()) {
+            validateDijkstra(src);
+        }
+    }
+
+    @Test
+    public void dijkstraMultiplePaths() {
+        createGraph(of(A, B, C, D, E, F, G),
+                    of(new TestEdge(A, B, 1), new TestEdge(A, C, 1),
+                       new TestEdge(B, D, 1), new TestEdge(C, D, 1),
+                       new TestEdge(D, E, 1), new TestEdge(D, F, 1),
+                       new TestEdge(E, G, 1), new TestEdge(F, G, 1),
+                       new TestEdge(A, G, 4)));
+        validateDijkstra(A);
+
+        CompactGraphSearch.ShortestPathTree<TestVertex, TestEdge> tree =
+                search.dijkstra(compact.index(A), compact.weights(weight));
+        assertEquals("incorrect paths count", 5, tree.paths(compact.index(G), ALL_PATHS).size());
+        assertEquals("incorrect paths count", 2, tree.paths(compact.index(G), 2).size());
+    }
+
+    @Test
+    public void dijkstraNegativeWeights() {
+        createGraph(of(A, B, C, D),
+                    of(new TestEdge(A, B, 1), new TestEdge(B, C, -1),
+                       new TestEdge(A, D, 4), new TestEdge(D, C, 1)));
+        CompactGraphSearch.ShortestPathTree<TestVertex, TestEdge> tree =
+                search.dijkstra(compact.index(A), compact.weights(weight));
+        assertEquals("incorrect cost", 5.0, tree.cost(compact.index(C)), 0.0);
+        assertEquals("incorrect paths count", 1, tree.paths(compact.index(C), ALL_PATHS).size());
+    }
+
+    @Test
+    public void breadthFirst() {
+        createGraph(vertexes(), edges());
+        int[] order = new int[compact.vertexCount()];
+        int[] parents = new int[compact.vertexCount()];
+
+        // Search twice to make sure scratch state does not leak across.
+        for (int i = 0; i < 2; i++) {
+            int count = search.breadthFirst(compact.index(A), compact.weights(null),
+                                            order, parents);
+            assertEquals("incorrect reached count", 8, count);
+            assertEquals("incorrect first vertex", A, compact.vertex(order[0]));
+            assertEquals("incorrect hop to B", A,
+                         compact.edge(parents[compact.index(B)]).src());
+        }
+
+        assertEquals("incorrect reached count", 5,
+                     search.breadthFirst(compact.index(F), compact.weights(null),
+                                         order, parents));
+    }
+
+    @Test
+    public void tarjan() {
+        createGraph(vertexes(), edges());
+        TarjanGraphSearch.SCCResult<TestVertex, TestEdge> expected =
+                new TarjanGraphSearch<TestVertex, TestEdge>().search(graph, null);
+        int[] components = new int[compact.vertexCount()];
+        int count = search.tarjan(compact.weights(null), components);
+        assertEquals("incorrect cluster count", expected.clusterCount(), count);
+
+        for (int c = 0; c < count; c++) {
+            Set<TestVertex> cluster = new HashSet<>();
+            for (int v = 0; v < compact.vertexCount(); v++) {
+                if (components[v] == c) {
+                    cluster.add(compact.vertex(v));
+                }
+            }
+            assertEquals("incorrect cluster", expected.clusterVertexes().get(c), cluster);
+        }
+    }
+
+    @Test
+    public void tarjanSkipsNegativeWeights() {
+        createGraph(vertexes(),
+                    of(new TestEdge(A, B, 1), new TestEdge(B, C, 1),
+                       new TestEdge(C, D, 1), new TestEdge(D, A, -1),
+                       new TestEdge(E, F, 1), new TestEdge(F, G, 1),
+                       new TestEdge(G, H, 1), new TestEdge(H, E, 1)));
+        int[] components = new int[compact.vertexCount()];
+        assertEquals("incorrect cluster count", 5,
+                     search.tarjan(compact.weights(weight), components));
+    }
+}
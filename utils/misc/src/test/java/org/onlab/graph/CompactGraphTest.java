@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.testing.EqualsTester;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the compact graph implementation.
+ */
+public class CompactGraphTest extends GraphTest {
+
+    @Test
+    public void equality() {
+        Set<TestVertex> vertexes2 = ImmutableSet.of(A, B, C, D, E, F, G, H, Z);
+
+        CompactGraph<TestVertex, TestEdge> graph = new CompactGraph<>(vertexes(), edges());
+        CompactGraph<TestVertex, TestEdge> same = new CompactGraph<>(vertexes(), edges());
+        CompactGraph<TestVertex, TestEdge> different = new CompactGraph<>(vertexes2, edges());
+
+        new EqualsTester()
+                .addEqualityGroup(graph, same)
+                .addEqualityGroup(different)
+                .testEquals();
+    }
+
+    @Test
+    public void basics() {
+        CompactGraph<TestVertex, TestEdge> compact = new CompactGraph<>(vertexes(), edges());
+        AdjacencyListsGraph<TestVertex, TestEdge> lists = new AdjacencyListsGraph<>(vertexes(), edges());
+        assertEquals("incorrect vertexes", lists.getVertexes(), compact.getVertexes());
+        assertEquals("incorrect edges", lists.getEdges(), compact.getEdges());
+        for (TestVertex vertex : vertexes()) {
+            assertEquals("incorrect egress edges", lists.getEdgesFrom(vertex),
+                         compact.getEdgesFrom(vertex));
+            assertEquals("incorrect ingress edges", lists.getEdgesTo(vertex),
+                         compact.getEdgesTo(vertex));
+        }
+        assertTrue("no edges expected", compact.getEdgesFrom(Z).isEmpty());
+    }
+
+    @Test
+    public void indexes() {
+        CompactGraph<TestVertex, TestEdge> graph = new CompactGraph<>(vertexes(), edges());
+        assertEquals("incorrect vertex count", 8, graph.vertexCount());
+        assertEquals("incorrect edge count", 12, graph.edgeCount());
+        assertEquals("incorrect index", -1, graph.index(Z));
+
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            assertEquals("incorrect index", v, graph.index(graph.vertex(v)));
+            for (int e = graph.firstEdgeFrom(v); e < graph.firstEdgeFrom(v + 1); e++) {
+                assertEquals("incorrect source", v, graph.src(e));
+                assertEquals("incorrect source", graph.vertex(v), graph.edge(e).src());
+                assertEquals("incorrect destination", graph.edge(e).dst(),
+                             graph.vertex(graph.dst(e)));
+            }
+            for (int i = graph.firstEdgeTo(v); i < graph.firstEdgeTo(v + 1); i++) {
+                assertEquals("incorrect destination", v, graph.dst(graph.edgeTo(i)));
+            }
+        }
+
+        double[] weights = graph.weights(weight);
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            assertEquals("incorrect weight", graph.edge(e).weight(), weights[e], 0.0);
+            assertEquals("incorrect hop weight", 1.0, graph.weights(null)[e], 0.0);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.packet;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the lazily decoded Ethernet frame view.
+ */
+public class EthernetViewTest {
+
+    private static final MacAddress SRC = MacAddress.valueOf("00:00:00:00:00:01");
+    private static final MacAddress DST = MacAddress.valueOf("00:00:00:00:00:02");
+    private static final int SRC_IP = Ip4Address.valueOf("10.0.0.1").toInt();
+    private static final int DST_IP = Ip4Address.valueOf("10.0.0.2").toInt();
+
+    private static Ethernet udpFrame(short vlan) {
+        UDP udp = new UDP();
+        udp.setSourcePort((short) 1234);
+        udp.setDestinationPort((short) 53);
+        udp.setPayload(new Data(new byte[]{1, 2, 3}));
+
+        IPv4 ip = new IPv4();
+        ip.setSourceAddress(SRC_IP);
+        ip.setDestinationAddress(DST_IP);
+        ip.setProtocol(IPv4.PROTOCOL_UDP);
+        ip.setTtl((byte) 64);
+        ip.setPayload(udp);
+
+        Ethernet eth = new Ethernet();
+        eth.setSourceMACAddress(SRC);
+        eth.setDestinationMACAddress(DST);
+        eth.setEtherType(Ethernet.TYPE_IPV4);
+        if (vlan != Ethernet.VLAN_UNTAGGED) {
+            eth.setVlanID(vlan);
+            eth.setPriorityCode((byte) 5);
+        }
+        eth.setPayload(ip);
+        return eth;
+    }
+
+    @Test
+    public void untagged() {
+        Ethernet eth = udpFrame(Ethernet.VLAN_UNTAGGED);
+        EthernetView view = EthernetView.of(ByteBuffer.wrap(eth.serialize()));
+
+        assertEquals(SRC, view.getSourceMAC());
+        assertEquals(DST, view.getDestinationMAC());
+        assertEquals(Ethernet.TYPE_IPV4, view.getEtherType());
+        assertEquals(Ethernet.VLAN_UNTAGGED, view.getVlanID());
+        assertEquals(0, view.getPriorityCode());
+        assertEquals(14, view.getPayloadOffset());
+
+        assertTrue(view.isIpv4());
+        assertEquals(IPv4.PROTOCOL_UDP, view.getIpProtocol());
+        assertEquals(SRC_IP, view.getIpv4SourceAddress());
+        assertEquals(DST_IP, view.getIpv4DestinationAddress());
+        assertTrue(view.hasTransportPorts());
+        assertEquals(1234, view.getTransportSourcePort());
+        assertEquals(53, view.getTransportDestinationPort());
+
+        assertEquals(eth, view.parse());
+    }
+
+    @Test
+    public void tagged() {
+        Ethernet eth = udpFrame((short) 100);
+        byte[] bytes = eth.serialize();
+        // the view covers the remaining bytes of the buffer only
+        ByteBuffer bb = ByteBuffer.allocate(bytes.length + 3);
+        bb.position(3);
+        bb.put(bytes);
+        bb.position(3);
+        EthernetView view = EthernetView.of(bb);
+
+        assertEquals(Ethernet.TYPE_IPV4, view.getEtherType());
+        assertEquals(100, view.getVlanID());
+        assertEquals(5, view.getPriorityCode());
+        assertEquals(3 + 18, view.getPayloadOffset());
+        assertEquals(DST_IP, view.getIpv4DestinationAddress());
+        assertEquals(53, view.getTransportDestinationPort());
+
+        assertEquals(eth, view.parse());
+    }
+
+    @Test
+    public void notIpv4() {
+        Ethernet eth = new Ethernet();
+        eth.setSourceMACAddress(SRC);
+        eth.setDestinationMACAddress(MacAddress.BROADCAST);
+        eth.setEtherType(Ethernet.TYPE_ARP);
+        eth.setPayload(new Data(new byte[]{0, 1}));
+        EthernetView view = EthernetView.of(ByteBuffer.wrap(eth.serialize()));
+
+        assertEquals(Ethernet.TYPE_ARP, view.getEtherType());
+        assertEquals(MacAddress.BROADCAST, view.getDestinationMAC());
+        assertFalse(view.isIpv4());
+        assertFalse(view.hasTransportPorts());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void truncatedIpv4() {
+        byte[] bytes = udpFrame(Ethernet.VLAN_UNTAGGED).serialize();
+        EthernetView view = EthernetView.of(ByteBuffer.wrap(bytes, 0, 14 + 10));
+
+        assertEquals(Ethernet.TYPE_IPV4, view.getEtherType());
+        assertFalse(view.isIpv4());
+        view.getIpProtocol();
+    }
+
+    @Test
+    public void tooShort() {
+        assertNull(EthernetView.of(ByteBuffer.wrap(new byte[13])));
+    }
+}
@@ -20,6 +20,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ReplayingDecoder;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.onlab.packet.IpAddress;
@@ -29,6 +30,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Decoder for inbound messages.
+ * <p>
+ * A connection almost always carries messages from a single sender, so the
+ * sender endpoint is cached and only re-created when the address on the
+ * wire changes.
+ * </p>
  */
 public class MessageDecoder extends ReplayingDecoder<DecoderState> {
 
@@ -38,8 +44,11 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
 
     private long messageId;
     private Version ipVersion;
-    private IpAddress senderIp;
+    private byte[] senderOctets;
     private int senderPort;
+    private Endpoint sender;
+    private Version cachedVersion;
+    private byte[] cachedOctets;
     private int contentLength;
     private long messageType;
 
@@ -62,12 +71,15 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
             ipVersion = buffer.readByte() == 0x0 ? Version.INET : Version.INET6;
             checkpoint(DecoderState.READ_SENDER_IP);
         case READ_SENDER_IP:
-            byte[] octects = new byte[IpAddress.byteLength(ipVersion)];
-            buffer.readBytes(octects);
-            senderIp = IpAddress.valueOf(ipVersion, octects);
+            int length = IpAddress.byteLength(ipVersion);
+            if (senderOctets == null || senderOctets.length != length) {
+                senderOctets = new byte[length];
+            }
+            buffer.readBytes(senderOctets);
             checkpoint(DecoderState.READ_SENDER_PORT);
         case READ_SENDER_PORT:
             senderPort = buffer.readInt();
+            updateSender();
             checkpoint(DecoderState.READ_MESSAGE_TYPE);
         case READ_MESSAGE_TYPE:
             messageType = buffer.readLong();
@@ -80,7 +92,7 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
             buffer.readBytes(payload);
             InternalMessage message = new InternalMessage(
                     messageId,
-                    new Endpoint(senderIp, senderPort),
+                    sender,
                     messageType,
                     payload);
             message.setMessagingService(messagingService);
@@ -92,6 +104,16 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
         }
     }
 
+    private void updateSender() {
+        if (sender != null && sender.port() == senderPort
+                && cachedVersion == ipVersion && Arrays.equals(cachedOctets, senderOctets)) {
+            return;
+        }
+        cachedVersion = ipVersion;
+        cachedOctets = senderOctets.clone();
+        sender = new Endpoint(IpAddress.valueOf(ipVersion, cachedOctets), senderPort);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext context, Throwable cause) {
         log.error("Exception inside channel handling pipeline.", cause);
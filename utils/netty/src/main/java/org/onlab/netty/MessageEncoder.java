@@ -16,11 +16,14 @@
 package org.onlab.netty;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 import org.onlab.packet.IpAddress;
 import org.onlab.packet.IpAddress.Version;
@@ -29,44 +32,59 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Encode InternalMessage out into a byte buffer.
+ * <p>
+ * Only the fixed size header is written into a pooled buffer. The payload
+ * is wrapped as is and handed to the transport along with the header, so
+ * it is never copied on the way out.
+ * </p>
  */
 @Sharable
-public class MessageEncoder extends MessageToByteEncoder<InternalMessage> {
+public class MessageEncoder extends MessageToMessageEncoder<InternalMessage> {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    // message id + sender + message type + payload length
+    private static final int HEADER_LENGTH = 8 + 8 + 4;
+
+    // Encoded form of the last sender seen; almost always the local endpoint
+    private volatile EncodedSender lastSender;
+
     @Override
     protected void encode(
             ChannelHandlerContext context,
             InternalMessage message,
-            ByteBuf out) throws Exception {
+            List<Object> out) throws Exception {
 
-        // write message id
-        out.writeLong(message.id());
+        byte[] sender = encodedSender(message.sender());
+        byte[] payload = message.payload();
 
-        Endpoint sender = message.sender();
+        ByteBuf header = context.alloc().buffer(HEADER_LENGTH + sender.length);
 
-        IpAddress senderIp = sender.host();
-        if (senderIp.version() == Version.INET) {
-            out.writeByte(0);
-        } else {
-            out.writeByte(1);
-        }
-        out.writeBytes(senderIp.toOctets());
+        // write message id
+        header.writeLong(message.id());
 
-        // write sender port
-        out.writeInt(sender.port());
+        // write sender ip version, ip and port
+        header.writeBytes(sender);
 
         // write message type.
-        out.writeLong(message.type());
-
-        byte[] payload = message.payload();
+        header.writeLong(message.type());
 
         // write payload length
-        out.writeInt(payload.length);
+        header.writeInt(payload.length);
+
+        out.add(header);
 
         // write payload.
-        out.writeBytes(payload);
+        out.add(Unpooled.wrappedBuffer(payload));
+    }
+
+    private byte[] encodedSender(Endpoint sender) {
+        EncodedSender encoded = lastSender;
+        if (encoded == null || !encoded.endpoint.equals(sender)) {
+            encoded = new EncodedSender(sender);
+            lastSender = encoded;
+        }
+        return encoded.bytes;
     }
 
     @Override
@@ -78,4 +96,23 @@ public class MessageEncoder extends MessageToByteEncoder<InternalMessage> {
         }
         context.close();
     }
+
+    /**
+     * Sender endpoint together with its wire representation.
+     */
+    private static final class EncodedSender {
+        private final Endpoint endpoint;
+        private final byte[] bytes;
+
+        private EncodedSender(Endpoint endpoint) {
+            IpAddress senderIp = endpoint.host();
+            byte[] octets = senderIp.toOctets();
+            ByteBuffer buf = ByteBuffer.allocate(1 + octets.length + 4);
+            buf.put((byte) (senderIp.version() == Version.INET ? 0 : 1));
+            buf.put(octets);
+            buf.putInt(endpoint.port());
+            this.endpoint = endpoint;
+            this.bytes = buf.array();
+        }
+    }
 }
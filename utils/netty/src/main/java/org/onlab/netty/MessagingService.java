@@ -16,6 +16,7 @@
 package org.onlab.netty;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 
 import com.google.common.util.concurrent.ListenableFuture;
@@ -44,6 +45,19 @@ public interface MessagingService {
      */
     public ListenableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload) throws IOException;
 
+    /**
+     * Sends a message synchronously and waits for a response, failing the
+     * response future if no reply arrives within the given timeout.
+     * @param ep end point to send the message to.
+     * @param type type of message.
+     * @param payload message payload.
+     * @param timeout time to wait for the response.
+     * @return a response future
+     * @throws IOException when I/O exception of some sort has occurred
+     */
+    public ListenableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload, Duration timeout)
+            throws IOException;
+
     /**
      * Registers a new message handler for message type.
      * @param type message type.
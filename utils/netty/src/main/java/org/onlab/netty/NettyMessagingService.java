@@ -15,6 +15,9 @@
  */
 package org.onlab.netty;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.onlab.util.Tools.groupedThreads;
+
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
@@ -35,30 +38,33 @@ import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.HashedWheelTimer;
 
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.commons.pool.KeyedPoolableObjectFactory;
-import org.apache.commons.pool.impl.GenericKeyedObjectPool;
 import org.onlab.packet.IpAddress;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Charsets;
-import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
 import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
@@ -73,18 +79,12 @@ public class NettyMessagingService implements MessagingService {
     private final Endpoint localEp;
     private final ConcurrentMap<Long, MessageHandler> handlers = new ConcurrentHashMap<>();
     private final AtomicLong messageIdGenerator = new AtomicLong(0);
-    private final Cache<Long, SettableFuture<byte[]>> responseFutures = CacheBuilder.newBuilder()
-            .maximumSize(100000)
-            .expireAfterWrite(10, TimeUnit.SECONDS)
-            .removalListener(new RemovalListener<Long, SettableFuture<byte[]>>() {
-                @Override
-                public void onRemoval(RemovalNotification<Long, SettableFuture<byte[]>> entry) {
-                    if (entry.wasEvicted()) {
-                        entry.getValue().setException(new TimeoutException("Timedout waiting for reply"));
-                    }
-                }
-            })
-            .build();
+    private static final Duration DEFAULT_REPLY_TIMEOUT = Duration.ofSeconds(10);
+
+    private final HashedWheelTimer replyTimer =
+            new HashedWheelTimer(groupedThreads("onlab/netty", "reply-timer-%d"),
+                                 10, TimeUnit.MILLISECONDS);
+    private final ReplyRegistry responseFutures = new ReplyRegistry(replyTimer);
 
     private final LoadingCache<String, Long> messageTypeLookupCache = CacheBuilder.newBuilder()
             .build(new CacheLoader<String, Long>() {
@@ -94,13 +94,28 @@ public class NettyMessagingService implements MessagingService {
                 }
             });
 
-    private final GenericKeyedObjectPool<Endpoint, Channel> channels
-            = new GenericKeyedObjectPool<Endpoint, Channel>(new OnosCommunicationChannelFactory());
+    private static final int DEFAULT_CHANNELS_PER_PEER = 4;
+    private static final long MIN_RECONNECT_DELAY_MS = 100;
+    private static final long MAX_RECONNECT_DELAY_MS = 5000;
+    // Failed connects in a row after which the connections to a peer are dropped
+    private static final int MAX_CONNECT_ATTEMPTS = 8;
+
+    private static final int DEFAULT_MAX_BATCH_MESSAGES = 256;
+    private static final int DEFAULT_MAX_BATCH_BYTES = 64 * 1024;
+
+    private final ConcurrentMap<Endpoint, Connection[]> connections = new ConcurrentHashMap<>();
+    private volatile int channelsPerPeer = DEFAULT_CHANNELS_PER_PEER;
+    private volatile boolean stopped = false;
+    private volatile int maxBatchMessages = DEFAULT_MAX_BATCH_MESSAGES;
+    private volatile int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+    private final Histogram batchSizes = new Histogram(new ExponentiallyDecayingReservoir());
+    private final Timer flushLatency = new Timer();
 
     private EventLoopGroup serverGroup;
     private EventLoopGroup clientGroup;
     private Class<? extends ServerChannel> serverChannelClass;
     private Class<? extends Channel> clientChannelClass;
+    private Bootstrap clientBootstrap;
 
     private void initEventLoopGroup() {
         // try Epoll first and if that does work, use nio.
@@ -137,16 +152,22 @@ public class NettyMessagingService implements MessagingService {
     }
 
     public void activate() throws InterruptedException {
-        channels.setTestOnBorrow(true);
-        channels.setTestOnReturn(true);
         initEventLoopGroup();
+        clientBootstrap = createClientBootstrap();
         startAcceptingConnections();
     }
 
     public void deactivate() throws Exception {
-        channels.close();
+        stopped = true;
+        connections.values().forEach(peer -> {
+            for (Connection connection : peer) {
+                connection.close();
+            }
+        });
+        connections.clear();
         serverGroup.shutdownGracefully();
         clientGroup.shutdownGracefully();
+        replyTimer.stop();
     }
 
     /**
@@ -157,6 +178,70 @@ public class NettyMessagingService implements MessagingService {
         return localEp;
     }
 
+    /**
+     * Sets the number of channels opened to each peer. Messages of the same
+     * type always travel on the same channel, so their order is preserved.
+     * Must be called before any message is sent.
+     * @param channelsPerPeer number of channels per peer.
+     */
+    public void setChannelsPerPeer(int channelsPerPeer) {
+        checkArgument(channelsPerPeer > 0, "Number of channels must be positive");
+        this.channelsPerPeer = channelsPerPeer;
+    }
+
+    /**
+     * Sets the maximum number of messages written to a peer before the
+     * channel is flushed.
+     * @param maxBatchMessages maximum number of messages per flush.
+     */
+    public void setMaxBatchMessages(int maxBatchMessages) {
+        checkArgument(maxBatchMessages > 0, "Batch size must be positive");
+        this.maxBatchMessages = maxBatchMessages;
+    }
+
+    /**
+     * Sets the maximum number of payload bytes written to a peer before the
+     * channel is flushed.
+     * @param maxBatchBytes maximum number of payload bytes per flush.
+     */
+    public void setMaxBatchBytes(int maxBatchBytes) {
+        checkArgument(maxBatchBytes > 0, "Batch size must be positive");
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    /**
+     * Returns the number of requests still waiting for a reply.
+     * @return outstanding request count.
+     */
+    public long outstandingRequests() {
+        return responseFutures.outstanding();
+    }
+
+    /**
+     * Returns the number of requests that timed out waiting for a reply.
+     * @return timed out request count.
+     */
+    public long timedOutRequests() {
+        return responseFutures.timedOut();
+    }
+
+    /**
+     * Returns the distribution of the number of messages written per flush.
+     * @return batch size histogram.
+     */
+    public Histogram batchSizeHistogram() {
+        return batchSizes;
+    }
+
+    /**
+     * Returns the time taken from handing a batch to the event loop until
+     * it is flushed.
+     * @return flush latency timer.
+     */
+    public Timer flushLatencyTimer() {
+        return flushLatency;
+    }
+
     @Override
     public void sendAsync(Endpoint ep, String type, byte[] payload) throws IOException {
         InternalMessage message = new InternalMessage.Builder(this)
@@ -173,28 +258,32 @@ public class NettyMessagingService implements MessagingService {
             dispatchLocally(message);
             return;
         }
-        Channel channel = null;
-        try {
-            try {
-                channel = channels.borrowObject(ep);
-                channel.eventLoop().execute(new WriteTask(channel, message));
-            } finally {
-                channels.returnObject(ep, channel);
-            }
-        } catch (IOException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new IOException(e);
-        }
+        Connection[] peer = connections.computeIfAbsent(ep, this::newConnections);
+        // Replies carry no ordering requirement, spread them by id instead
+        long key = message.type() == InternalMessage.REPLY_MESSAGE_TYPE ? message.id() : message.type();
+        peer[Math.floorMod(Long.hashCode(key), peer.length)].enqueue(message);
+    }
 
+    private Connection[] newConnections(Endpoint ep) {
+        Connection[] peer = new Connection[channelsPerPeer];
+        for (int i = 0; i < peer.length; i++) {
+            peer[i] = new Connection(ep, peer);
+        }
+        return peer;
     }
 
     @Override
     public ListenableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload)
             throws IOException {
+        return sendAndReceive(ep, type, payload, DEFAULT_REPLY_TIMEOUT);
+    }
+
+    @Override
+    public ListenableFuture<byte[]> sendAndReceive(Endpoint ep, String type, byte[] payload,
+                                                   Duration timeout) throws IOException {
         SettableFuture<byte[]> futureResponse = SettableFuture.create();
-        Long messageId = messageIdGenerator.incrementAndGet();
-        responseFutures.put(messageId, futureResponse);
+        long messageId = messageIdGenerator.incrementAndGet();
+        responseFutures.register(messageId, futureResponse, timeout.toMillis(), TimeUnit.MILLISECONDS);
         InternalMessage message = new InternalMessage.Builder(this)
             .withId(messageId)
             .withSender(localEp)
@@ -204,7 +293,7 @@ public class NettyMessagingService implements MessagingService {
         try {
             sendAsync(ep, message);
         } catch (Exception e) {
-            responseFutures.invalidate(messageId);
+            responseFutures.remove(messageId);
             throw e;
         }
         return futureResponse;
@@ -255,45 +344,16 @@ public class NettyMessagingService implements MessagingService {
         b.bind(localEp.port()).sync();
     }
 
-    private class OnosCommunicationChannelFactory
-        implements KeyedPoolableObjectFactory<Endpoint, Channel> {
-
-        @Override
-        public void activateObject(Endpoint endpoint, Channel channel)
-                throws Exception {
-        }
-
-        @Override
-        public void destroyObject(Endpoint ep, Channel channel) throws Exception {
-            channel.close();
-        }
-
-        @Override
-        public Channel makeObject(Endpoint ep) throws Exception {
-            Bootstrap bootstrap = new Bootstrap();
-            bootstrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
-            bootstrap.option(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, 32 * 1024);
-            bootstrap.option(ChannelOption.WRITE_BUFFER_LOW_WATER_MARK, 8 * 1024);
-            bootstrap.group(clientGroup);
-            // TODO: Make this faster:
-            // http://normanmaurer.me/presentations/2014-facebook-eng-netty/slides.html#37.0
-            bootstrap.channel(clientChannelClass);
-            bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
-            bootstrap.handler(new OnosCommunicationChannelInitializer());
-            // Start the client.
-            ChannelFuture f = bootstrap.connect(ep.host().toString(), ep.port()).sync();
-            return f.channel();
-        }
-
-        @Override
-        public void passivateObject(Endpoint ep, Channel channel)
-                throws Exception {
-        }
-
-        @Override
-        public boolean validateObject(Endpoint ep, Channel channel) {
-            return channel.isOpen();
-        }
+    private Bootstrap createClientBootstrap() {
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+        bootstrap.option(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, 32 * 1024);
+        bootstrap.option(ChannelOption.WRITE_BUFFER_LOW_WATER_MARK, 8 * 1024);
+        bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
+        bootstrap.group(clientGroup);
+        bootstrap.channel(clientChannelClass);
+        bootstrap.handler(new OnosCommunicationChannelInitializer());
+        return bootstrap;
     }
 
     private class OnosCommunicationChannelInitializer extends ChannelInitializer<SocketChannel> {
@@ -310,19 +370,233 @@ public class NettyMessagingService implements MessagingService {
         }
     }
 
-    private static class WriteTask implements Runnable {
+    /**
+     * Long-lived channel to a peer together with its outbound queue.
+     * <p>
+     * The channel is connected asynchronously and re-connected in the
+     * background when it closes. While it is connecting, messages are
+     * queued; when the peer is unreachable, sends fail immediately until
+     * the reconnect back-off expires.
+     * </p>
+     * <p>
+     * Messages are written without flushing on the channel's event loop and
+     * the channel is flushed once per event loop turn, or earlier when the
+     * message or byte limit is reached, so that the transport can hand the
+     * whole batch to a single gathering write.
+     * </p>
+     */
+    private final class Connection implements Runnable {
+
+        private final Endpoint ep;
+        // all connections to the peer, this one included
+        private final Connection[] peer;
+        private final Queue<InternalMessage> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private final ChannelFutureListener writeListener = this::written;
+
+        private volatile Channel channel;
+        private boolean connecting = false;
+        private volatile boolean evicted = false;
+        private volatile long retryAtMillis = 0;
+        private long reconnectDelayMillis = MIN_RECONNECT_DELAY_MS;
+        private int failedConnects = 0;
+        private long scheduledNanos;
+
+        private Connection(Endpoint ep, Connection[] peer) {
+            this.ep = ep;
+            this.peer = peer;
+        }
 
-        private final InternalMessage message;
-        private final Channel channel;
+        private void enqueue(InternalMessage message) throws IOException {
+            if (evicted) {
+                throw new IOException("Connection to " + ep + " was dropped");
+            }
+            Channel ch = channel;
+            if (ch == null || !ch.isActive()) {
+                if (System.currentTimeMillis() < retryAtMillis) {
+                    throw new IOException("Connection to " + ep + " is unavailable");
+                }
+                pending.add(message);
+                connect();
+                // The channel may have come up while the message was queued
+                Channel current = channel;
+                if (current != null && current.isActive()) {
+                    scheduleFlush(current);
+                }
+                return;
+            }
+            pending.add(message);
+            scheduleFlush(ch);
+        }
 
-        public WriteTask(Channel channel, InternalMessage message) {
-            this.channel = channel;
-            this.message = message;
+        private void connect() {
+            synchronized (this) {
+                if (connecting || stopped || evicted) {
+                    return;
+                }
+                connecting = true;
+            }
+            clientBootstrap.connect(ep.host().toString(), ep.port()).addListener(
+                    (ChannelFutureListener) future -> connected(future));
+        }
+
+        private void connected(ChannelFuture future) {
+            if (future.isSuccess()) {
+                Channel ch = future.channel();
+                ch.closeFuture().addListener((ChannelFutureListener) f -> closed(ch));
+                synchronized (this) {
+                    channel = ch;
+                    connecting = false;
+                    reconnectDelayMillis = MIN_RECONNECT_DELAY_MS;
+                    retryAtMillis = 0;
+                    failedConnects = 0;
+                }
+                scheduleFlush(ch);
+            } else {
+                log.debug("Failed to connect to {}", ep, future.cause());
+                long delay;
+                boolean retry;
+                synchronized (this) {
+                    connecting = false;
+                    delay = reconnectDelayMillis;
+                    retryAtMillis = System.currentTimeMillis() + delay;
+                    reconnectDelayMillis = Math.min(reconnectDelayMillis * 2, MAX_RECONNECT_DELAY_MS);
+                    retry = ++failedConnects < MAX_CONNECT_ATTEMPTS;
+                }
+                failPending(future.cause());
+                if (retry) {
+                    // Try again in the background once the backoff expires
+                    clientGroup.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+                } else {
+                    evict();
+                }
+            }
+        }
+
+        /**
+         * Drops the connections to the peer once none of them is up or
+         * being established, so that departed peers do not stay in the
+         * connection map. A later message opens new connections.
+         */
+        private void evict() {
+            for (Connection connection : peer) {
+                if (connection.isUp()) {
+                    return;
+                }
+            }
+            if (connections.remove(ep, peer)) {
+                log.info("Dropping connections to unreachable peer {}", ep);
+                Arrays.stream(peer).forEach(Connection::drop);
+            }
+        }
+
+        private synchronized boolean isUp() {
+            Channel ch = channel;
+            return connecting || (ch != null && ch.isActive());
+        }
+
+        private void drop() {
+            evicted = true;
+            close();
+            failPending(new IOException("Peer " + ep + " is unreachable"));
+        }
+
+        private void written(ChannelFuture future) {
+            if (!future.isSuccess()) {
+                log.debug("Failed to send message to {}", ep, future.cause());
+            }
+        }
+
+        private void closed(Channel ch) {
+            synchronized (this) {
+                if (channel != ch) {
+                    return;
+                }
+                channel = null;
+            }
+            // Re-establish the channel in the background
+            connect();
+        }
+
+        private void failPending(Throwable cause) {
+            InternalMessage message;
+            while ((message = pending.poll()) != null) {
+                failRequest(message, cause);
+            }
+        }
+
+        private void failRequest(InternalMessage message, Throwable cause) {
+            if (message.type() == InternalMessage.REPLY_MESSAGE_TYPE) {
+                return;
+            }
+            SettableFuture<byte[]> future = responseFutures.remove(message.id());
+            if (future != null) {
+                future.setException(new IOException("Failed to send to " + ep, cause));
+            }
+        }
+
+        private void close() {
+            Channel ch = channel;
+            if (ch != null) {
+                ch.close();
+            }
+        }
+
+        private void scheduleFlush(Channel ch) {
+            if (!pending.isEmpty() && scheduled.compareAndSet(false, true)) {
+                scheduledNanos = System.nanoTime();
+                ch.eventLoop().execute(this);
+            }
         }
 
         @Override
         public void run() {
-            channel.writeAndFlush(message).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+            final Channel ch = channel;
+            if (ch == null || !ch.isActive()) {
+                // Messages stay queued until the channel is re-established
+                scheduled.set(false);
+                return;
+            }
+
+            int messages = 0;
+            long bytes = 0;
+            InternalMessage message;
+            while (messages < maxBatchMessages && bytes < maxBatchBytes
+                    && (message = pending.poll()) != null) {
+                write(ch, message);
+                messages++;
+                bytes += message.payload().length;
+            }
+            if (messages > 0) {
+                ch.flush();
+                batchSizes.update(messages);
+                flushLatency.update(System.nanoTime() - scheduledNanos, TimeUnit.NANOSECONDS);
+            }
+
+            if (!pending.isEmpty()) {
+                // More to send; go again on the next turn of the event loop
+                scheduledNanos = System.nanoTime();
+                ch.eventLoop().execute(this);
+                return;
+            }
+
+            scheduled.set(false);
+            scheduleFlush(ch);
+        }
+
+        private void write(Channel ch, InternalMessage message) {
+            if (message.type() != InternalMessage.REPLY_MESSAGE_TYPE) {
+                // a failed write fails a request instead of leaving the
+                // caller waiting for the reply timeout
+                ch.write(message).addListener((ChannelFutureListener) future -> {
+                    if (!future.isSuccess()) {
+                        log.debug("Failed to send message to {}", ep, future.cause());
+                        failRequest(message, future.cause());
+                    }
+                });
+            } else {
+                ch.write(message).addListener(writeListener);
+            }
         }
     }
 
@@ -344,18 +618,14 @@ public class NettyMessagingService implements MessagingService {
     private void dispatchLocally(InternalMessage message) throws IOException {
         long type = message.type();
         if (type == InternalMessage.REPLY_MESSAGE_TYPE) {
-            try {
-                SettableFuture<byte[]> futureResponse =
-                    NettyMessagingService.this.responseFutures.getIfPresent(message.id());
-                if (futureResponse != null) {
-                    futureResponse.set(message.payload());
-                } else {
-                    log.warn("Received a reply for message id:[{}]. "
-                            + " from {}. But was unable to locate the"
-                            + " request handle", message.id(), message.sender());
-                }
-            } finally {
-                NettyMessagingService.this.responseFutures.invalidate(message.id());
+            SettableFuture<byte[]> futureResponse =
+                NettyMessagingService.this.responseFutures.remove(message.id());
+            if (futureResponse != null) {
+                futureResponse.set(message.payload());
+            } else {
+                log.warn("Received a reply for message id:[{}]. "
+                        + " from {}. But was unable to locate the"
+                        + " request handle", message.id(), message.sender());
             }
             return;
         }
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.netty;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Correlates outstanding requests with their replies.
+ * <p>
+ * Pending reply futures are kept in lock-striped open addressing tables
+ * keyed by the primitive message id, and each request is armed with a
+ * timeout on a hashed wheel timer. Unlike a size bounded cache, live
+ * requests are never evicted; they leave the registry only when the reply
+ * arrives, the request fails or its own timeout expires.
+ * </p>
+ */
+final class ReplyRegistry {
+
+    private static final int STRIPES = 64;
+
+    private final Timer timer;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicLong timedOut = new AtomicLong();
+
+    /**
+     * Creates a new registry whose timeouts run on the given timer.
+     *
+     * @param timer timer for request timeouts
+     */
+    ReplyRegistry(Timer timer) {
+        this.timer = checkNotNull(timer);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Registers the reply future of a request.
+     *
+     * @param id message id of the request
+     * @param future future completed by the reply
+     * @param timeout time to wait for the reply
+     * @param unit unit of the timeout
+     */
+    void register(long id, SettableFuture<byte[]> future, long timeout, TimeUnit unit) {
+        Entry entry = new Entry(future);
+        stripe(id).put(id, entry);
+        entry.timeout = timer.newTimeout(t -> {
+            Entry expired = stripe(id).remove(id);
+            if (expired != null) {
+                timedOut.incrementAndGet();
+                expired.future.setException(new TimeoutException("Timedout waiting for reply"));
+            }
+        }, timeout, unit);
+    }
+
+    /**
+     * Removes the reply future of a request and disarms its timeout.
+     *
+     * @param id message id of the request
+     * @return reply future, or null if the request is not outstanding
+     */
+    SettableFuture<byte[]> remove(long id) {
+        Entry entry = stripe(id).remove(id);
+        if (entry == null) {
+            return null;
+        }
+        Timeout timeout = entry.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        return entry.future;
+    }
+
+    /**
+     * Returns the number of requests waiting for a reply.
+     *
+     * @return outstanding request count
+     */
+    long outstanding() {
+        long count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of requests that timed out so far.
+     *
+     * @return timed out request count
+     */
+    long timedOut() {
+        return timedOut.get();
+    }
+
+    private static long mix(long id) {
+        return id * 0x9E3779B97F4A7C15L;
+    }
+
+    private Stripe stripe(long id) {
+        return stripes[(int) (mix(id) >>> 58) & (STRIPES - 1)];
+    }
+
+    /**
+     * Reply future together with its armed timeout.
+     */
+    private static final class Entry {
+        private final SettableFuture<byte[]> future;
+        private volatile Timeout timeout;
+
+        private Entry(SettableFuture<byte[]> future) {
+            this.future = future;
+        }
+    }
+
+    /**
+     * Open addressing long to entry table with linear probing.
+     */
+    private static final class Stripe {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Entry[] values = new Entry[INITIAL_CAPACITY];
+        private int size = 0;
+
+        private static int slot(long key, int mask) {
+            return (int) (mix(key) >>> 32) & mask;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void put(long key, Entry value) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        synchronized Entry remove(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    Entry value = values[i];
+                    values[i] = null;
+                    size--;
+                    closeGap(i, mask);
+                    return value;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        // Backward shift deletion keeps probe sequences intact without tombstones
+        private void closeGap(int hole, int mask) {
+            int i = (hole + 1) & mask;
+            while (values[i] != null) {
+                int home = slot(keys[i], mask);
+                boolean movable = i > hole ? (home <= hole || home > i)
+                                           : (home <= hole && home > i);
+                if (movable) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    values[i] = null;
+                    hole = i;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            Entry[] oldValues = values;
+            keys = new long[capacity];
+            values = new Entry[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import io.netty.util.HashedWheelTimer;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Unit tests for ReplyRegistry.
+ */
+public class ReplyRegistryTest {
+
+    private HashedWheelTimer timer;
+    private ReplyRegistry registry;
+
+    @Before
+    public void setUp() {
+        timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS);
+        registry = new ReplyRegistry(timer);
+    }
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void testRegisterAndRemove() {
+        SettableFuture<byte[]> future = SettableFuture.create();
+        registry.register(1L, future, 10, TimeUnit.SECONDS);
+        assertEquals(1, registry.outstanding());
+
+        assertSame(future, registry.remove(1L));
+        assertNull(registry.remove(1L));
+        assertEquals(0, registry.outstanding());
+        assertFalse(future.isDone());
+    }
+
+    @Test
+    public void testManyRequests() {
+        int count = 10_000;
+        for (long id = 1; id <= count; id++) {
+            registry.register(id, SettableFuture.create(), 10, TimeUnit.SECONDS);
+        }
+        assertEquals(count, registry.outstanding());
+
+        // remove every other request, then make sure the rest are still found
+        for (long id = 1; id <= count; id += 2) {
+            assertTrue(registry.remove(id) != null);
+        }
+        for (long id = 2; id <= count; id += 2) {
+            assertTrue(registry.remove(id) != null);
+        }
+        assertEquals(0, registry.outstanding());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        SettableFuture<byte[]> future = SettableFuture.create();
+        registry.register(7L, future, 20, TimeUnit.MILLISECONDS);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("expected timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(1, registry.timedOut());
+        assertEquals(0, registry.outstanding());
+        assertNull(registry.remove(7L));
+    }
+}